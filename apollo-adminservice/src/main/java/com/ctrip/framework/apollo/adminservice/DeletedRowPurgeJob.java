@@ -0,0 +1,71 @@
+package com.ctrip.framework.apollo.adminservice;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.service.DeletedRowPurgeService;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link DeletedRowPurgeService} in the background every {@code deleted-row-purge.interval} hours, when
+ * {@code deleted-row-purge.enabled} is on. The settings are checked every few minutes, so they take effect without
+ * restarting.
+ */
+@Component
+public class DeletedRowPurgeJob {
+  private static final Logger logger = LoggerFactory.getLogger(DeletedRowPurgeJob.class);
+  private static final int CHECK_INTERVAL_IN_MINUTES = 10;
+
+  private final DeletedRowPurgeService deletedRowPurgeService;
+  private final BizConfig bizConfig;
+  private final ScheduledExecutorService executorService;
+
+  private long lastPurgeTime;
+
+  public DeletedRowPurgeJob(final DeletedRowPurgeService deletedRowPurgeService, final BizConfig bizConfig) {
+    this.deletedRowPurgeService = deletedRowPurgeService;
+    this.bizConfig = bizConfig;
+    this.executorService = Executors.newSingleThreadScheduledExecutor(ApolloThreadFactory
+        .create("DeletedRowPurgeJob", true));
+  }
+
+  @PostConstruct
+  private void initialize() {
+    executorService.scheduleWithFixedDelay(this::purgeIfDue, CHECK_INTERVAL_IN_MINUTES, CHECK_INTERVAL_IN_MINUTES,
+        TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executorService.shutdownNow();
+  }
+
+  private void purgeIfDue() {
+    if (!bizConfig.isDeletedRowPurgeEnabled()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (now - lastPurgeTime < TimeUnit.HOURS.toMillis(bizConfig.deletedRowPurgeIntervalInHours())) {
+      return;
+    }
+    lastPurgeTime = now;
+
+    try {
+      int purged = deletedRowPurgeService.purge();
+      logger.info("Purge deleted rows done, {} rows purged", purged);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable ex) {
+      logger.error("Purge deleted rows failed", ex);
+      Tracer.logError(ex);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.ctrip.framework.apollo.adminservice;
+
+import com.ctrip.framework.apollo.biz.entity.ServerConfig;
+import com.ctrip.framework.apollo.biz.repository.ServerConfigRepository;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Saves the branch release keys of the release histories created before they were stored as ReleaseBranchKey.
+ *
+ * <p>Runs once in the background after startup. The histories not backfilled yet are still read from their operation
+ * context, so the backfill only speeds up the later merges and can be interrupted at any time.
+ *
+ * <p>The id of the last scanned history is saved in ServerConfig, so that the next startup only scans the histories
+ * created since then, instead of the whole table again.
+ */
+@Component
+public class ReleaseBranchKeyBackfiller implements ApplicationRunner {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseBranchKeyBackfiller.class);
+  static final String BACKFILLED_RELEASE_HISTORY_ID_KEY = "release-branch-key.backfilled-release-history-id";
+  private static final String OPERATOR = "apollo";
+
+  private final ReleaseHistoryService releaseHistoryService;
+  private final ServerConfigRepository serverConfigRepository;
+  private final ExecutorService executorService;
+
+  public ReleaseBranchKeyBackfiller(
+      final ReleaseHistoryService releaseHistoryService,
+      final ServerConfigRepository serverConfigRepository) {
+    this.releaseHistoryService = releaseHistoryService;
+    this.serverConfigRepository = serverConfigRepository;
+    this.executorService = Executors.newSingleThreadExecutor(ApolloThreadFactory
+        .create("ReleaseBranchKeyBackfiller", true));
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    executorService.submit(this::backfill);
+    executorService.shutdown();
+  }
+
+  void backfill() {
+    Transaction transaction = Tracer.newTransaction("Apollo.ReleaseBranchKey", "backfill");
+    ServerConfig backfilled = null;
+    long releaseHistoryId = 0;
+    try {
+      backfilled = serverConfigRepository.findTopByKeyAndCluster(BACKFILLED_RELEASE_HISTORY_ID_KEY,
+          ConfigConsts.CLUSTER_NAME_DEFAULT);
+      if (backfilled != null) {
+        releaseHistoryId = Long.parseLong(backfilled.getValue());
+      }
+      long fromReleaseHistoryId = releaseHistoryId;
+      while (true) {
+        long lastId;
+        try {
+          lastId = releaseHistoryService.backfillBranchReleaseKeys(releaseHistoryId);
+        } catch (Throwable ex) {
+          //e.g. the same batch backfilled by another admin service at the same time
+          logger.warn("Backfill release branch keys after release history {} failed", releaseHistoryId, ex);
+          Tracer.logError(ex);
+          break;
+        }
+        if (lastId == releaseHistoryId) {
+          break;
+        }
+        releaseHistoryId = lastId;
+      }
+      if (releaseHistoryId > fromReleaseHistoryId) {
+        saveBackfilledReleaseHistoryId(backfilled, releaseHistoryId);
+      }
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      logger.warn("Backfill release branch keys failed", ex);
+      transaction.setStatus(ex);
+    } finally {
+      transaction.complete();
+    }
+    logger.info("Backfill release branch keys done, scanned release histories up to {}", releaseHistoryId);
+  }
+
+  private void saveBackfilledReleaseHistoryId(ServerConfig backfilled, long releaseHistoryId) {
+    if (backfilled == null) {
+      backfilled = new ServerConfig();
+      backfilled.setKey(BACKFILLED_RELEASE_HISTORY_ID_KEY);
+      backfilled.setCluster(ConfigConsts.CLUSTER_NAME_DEFAULT);
+      backfilled.setComment("the release histories up to this id have their branch release keys saved");
+      backfilled.setDataChangeCreatedBy(OPERATOR);
+    }
+    backfilled.setValue(String.valueOf(releaseHistoryId));
+    backfilled.setDataChangeLastModifiedBy(OPERATOR);
+    serverConfigRepository.save(backfilled);
+  }
+}
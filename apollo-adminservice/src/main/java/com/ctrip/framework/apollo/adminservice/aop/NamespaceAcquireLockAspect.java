@@ -24,6 +24,9 @@ import org.springframework.stereotype.Component;
  * 一个namespace在一次发布中只能允许一个人修改配置  (修改可以是多个人  但是发布只能是一个人)
  * 通过数据库lock表来实现
  * 这个是锁定切面  自定义切面
+ * <p>
+ * 通过 ItemChangeSets 批量修改时整个变更集只加锁一次；加锁成功后在租约时间内，同一个人的后续修改只确认锁定记录仍然存在，
+ * 见 {@link NamespaceLockService#isLeasedBy(String, String, String, String)}
  */
 @Aspect
 @Component
@@ -86,6 +89,10 @@ public class NamespaceAcquireLockAspect {
         if (bizConfig.isNamespaceLockSwitchOff()) {
             return;
         }
+        // 租约内已确认由当前用户锁定，且锁定记录仍然存在，不需要查询 Namespace 和锁定记录
+        if (namespaceLockService.isLeasedBy(appId, clusterName, namespaceName, currentUser)) {
+            return;
+        }
         // 获得 Namespace 对象
         Namespace namespace = namespaceService.findOne(appId, clusterName, namespaceName);
 
@@ -103,6 +110,9 @@ public class NamespaceAcquireLockAspect {
         if (bizConfig.isNamespaceLockSwitchOff()) {
             return;
         }
+        if (namespaceLockService.isLeasedBy(namespaceId, currentUser)) {
+            return;
+        }
 
         Namespace namespace = namespaceService.findOne(namespaceId);
 
@@ -138,6 +148,8 @@ public class NamespaceAcquireLockAspect {
             //check lock owner is current user
             checkLock(namespace, namespaceLock, currentUser);
         }
+        // 当前用户持有锁，续租
+        namespaceLockService.renewLease(namespace, currentUser);
     }
 
     private void tryLock(long namespaceId, String user) {
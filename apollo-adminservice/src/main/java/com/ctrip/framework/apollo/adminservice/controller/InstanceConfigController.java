@@ -2,11 +2,13 @@ package com.ctrip.framework.apollo.adminservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceIndex;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.dto.InstanceConfigDTO;
 import com.ctrip.framework.apollo.common.dto.InstanceDTO;
+import com.ctrip.framework.apollo.common.dto.InstanceSummaryDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
@@ -182,8 +184,23 @@ public class InstanceConfigController {
   public long getInstancesCountByNamespace(@RequestParam("appId") String appId,
                                           @RequestParam("clusterName") String clusterName,
                                           @RequestParam("namespaceName") String namespaceName) {
-    Page<Instance> instances = instanceService.findInstancesByNamespace(appId, clusterName,
-        namespaceName, PageRequest.of(0, 1));
-    return instances.getTotalElements();
+    return instanceService.countInstancesByNamespace(appId, clusterName, namespaceName);
+  }
+
+  @GetMapping("/by-namespace/summary")
+  public List<InstanceSummaryDTO> getInstanceSummaryByNamespace(@RequestParam("appId") String appId,
+                                                               @RequestParam("clusterName") String clusterName,
+                                                               @RequestParam("namespaceName") String namespaceName) {
+    List<InstanceIndex> instanceIndexes = instanceService.summarizeInstancesByNamespace(appId, clusterName,
+        namespaceName);
+
+    return instanceIndexes.stream().map(instanceIndex -> {
+      InstanceSummaryDTO instanceSummaryDTO = new InstanceSummaryDTO();
+      instanceSummaryDTO.setReleaseKey(instanceIndex.getReleaseKey());
+      instanceSummaryDTO.setClusterName(instanceIndex.getInstanceClusterName());
+      instanceSummaryDTO.setDataCenter(instanceIndex.getDataCenter());
+      instanceSummaryDTO.setInstanceCount(instanceIndex.getInstanceCount());
+      return instanceSummaryDTO;
+    }).collect(Collectors.toList());
   }
 }
@@ -1,7 +1,9 @@
 package com.ctrip.framework.apollo.adminservice.controller;
 
+import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseHistoryDTO;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
@@ -16,8 +18,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -28,11 +32,16 @@ public class ReleaseHistoryController {
   private Gson gson = new Gson();
   private Type configurationTypeReference = new TypeToken<Map<String, Object>>() {
   }.getType();
+  private Type changedKeysTypeReference = new TypeToken<List<String>>() {
+  }.getType();
 
   private final ReleaseHistoryService releaseHistoryService;
+  private final ReleaseService releaseService;
 
-  public ReleaseHistoryController(final ReleaseHistoryService releaseHistoryService) {
+  public ReleaseHistoryController(final ReleaseHistoryService releaseHistoryService,
+      final ReleaseService releaseService) {
     this.releaseHistoryService = releaseHistoryService;
+    this.releaseService = releaseService;
   }
 
   @GetMapping("/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases/histories")
@@ -47,6 +56,41 @@ public class ReleaseHistoryController {
   }
 
 
+  /**
+   * The release histories with the release name and comment, without the release configurations, which are loaded by
+   * release id on demand
+   */
+  @GetMapping("/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases/histories/summary")
+  public PageDTO<ReleaseHistoryDTO> findReleaseHistorySummariesByNamespace(
+      @PathVariable String appId, @PathVariable String clusterName,
+      @PathVariable String namespaceName,
+      Pageable pageable) {
+
+    Page<ReleaseHistory> result = releaseHistoryService.findReleaseHistoriesByNamespace(appId, clusterName,
+                                                                                        namespaceName, pageable);
+    PageDTO<ReleaseHistoryDTO> summaries = transform2PageDTO(result, pageable);
+    if (summaries == null) {
+      return null;
+    }
+
+    Set<Long> releaseIds = new HashSet<>();
+    for (ReleaseHistoryDTO releaseHistory : summaries.getContent()) {
+      if (releaseHistory.getReleaseId() != 0) {
+        releaseIds.add(releaseHistory.getReleaseId());
+      }
+    }
+    Map<Long, Release> releases = BeanUtils.mapByKey("id", releaseService.findNamesAndCommentsByReleaseIds(releaseIds));
+    for (ReleaseHistoryDTO releaseHistory : summaries.getContent()) {
+      Release release = releases.get(releaseHistory.getReleaseId());
+      if (release != null) {
+        releaseHistory.setReleaseName(release.getName());
+        releaseHistory.setReleaseComment(release.getComment());
+      }
+    }
+
+    return summaries;
+  }
+
   @GetMapping("/releases/histories/by_release_id_and_operation")
   public PageDTO<ReleaseHistoryDTO> findReleaseHistoryByReleaseIdAndOperation(
       @RequestParam("releaseId") long releaseId,
@@ -86,9 +130,12 @@ public class ReleaseHistoryController {
 
   private ReleaseHistoryDTO transformReleaseHistory2DTO(ReleaseHistory releaseHistory) {
     ReleaseHistoryDTO dto = new ReleaseHistoryDTO();
-    BeanUtils.copyProperties(releaseHistory, dto, "operationContext");
+    BeanUtils.copyProperties(releaseHistory, dto, "operationContext", "changedKeys");
     dto.setOperationContext(gson.fromJson(releaseHistory.getOperationContext(),
                                           configurationTypeReference));
+    if (releaseHistory.getChangedKeys() != null) {
+      dto.setChangedKeys(gson.fromJson(releaseHistory.getChangedKeys(), changedKeysTypeReference));
+    }
 
     return dto;
   }
@@ -0,0 +1,64 @@
+package com.ctrip.framework.apollo.adminservice;
+
+import com.ctrip.framework.apollo.biz.entity.ServerConfig;
+import com.ctrip.framework.apollo.biz.repository.ServerConfigRepository;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseBranchKeyBackfillerTest {
+  @Mock
+  private ReleaseHistoryService releaseHistoryService;
+  @Mock
+  private ServerConfigRepository serverConfigRepository;
+
+  private ReleaseBranchKeyBackfiller backfiller;
+
+  @Before
+  public void setUp() throws Exception {
+    backfiller = new ReleaseBranchKeyBackfiller(releaseHistoryService, serverConfigRepository);
+  }
+
+  @Test
+  public void testBackfillFromStartAndSaveProgress() throws Exception {
+    when(releaseHistoryService.backfillBranchReleaseKeys(0)).thenReturn(500L);
+    when(releaseHistoryService.backfillBranchReleaseKeys(500)).thenReturn(700L);
+    when(releaseHistoryService.backfillBranchReleaseKeys(700)).thenReturn(700L);
+
+    backfiller.backfill();
+
+    ArgumentCaptor<ServerConfig> serverConfigCaptor = ArgumentCaptor.forClass(ServerConfig.class);
+    verify(serverConfigRepository).save(serverConfigCaptor.capture());
+    ServerConfig serverConfig = serverConfigCaptor.getValue();
+    assertEquals(ReleaseBranchKeyBackfiller.BACKFILLED_RELEASE_HISTORY_ID_KEY, serverConfig.getKey());
+    assertEquals(ConfigConsts.CLUSTER_NAME_DEFAULT, serverConfig.getCluster());
+    assertEquals("700", serverConfig.getValue());
+  }
+
+  @Test
+  public void testBackfillFromSavedProgress() throws Exception {
+    ServerConfig backfilled = new ServerConfig();
+    backfilled.setValue("700");
+    when(serverConfigRepository.findTopByKeyAndCluster(ReleaseBranchKeyBackfiller.BACKFILLED_RELEASE_HISTORY_ID_KEY,
+        ConfigConsts.CLUSTER_NAME_DEFAULT)).thenReturn(backfilled);
+    when(releaseHistoryService.backfillBranchReleaseKeys(700)).thenReturn(700L);
+
+    backfiller.backfill();
+
+    verify(releaseHistoryService, never()).backfillBranchReleaseKeys(0);
+    //nothing new is scanned
+    verify(serverConfigRepository, never()).save(any(ServerConfig.class));
+  }
+}
@@ -98,6 +98,31 @@ public class NamespaceLockTest {
     verify(namespaceLockService).findLock(NAMESPACE_ID);
   }
 
+  @Test
+  public void acquireLockWithLeaseHeldBySelf() {
+
+    when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
+    when(namespaceLockService.isLeasedBy(APP, CLUSTER, NAMESPACE, CURRENT_USER)).thenReturn(true);
+
+    namespaceLockAspect.acquireLock(APP, CLUSTER, NAMESPACE, CURRENT_USER);
+
+    verify(namespaceService, times(0)).findOne(APP, CLUSTER, NAMESPACE);
+    verify(namespaceLockService, times(0)).findLock(anyLong());
+  }
+
+  @Test
+  public void acquireLockRenewsLease() {
+
+    Namespace namespace = mockNamespace();
+    when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
+    when(namespaceService.findOne(APP, CLUSTER, NAMESPACE)).thenReturn(namespace);
+    when(namespaceLockService.findLock(NAMESPACE_ID)).thenReturn(mockNamespaceLock(CURRENT_USER));
+
+    namespaceLockAspect.acquireLock(APP, CLUSTER, NAMESPACE, CURRENT_USER);
+
+    verify(namespaceLockService).renewLease(namespace, CURRENT_USER);
+  }
+
   @Test
   public void acquireLockWithNamespaceIdSwitchOn(){
 
@@ -21,14 +21,11 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -303,10 +300,7 @@ public class InstanceConfigControllerTest {
     String someClusterName = "someClusterName";
     String someNamespaceName = "someNamespaceName";
 
-    Page<Instance> instances = new PageImpl<>(Collections.emptyList(), pageable, 2);
-
-    when(instanceService.findInstancesByNamespace(eq(someAppId), eq(someClusterName),
-        eq(someNamespaceName), any(Pageable.class))).thenReturn(instances);
+    when(instanceService.countInstancesByNamespace(someAppId, someClusterName, someNamespaceName)).thenReturn(2L);
 
     long result = instanceConfigController.getInstancesCountByNamespace(someAppId,
         someClusterName, someNamespaceName);
@@ -0,0 +1,24 @@
+package com.ctrip.framework.apollo.agent;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Node local config agent, serves the /configs and /notifications/v2 protocol of config service to
+ * the apollo clients on the same host, so that all the processes of one appId and cluster share a
+ * single upstream long polling and the fetched releases.
+ *
+ * <p>Clients are pointed to the agent via the apollo.agent.url system property, the APOLLO_AGENT_URL
+ * environment variable or server.properties, e.g. http://127.0.0.1:8060. The agent locates the config
+ * services in the same way as the clients do.
+ */
+@SpringBootApplication
+public class ApolloAgentApplication {
+
+  public static void main(String[] args) throws Exception {
+    // the agent itself talks to the config services directly
+    System.setProperty("apollo.agent.url", "");
+    SpringApplication.run(ApolloAgentApplication.class, args);
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.ctrip.framework.apollo.agent.controller;
+
+import com.ctrip.framework.apollo.agent.service.AgentConfigCache;
+import com.ctrip.framework.apollo.agent.service.ConfigKey;
+import com.ctrip.framework.apollo.agent.service.NotificationHub;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Same protocol as the config service's /configs, served from the agent's config cache.
+ */
+@RestController
+@RequestMapping("/configs")
+public class AgentConfigController {
+  private final AgentConfigCache configCache;
+  private final NotificationHub notificationHub;
+
+  public AgentConfigController(final AgentConfigCache configCache, final NotificationHub notificationHub) {
+    this.configCache = configCache;
+    this.notificationHub = notificationHub;
+  }
+
+  @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
+  public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
+      @PathVariable String namespace,
+      @RequestParam(value = "dataCenter", required = false) String dataCenter,
+      @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
+      @RequestParam(value = "ip", required = false) String clientIp,
+      HttpServletResponse response) throws IOException {
+    // the client side messages are ignored, the agent has seen the same or newer ones
+    ConfigKey key = new ConfigKey(appId, clusterName, namespace, dataCenter, clientIp);
+    ApolloConfig config = configCache.getConfig(key,
+        notificationHub.messagesOf(appId, clusterName, dataCenter, namespace));
+
+    if (config == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          String.format("Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
+              appId, clusterName, namespace));
+      return null;
+    }
+
+    if (clientSideReleaseKey.equals(config.getReleaseKey())) {
+      // Client side configuration is the same with server side, return 304
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return null;
+    }
+
+    return config;
+  }
+}
@@ -0,0 +1,19 @@
+package com.ctrip.framework.apollo.agent.controller;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Checked periodically by the clients to decide whether to use the agent.
+ */
+@RestController
+public class AgentHealthController {
+
+  @GetMapping("/agent/health")
+  public Map<String, String> health() {
+    return ImmutableMap.of("status", "UP");
+  }
+}
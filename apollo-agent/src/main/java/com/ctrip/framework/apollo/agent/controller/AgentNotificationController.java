@@ -0,0 +1,83 @@
+package com.ctrip.framework.apollo.agent.controller;
+
+import com.ctrip.framework.apollo.agent.service.NotificationHub;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same protocol as the config service's /notifications/v2, answered by the shared upstream long
+ * polling of the app and cluster.
+ *
+ * <p>The notification stream (/notifications/v2/stream) and the watch sessions (/notifications/v2/sessions) are
+ * not served, the clients don't use them while the agent is available and long poll it plainly instead.
+ */
+@RestController
+@RequestMapping("/notifications/v2")
+public class AgentNotificationController {
+  private static final ResponseEntity<List<ApolloConfigNotification>> NOT_MODIFIED_RESPONSE_LIST =
+      new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+  private static final Type notificationsTypeReference =
+      new TypeToken<List<ApolloConfigNotification>>() {
+      }.getType();
+
+  private final NotificationHub notificationHub;
+  private final long longPollingTimeoutInMilli;
+  private final Gson gson = new Gson();
+
+  public AgentNotificationController(final NotificationHub notificationHub,
+      @Value("${apollo.agent.longPollingTimeoutInMilli:60000}") final long longPollingTimeoutInMilli) {
+    this.notificationHub = notificationHub;
+    this.longPollingTimeoutInMilli = longPollingTimeoutInMilli;
+  }
+
+  @GetMapping
+  public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> pollNotification(
+      @RequestParam(value = "appId") String appId,
+      @RequestParam(value = "cluster") String cluster,
+      @RequestParam(value = "notifications") String notificationsAsString,
+      @RequestParam(value = "dataCenter", required = false) String dataCenter,
+      @RequestParam(value = "ip", required = false) String clientIp) {
+    List<ApolloConfigNotification> notifications = null;
+    try {
+      notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+    }
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result =
+        new DeferredResult<>(longPollingTimeoutInMilli, NOT_MODIFIED_RESPONSE_LIST);
+
+    Map<String, Long> clientSideNotifications = Maps.newHashMap();
+    if (notifications != null) {
+      for (ApolloConfigNotification notification : notifications) {
+        if (!Strings.isNullOrEmpty(notification.getNamespaceName())) {
+          clientSideNotifications.merge(notification.getNamespaceName(), notification.getNotificationId(), Math::min);
+        }
+      }
+    }
+    if (clientSideNotifications.isEmpty()) {
+      result.setResult(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+      return result;
+    }
+
+    notificationHub.pollerOf(appId, cluster, dataCenter).register(clientSideNotifications, result);
+
+    return result;
+  }
+}
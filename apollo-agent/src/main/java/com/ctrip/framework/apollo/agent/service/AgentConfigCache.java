@@ -0,0 +1,152 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Configs fetched from the config services, shared by all the local clients.
+ *
+ * <ul>
+ * <li>concurrent misses of the same key are loaded by one upstream request</li>
+ * <li>a release notification marks the configs of the namespace stale, the next query revalidates
+ * them upstream with the cached release key, which is answered by 304 if nothing changed</li>
+ * <li>configurations of the same release key are kept once, even if they are queried by different
+ * apps or clusters, e.g. public namespaces without overrides</li>
+ * </ul>
+ */
+@Component
+public class AgentConfigCache {
+  private final UpstreamConfigServiceClient upstream;
+  private final ConcurrentMap<ConfigKey, CachedConfig> configs = new ConcurrentHashMap<>();
+  private final ConcurrentMap<ConfigKey, CompletableFuture<CachedConfig>> loadings = new ConcurrentHashMap<>();
+  // release key -> configurations, kept as long as any cached config refers to them
+  private final Cache<String, Map<String, String>> releases = CacheBuilder.newBuilder().weakValues().build();
+  // increased by every invalidation, a config loaded across an invalidation is stored as stale
+  private final AtomicLong generation = new AtomicLong();
+
+  public AgentConfigCache(final UpstreamConfigServiceClient upstream) {
+    this.upstream = upstream;
+  }
+
+  /**
+   * @param remoteMessages the latest notification messages of the namespace known by the agent
+   * @return the config, or null if the namespace is not found
+   */
+  public ApolloConfig getConfig(ConfigKey key, ApolloNotificationMessages remoteMessages) {
+    CachedConfig cached = configs.get(key);
+    if (cached != null && !cached.stale) {
+      Tracer.logEvent("Apollo.Agent.ConfigCache.Hit", key.getNamespace());
+      return cached.config;
+    }
+
+    CompletableFuture<CachedConfig> loading = new CompletableFuture<>();
+    CompletableFuture<CachedConfig> existing = loadings.putIfAbsent(key, loading);
+    if (existing != null) {
+      CachedConfig loaded = await(existing);
+      return loaded == null ? null : loaded.config;
+    }
+
+    try {
+      CachedConfig loaded = load(key, cached, remoteMessages);
+      loading.complete(loaded);
+      return loaded == null ? null : loaded.config;
+    } catch (Throwable ex) {
+      loading.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      loadings.remove(key, loading);
+    }
+  }
+
+  /**
+   * Mark the cached configs of the namespace stale, they are revalidated upstream on next query.
+   */
+  public void invalidate(String appId, String cluster, String namespace) {
+    generation.incrementAndGet();
+    for (ConfigKey key : configs.keySet()) {
+      if (Objects.equals(appId, key.getAppId()) && Objects.equals(cluster, key.getCluster())
+          && namespace.equalsIgnoreCase(key.getNamespace())) {
+        configs.computeIfPresent(key, (k, cached) -> cached.stale ? cached : new CachedConfig(cached.config, true));
+      }
+    }
+  }
+
+  /**
+   * Drop the cached configs of the app and cluster, e.g. when no local client watches them any more.
+   */
+  public void evict(String appId, String cluster, String dataCenter) {
+    configs.keySet().removeIf(key -> Objects.equals(appId, key.getAppId())
+        && Objects.equals(cluster, key.getCluster()) && Objects.equals(dataCenter, key.getDataCenter()));
+  }
+
+  int size() {
+    return configs.size();
+  }
+
+  private CachedConfig load(ConfigKey key, CachedConfig previous, ApolloNotificationMessages remoteMessages) {
+    long loadingGeneration = generation.get();
+    String releaseKey = previous == null ? null : previous.config.getReleaseKey();
+
+    HttpResponse<ApolloConfig> response;
+    try {
+      response = upstream.queryConfig(key, releaseKey, remoteMessages);
+    } catch (ApolloConfigStatusCodeException ex) {
+      if (ex.getStatusCode() == 404) {
+        configs.remove(key);
+        return null;
+      }
+      throw ex;
+    }
+
+    ApolloConfig config = response.getStatusCode() == 304 && previous != null ? previous.config
+        : share(response.getBody());
+    CachedConfig loaded = new CachedConfig(config, generation.get() != loadingGeneration);
+    configs.put(key, loaded);
+    Tracer.logEvent("Apollo.Agent.ConfigCache.Load", key.getNamespace());
+    return loaded;
+  }
+
+  private ApolloConfig share(ApolloConfig config) {
+    if (config.getReleaseKey() == null || config.getConfigurations() == null) {
+      return config;
+    }
+    Map<String, String> shared = releases.asMap().putIfAbsent(config.getReleaseKey(), config.getConfigurations());
+    if (shared != null) {
+      config.setConfigurations(shared);
+    }
+    return config;
+  }
+
+  private static CachedConfig await(CompletableFuture<CachedConfig> loading) {
+    try {
+      return loading.join();
+    } catch (CompletionException ex) {
+      throw Throwables.propagate(ex.getCause());
+    }
+  }
+
+  private static class CachedConfig {
+    private final ApolloConfig config;
+    private final boolean stale;
+
+    CachedConfig(ApolloConfig config, boolean stale) {
+      this.config = config;
+      this.stale = stale;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+/**
+ * Identifies the config of one namespace as seen by the clients of one data center and ip, the ip
+ * matters because of gray releases.
+ */
+public class ConfigKey {
+  private final String appId;
+  private final String cluster;
+  private final String namespace;
+  private final String dataCenter;
+  private final String ip;
+
+  public ConfigKey(String appId, String cluster, String namespace, String dataCenter, String ip) {
+    this.appId = appId;
+    this.cluster = cluster;
+    this.namespace = namespace;
+    this.dataCenter = dataCenter;
+    this.ip = ip;
+  }
+
+  public String getAppId() {
+    return appId;
+  }
+
+  public String getCluster() {
+    return cluster;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  public String getDataCenter() {
+    return dataCenter;
+  }
+
+  public String getIp() {
+    return ip;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ConfigKey configKey = (ConfigKey) o;
+    return Objects.equals(appId, configKey.appId) &&
+        Objects.equals(cluster, configKey.cluster) &&
+        Objects.equals(namespace, configKey.namespace) &&
+        Objects.equals(dataCenter, configKey.dataCenter) &&
+        Objects.equals(ip, configKey.ip);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(appId, cluster, namespace, dataCenter, ip);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .omitNullValues()
+        .add("appId", appId)
+        .add("cluster", cluster)
+        .add("namespace", namespace)
+        .add("dataCenter", dataCenter)
+        .add("ip", ip)
+        .toString();
+  }
+}
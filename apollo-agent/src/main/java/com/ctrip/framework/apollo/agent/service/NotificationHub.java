@@ -0,0 +1,55 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.google.common.base.Joiner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds one {@link UpstreamNotificationPoller} per appId, cluster and data center, pollers without
+ * local clients stop by themselves and are replaced on next use.
+ */
+@Component
+public class NotificationHub {
+  private static final Joiner KEY_JOINER = Joiner.on('+').useForNull("");
+
+  private final UpstreamConfigServiceClient upstream;
+  private final AgentConfigCache configCache;
+  private final long idleTimeoutInMilli;
+  private final ExecutorService executorService =
+      Executors.newCachedThreadPool(ApolloThreadFactory.create("AgentLongPoll", true));
+  private final ConcurrentMap<String, UpstreamNotificationPoller> pollers = new ConcurrentHashMap<>();
+
+  public NotificationHub(final UpstreamConfigServiceClient upstream, final AgentConfigCache configCache,
+      @Value("${apollo.agent.idleTimeoutInMilli:600000}") final long idleTimeoutInMilli) {
+    this.upstream = upstream;
+    this.configCache = configCache;
+    this.idleTimeoutInMilli = idleTimeoutInMilli;
+  }
+
+  public UpstreamNotificationPoller pollerOf(String appId, String cluster, String dataCenter) {
+    String key = KEY_JOINER.join(appId, cluster, dataCenter);
+    return pollers.compute(key, (k, existing) -> existing != null && existing.touch() ? existing
+        : new UpstreamNotificationPoller(appId, cluster, dataCenter, upstream, configCache, executorService,
+            idleTimeoutInMilli, () -> onStop(k, appId, cluster, dataCenter)));
+  }
+
+  /**
+   * @return the latest notification messages of the namespace, null if the namespace is not watched
+   */
+  public ApolloNotificationMessages messagesOf(String appId, String cluster, String dataCenter, String namespace) {
+    UpstreamNotificationPoller poller = pollers.get(KEY_JOINER.join(appId, cluster, dataCenter));
+    return poller == null ? null : poller.messagesOf(namespace);
+  }
+
+  private void onStop(String key, String appId, String cluster, String dataCenter) {
+    pollers.computeIfPresent(key, (k, poller) -> poller.touch() ? poller : null);
+    configCache.evict(appId, cluster, dataCenter);
+  }
+}
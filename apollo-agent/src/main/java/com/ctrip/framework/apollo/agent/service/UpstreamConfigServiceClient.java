@@ -0,0 +1,179 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.internals.ConfigServiceLocator;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Talks to the remote config services on behalf of the local clients, the config services are located
+ * by the client internals, i.e. from meta service or the apollo.configService setting.
+ */
+@Component
+public class UpstreamConfigServiceClient {
+  //90 seconds, should be longer than server side's long polling timeout, which is now 60 seconds
+  private static final int LONG_POLLING_READ_TIMEOUT = 90 * 1000;
+  private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
+  private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
+  private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+  private static final Type notificationsType = new TypeToken<List<ApolloConfigNotification>>() {
+  }.getType();
+
+  private final ConfigServiceLocator serviceLocator;
+  private final HttpUtil httpUtil;
+  private final ConfigUtil configUtil;
+  private final Gson gson = new Gson();
+
+  public UpstreamConfigServiceClient() {
+    this(ApolloInjector.getInstance(ConfigServiceLocator.class), ApolloInjector.getInstance(HttpUtil.class),
+        ApolloInjector.getInstance(ConfigUtil.class));
+  }
+
+  UpstreamConfigServiceClient(ConfigServiceLocator serviceLocator, HttpUtil httpUtil, ConfigUtil configUtil) {
+    this.serviceLocator = serviceLocator;
+    this.httpUtil = httpUtil;
+    this.configUtil = configUtil;
+  }
+
+  /**
+   * Query the config from the config services one by one until one of them answers.
+   *
+   * @param releaseKey the release key of the config the agent holds, null if none
+   * @throws ApolloConfigStatusCodeException with status code 404 if the namespace is not found
+   */
+  public HttpResponse<ApolloConfig> queryConfig(ConfigKey key, String releaseKey,
+      ApolloNotificationMessages remoteMessages) {
+    List<ServiceDTO> configServices = Lists.newArrayList(getConfigServices());
+    Collections.shuffle(configServices);
+
+    Throwable exception = null;
+    for (ServiceDTO configService : configServices) {
+      String url = assembleQueryConfigUrl(configService.getHomepageUrl(), key, releaseKey, remoteMessages);
+      Transaction transaction = Tracer.newTransaction("Apollo.Agent", "queryConfig");
+      transaction.addData("Url", url);
+      try {
+        HttpResponse<ApolloConfig> response = httpUtil.doGet(new HttpRequest(url), ApolloConfig.class);
+        transaction.addData("StatusCode", response.getStatusCode());
+        transaction.setStatus(Transaction.SUCCESS);
+        return response;
+      } catch (ApolloConfigStatusCodeException ex) {
+        transaction.setStatus(ex);
+        if (ex.getStatusCode() == 404) {
+          throw ex;
+        }
+        exception = ex;
+      } catch (Throwable ex) {
+        transaction.setStatus(ex);
+        exception = ex;
+      } finally {
+        transaction.complete();
+      }
+    }
+
+    throw new ApolloConfigException(String.format("Load config %s failed from all config services", key),
+        exception);
+  }
+
+  /**
+   * Long poll the notifications of the namespaces, blocks until there is a new notification or the
+   * server side's long polling timeout.
+   */
+  public HttpResponse<List<ApolloConfigNotification>> pollNotifications(ServiceDTO configService, String appId,
+      String cluster, String dataCenter, Map<String, Long> notifications) {
+    HttpRequest request = new HttpRequest(
+        assembleLongPollUrl(configService.getHomepageUrl(), appId, cluster, dataCenter, notifications));
+    request.setReadTimeout(LONG_POLLING_READ_TIMEOUT);
+
+    return httpUtil.doGet(request, notificationsType);
+  }
+
+  public ServiceDTO randomConfigService() {
+    List<ServiceDTO> configServices = getConfigServices();
+    return configServices.get(ThreadLocalRandom.current().nextInt(configServices.size()));
+  }
+
+  private List<ServiceDTO> getConfigServices() {
+    List<ServiceDTO> services = serviceLocator.getConfigServices();
+    if (services.isEmpty()) {
+      throw new ApolloConfigException("No available config service");
+    }
+
+    return services;
+  }
+
+  String assembleQueryConfigUrl(String uri, ConfigKey key, String releaseKey,
+      ApolloNotificationMessages remoteMessages) {
+    String path = String.format("configs/%s/%s/%s", pathEscaper.escape(key.getAppId()),
+        pathEscaper.escape(key.getCluster()), pathEscaper.escape(key.getNamespace()));
+    Map<String, String> queryParams = Maps.newHashMap();
+
+    if (releaseKey != null) {
+      queryParams.put("releaseKey", queryParamEscaper.escape(releaseKey));
+    }
+    if (!Strings.isNullOrEmpty(key.getDataCenter())) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(key.getDataCenter()));
+    }
+    if (!Strings.isNullOrEmpty(key.getIp())) {
+      queryParams.put("ip", queryParamEscaper.escape(key.getIp()));
+    }
+    if (remoteMessages != null) {
+      queryParams.put("messages", queryParamEscaper.escape(gson.toJson(remoteMessages)));
+    }
+
+    if (!queryParams.isEmpty()) {
+      path += "?" + MAP_JOINER.join(queryParams);
+    }
+    return withTrailingSlash(uri) + path;
+  }
+
+  String assembleLongPollUrl(String uri, String appId, String cluster, String dataCenter,
+      Map<String, Long> notificationsMap) {
+    List<ApolloConfigNotification> notifications = Lists.newArrayList();
+    for (Map.Entry<String, Long> entry : notificationsMap.entrySet()) {
+      notifications.add(new ApolloConfigNotification(entry.getKey(), entry.getValue()));
+    }
+
+    Map<String, String> queryParams = Maps.newHashMap();
+    queryParams.put("appId", queryParamEscaper.escape(appId));
+    queryParams.put("cluster", queryParamEscaper.escape(cluster));
+    queryParams.put("notifications", queryParamEscaper.escape(gson.toJson(notifications)));
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+    }
+    String localIp = configUtil.getLocalIp();
+    if (!Strings.isNullOrEmpty(localIp)) {
+      queryParams.put("ip", queryParamEscaper.escape(localIp));
+    }
+
+    return withTrailingSlash(uri) + "notifications/v2?" + MAP_JOINER.join(queryParams);
+  }
+
+  private String withTrailingSlash(String uri) {
+    return uri.endsWith("/") ? uri : uri + "/";
+  }
+}
@@ -0,0 +1,285 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
+import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The single upstream long polling of one appId, cluster and data center, shared by all the local
+ * clients of them.
+ *
+ * <p>The poller watches the union of the namespaces watched by the local clients and keeps the latest
+ * notification id of each namespace. A local long polling is answered as soon as the poller knows a
+ * newer notification id than the client.
+ */
+public class UpstreamNotificationPoller {
+  private static final Logger logger = LoggerFactory.getLogger(UpstreamNotificationPoller.class);
+  private static final long INIT_NOTIFICATION_ID = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
+
+  private final String appId;
+  private final String cluster;
+  private final String dataCenter;
+  private final UpstreamConfigServiceClient upstream;
+  private final AgentConfigCache configCache;
+  private final ExecutorService executorService;
+  private final long idleTimeoutInMilli;
+  private final Runnable onStop;
+
+  private final ConcurrentMap<String, Long> notifications = new ConcurrentHashMap<>();
+  // guarded by this
+  private final Map<String, ApolloNotificationMessages> remoteNotificationMessages = Maps.newHashMap();
+  private final Set<LocalPoll> localPolls = ConcurrentHashMap.newKeySet();
+  private final SchedulePolicy failSchedulePolicyInSecond = new ExponentialSchedulePolicy(1, 120);
+  private final RateLimiter rateLimiter = RateLimiter.create(2);
+  private final AtomicBoolean started = new AtomicBoolean(false);
+  // guarded by this
+  private boolean stopped;
+  private volatile long lastAccessTime = System.currentTimeMillis();
+
+  UpstreamNotificationPoller(String appId, String cluster, String dataCenter, UpstreamConfigServiceClient upstream,
+      AgentConfigCache configCache, ExecutorService executorService, long idleTimeoutInMilli, Runnable onStop) {
+    this.appId = appId;
+    this.cluster = cluster;
+    this.dataCenter = dataCenter;
+    this.upstream = upstream;
+    this.configCache = configCache;
+    this.executorService = executorService;
+    this.idleTimeoutInMilli = idleTimeoutInMilli;
+    this.onStop = onStop;
+  }
+
+  /**
+   * Register a local long polling, it is answered immediately if the poller already knows newer
+   * notifications than the client, otherwise when the upstream notifies.
+   *
+   * @param clientSideNotifications namespace -> the notification id of the client
+   */
+  public void register(Map<String, Long> clientSideNotifications,
+      DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result) {
+    watch(clientSideNotifications.keySet());
+    start();
+
+    LocalPoll localPoll = new LocalPoll(clientSideNotifications, result);
+    localPolls.add(localPoll);
+    result.onCompletion(() -> localPolls.remove(localPoll));
+    // registered before checking, so a notification arriving in between is not missed
+    if (localPoll.tryAnswer()) {
+      localPolls.remove(localPoll);
+    }
+  }
+
+  /**
+   * @return a copy of the latest notification messages of the namespace, null if there is none
+   */
+  public synchronized ApolloNotificationMessages messagesOf(String namespace) {
+    ApolloNotificationMessages messages = remoteNotificationMessages.get(namespace);
+    return messages == null ? null : messages.clone();
+  }
+
+  /**
+   * Keep the poller alive.
+   *
+   * @return false if the poller has been stopped and should be replaced
+   */
+  synchronized boolean touch() {
+    if (stopped) {
+      return false;
+    }
+    lastAccessTime = System.currentTimeMillis();
+    return true;
+  }
+
+  private void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    executorService.submit(this::doLongPolling);
+  }
+
+  private void watch(Collection<String> namespaces) {
+    List<String> newNamespaces = Lists.newArrayList();
+    for (String namespace : namespaces) {
+      if (notifications.putIfAbsent(namespace, INIT_NOTIFICATION_ID) == null) {
+        newNamespaces.add(namespace);
+      }
+    }
+    if (newNamespaces.isEmpty() || !started.get()) {
+      return;
+    }
+
+    // the running long polling doesn't cover the new namespaces, query them once separately
+    Map<String, Long> newNotifications = Maps.newHashMap();
+    for (String namespace : newNamespaces) {
+      newNotifications.put(namespace, INIT_NOTIFICATION_ID);
+    }
+    executorService.submit(() -> {
+      try {
+        poll(upstream.randomConfigService(), newNotifications);
+      } catch (Throwable ex) {
+        // the next round of long polling covers them
+        logger.debug("Polling new namespaces {} failed", newNotifications.keySet(), ex);
+      }
+    });
+  }
+
+  private void doLongPolling() {
+    ServiceDTO configService = null;
+    while (!Thread.currentThread().isInterrupted() && !stopIfIdle()) {
+      if (!rateLimiter.tryAcquire(5, TimeUnit.SECONDS)) {
+        sleep(5);
+      }
+      Transaction transaction = Tracer.newTransaction("Apollo.Agent", "pollNotification");
+      try {
+        if (configService == null) {
+          configService = upstream.randomConfigService();
+        }
+        transaction.addData("Url", configService.getHomepageUrl());
+
+        int statusCode = poll(configService, ImmutableMap.copyOf(notifications));
+
+        //try to load balance
+        if (statusCode == 304 && ThreadLocalRandom.current().nextBoolean()) {
+          configService = null;
+        }
+        failSchedulePolicyInSecond.success();
+        transaction.addData("StatusCode", statusCode);
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (Throwable ex) {
+        configService = null;
+        Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+        transaction.setStatus(ex);
+        long sleepTimeInSecond = failSchedulePolicyInSecond.fail();
+        logger.warn("Long polling failed, will retry in {} seconds. appId: {}, cluster: {}, reason: {}",
+            sleepTimeInSecond, appId, cluster, ExceptionUtil.getDetailMessage(ex));
+        sleep(sleepTimeInSecond);
+      } finally {
+        transaction.complete();
+      }
+    }
+  }
+
+  private int poll(ServiceDTO configService, Map<String, Long> pollingNotifications) {
+    HttpResponse<List<ApolloConfigNotification>> response =
+        upstream.pollNotifications(configService, appId, cluster, dataCenter, pollingNotifications);
+    if (response.getStatusCode() == 200 && response.getBody() != null) {
+      onNotifications(response.getBody());
+    }
+    return response.getStatusCode();
+  }
+
+  void onNotifications(List<ApolloConfigNotification> deltaNotifications) {
+    synchronized (this) {
+      for (ApolloConfigNotification notification : deltaNotifications) {
+        String namespaceName = notification.getNamespaceName();
+        if (Strings.isNullOrEmpty(namespaceName)) {
+          continue;
+        }
+        //since .properties are filtered out by default, so we need to check if there is notification with .properties suffix
+        String namespaceNameWithPropertiesSuffix =
+            String.format("%s.%s", namespaceName, ConfigFileFormat.Properties.getValue());
+        for (String namespace : new String[]{namespaceName, namespaceNameWithPropertiesSuffix}) {
+          notifications.computeIfPresent(namespace, (k, id) -> Math.max(id, notification.getNotificationId()));
+          if (notification.getMessages() != null && !notification.getMessages().isEmpty()) {
+            remoteNotificationMessages.computeIfAbsent(namespace, k -> new ApolloNotificationMessages())
+                .mergeFrom(notification.getMessages());
+          }
+        }
+        // invalidate before answering, so the clients query the new release
+        configCache.invalidate(appId, cluster, namespaceName);
+      }
+    }
+
+    for (LocalPoll localPoll : localPolls) {
+      if (localPoll.tryAnswer()) {
+        localPolls.remove(localPoll);
+      }
+    }
+  }
+
+  private boolean stopIfIdle() {
+    synchronized (this) {
+      if (stopped) {
+        return true;
+      }
+      if (!localPolls.isEmpty() || System.currentTimeMillis() - lastAccessTime < idleTimeoutInMilli) {
+        return false;
+      }
+      stopped = true;
+    }
+    logger.info("Stop idle long polling of appId: {}, cluster: {}, dataCenter: {}", appId, cluster, dataCenter);
+    onStop.run();
+    return true;
+  }
+
+  private void sleep(long seconds) {
+    try {
+      TimeUnit.SECONDS.sleep(seconds);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private class LocalPoll {
+    private final Map<String, Long> clientSideNotifications;
+    private final DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result;
+
+    LocalPoll(Map<String, Long> clientSideNotifications,
+        DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result) {
+      this.clientSideNotifications = clientSideNotifications;
+      this.result = result;
+    }
+
+    /**
+     * @return whether the local polling has been answered
+     */
+    boolean tryAnswer() {
+      if (result.isSetOrExpired()) {
+        return true;
+      }
+      List<ApolloConfigNotification> newNotifications = Lists.newArrayList();
+      for (Map.Entry<String, Long> entry : clientSideNotifications.entrySet()) {
+        String namespace = entry.getKey();
+        long latestId = notifications.getOrDefault(namespace, INIT_NOTIFICATION_ID);
+        if (latestId > entry.getValue()) {
+          ApolloConfigNotification notification = new ApolloConfigNotification(namespace, latestId);
+          notification.setMessages(messagesOf(namespace));
+          newNotifications.add(notification);
+        }
+      }
+      if (newNotifications.isEmpty()) {
+        return false;
+      }
+      result.setResult(new ResponseEntity<>(newNotifications, HttpStatus.OK));
+      return true;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AgentConfigCacheTest {
+  @Mock
+  private UpstreamConfigServiceClient upstream;
+  private AgentConfigCache configCache;
+
+  private String someAppId;
+  private String someCluster;
+  private String someNamespace;
+  private String someReleaseKey;
+  private ConfigKey someKey;
+
+  @Before
+  public void setUp() throws Exception {
+    configCache = new AgentConfigCache(upstream);
+
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    someNamespace = "someNamespace";
+    someReleaseKey = "someReleaseKey";
+    someKey = new ConfigKey(someAppId, someCluster, someNamespace, null, "1.1.1.1");
+  }
+
+  @Test
+  public void testGetConfigFromCache() throws Exception {
+    ApolloConfig someConfig = assembleConfig(someAppId, someReleaseKey, ImmutableMap.of("k", "v"));
+    when(upstream.queryConfig(someKey, null, null)).thenReturn(new HttpResponse<>(200, someConfig));
+
+    assertSame(someConfig, configCache.getConfig(someKey, null));
+    assertSame(someConfig, configCache.getConfig(someKey, null));
+
+    verify(upstream, times(1)).queryConfig(any(ConfigKey.class), isNull(), isNull());
+  }
+
+  @Test
+  public void testRevalidateAfterInvalidation() throws Exception {
+    ApolloConfig someConfig = assembleConfig(someAppId, someReleaseKey, ImmutableMap.of("k", "v"));
+    when(upstream.queryConfig(someKey, null, null)).thenReturn(new HttpResponse<>(200, someConfig));
+    when(upstream.queryConfig(someKey, someReleaseKey, null)).thenReturn(new HttpResponse<>(304, null));
+
+    configCache.getConfig(someKey, null);
+    configCache.invalidate(someAppId, someCluster, someNamespace.toUpperCase());
+
+    assertSame(someConfig, configCache.getConfig(someKey, null));
+    assertSame(someConfig, configCache.getConfig(someKey, null));
+
+    verify(upstream, times(1)).queryConfig(eq(someKey), eq(someReleaseKey), isNull());
+  }
+
+  @Test
+  public void testShareConfigurationsOfSameRelease() throws Exception {
+    String anotherAppId = "anotherAppId";
+    ConfigKey anotherKey = new ConfigKey(anotherAppId, someCluster, someNamespace, null, "1.1.1.1");
+    when(upstream.queryConfig(someKey, null, null)).thenReturn(
+        new HttpResponse<>(200, assembleConfig(someAppId, someReleaseKey, ImmutableMap.of("k", "v"))));
+    when(upstream.queryConfig(anotherKey, null, null)).thenReturn(
+        new HttpResponse<>(200, assembleConfig(anotherAppId, someReleaseKey, ImmutableMap.of("k", "v"))));
+
+    ApolloConfig someConfig = configCache.getConfig(someKey, null);
+    ApolloConfig anotherConfig = configCache.getConfig(anotherKey, null);
+
+    assertEquals(anotherAppId, anotherConfig.getAppId());
+    assertSame(someConfig.getConfigurations(), anotherConfig.getConfigurations());
+  }
+
+  @Test
+  public void testGetConfigNotFound() throws Exception {
+    when(upstream.queryConfig(someKey, null, null)).thenThrow(new ApolloConfigStatusCodeException(404, "not found"));
+
+    assertNull(configCache.getConfig(someKey, null));
+    assertEquals(0, configCache.size());
+  }
+
+  @Test
+  public void testEvict() throws Exception {
+    when(upstream.queryConfig(someKey, null, null)).thenReturn(
+        new HttpResponse<>(200, assembleConfig(someAppId, someReleaseKey, ImmutableMap.of("k", "v"))));
+
+    configCache.getConfig(someKey, null);
+    configCache.evict(someAppId, someCluster, null);
+
+    assertEquals(0, configCache.size());
+  }
+
+  private ApolloConfig assembleConfig(String appId, String releaseKey, Map<String, String> configurations) {
+    ApolloConfig config = new ApolloConfig(appId, someCluster, someNamespace, releaseKey);
+    config.setConfigurations(Maps.newHashMap(configurations));
+    return config;
+  }
+}
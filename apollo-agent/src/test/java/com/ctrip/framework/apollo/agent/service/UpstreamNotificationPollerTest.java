@@ -0,0 +1,112 @@
+package com.ctrip.framework.apollo.agent.service;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UpstreamNotificationPollerTest {
+  @Mock
+  private UpstreamConfigServiceClient upstream;
+  @Mock
+  private AgentConfigCache configCache;
+  @Mock
+  private ExecutorService executorService;
+  @Mock
+  private Runnable onStop;
+  private UpstreamNotificationPoller poller;
+
+  private String someAppId;
+  private String someCluster;
+  private String someNamespace;
+
+  @Before
+  public void setUp() throws Exception {
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    someNamespace = "someNamespace";
+
+    poller = new UpstreamNotificationPoller(someAppId, someCluster, null, upstream, configCache, executorService,
+        60000, onStop);
+  }
+
+  @Test
+  public void testAnswerLocalPollingOnNotification() throws Exception {
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result = new DeferredResult<>();
+    poller.register(ImmutableMap.of(someNamespace, -1L), result);
+
+    assertFalse(result.hasResult());
+
+    long someNotificationId = 1;
+    ApolloConfigNotification notification = new ApolloConfigNotification(someNamespace, someNotificationId);
+    notification.addMessage("someAppId+someCluster+someNamespace", someNotificationId);
+    poller.onNotifications(Lists.newArrayList(notification));
+
+    ResponseEntity<List<ApolloConfigNotification>> response = getResponse(result);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(1, response.getBody().size());
+    assertEquals(someNamespace, response.getBody().get(0).getNamespaceName());
+    assertEquals(someNotificationId, response.getBody().get(0).getNotificationId());
+    assertEquals(someNotificationId,
+        response.getBody().get(0).getMessages().get("someAppId+someCluster+someNamespace").longValue());
+    verify(configCache, times(1)).invalidate(someAppId, someCluster, someNamespace);
+  }
+
+  @Test
+  public void testAnswerLocalPollingImmediatelyWithKnownNotification() throws Exception {
+    poller.register(ImmutableMap.of(someNamespace, -1L), new DeferredResult<>());
+    poller.onNotifications(Lists.newArrayList(new ApolloConfigNotification(someNamespace, 2)));
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> outdated = new DeferredResult<>();
+    poller.register(ImmutableMap.of(someNamespace, 1L), outdated);
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> upToDate = new DeferredResult<>();
+    poller.register(ImmutableMap.of(someNamespace, 2L), upToDate);
+
+    assertEquals(2, getResponse(outdated).getBody().get(0).getNotificationId());
+    assertFalse(upToDate.hasResult());
+  }
+
+  @Test
+  public void testNotificationOfPropertiesNamespace() throws Exception {
+    String propertiesNamespace = someNamespace + ".properties";
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result = new DeferredResult<>();
+    poller.register(ImmutableMap.of(propertiesNamespace, -1L), result);
+
+    poller.onNotifications(Lists.newArrayList(new ApolloConfigNotification(someNamespace, 1)));
+
+    assertTrue(result.hasResult());
+    assertEquals(propertiesNamespace, getResponse(result).getBody().get(0).getNamespaceName());
+  }
+
+  @Test
+  public void testUpstreamLongPollingStartedOnce() throws Exception {
+    poller.register(ImmutableMap.of(someNamespace, -1L), new DeferredResult<>());
+    poller.register(ImmutableMap.of(someNamespace, -1L), new DeferredResult<>());
+
+    verify(executorService, times(1)).submit(any(Runnable.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  private ResponseEntity<List<ApolloConfigNotification>> getResponse(
+      DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result) {
+    return (ResponseEntity<List<ApolloConfigNotification>>) result.getResult();
+  }
+}
@@ -0,0 +1,194 @@
+package com.ctrip.framework.apollo.benchmarks;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks and compares the scores with a previous JSON result of the same benchmarks.
+ *
+ * <pre>
+ * java -cp apollo-benchmarks.jar com.ctrip.framework.apollo.benchmarks.RegressionReport \
+ *   --result current.json --baseline baseline.json --threshold 0.1 [include regex ...]
+ * </pre>
+ *
+ * A benchmark is reported as regressed when its score is worse than the baseline by more than
+ * {@code threshold} and the difference is larger than the sum of both score errors. The process
+ * exits with status 1 when there is any regression, so it could be used as a build gate.
+ */
+public class RegressionReport {
+  private static final double DEFAULT_THRESHOLD = 0.1;
+  private static final Gson GSON = new Gson();
+
+  public static void main(String[] args) throws Exception {
+    String resultFile = "apollo-benchmarks.json";
+    String baselineFile = null;
+    double threshold = DEFAULT_THRESHOLD;
+    List<String> includes = Lists.newArrayList();
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--result":
+          resultFile = args[++i];
+          break;
+        case "--baseline":
+          baselineFile = args[++i];
+          break;
+        case "--threshold":
+          threshold = Double.parseDouble(args[++i]);
+          break;
+        default:
+          includes.add(args[i]);
+      }
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .resultFormat(ResultFormatType.JSON)
+        .result(resultFile);
+    if (includes.isEmpty()) {
+      options.include(RegressionReport.class.getPackage().getName() + "\\..*Benchmark.*");
+    }
+    for (String include : includes) {
+      options.include(include);
+    }
+
+    Collection<RunResult> results = new Runner(options.build()).run();
+
+    if (Strings.isNullOrEmpty(baselineFile)) {
+      return;
+    }
+
+    Map<String, Score> baseline = loadBaseline(new File(baselineFile));
+    int regressions = report(results, baseline, threshold);
+    if (regressions > 0) {
+      System.out.println(regressions + " benchmark(s) regressed more than " + threshold * 100 + "%");
+      System.exit(1);
+    }
+  }
+
+  private static int report(Collection<RunResult> results, Map<String, Score> baseline, double threshold) {
+    int regressions = 0;
+    System.out.println();
+    System.out.println(String.format("%-100s %6s %14s %14s %9s  %s", "Benchmark", "Mode", "Baseline",
+        "Current", "Change", "Verdict"));
+    for (RunResult runResult : results) {
+      BenchmarkParams params = runResult.getParams();
+      Result primary = runResult.getPrimaryResult();
+      String mode = params.getMode().shortLabel();
+      String key = key(params.getBenchmark(), params(params));
+
+      Score previous = baseline.get(key + " " + mode);
+      if (previous == null) {
+        System.out.println(String.format("%-100s %6s %14s %14.3f %9s  %s", key, mode, "-",
+            primary.getScore(), "-", "NEW"));
+        continue;
+      }
+
+      Score current = new Score(primary.getScore(), primary.getScoreError());
+      // throughput is the only mode where a larger score is better
+      boolean higherIsBetter = "thrpt".equals(mode);
+      double change = previous.score == 0 ? 0 : (current.score - previous.score) / previous.score;
+      double worse = higherIsBetter ? -change : change;
+      boolean significant = Math.abs(current.score - previous.score) > safe(previous.error) + safe(current.error);
+
+      String verdict = "OK";
+      if (worse > threshold && significant) {
+        verdict = "REGRESSION";
+        regressions++;
+      } else if (worse < -threshold && significant) {
+        verdict = "IMPROVED";
+      }
+
+      System.out.println(String.format("%-100s %6s %14.3f %14.3f %8.1f%%  %s", key, mode, previous.score,
+          current.score, change * 100, verdict));
+    }
+    return regressions;
+  }
+
+  private static Map<String, Score> loadBaseline(File file) throws IOException {
+    List<JsonResult> results;
+    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      results = GSON.fromJson(reader, new TypeToken<List<JsonResult>>() {
+      }.getType());
+    }
+
+    Map<String, Score> baseline = Maps.newHashMap();
+    if (results == null) {
+      return baseline;
+    }
+    for (JsonResult result : results) {
+      if (result.primaryMetric == null) {
+        continue;
+      }
+      Map<String, String> params = result.params == null ? new TreeMap<String, String>()
+          : new TreeMap<>(result.params);
+      baseline.put(key(result.benchmark, params) + " " + result.mode,
+          new Score(result.primaryMetric.score, result.primaryMetric.scoreError));
+    }
+    return baseline;
+  }
+
+  private static Map<String, String> params(BenchmarkParams params) {
+    Map<String, String> values = new TreeMap<>();
+    for (String key : params.getParamsKeys()) {
+      values.put(key, params.getParam(key));
+    }
+    return values;
+  }
+
+  private static String key(String benchmark, Map<String, String> params) {
+    StringBuilder key = new StringBuilder(benchmark);
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      key.append(':').append(param.getKey()).append('=').append(param.getValue());
+    }
+    return key.toString();
+  }
+
+  private static double safe(double error) {
+    return Double.isNaN(error) || Double.isInfinite(error) ? 0 : error;
+  }
+
+  private static class Score {
+    private final double score;
+    private final double error;
+
+    Score(double score, double error) {
+      this.score = score;
+      this.error = error;
+    }
+  }
+
+  /**
+   * The subset of the JMH JSON result format needed for the comparison
+   */
+  private static class JsonResult {
+    private String benchmark;
+    private String mode;
+    private Map<String, String> params;
+    private JsonMetric primaryMetric;
+  }
+
+  private static class JsonMetric {
+    private double score;
+    private double scoreError;
+  }
+}
@@ -0,0 +1,118 @@
+package com.ctrip.framework.apollo.benchmarks.biz;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.GrayReleaseMergeEngine;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging a master release into its gray branch, done by {@code ReleaseService} for every master
+ * publish or rollback of a namespace with a branch.
+ *
+ * <p>{@code fullParse} is the previous way: decode the branch release and the old master release,
+ * extract the branch modified keys, merge into the new master and compare the maps.
+ * {@code incremental} merges the branch modified configurations recorded by the branch release into
+ * the already decoded new master, and compares the canonical json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayReleaseMergeBenchmark {
+  @Param({"100", "10000", "50000"})
+  public int keyCount;
+
+  @Param({"10"})
+  public int branchKeyCount;
+
+  private Gson gson;
+  private GrayReleaseMergeEngine mergeEngine;
+  private Release oldMasterRelease;
+  private Release newMasterRelease;
+  private Release branchRelease;
+  private Collection<String> branchReleaseKeys;
+  private Map<String, String> branchModifiedConfigurations;
+
+  @Setup
+  public void setup() {
+    gson = new Gson();
+    mergeEngine = new GrayReleaseMergeEngine();
+
+    Map<String, String> oldMaster = BenchmarkDatasets.configurations(keyCount, BenchmarkDatasets.DEFAULT_SEED);
+    Map<String, String> newMaster = BenchmarkDatasets.mutate(oldMaster, 0.01, BenchmarkDatasets.DEFAULT_SEED + 1);
+
+    List<String> keys = Lists.newArrayList();
+    Map<String, String> branchItems = new HashMap<>();
+    for (int i = 0; i < branchKeyCount; i++) {
+      String key = BenchmarkDatasets.keyName(i * (keyCount / branchKeyCount));
+      keys.add(key);
+      branchItems.put(key, "gray-" + i);
+    }
+    branchReleaseKeys = keys;
+    Map<String, String> branch = mergeEngine.merge(oldMaster, branchItems);
+    branchModifiedConfigurations = mergeEngine.branchModifiedConfigurations(branch, keys);
+
+    oldMasterRelease = release(1, gson.toJson(oldMaster));
+    newMasterRelease = release(2, gson.toJson(newMaster));
+    branchRelease = release(3, mergeEngine.toCanonicalJson(branch));
+    //the new master is cached once published
+    mergeEngine.cacheConfigurations(newMasterRelease, newMaster);
+  }
+
+  @Benchmark
+  public Object fullParse(Blackhole blackhole) {
+    Map<String, String> branch = gson.fromJson(branchRelease.getConfigurations(), GsonType.CONFIG);
+    blackhole.consume(gson.fromJson(oldMasterRelease.getConfigurations(), GsonType.CONFIG));
+    Map<String, String> newMaster = gson.fromJson(newMasterRelease.getConfigurations(), GsonType.CONFIG);
+
+    Map<String, String> modified = new HashMap<>();
+    for (String key : branchReleaseKeys) {
+      if (branch.containsKey(key)) {
+        modified.put(key, branch.get(key));
+      }
+    }
+    Map<String, String> toPublish = new HashMap<>(newMaster);
+    toPublish.putAll(modified);
+
+    return toPublish.equals(branch) ? null : gson.toJson(toPublish);
+  }
+
+  @Benchmark
+  public Object incremental() {
+    Map<String, String> toPublish =
+        mergeEngine.merge(mergeEngine.getConfigurations(newMasterRelease), branchModifiedConfigurations);
+    String json = mergeEngine.toCanonicalJson(toPublish);
+
+    return json.equals(branchRelease.getConfigurations()) ? null : json;
+  }
+
+  private static Release release(long id, String configurations) {
+    Release release = new Release();
+    release.setId(id);
+    release.setReleaseKey("benchmark-release-" + id);
+    release.setConfigurations(configurations);
+    return release;
+  }
+}
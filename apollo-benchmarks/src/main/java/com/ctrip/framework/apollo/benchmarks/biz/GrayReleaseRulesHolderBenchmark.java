@@ -0,0 +1,131 @@
+package com.ctrip.framework.apollo.benchmarks.biz;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkBizConfig;
+import com.ctrip.framework.apollo.benchmarks.support.Repositories;
+import com.ctrip.framework.apollo.biz.entity.GrayReleaseRule;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.repository.GrayReleaseRuleRepository;
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.common.utils.GrayReleaseRuleItemTransformer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gray release rule lookups done by the config service for every config query.
+ *
+ * <p>There is one active branch per app, each branch rule lists {@code ipsPerRule} client ips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayReleaseRulesHolderBenchmark {
+  private static final String CLUSTER = "default";
+  private static final String NAMESPACE = "application";
+
+  @Param({"100", "10000"})
+  public int ruleCount;
+
+  @Param({"10"})
+  public int ipsPerRule;
+
+  private GrayReleaseRulesHolder holder;
+  private String[] appIds;
+  private String[] clientIps;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next(int bound) {
+      if (++index >= bound) {
+        index = 0;
+      }
+      return index;
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    List<GrayReleaseRule> rules = Lists.newArrayListWithCapacity(ruleCount);
+    appIds = new String[ruleCount];
+    clientIps = new String[ruleCount];
+    for (int i = 0; i < ruleCount; i++) {
+      Set<String> ips = Sets.newHashSet();
+      for (int j = 0; j < ipsPerRule; j++) {
+        ips.add(ip(i, j));
+      }
+      GrayReleaseRule rule = new GrayReleaseRule();
+      rule.setId(i + 1);
+      rule.setAppId(appId(i));
+      rule.setClusterName(CLUSTER);
+      rule.setNamespaceName(NAMESPACE);
+      rule.setBranchName("benchmark-branch-" + i);
+      rule.setReleaseId((long) i + 1);
+      rule.setBranchStatus(NamespaceBranchStatus.ACTIVE);
+      rule.setRules(GrayReleaseRuleItemTransformer.batchTransformToJSON(
+          Sets.newHashSet(new GrayReleaseRuleItemDTO(appId(i), ips))));
+      rules.add(rule);
+      appIds[i] = appId(i);
+      clientIps[i] = ip(i, i % ipsPerRule);
+    }
+
+    holder = new GrayReleaseRulesHolder();
+    inject(holder, "grayReleaseRuleRepository",
+        Repositories.inMemory(GrayReleaseRuleRepository.class, rules, GrayReleaseRule::getId));
+    inject(holder, "bizConfig", new BenchmarkBizConfig());
+    holder.afterPropertiesSet();
+  }
+
+  @Benchmark
+  public Long findReleaseIdHit(Cursor cursor) {
+    int i = cursor.next(ruleCount);
+    return holder.findReleaseIdFromGrayReleaseRule(appIds[i], clientIps[i], appIds[i], CLUSTER, NAMESPACE);
+  }
+
+  @Benchmark
+  public Long findReleaseIdMiss(Cursor cursor) {
+    int i = cursor.next(ruleCount);
+    return holder.findReleaseIdFromGrayReleaseRule(appIds[i], "192.168.0.1", appIds[i], CLUSTER, NAMESPACE);
+  }
+
+  @Benchmark
+  public boolean hasGrayReleaseRule(Cursor cursor) {
+    int i = cursor.next(ruleCount);
+    return holder.hasGrayReleaseRule(appIds[i], clientIps[i], NAMESPACE);
+  }
+
+  private static String appId(int index) {
+    return "benchmark-app-" + index;
+  }
+
+  private static String ip(int rule, int index) {
+    return "10." + ((rule >> 8) & 0xff) + "." + (rule & 0xff) + "." + index;
+  }
+
+  private static void inject(Object target, String fieldName, Object value) {
+    Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+    ReflectionUtils.makeAccessible(field);
+    ReflectionUtils.setField(field, target, value);
+  }
+}
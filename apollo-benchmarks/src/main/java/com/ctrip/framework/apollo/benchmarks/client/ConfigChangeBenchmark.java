@@ -0,0 +1,85 @@
+package com.ctrip.framework.apollo.benchmarks.client;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.benchmarks.support.StaticConfigRepository;
+import com.ctrip.framework.apollo.internals.AbstractConfig;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change calculation of large namespaces.
+ *
+ * <p>{@code calcPropertyChanges} measures the raw diff, {@code onRepositoryChange} the whole update
+ * path of {@link DefaultConfig} (diff, double check against the other property sources, cache
+ * invalidation and listener dispatch). Each invocation flips between two versions of the namespace
+ * which differ in {@code changeRatio} of the keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigChangeBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"1000", "10000"})
+  public int keyCount;
+
+  @Param({"0.001", "0.1"})
+  public double changeRatio;
+
+  private DefaultConfig config;
+  private StaticConfigRepository repository;
+  private MethodHandle calcPropertyChanges;
+  private Properties[] versions;
+  private int current;
+
+  @Setup
+  public void setup() throws Exception {
+    System.setProperty("app.id", "benchmark-app");
+    Map<String, String> base = BenchmarkDatasets.configurations(keyCount, BenchmarkDatasets.DEFAULT_SEED);
+    versions = new Properties[]{
+        BenchmarkDatasets.toProperties(base),
+        BenchmarkDatasets.toProperties(
+            BenchmarkDatasets.mutate(base, changeRatio, BenchmarkDatasets.DEFAULT_SEED + 1))
+    };
+    repository = new StaticConfigRepository(versions[0]);
+    config = new DefaultConfig(NAMESPACE, repository);
+
+    //calcPropertyChanges is package private
+    Method method = AbstractConfig.class.getDeclaredMethod("calcPropertyChanges", String.class,
+        Properties.class, Properties.class);
+    method.setAccessible(true);
+    calcPropertyChanges = MethodHandles.lookup().unreflect(method);
+  }
+
+  @Benchmark
+  public Object calcPropertyChanges() throws Throwable {
+    return calcPropertyChanges.invoke(config, NAMESPACE, versions[0], versions[1]);
+  }
+
+  @Benchmark
+  public DefaultConfig onRepositoryChange() {
+    current ^= 1;
+    repository.update(NAMESPACE, versions[current]);
+    return config;
+  }
+}
@@ -0,0 +1,121 @@
+package com.ctrip.framework.apollo.benchmarks.client;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.benchmarks.support.StaticConfigRepository;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of {@link DefaultConfig}: plain {@code getProperty} and the typed getters of
+ * {@code AbstractConfig} which go through the per type caches.
+ *
+ * <p>The {@code keyCount} parameter controls the namespace size, every benchmark cycles through
+ * all the keys of the requested type so the typed caches see a realistic hit ratio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigGetPropertyBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"100", "10000"})
+  public int keyCount;
+
+  private DefaultConfig config;
+  private String[] stringKeys;
+  private String[] intKeys;
+  private String[] longKeys;
+  private String[] booleanKeys;
+  private String[] doubleKeys;
+  private IntConfigValue[] intValues;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next(int length) {
+      if (++index >= length) {
+        index = 0;
+      }
+      return index;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    System.setProperty("app.id", "benchmark-app");
+    config = new DefaultConfig(NAMESPACE, new StaticConfigRepository(
+        BenchmarkDatasets.properties(keyCount, BenchmarkDatasets.DEFAULT_SEED)));
+    stringKeys = keys(BenchmarkDatasets.TYPE_STRING);
+    intKeys = keys(BenchmarkDatasets.TYPE_INT);
+    longKeys = keys(BenchmarkDatasets.TYPE_LONG);
+    booleanKeys = keys(BenchmarkDatasets.TYPE_BOOLEAN);
+    doubleKeys = keys(BenchmarkDatasets.TYPE_DOUBLE);
+    intValues = new IntConfigValue[intKeys.length];
+    for (int i = 0; i < intKeys.length; i++) {
+      intValues[i] = config.intValue(intKeys[i], 0);
+    }
+  }
+
+  @Benchmark
+  public String getProperty(Cursor cursor) {
+    return config.getProperty(stringKeys[cursor.next(stringKeys.length)], null);
+  }
+
+  @Benchmark
+  public String getPropertyMissing() {
+    return config.getProperty("apollo.benchmark.missing", "default");
+  }
+
+  @Benchmark
+  public Integer getIntProperty(Cursor cursor) {
+    return config.getIntProperty(intKeys[cursor.next(intKeys.length)], 0);
+  }
+
+  @Benchmark
+  public int intValue(Cursor cursor) {
+    return intValues[cursor.next(intValues.length)].get();
+  }
+
+  @Benchmark
+  public Long getLongProperty(Cursor cursor) {
+    return config.getLongProperty(longKeys[cursor.next(longKeys.length)], 0L);
+  }
+
+  @Benchmark
+  public Boolean getBooleanProperty(Cursor cursor) {
+    return config.getBooleanProperty(booleanKeys[cursor.next(booleanKeys.length)], false);
+  }
+
+  @Benchmark
+  public Double getDoubleProperty(Cursor cursor) {
+    return config.getDoubleProperty(doubleKeys[cursor.next(doubleKeys.length)], 0D);
+  }
+
+  @Benchmark
+  public String[] getArrayProperty(Cursor cursor) {
+    return config.getArrayProperty(stringKeys[cursor.next(stringKeys.length)], ",", null);
+  }
+
+  private String[] keys(String type) {
+    List<String> keys = BenchmarkDatasets.keysOfType(keyCount, type, BenchmarkDatasets.DEFAULT_SEED);
+    return keys.toArray(new String[keys.size()]);
+  }
+}
@@ -0,0 +1,92 @@
+package com.ctrip.framework.apollo.benchmarks.client;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.benchmarks.support.StaticConfigRepository;
+import com.ctrip.framework.apollo.internals.LocalFileConfigRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache file handling of {@link LocalFileConfigRepository}.
+ *
+ * <p>{@code persist} pushes a changed namespace from upstream, which rewrites the cache file,
+ * {@code load} creates a repository without upstream, which reads the cache file back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalFileConfigRepositoryBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"100", "10000"})
+  public int keyCount;
+
+  private File cacheRoot;
+  private StaticConfigRepository upstream;
+  private LocalFileConfigRepository repository;
+  private Properties[] versions;
+  private int current;
+
+  @Setup
+  public void setup() throws IOException {
+    cacheRoot = Files.createTempDirectory("apollo-benchmark").toFile();
+    System.setProperty("app.id", "benchmark-app");
+    System.setProperty("apollo.cacheDir", cacheRoot.getAbsolutePath());
+
+    Map<String, String> base = BenchmarkDatasets.configurations(keyCount, BenchmarkDatasets.DEFAULT_SEED);
+    versions = new Properties[]{
+        BenchmarkDatasets.toProperties(base),
+        BenchmarkDatasets.toProperties(
+            BenchmarkDatasets.mutate(base, 0.01, BenchmarkDatasets.DEFAULT_SEED + 1))
+    };
+    upstream = new StaticConfigRepository(versions[0]);
+    repository = new LocalFileConfigRepository(NAMESPACE, upstream);
+  }
+
+  @TearDown
+  public void tearDown() {
+    deleteRecursively(cacheRoot);
+  }
+
+  @Benchmark
+  public LocalFileConfigRepository persist() {
+    current ^= 1;
+    upstream.update(NAMESPACE, versions[current]);
+    return repository;
+  }
+
+  @Benchmark
+  public Properties load() {
+    return new LocalFileConfigRepository(NAMESPACE).getConfig();
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
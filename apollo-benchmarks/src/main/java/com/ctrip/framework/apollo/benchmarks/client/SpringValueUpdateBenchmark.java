@@ -0,0 +1,120 @@
+package com.ctrip.framework.apollo.benchmarks.client;
+
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.spring.property.AutoUpdateConfigChangeListener;
+import com.ctrip.framework.apollo.spring.property.SpringValue;
+import com.ctrip.framework.apollo.spring.property.SpringValueRegistry;
+import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AutoUpdateConfigChangeListener#onChange} with {@code targetCount} registered @Value
+ * injection points spread over {@code keyCount} keys, half fields and half setter methods.
+ *
+ * <p>Each invocation flips the value of {@code changedKeyCount} keys and pushes one change event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringValueUpdateBenchmark {
+  private static final String NAMESPACE = "application";
+
+  @Param({"50000"})
+  public int targetCount;
+
+  @Param({"1000"})
+  public int keyCount;
+
+  @Param({"1", "100", "1000"})
+  public int changedKeyCount;
+
+  private AutoUpdateConfigChangeListener listener;
+  private Map<String, Object> properties;
+  // keeps the weakly referenced beans alive
+  private List<Target> beans;
+  private String[] keys;
+  private long round;
+
+  public static class Target {
+    private int intValue;
+    private String stringValue;
+
+    public void setStringValue(String stringValue) {
+      this.stringValue = stringValue;
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    properties = Maps.newHashMap();
+    keys = new String[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = "apollo.benchmark.spring.key" + i;
+      properties.put(keys[i], String.valueOf(i));
+    }
+
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    beanFactory.addEmbeddedValueResolver(environment::resolvePlaceholders);
+
+    listener = new AutoUpdateConfigChangeListener(environment, beanFactory);
+
+    SpringValueRegistry registry = SpringInjector.getInstance(SpringValueRegistry.class);
+    Field field = Target.class.getDeclaredField("intValue");
+    Method method = Target.class.getMethod("setStringValue", String.class);
+    beans = Lists.newArrayListWithCapacity(targetCount);
+    for (int i = 0; i < targetCount; i++) {
+      Target bean = new Target();
+      beans.add(bean);
+      String key = keys[i % keyCount];
+      String placeholder = "${" + key + "}";
+      String beanName = "benchmarkTarget" + i;
+      SpringValue springValue = i % 2 == 0
+          ? new SpringValue(key, placeholder, bean, beanName, field, false)
+          : new SpringValue(key, placeholder, bean, beanName, method, false);
+      registry.register(beanFactory, key, springValue);
+    }
+  }
+
+  @Benchmark
+  public List<Target> onChange() {
+    round++;
+    Map<String, ConfigChange> changes = Maps.newHashMapWithExpectedSize(changedKeyCount);
+    for (int i = 0; i < changedKeyCount; i++) {
+      String key = keys[i];
+      String oldValue = (String) properties.get(key);
+      String newValue = String.valueOf(round * keyCount + i);
+      properties.put(key, newValue);
+      changes.put(key, new ConfigChange(NAMESPACE, key, oldValue, newValue, PropertyChangeType.MODIFIED));
+    }
+    listener.onChange(new ConfigChangeEvent(NAMESPACE, changes));
+    return beans;
+  }
+}
@@ -0,0 +1,75 @@
+package com.ctrip.framework.apollo.benchmarks.configservice;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.configservice.controller.ConfigController;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ConfigController.mergeReleaseConfigurations}, which decodes and merges the release
+ * configurations on every non 304 config query.
+ *
+ * <p>{@code releaseCount} 2 is the case of a client reading an associated public namespace, where
+ * the app's own release overrides the public one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeReleaseConfigurationsBenchmark {
+  @Param({"100", "10000"})
+  public int keyCount;
+
+  @Param({"1", "2"})
+  public int releaseCount;
+
+  private ConfigController controller;
+  private MethodHandle mergeReleaseConfigurations;
+  private List<Release> releases;
+
+  @Setup
+  public void setup() throws Exception {
+    Gson gson = new Gson();
+    controller = new ConfigController(null, null, null, null, gson);
+
+    releases = Lists.newArrayList();
+    for (int i = 0; i < releaseCount; i++) {
+      Release release = new Release();
+      release.setId(i + 1);
+      release.setReleaseKey("benchmark-release-" + i);
+      release.setConfigurations(gson.toJson(
+          BenchmarkDatasets.configurations(keyCount, BenchmarkDatasets.DEFAULT_SEED + i)));
+      releases.add(release);
+    }
+
+    //mergeReleaseConfigurations is package private
+    Method method = ConfigController.class.getDeclaredMethod("mergeReleaseConfigurations", List.class);
+    method.setAccessible(true);
+    mergeReleaseConfigurations = MethodHandles.lookup().unreflect(method);
+  }
+
+  @Benchmark
+  public Object mergeReleaseConfigurations() throws Throwable {
+    return mergeReleaseConfigurations.invoke(controller, releases);
+  }
+}
@@ -0,0 +1,158 @@
+package com.ctrip.framework.apollo.benchmarks.configservice;
+
+import com.ctrip.framework.apollo.benchmarks.support.ConfigServiceFixture;
+import com.ctrip.framework.apollo.configservice.netty.NettyNotificationServer;
+import com.google.common.net.UrlEscapers;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AttributeKey;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of {@link NettyNotificationServer}, reporting how many idle long polls fit into one GB of heap.
+ *
+ * <p>The server and the clients are run in separate JVMs, so the heap of the server holds nothing
+ * but the long polls:
+ *
+ * <pre>
+ * java -Xmx4g -cp apollo-benchmarks.jar \
+ *   com.ctrip.framework.apollo.benchmarks.configservice.NettyLongPollLoadTest server 8090
+ * java -Xmx4g -cp apollo-benchmarks.jar \
+ *   com.ctrip.framework.apollo.benchmarks.configservice.NettyLongPollLoadTest client 8090 1000000 64
+ * </pre>
+ *
+ * <p>The clients connect to 127.0.0.1 - 127.0.0.{targetAddresses} round robin, so more than the
+ * ephemeral port range of connections can be opened from one host. Every client re-polls as soon
+ * as its long poll is answered, the same as the java client does. Raise the open files limit of
+ * both processes ({@code ulimit -n}) above the connection count.
+ */
+public class NettyLongPollLoadTest {
+  private static final AttributeKey<String> URI = AttributeKey.valueOf("uri");
+  private static final int MAX_CONCURRENT_CONNECTS = 1000;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length >= 2 && "server".equals(args[0])) {
+      runServer(Integer.parseInt(args[1]));
+    } else if (args.length >= 3 && "client".equals(args[0])) {
+      runClients(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+          args.length >= 4 ? Integer.parseInt(args[3]) : 1);
+    } else {
+      System.err.println("Usage: server <port> | client <port> <connections> [targetAddresses]");
+      System.exit(1);
+    }
+  }
+
+  private static void runServer(int port) throws Exception {
+    ConfigServiceFixture fixture = new ConfigServiceFixture(1000, 1, 1);
+    NettyNotificationServer server = fixture.newNettyNotificationServer(port, 0);
+    server.start();
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    memory.gc();
+    long baseline = memory.getHeapMemoryUsage().getUsed();
+    System.out.printf("Server listening on port %d, baseline heap %d MB%n", server.getPort(), baseline >> 20);
+
+    while (true) {
+      TimeUnit.SECONDS.sleep(10);
+      memory.gc();
+      int pending = server.getPendingLongPolls();
+      long used = memory.getHeapMemoryUsage().getUsed() - baseline;
+      if (pending == 0) {
+        System.out.printf("No pending long polls, heap %d MB above baseline%n", used >> 20);
+        continue;
+      }
+      long bytesPerConnection = Math.max(1, used / pending);
+      System.out.printf("Pending long polls: %d, heap: %d MB, bytes/connection: %d, connections/GB: %d%n",
+          pending, used >> 20, bytesPerConnection, (1L << 30) / bytesPerConnection);
+    }
+  }
+
+  private static void runClients(int port, int connections, int targetAddresses) throws Exception {
+    ConfigServiceFixture fixture = new ConfigServiceFixture(1000, 1, 1);
+    final AtomicInteger responses = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger();
+    final Semaphore connecting = new Semaphore(MAX_CONCURRENT_CONNECTS);
+
+    EventLoopGroup group = new NioEventLoopGroup();
+    Bootstrap bootstrap = new Bootstrap()
+        .group(group)
+        .channel(NioSocketChannel.class)
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .handler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel channel) {
+            channel.pipeline()
+                .addLast(new HttpClientCodec())
+                .addLast(new HttpObjectAggregator(64 * 1024))
+                .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                  @Override
+                  protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                    responses.incrementAndGet();
+                    //poll again, the same as the client does after a timeout or a notification
+                    poll(ctx.channel());
+                  }
+                });
+          }
+        });
+
+    try {
+      long start = System.nanoTime();
+      for (int i = 0; i < connections; i++) {
+        connecting.acquire();
+        String host = "127.0.0." + (1 + i % targetAddresses);
+        String uri = String.format("/notifications/v2?cluster=default&appId=%s&dataCenter=%s&notifications=%s",
+            fixture.clientAppId(i), fixture.clientDataCenter(i),
+            UrlEscapers.urlFormParameterEscaper().escape(fixture.clientNotifications(i)));
+        bootstrap.connect(host, port).addListener((ChannelFutureListener) future -> {
+          connecting.release();
+          if (!future.isSuccess()) {
+            failures.incrementAndGet();
+            return;
+          }
+          Channel channel = future.channel();
+          channel.attr(URI).set(uri);
+          poll(channel);
+        });
+      }
+      System.out.printf("Opened %d connections in %d ms, %d failed%n", connections,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failures.get());
+
+      while (true) {
+        TimeUnit.SECONDS.sleep(10);
+        System.out.printf("Responses: %d, failed connections: %d%n", responses.get(), failures.get());
+      }
+    } finally {
+      group.shutdownGracefully();
+    }
+  }
+
+  private static void poll(Channel channel) {
+    DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+        channel.attr(URI).get());
+    request.headers().set(HttpHeaderNames.HOST, "localhost");
+    request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+    channel.writeAndFlush(request);
+  }
+}
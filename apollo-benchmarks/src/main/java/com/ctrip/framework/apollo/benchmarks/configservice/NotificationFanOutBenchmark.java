@@ -0,0 +1,71 @@
+package com.ctrip.framework.apollo.benchmarks.configservice;
+
+import com.ctrip.framework.apollo.benchmarks.support.ConfigServiceFixture;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of one public namespace release to {@code watcherCount} held long polls through
+ * {@link NotificationControllerV2#handleMessage}.
+ *
+ * <p>The notification batch is raised above the watcher count, so the whole fan-out happens on the
+ * calling thread instead of being handed over to the async batch executor. A completed request
+ * stays registered outside a servlet container, so the watchers are registered again before each
+ * iteration and every iteration publishes exactly one message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class NotificationFanOutBenchmark {
+  @Param({"10000", "100000"})
+  public int watcherCount;
+
+  private ConfigServiceFixture fixture;
+  private NotificationControllerV2 controller;
+  private String[] notifications;
+  private long messageId;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws Exception {
+    fixture = new ConfigServiceFixture(1000, 1, 1);
+    fixture.getBizConfig().setReleaseMessageNotificationBatch(Integer.MAX_VALUE);
+    notifications = new String[fixture.getAppCount()];
+    for (int i = 0; i < notifications.length; i++) {
+      notifications[i] = fixture.clientNotifications(i);
+    }
+    messageId = Integer.MAX_VALUE;
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    controller = fixture.newNotificationController();
+    for (int i = 0; i < watcherCount; i++) {
+      int app = i % notifications.length;
+      controller.pollNotification(fixture.clientAppId(app), "default", notifications[app],
+          fixture.clientDataCenter(i), "10.0." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+    }
+  }
+
+  @Benchmark
+  public NotificationControllerV2 handleMessage() {
+    controller.handleMessage(fixture.newPublicReleaseMessage(0, ++messageId), Topics.APOLLO_RELEASE_TOPIC);
+    return controller;
+  }
+}
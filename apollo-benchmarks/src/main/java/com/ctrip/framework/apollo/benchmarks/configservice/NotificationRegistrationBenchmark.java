@@ -0,0 +1,73 @@
+package com.ctrip.framework.apollo.benchmarks.configservice;
+
+import com.ctrip.framework.apollo.benchmarks.support.ConfigServiceFixture;
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long poll registration cost of {@link NotificationControllerV2#pollNotification}, i.e. parsing
+ * the notifications, assembling the watch keys, registering them and checking for new releases.
+ *
+ * <p>Held requests are never completed outside a servlet container, so every iteration starts
+ * with a fresh controller and registers a fixed batch of {@value #BATCH} long polls, each
+ * batch result is the time of one registration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = NotificationRegistrationBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = NotificationRegistrationBenchmark.BATCH)
+@Fork(1)
+public class NotificationRegistrationBenchmark {
+  static final int BATCH = 10000;
+
+  @Param({"1000"})
+  public int appCount;
+
+  @Param({"1", "10"})
+  public int privateNamespacesPerApp;
+
+  @Param({"1", "5"})
+  public int publicNamespaceCount;
+
+  private ConfigServiceFixture fixture;
+  private NotificationControllerV2 controller;
+  private String[] notifications;
+  private int clientIndex;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws Exception {
+    fixture = new ConfigServiceFixture(appCount, privateNamespacesPerApp, publicNamespaceCount);
+    notifications = new String[appCount];
+    for (int i = 0; i < appCount; i++) {
+      notifications[i] = fixture.clientNotifications(i);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    controller = fixture.newNotificationController();
+    clientIndex = 0;
+  }
+
+  @Benchmark
+  public Object pollNotification() {
+    int index = clientIndex++;
+    int app = index % appCount;
+    return controller.pollNotification(fixture.clientAppId(app), "default", notifications[app],
+        fixture.clientDataCenter(index), "10.0.0." + (index & 0xff));
+  }
+}
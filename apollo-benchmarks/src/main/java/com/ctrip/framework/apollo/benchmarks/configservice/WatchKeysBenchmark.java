@@ -0,0 +1,60 @@
+package com.ctrip.framework.apollo.benchmarks.configservice;
+
+import com.ctrip.framework.apollo.benchmarks.support.ConfigServiceFixture;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.google.common.collect.Multimap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WatchKeysUtil#assembleAllWatchKeys(String, String, Set, String)} for clients watching
+ * a mix of private and public namespaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WatchKeysBenchmark {
+  @Param({"1", "10", "100"})
+  public int privateNamespacesPerApp;
+
+  @Param({"1", "10"})
+  public int publicNamespaceCount;
+
+  private WatchKeysUtil watchKeysUtil;
+  private String appId;
+  private Set<String> namespaces;
+
+  @Setup
+  public void setup() throws Exception {
+    ConfigServiceFixture fixture = new ConfigServiceFixture(100, privateNamespacesPerApp,
+        publicNamespaceCount);
+    watchKeysUtil = fixture.getWatchKeysUtil();
+    appId = fixture.clientAppId(0);
+    namespaces = fixture.clientNamespaces(0);
+  }
+
+  @Benchmark
+  public Multimap<String, String> assembleAllWatchKeys() {
+    return watchKeysUtil.assembleAllWatchKeys(appId, "default", namespaces, "dc1");
+  }
+
+  @Benchmark
+  public Multimap<String, String> assembleAllWatchKeysWithCluster() {
+    return watchKeysUtil.assembleAllWatchKeys(appId, "benchmark-cluster", namespaces, "dc1");
+  }
+}
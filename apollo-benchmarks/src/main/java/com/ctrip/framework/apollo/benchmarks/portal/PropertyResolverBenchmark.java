@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.benchmarks.portal;
+
+import com.ctrip.framework.apollo.benchmarks.support.BenchmarkDatasets;
+import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PropertyResolver#resolve} as used by the portal text editor, the submitted text differs
+ * from the stored items in {@code changeRatio} of the keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyResolverBenchmark {
+  private static final long NAMESPACE_ID = 1;
+
+  @Param({"100", "10000"})
+  public int keyCount;
+
+  @Param({"0.01"})
+  public double changeRatio;
+
+  private PropertyResolver resolver;
+  private List<ItemDTO> baseItems;
+  private String configText;
+
+  @Setup
+  public void setup() {
+    resolver = new PropertyResolver();
+    Map<String, String> base = BenchmarkDatasets.configurations(keyCount, BenchmarkDatasets.DEFAULT_SEED);
+    baseItems = Lists.newArrayListWithCapacity(keyCount);
+    int lineNum = 1;
+    for (Map.Entry<String, String> entry : base.entrySet()) {
+      ItemDTO item = new ItemDTO(entry.getKey(), entry.getValue(), "", lineNum);
+      item.setId(lineNum);
+      item.setNamespaceId(NAMESPACE_ID);
+      baseItems.add(item);
+      lineNum++;
+    }
+    configText = BenchmarkDatasets.toPropertiesText(
+        BenchmarkDatasets.mutate(base, changeRatio, BenchmarkDatasets.DEFAULT_SEED + 1));
+  }
+
+  @Benchmark
+  public ItemChangeSets resolve() {
+    return resolver.resolve(NAMESPACE_ID, configText, baseItems);
+  }
+}
@@ -0,0 +1,34 @@
+package com.ctrip.framework.apollo.benchmarks.support;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+
+/**
+ * BizConfig without the ServerConfig table behind it, every property resolves to its default value
+ * unless it is overridden here.
+ */
+public class BenchmarkBizConfig extends BizConfig {
+  private volatile int releaseMessageNotificationBatch = 100;
+
+  public BenchmarkBizConfig() {
+    super(null);
+  }
+
+  @Override
+  public String getValue(String key) {
+    return null;
+  }
+
+  @Override
+  public String getValue(String key, String defaultValue) {
+    return defaultValue;
+  }
+
+  @Override
+  public int releaseMessageNotificationBatch() {
+    return releaseMessageNotificationBatch;
+  }
+
+  public void setReleaseMessageNotificationBatch(int releaseMessageNotificationBatch) {
+    this.releaseMessageNotificationBatch = releaseMessageNotificationBatch;
+  }
+}
@@ -0,0 +1,143 @@
+package com.ctrip.framework.apollo.benchmarks.support;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Reproducible datasets shared by the benchmarks.
+ *
+ * <p>Every dataset is derived from a fixed seed, so two runs of the same benchmark (e.g. before and
+ * after a change) always work on exactly the same keys and values.
+ */
+public final class BenchmarkDatasets {
+  public static final long DEFAULT_SEED = 20190801L;
+
+  public static final String TYPE_INT = "int";
+  public static final String TYPE_LONG = "long";
+  public static final String TYPE_BOOLEAN = "boolean";
+  public static final String TYPE_DOUBLE = "double";
+  public static final String TYPE_STRING = "string";
+
+  private static final String[] TYPES = {TYPE_INT, TYPE_LONG, TYPE_BOOLEAN, TYPE_DOUBLE, TYPE_STRING};
+  private static final char[] ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+  private BenchmarkDatasets() {
+  }
+
+  /**
+   * The key name of the index-th entry, the type of its value rotates over int, long, boolean,
+   * double and string.
+   */
+  public static String keyName(int index) {
+    return "apollo.benchmark." + typeOf(index) + ".group" + (index % 97) + ".key" + index;
+  }
+
+  public static String typeOf(int index) {
+    return TYPES[index % TYPES.length];
+  }
+
+  /**
+   * @return an ordered key/value map with keyCount entries
+   */
+  public static Map<String, String> configurations(int keyCount, long seed) {
+    Random random = new Random(seed);
+    Map<String, String> configurations = Maps.newLinkedHashMap();
+    for (int i = 0; i < keyCount; i++) {
+      configurations.put(keyName(i), randomValue(typeOf(i), random));
+    }
+    return configurations;
+  }
+
+  public static Properties properties(int keyCount, long seed) {
+    return toProperties(configurations(keyCount, seed));
+  }
+
+  /**
+   * Derive a new version of the configurations, roughly changeRatio of the keys are touched: one
+   * third of them modified, one third deleted and the same amount of new keys added.
+   */
+  public static Map<String, String> mutate(Map<String, String> base, double changeRatio, long seed) {
+    Random random = new Random(seed);
+    Map<String, String> result = Maps.newLinkedHashMap();
+    int removed = 0;
+    int index = 0;
+    for (Map.Entry<String, String> entry : base.entrySet()) {
+      if (random.nextDouble() < changeRatio) {
+        if (index++ % 3 == 0) {
+          removed++;
+        } else {
+          result.put(entry.getKey(), entry.getValue() + randomString(random, 4));
+        }
+        continue;
+      }
+      result.put(entry.getKey(), entry.getValue());
+    }
+    int offset = base.size();
+    for (int i = 0; i < removed; i++) {
+      int keyIndex = offset + i;
+      result.put(keyName(keyIndex), randomValue(typeOf(keyIndex), random));
+    }
+    return result;
+  }
+
+  /**
+   * @return the keys of the given value type, in a shuffled but reproducible order
+   */
+  public static List<String> keysOfType(int keyCount, String type, long seed) {
+    List<String> keys = Lists.newArrayList();
+    for (int i = 0; i < keyCount; i++) {
+      if (typeOf(i).equals(type)) {
+        keys.add(keyName(i));
+      }
+    }
+    Collections.shuffle(keys, new Random(seed));
+    return keys;
+  }
+
+  public static Properties toProperties(Map<String, String> configurations) {
+    Properties properties = new Properties();
+    properties.putAll(configurations);
+    return properties;
+  }
+
+  /**
+   * @return the configurations in the text format used by the portal text editor
+   */
+  public static String toPropertiesText(Map<String, String> configurations) {
+    StringBuilder builder = new StringBuilder(configurations.size() * 64);
+    for (Map.Entry<String, String> entry : configurations.entrySet()) {
+      builder.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+    }
+    return builder.toString();
+  }
+
+  static String randomValue(String type, Random random) {
+    switch (type) {
+      case TYPE_INT:
+        return String.valueOf(random.nextInt(100000));
+      case TYPE_LONG:
+        return String.valueOf(Math.abs(random.nextLong()));
+      case TYPE_BOOLEAN:
+        return String.valueOf(random.nextBoolean());
+      case TYPE_DOUBLE:
+        return String.valueOf(random.nextDouble() * 1000);
+      default:
+        return randomString(random, 16 + random.nextInt(48));
+    }
+  }
+
+  static String randomString(Random random, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+    }
+    return new String(chars);
+  }
+}
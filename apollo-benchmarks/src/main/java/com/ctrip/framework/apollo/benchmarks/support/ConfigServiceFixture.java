@@ -0,0 +1,201 @@
+package com.ctrip.framework.apollo.benchmarks.support;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.netty.NettyNotificationServer;
+import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ReleaseChangedKeysService;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.WatchSessionService;
+import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wires the config service notification components against an in-memory dataset.
+ *
+ * <p>The dataset contains {@code appCount} apps, each owning the application namespace plus
+ * {@code privateNamespacesPerApp} private namespaces, and one public app owning
+ * {@code publicNamespaceCount} public namespaces which are associated by every client. Every
+ * namespace has been released once on the default cluster.
+ */
+public class ConfigServiceFixture {
+  public static final String PUBLIC_APP_ID = "benchmark-public";
+  private static final String[] DATA_CENTERS = {"dc1", "dc2", "dc3"};
+
+  private final int appCount;
+  private final int privateNamespacesPerApp;
+  private final int publicNamespaceCount;
+  private final Map<String, Long> latestReleaseMessageIds = Maps.newHashMap();
+  private final Gson gson = new Gson();
+
+  private final BenchmarkBizConfig bizConfig;
+  private final AppNamespaceServiceWithCache appNamespaceService;
+  private final ReleaseMessageServiceWithCache releaseMessageService;
+  private final WatchNotificationsUtil watchNotificationsUtil;
+  private final WatchKeysUtil watchKeysUtil;
+
+  public ConfigServiceFixture(int appCount, int privateNamespacesPerApp, int publicNamespaceCount)
+      throws Exception {
+    this.appCount = appCount;
+    this.privateNamespacesPerApp = privateNamespacesPerApp;
+    this.publicNamespaceCount = publicNamespaceCount;
+
+    List<AppNamespace> appNamespaces = Lists.newArrayList();
+    List<ReleaseMessage> releaseMessages = Lists.newArrayList();
+    for (int i = 0; i < appCount; i++) {
+      String appId = appId(i);
+      appNamespaces.add(appNamespace(appNamespaces.size() + 1, appId, ConfigConsts.NAMESPACE_APPLICATION, false));
+      releaseMessages.add(releaseMessage(releaseMessages.size() + 1, appId, ConfigConsts.NAMESPACE_APPLICATION));
+      for (int j = 0; j < privateNamespacesPerApp; j++) {
+        appNamespaces.add(appNamespace(appNamespaces.size() + 1, appId, privateNamespace(j), false));
+        releaseMessages.add(releaseMessage(releaseMessages.size() + 1, appId, privateNamespace(j)));
+      }
+    }
+    for (int j = 0; j < publicNamespaceCount; j++) {
+      appNamespaces.add(appNamespace(appNamespaces.size() + 1, PUBLIC_APP_ID, publicNamespace(j), true));
+      releaseMessages.add(releaseMessage(releaseMessages.size() + 1, PUBLIC_APP_ID, publicNamespace(j)));
+    }
+    for (ReleaseMessage releaseMessage : releaseMessages) {
+      latestReleaseMessageIds.put(releaseMessage.getMessage(), releaseMessage.getId());
+    }
+
+    bizConfig = new BenchmarkBizConfig();
+    appNamespaceService = new AppNamespaceServiceWithCache(
+        Repositories.inMemory(AppNamespaceRepository.class, appNamespaces, AppNamespace::getId), bizConfig);
+    appNamespaceService.afterPropertiesSet();
+    releaseMessageService = new ReleaseMessageServiceWithCache(
+        Repositories.inMemory(ReleaseMessageRepository.class, releaseMessages, ReleaseMessage::getId), bizConfig);
+    releaseMessageService.afterPropertiesSet();
+    watchNotificationsUtil = new WatchNotificationsUtil(new NamespaceUtil(appNamespaceService));
+    watchKeysUtil = new WatchKeysUtil(appNamespaceService);
+  }
+
+  public NotificationControllerV2 newNotificationController() {
+    return new NotificationControllerV2(watchKeysUtil, releaseMessageService, new NoOpEntityManagerUtil(),
+        watchNotificationsUtil, new WatchSessionService(watchKeysUtil, bizConfig),
+        // benchmark clients watch whole namespaces, so no watch key is tracked and the release services are unused
+        new ReleaseChangedKeysService(null, null), gson, bizConfig);
+  }
+
+  /**
+   * @param port the port to listen on once started, 0 for a random port
+   */
+  public NettyNotificationServer newNettyNotificationServer(int port, int workerThreads) {
+    return new NettyNotificationServer(watchKeysUtil, watchNotificationsUtil, releaseMessageService, gson, bizConfig,
+        port, workerThreads);
+  }
+
+  public BenchmarkBizConfig getBizConfig() {
+    return bizConfig;
+  }
+
+  public WatchKeysUtil getWatchKeysUtil() {
+    return watchKeysUtil;
+  }
+
+  public int getAppCount() {
+    return appCount;
+  }
+
+  public String clientAppId(int clientIndex) {
+    return appId(clientIndex % appCount);
+  }
+
+  public String clientDataCenter(int clientIndex) {
+    return DATA_CENTERS[clientIndex % DATA_CENTERS.length];
+  }
+
+  /**
+   * The namespaces a client watches: application, the private namespaces of its app and all the
+   * public namespaces.
+   */
+  public Set<String> clientNamespaces(int clientIndex) {
+    Set<String> namespaces = Sets.newLinkedHashSet();
+    namespaces.add(ConfigConsts.NAMESPACE_APPLICATION);
+    for (int j = 0; j < privateNamespacesPerApp; j++) {
+      namespaces.add(privateNamespace(j));
+    }
+    for (int j = 0; j < publicNamespaceCount; j++) {
+      namespaces.add(publicNamespace(j));
+    }
+    return namespaces;
+  }
+
+  /**
+   * @return the notifications parameter of an up-to-date client, i.e. one that will be held
+   */
+  public String clientNotifications(int clientIndex) {
+    String appId = clientAppId(clientIndex);
+    List<ApolloConfigNotification> notifications = Lists.newArrayList();
+    for (String namespace : clientNamespaces(clientIndex)) {
+      String ownerAppId = namespace.startsWith("benchmark.public") ? PUBLIC_APP_ID : appId;
+      Long latestId = latestReleaseMessageIds.get(
+          ReleaseMessageKeyGenerator.generate(ownerAppId, ConfigConsts.CLUSTER_NAME_DEFAULT, namespace));
+      notifications.add(new ApolloConfigNotification(namespace,
+          latestId == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER : latestId));
+    }
+    return gson.toJson(notifications);
+  }
+
+  /**
+   * @return a release message of the given public namespace, newer than anything in the dataset
+   */
+  public ReleaseMessage newPublicReleaseMessage(int publicNamespaceIndex, long id) {
+    ReleaseMessage message = new ReleaseMessage(ReleaseMessageKeyGenerator
+        .generate(PUBLIC_APP_ID, ConfigConsts.CLUSTER_NAME_DEFAULT, publicNamespace(publicNamespaceIndex)));
+    message.setId(id);
+    return message;
+  }
+
+  public static String appId(int index) {
+    return "benchmark-app-" + index;
+  }
+
+  public static String privateNamespace(int index) {
+    return "benchmark.private" + index;
+  }
+
+  public static String publicNamespace(int index) {
+    return "benchmark.public" + index;
+  }
+
+  private static AppNamespace appNamespace(long id, String appId, String name, boolean isPublic) {
+    AppNamespace appNamespace = new AppNamespace();
+    appNamespace.setId(id);
+    appNamespace.setAppId(appId);
+    appNamespace.setName(name);
+    appNamespace.setPublic(isPublic);
+    appNamespace.setFormat("properties");
+    return appNamespace;
+  }
+
+  private static ReleaseMessage releaseMessage(long id, String appId, String namespace) {
+    ReleaseMessage message = new ReleaseMessage(
+        ReleaseMessageKeyGenerator.generate(appId, ConfigConsts.CLUSTER_NAME_DEFAULT, namespace));
+    message.setId(id);
+    return message;
+  }
+
+  private static class NoOpEntityManagerUtil extends EntityManagerUtil {
+    @Override
+    public void closeEntityManager() {
+      //no entity manager involved
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.ctrip.framework.apollo.benchmarks.support;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Creates Spring Data repository stand-ins backed by an in-memory dataset, so the server side
+ * caches can be populated through their real loading code without a database.
+ *
+ * <p>Only the id based scanning methods used by the caches are answered, i.e.
+ * {@code findFirst500ByIdGreaterThanOrderByIdAsc} and {@code findAllById}. Every other method
+ * returns an empty value.
+ */
+public final class Repositories {
+  private static final int SCAN_BATCH = 500;
+
+  private Repositories() {
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <R, T> R inMemory(Class<R> repositoryType, List<T> entities, ToLongFunction<T> idGetter) {
+    List<T> dataset = ImmutableList.copyOf(entities);
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (method.getDeclaringClass() == Object.class) {
+        return handleObjectMethod(proxy, method, args);
+      }
+      switch (method.getName()) {
+        case "findFirst500ByIdGreaterThanOrderByIdAsc":
+          return scan(dataset, idGetter, ((Number) args[0]).longValue());
+        case "findAllById":
+          return findAllById(dataset, idGetter, (Iterable<?>) args[0]);
+        default:
+          return emptyValue(method.getReturnType());
+      }
+    };
+    return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+        handler);
+  }
+
+  private static <T> List<T> scan(List<T> dataset, ToLongFunction<T> idGetter, long startId) {
+    List<T> result = Lists.newArrayListWithCapacity(SCAN_BATCH);
+    for (T entity : dataset) {
+      if (idGetter.applyAsLong(entity) > startId) {
+        result.add(entity);
+        if (result.size() == SCAN_BATCH) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static <T> List<T> findAllById(List<T> dataset, ToLongFunction<T> idGetter, Iterable<?> ids) {
+    Set<Long> idSet = Sets.newHashSet();
+    for (Object id : ids) {
+      idSet.add(((Number) id).longValue());
+    }
+    List<T> result = Lists.newArrayList();
+    for (T entity : dataset) {
+      if (idSet.contains(idGetter.applyAsLong(entity))) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      default:
+        return "InMemoryRepository@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+  }
+
+  private static Object emptyValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    if (type == Optional.class) {
+      return Optional.empty();
+    }
+    if (type.isAssignableFrom(List.class)) {
+      return Collections.emptyList();
+    }
+    return null;
+  }
+}
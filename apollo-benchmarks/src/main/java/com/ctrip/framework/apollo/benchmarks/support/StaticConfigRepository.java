@@ -0,0 +1,58 @@
+package com.ctrip.framework.apollo.benchmarks.support;
+
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.RepositoryChangeListener;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * An in-memory config repository, so the client benchmarks never touch the network.
+ */
+public class StaticConfigRepository implements ConfigRepository {
+  private final List<RepositoryChangeListener> listeners = Lists.newCopyOnWriteArrayList();
+  private volatile Properties properties;
+
+  public StaticConfigRepository(Properties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public Properties getConfig() {
+    return properties;
+  }
+
+  @Override
+  public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+    //no upstream
+  }
+
+  @Override
+  public void addChangeListener(RepositoryChangeListener listener) {
+    if (!listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  @Override
+  public void removeChangeListener(RepositoryChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public ConfigSourceType getSourceType() {
+    return ConfigSourceType.REMOTE;
+  }
+
+  /**
+   * Replace the properties and notify the listeners, the same way a remote change would do.
+   */
+  public void update(String namespace, Properties newProperties) {
+    this.properties = newProperties;
+    for (RepositoryChangeListener listener : listeners) {
+      listener.onRepositoryChange(namespace, newProperties);
+    }
+  }
+}
@@ -28,6 +28,23 @@ public class BizConfig extends RefreshableConfig {
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
   private static final int DEFAULT_LONG_POLLING_TIMEOUT = 60; //60s
+  private static final int DEFAULT_NOTIFICATION_STREAM_TIMEOUT = 600; //600s
+  private static final int DEFAULT_NOTIFICATION_STREAM_HEARTBEAT_INTERVAL = 30; //30s
+  private static final int DEFAULT_NOTIFICATION_STREAM_PUSH_THREADS = 8;
+  private static final int DEFAULT_NOTIFICATION_STREAM_WRITE_TIMEOUT = 10; //10s
+  private static final int DEFAULT_NOTIFICATION_SESSION_EXPIRE = 600; //600s
+  private static final int DEFAULT_NOTIFICATION_SESSION_MAX_SIZE = 100000;
+  private static final int DEFAULT_ADMISSION_CONTROL_INITIAL_LIMIT = 100;
+  private static final int DEFAULT_ADMISSION_CONTROL_MIN_LIMIT = 10;
+  private static final int DEFAULT_ADMISSION_CONTROL_MAX_LIMIT = 200;
+  private static final int DEFAULT_ADMISSION_CONTROL_LATENCY_THRESHOLD_IN_MILLI = 200; //200ms
+  private static final int DEFAULT_ADMISSION_CONTROL_LONG_POLL_SHARE = 75; //75%
+  private static final int DEFAULT_ADMISSION_CONTROL_RETRY_AFTER = 2; //2s
+  private static final int DEFAULT_NAMESPACE_LOCK_LEASE = 10; //10s
+  private static final int DEFAULT_DELETED_ROW_PURGE_RETENTION = 30; //30 days
+  private static final int DEFAULT_DELETED_ROW_PURGE_INTERVAL = 24; //24 hours
+  private static final int DEFAULT_DELETED_ROW_PURGE_CHUNK_SIZE = 500;
+  private static final int DEFAULT_DELETED_ROW_PURGE_CHUNK_INTERVAL_IN_MILLI = 100; //100ms
 
   private Gson gson = new Gson();
   private static final Type namespaceValueLengthOverrideTypeReference =
@@ -76,20 +93,32 @@ public class BizConfig extends RefreshableConfig {
   }
 
   public Map<Long, Integer> namespaceValueLengthLimitOverride() {
-    String namespaceValueLengthOverrideString = getValue("namespace.value.length.limit.override");
-    Map<Long, Integer> namespaceValueLengthOverride = Maps.newHashMap();
-    if (!Strings.isNullOrEmpty(namespaceValueLengthOverrideString)) {
-      namespaceValueLengthOverride =
-          gson.fromJson(namespaceValueLengthOverrideString, namespaceValueLengthOverrideTypeReference);
-    }
+    return getDerivedProperty("namespaceValueLengthLimitOverride", () -> {
+      String namespaceValueLengthOverrideString = getValue("namespace.value.length.limit.override");
+      Map<Long, Integer> namespaceValueLengthOverride = Maps.newHashMap();
+      if (!Strings.isNullOrEmpty(namespaceValueLengthOverrideString)) {
+        namespaceValueLengthOverride =
+            gson.fromJson(namespaceValueLengthOverrideString, namespaceValueLengthOverrideTypeReference);
+      }
 
-    return namespaceValueLengthOverride;
+      return Collections.unmodifiableMap(namespaceValueLengthOverride);
+    });
   }
 
   public boolean isNamespaceLockSwitchOff() {
     return !getBooleanProperty("namespace.lock.switch", false);
   }
 
+  /**
+   * How long a namespace lock acquired by this admin service is trusted without loading the namespace and the lock,
+   * 0 to always load them. Within this time only the existence of the lock row of the owner is checked, so a lock
+   * released by another admin service instance is acquired again.
+   */
+  public long namespaceLockLeaseInMilli() {
+    int lease = getIntProperty("namespace.lock.lease", DEFAULT_NAMESPACE_LOCK_LEASE);
+    return 1000L * checkInt(lease, 0, 300, DEFAULT_NAMESPACE_LOCK_LEASE);
+  }
+
   /**
    * ctrip config
    **/
@@ -143,10 +172,132 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
   }
 
+  /**
+   * A stream is closed after this time so that the clients reconnect and spread over config services
+   */
+  public long notificationStreamTimeoutInMilli() {
+    int timeout = getIntProperty("notification.stream.timeout", DEFAULT_NOTIFICATION_STREAM_TIMEOUT);
+    return 1000L * checkInt(timeout, 60, Integer.MAX_VALUE, DEFAULT_NOTIFICATION_STREAM_TIMEOUT);
+  }
+
+  public long notificationStreamHeartbeatIntervalInMilli() {
+    int interval = getIntProperty("notification.stream.heartbeat.interval", DEFAULT_NOTIFICATION_STREAM_HEARTBEAT_INTERVAL);
+    return 1000L * checkInt(interval, 1, 60, DEFAULT_NOTIFICATION_STREAM_HEARTBEAT_INTERVAL);
+  }
+
+  /**
+   * The threads writing the notifications and heartbeats to the streams, each stream is written by at most one of them
+   */
+  public int notificationStreamPushThreads() {
+    int threads = getIntProperty("notification.stream.push.threads", DEFAULT_NOTIFICATION_STREAM_PUSH_THREADS);
+    return checkInt(threads, 1, 256, DEFAULT_NOTIFICATION_STREAM_PUSH_THREADS);
+  }
+
+  /**
+   * A stream is dropped if a write to it takes longer than this time, the client reconnects and resumes
+   */
+  public long notificationStreamWriteTimeoutInMilli() {
+    int timeout = getIntProperty("notification.stream.write.timeout", DEFAULT_NOTIFICATION_STREAM_WRITE_TIMEOUT);
+    return 1000L * checkInt(timeout, 1, 600, DEFAULT_NOTIFICATION_STREAM_WRITE_TIMEOUT);
+  }
+
+  /**
+   * A watch session is dropped this time after creation, so that the resolved watch keys are refreshed
+   */
+  public long notificationSessionExpireInMilli() {
+    int expire = getIntProperty("notification.session.expire", DEFAULT_NOTIFICATION_SESSION_EXPIRE);
+    return 1000L * checkInt(expire, 60, Integer.MAX_VALUE, DEFAULT_NOTIFICATION_SESSION_EXPIRE);
+  }
+
+  /**
+   * At most this many watch sessions are kept, the least recently used ones are dropped beyond it
+   */
+  public int notificationSessionMaxSize() {
+    int maxSize = getIntProperty("notification.session.max-size", DEFAULT_NOTIFICATION_SESSION_MAX_SIZE);
+    return checkInt(maxSize, 1000, Integer.MAX_VALUE, DEFAULT_NOTIFICATION_SESSION_MAX_SIZE);
+  }
+
   public boolean isConfigServiceCacheEnabled() {
     return getBooleanProperty("config-service.cache.enabled", false);
   }
 
+  public boolean isAdmissionControlEnabled() {
+    return getBooleanProperty("admission-control.enabled", false);
+  }
+
+  public int admissionControlInitialLimit() {
+    int limit = getIntProperty("admission-control.initial-limit", DEFAULT_ADMISSION_CONTROL_INITIAL_LIMIT);
+    return checkInt(limit, 1, Integer.MAX_VALUE, DEFAULT_ADMISSION_CONTROL_INITIAL_LIMIT);
+  }
+
+  public int admissionControlMinLimit() {
+    int limit = getIntProperty("admission-control.min-limit", DEFAULT_ADMISSION_CONTROL_MIN_LIMIT);
+    return checkInt(limit, 1, Integer.MAX_VALUE, DEFAULT_ADMISSION_CONTROL_MIN_LIMIT);
+  }
+
+  /**
+   * Should not be larger than the servlet container's worker threads, otherwise the requests queue up in the container
+   */
+  public int admissionControlMaxLimit() {
+    int limit = getIntProperty("admission-control.max-limit", DEFAULT_ADMISSION_CONTROL_MAX_LIMIT);
+    return checkInt(limit, 1, Integer.MAX_VALUE, DEFAULT_ADMISSION_CONTROL_MAX_LIMIT);
+  }
+
+  /**
+   * The concurrency limit is decreased once a request takes longer than this
+   */
+  public int admissionControlLatencyThresholdInMilli() {
+    int threshold = getIntProperty("admission-control.latency-threshold", DEFAULT_ADMISSION_CONTROL_LATENCY_THRESHOLD_IN_MILLI);
+    return checkInt(threshold, 1, Integer.MAX_VALUE, DEFAULT_ADMISSION_CONTROL_LATENCY_THRESHOLD_IN_MILLI);
+  }
+
+  /**
+   * The percentage of the concurrency limit new long polls could take, the rest is reserved for config fetches
+   */
+  public int admissionControlLongPollShare() {
+    int share = getIntProperty("admission-control.long-poll-share", DEFAULT_ADMISSION_CONTROL_LONG_POLL_SHARE);
+    return checkInt(share, 1, 100, DEFAULT_ADMISSION_CONTROL_LONG_POLL_SHARE);
+  }
+
+  public int admissionControlRetryAfterInSecond() {
+    int retryAfter = getIntProperty("admission-control.retry-after", DEFAULT_ADMISSION_CONTROL_RETRY_AFTER);
+    return checkInt(retryAfter, 1, 120, DEFAULT_ADMISSION_CONTROL_RETRY_AFTER);
+  }
+
+  public boolean isDeletedRowPurgeEnabled() {
+    return getBooleanProperty("deleted-row-purge.enabled", false);
+  }
+
+  /**
+   * The deleted rows are kept for this many days before purged
+   */
+  public int deletedRowPurgeRetentionInDays() {
+    int retention = getIntProperty("deleted-row-purge.retention", DEFAULT_DELETED_ROW_PURGE_RETENTION);
+    return checkInt(retention, 1, Integer.MAX_VALUE, DEFAULT_DELETED_ROW_PURGE_RETENTION);
+  }
+
+  public int deletedRowPurgeIntervalInHours() {
+    int interval = getIntProperty("deleted-row-purge.interval", DEFAULT_DELETED_ROW_PURGE_INTERVAL);
+    return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_DELETED_ROW_PURGE_INTERVAL);
+  }
+
+  /**
+   * Whether to copy the purged rows to DeletedRowArchive, otherwise they are deleted only
+   */
+  public boolean isDeletedRowPurgeArchiveEnabled() {
+    return getBooleanProperty("deleted-row-purge.archive", true);
+  }
+
+  public int deletedRowPurgeChunkSize() {
+    int size = getIntProperty("deleted-row-purge.chunk-size", DEFAULT_DELETED_ROW_PURGE_CHUNK_SIZE);
+    return checkInt(size, 1, 5000, DEFAULT_DELETED_ROW_PURGE_CHUNK_SIZE);
+  }
+
+  public int deletedRowPurgeChunkIntervalInMilli() {
+    int interval = getIntProperty("deleted-row-purge.chunk-interval", DEFAULT_DELETED_ROW_PURGE_CHUNK_INTERVAL_IN_MILLI);
+    return checkInt(interval, 0, Integer.MAX_VALUE, DEFAULT_DELETED_ROW_PURGE_CHUNK_INTERVAL_IN_MILLI);
+  }
+
   int checkInt(int value, int min, int max, int defaultValue) {
     if (value >= min && value <= max) {
       return value;
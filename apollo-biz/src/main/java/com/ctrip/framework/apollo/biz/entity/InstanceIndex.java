@@ -0,0 +1,179 @@
+package com.ctrip.framework.apollo.biz.entity;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * The number of the instance configs of a namespace, by release key, instance cluster and data center, whose last
+ * modified time is in the hour of {@code timeBucket}.
+ *
+ * <p>Maintained along with the instance configs, so that the active instances of a namespace are counted by summing
+ * up the rows of the last day, instead of scanning the instance configs.
+ *
+ * @see com.ctrip.framework.apollo.biz.service.InstanceIndexService
+ */
+@Entity
+@Table(name = "InstanceIndex", uniqueConstraints = @UniqueConstraint(columnNames = {"IndexKey", "TimeBucket"}))
+public class InstanceIndex {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "Id")
+  private long id;
+
+  /**
+   * md5 of the config app id, config cluster name, config namespace name, release key, instance cluster name and data
+   * center
+   */
+  @Column(name = "IndexKey", nullable = false)
+  private String indexKey;
+
+  @Column(name = "ConfigAppId", nullable = false)
+  private String configAppId;
+
+  @Column(name = "ConfigClusterName", nullable = false)
+  private String configClusterName;
+
+  @Column(name = "ConfigNamespaceName", nullable = false)
+  private String configNamespaceName;
+
+  @Column(name = "ReleaseKey", nullable = false)
+  private String releaseKey;
+
+  @Column(name = "InstanceClusterName", nullable = false)
+  private String instanceClusterName;
+
+  @Column(name = "DataCenter", nullable = false)
+  private String dataCenter;
+
+  @Column(name = "TimeBucket", nullable = false)
+  private Date timeBucket;
+
+  @Column(name = "InstanceCount", nullable = false)
+  private int instanceCount;
+
+  @Column(name = "DataChange_CreatedTime")
+  private Date dataChangeCreatedTime;
+
+  @Column(name = "DataChange_LastTime")
+  private Date dataChangeLastModifiedTime;
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getIndexKey() {
+    return indexKey;
+  }
+
+  public void setIndexKey(String indexKey) {
+    this.indexKey = indexKey;
+  }
+
+  public String getConfigAppId() {
+    return configAppId;
+  }
+
+  public void setConfigAppId(String configAppId) {
+    this.configAppId = configAppId;
+  }
+
+  public String getConfigClusterName() {
+    return configClusterName;
+  }
+
+  public void setConfigClusterName(String configClusterName) {
+    this.configClusterName = configClusterName;
+  }
+
+  public String getConfigNamespaceName() {
+    return configNamespaceName;
+  }
+
+  public void setConfigNamespaceName(String configNamespaceName) {
+    this.configNamespaceName = configNamespaceName;
+  }
+
+  public String getReleaseKey() {
+    return releaseKey;
+  }
+
+  public void setReleaseKey(String releaseKey) {
+    this.releaseKey = releaseKey;
+  }
+
+  public String getInstanceClusterName() {
+    return instanceClusterName;
+  }
+
+  public void setInstanceClusterName(String instanceClusterName) {
+    this.instanceClusterName = instanceClusterName;
+  }
+
+  public String getDataCenter() {
+    return dataCenter;
+  }
+
+  public void setDataCenter(String dataCenter) {
+    this.dataCenter = dataCenter;
+  }
+
+  public Date getTimeBucket() {
+    return timeBucket;
+  }
+
+  public void setTimeBucket(Date timeBucket) {
+    this.timeBucket = timeBucket;
+  }
+
+  public int getInstanceCount() {
+    return instanceCount;
+  }
+
+  public void setInstanceCount(int instanceCount) {
+    this.instanceCount = instanceCount;
+  }
+
+  public Date getDataChangeCreatedTime() {
+    return dataChangeCreatedTime;
+  }
+
+  public void setDataChangeCreatedTime(Date dataChangeCreatedTime) {
+    this.dataChangeCreatedTime = dataChangeCreatedTime;
+  }
+
+  public Date getDataChangeLastModifiedTime() {
+    return dataChangeLastModifiedTime;
+  }
+
+  public void setDataChangeLastModifiedTime(Date dataChangeLastModifiedTime) {
+    this.dataChangeLastModifiedTime = dataChangeLastModifiedTime;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .omitNullValues()
+        .add("configAppId", configAppId)
+        .add("configClusterName", configClusterName)
+        .add("configNamespaceName", configNamespaceName)
+        .add("releaseKey", releaseKey)
+        .add("instanceClusterName", instanceClusterName)
+        .add("dataCenter", dataCenter)
+        .add("timeBucket", timeBucket)
+        .add("instanceCount", instanceCount)
+        .toString();
+  }
+}
@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.biz.entity;
+
+import com.ctrip.framework.apollo.common.entity.BaseEntity;
+
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * A key modified by a branch release, with the value released by the branch.
+ *
+ * <p>One row per key of the {@code branchReleaseKeys} of a branch release history, so that the
+ * branch modified configurations are read by release history id instead of parsing the operation
+ * context.
+ */
+@Entity
+@Table(name = "ReleaseBranchKey")
+@SQLDelete(sql = "Update ReleaseBranchKey set isDeleted = 1 where id = ?")
+@Where(clause = "isDeleted = 0")
+public class ReleaseBranchKey extends BaseEntity {
+  @Column(name = "ReleaseHistoryId", nullable = false)
+  private long releaseHistoryId;
+
+  @Column(name = "ReleaseId", nullable = false)
+  private long releaseId;
+
+  @Column(name = "key", nullable = false)
+  private String key;
+
+  /**
+   * null if the key is not in the branch configurations, e.g. deleted by the branch
+   */
+  @Column(name = "value")
+  @Lob
+  private String value;
+
+  public long getReleaseHistoryId() {
+    return releaseHistoryId;
+  }
+
+  public void setReleaseHistoryId(long releaseHistoryId) {
+    this.releaseHistoryId = releaseHistoryId;
+  }
+
+  public long getReleaseId() {
+    return releaseId;
+  }
+
+  public void setReleaseId(long releaseId) {
+    this.releaseId = releaseId;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public void setValue(String value) {
+    this.value = value;
+  }
+
+  public String toString() {
+    return toStringHelper().add("releaseHistoryId", releaseHistoryId).add("releaseId", releaseId)
+        .add("key", key).toString();
+  }
+}
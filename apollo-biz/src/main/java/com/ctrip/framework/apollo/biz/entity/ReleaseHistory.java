@@ -7,6 +7,7 @@ import org.hibernate.annotations.Where;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Lob;
 import javax.persistence.Table;
 
 /**
@@ -17,6 +18,8 @@ import javax.persistence.Table;
 @SQLDelete(sql = "Update ReleaseHistory set isDeleted = 1 where id = ?")
 @Where(clause = "isDeleted = 0")
 public class ReleaseHistory extends BaseEntity {
+  public static final int MAX_CHANGED_KEYS = 100;
+
   @Column(name = "AppId", nullable = false)
   private String appId;
 
@@ -41,6 +44,19 @@ public class ReleaseHistory extends BaseEntity {
   @Column(name = "OperationContext", nullable = false)
   private String operationContext;
 
+  /**
+   * the number of keys changed by this operation, compared with the previous release, null if not computed
+   */
+  @Column(name = "ChangedKeyCount")
+  private Integer changedKeyCount;
+
+  /**
+   * json array of the changed keys in key order, at most {@link #MAX_CHANGED_KEYS}
+   */
+  @Column(name = "ChangedKeys")
+  @Lob
+  private String changedKeys;
+
   public String getAppId() {
     return appId;
   }
@@ -105,6 +121,22 @@ public class ReleaseHistory extends BaseEntity {
     this.operationContext = operationContext;
   }
 
+  public Integer getChangedKeyCount() {
+    return changedKeyCount;
+  }
+
+  public void setChangedKeyCount(Integer changedKeyCount) {
+    this.changedKeyCount = changedKeyCount;
+  }
+
+  public String getChangedKeys() {
+    return changedKeys;
+  }
+
+  public void setChangedKeys(String changedKeys) {
+    this.changedKeys = changedKeys;
+  }
+
   public String toString() {
     return toStringHelper().add("appId", appId).add("clusterName", clusterName)
         .add("namespaceName", namespaceName).add("branchName", branchName)
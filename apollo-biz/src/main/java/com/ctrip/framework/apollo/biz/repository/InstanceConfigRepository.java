@@ -18,15 +18,27 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
   InstanceConfig findByInstanceIdAndConfigAppIdAndConfigNamespaceName(long instanceId, String
       configAppId, String configNamespaceName);
 
-  Page<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date
+  List<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date
       validDate, Pageable pageable);
 
-  Page<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
+  List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
       String appId, String clusterName, String namespaceName, Date validDate, Pageable pageable);
 
   List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndReleaseKeyNotIn(
       String appId, String clusterName, String namespaceName, Date validDate, Set<String> releaseKey);
 
+  /**
+   * Updates the instance config only if it's not changed since loaded, e.g. by another config service
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update InstanceConfig set configClusterName = :configClusterName, releaseKey = :releaseKey, " +
+      "releaseDeliveryTime = :releaseDeliveryTime, dataChangeLastModifiedTime = :lastModifiedTime " +
+      "where id = :id and releaseKey = :loadedReleaseKey and dataChangeLastModifiedTime = :loadedLastModifiedTime")
+  int updateIfNotChanged(@Param("id") long id, @Param("configClusterName") String configClusterName,
+      @Param("releaseKey") String releaseKey, @Param("releaseDeliveryTime") Date releaseDeliveryTime,
+      @Param("lastModifiedTime") Date lastModifiedTime, @Param("loadedReleaseKey") String loadedReleaseKey,
+      @Param("loadedLastModifiedTime") Date loadedLastModifiedTime);
+
   @Modifying
   @Query("delete from InstanceConfig  where ConfigAppId=?1 and ConfigClusterName=?2 and ConfigNamespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName);
@@ -8,6 +8,8 @@ public interface NamespaceLockRepository extends PagingAndSortingRepository<Name
 
   NamespaceLock findByNamespaceId(Long namespaceId);
 
+  boolean existsByNamespaceIdAndDataChangeCreatedBy(Long namespaceId, String dataChangeCreatedBy);
+
   Long deleteByNamespaceId(Long namespaceId);
 
 }
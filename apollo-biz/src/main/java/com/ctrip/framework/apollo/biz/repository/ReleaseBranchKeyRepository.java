@@ -0,0 +1,12 @@
+package com.ctrip.framework.apollo.biz.repository;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseBranchKey;
+
+import java.util.List;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+public interface ReleaseBranchKeyRepository extends PagingAndSortingRepository<ReleaseBranchKey, Long> {
+  List<ReleaseBranchKey> findByReleaseHistoryIdOrderByIdAsc(long releaseHistoryId);
+
+  ReleaseBranchKey findFirstByReleaseHistoryId(long releaseHistoryId);
+}
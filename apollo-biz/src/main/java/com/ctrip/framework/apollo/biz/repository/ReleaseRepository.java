@@ -29,6 +29,9 @@ public interface ReleaseRepository extends PagingAndSortingRepository<Release, L
 
   List<Release> findByIdIn(Set<Long> releaseIds);
 
+  @Query("SELECT r.id, r.name, r.comment FROM Release r WHERE r.id IN ?1")
+  List<Object[]> findIdAndNameAndCommentByIdIn(Set<Long> releaseIds);
+
   @Modifying
   @Query("update Release set isdeleted=1,DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName, String operator);
@@ -2,11 +2,17 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ServerConfig;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.List;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public interface ServerConfigRepository extends PagingAndSortingRepository<ServerConfig, Long> {
   ServerConfig findTopByKeyAndCluster(String key, String cluster);
+
+  @Query("SELECT COUNT(s), MAX(s.dataChangeLastModifiedTime) FROM ServerConfig s")
+  List<Object[]> findCountAndLastModifiedTime();
 }
@@ -2,18 +2,55 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Audit;
 import com.ctrip.framework.apollo.biz.repository.AuditRepository;
+import com.ctrip.framework.apollo.common.audit.AuditWriter;
+import com.ctrip.framework.apollo.common.audit.MultiRowInsert;
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Date;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 @Service
 public class AuditService {
 
+  private static final int AUDIT_MAX_SIZE = 10000;
+  private static final int BATCH_SIZE = 100;
+  private static final long BATCH_TIMEOUT_IN_MILLIS = 1000;
+
+  private static final MultiRowInsert<Audit> AUDIT_INSERT = new MultiRowInsert<>("Audit",
+      ImmutableList.of("EntityName", "EntityId", "OpName", "Comment", "IsDeleted", "DataChange_CreatedBy",
+          "DataChange_CreatedTime", "DataChange_LastModifiedBy", "DataChange_LastTime"),
+      audit -> new Object[]{audit.getEntityName(), audit.getEntityId(), audit.getOpName(), audit.getComment(),
+          audit.isDeleted(), audit.getDataChangeCreatedBy(), audit.getDataChangeCreatedTime(),
+          audit.getDataChangeLastModifiedBy(), audit.getDataChangeLastModifiedTime()});
+
   private final AuditRepository auditRepository;
+  private final AuditWriter<Audit> auditWriter;
 
-  public AuditService(final AuditRepository auditRepository) {
+  public AuditService(final AuditRepository auditRepository, final JdbcTemplate jdbcTemplate,
+      @Value("${spring.datasource.url:}") final String dataSourceUrl) {
     this.auditRepository = auditRepository;
+    this.auditWriter = new AuditWriter<>("Audit", dataSourceUrl, Audit.class,
+        audits -> AUDIT_INSERT.insert(jdbcTemplate, audits), AUDIT_MAX_SIZE, BATCH_SIZE, BATCH_TIMEOUT_IN_MILLIS, null,
+        Metrics.globalRegistry);
+  }
+
+  @PostConstruct
+  void init() {
+    auditWriter.start();
+  }
+
+  @PreDestroy
+  void destroy() {
+    auditWriter.stop();
   }
 
   List<Audit> findByOwner(String owner) {
@@ -24,18 +61,43 @@ public class AuditService {
     return auditRepository.findAudits(owner, entity, op);
   }
 
-  @Transactional
   void audit(String entityName, Long entityId, Audit.OP op, String owner) {
     Audit audit = new Audit();
     audit.setEntityName(entityName);
     audit.setEntityId(entityId);
     audit.setOpName(op.name());
     audit.setDataChangeCreatedBy(owner);
-    auditRepository.save(audit);
+    audit(audit);
+  }
+
+  /**
+   * The audit is written asynchronously, after the current transaction, if any, is committed
+   */
+  void audit(Audit audit) {
+    Date now = new Date();
+    if (audit.getDataChangeCreatedTime() == null) {
+      audit.setDataChangeCreatedTime(now);
+    }
+    if (audit.getDataChangeLastModifiedTime() == null) {
+      audit.setDataChangeLastModifiedTime(now);
+    }
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      auditWriter.audit(audit);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        auditWriter.audit(audit);
+      }
+    });
   }
 
-  @Transactional
-  void audit(Audit audit){
-    auditRepository.save(audit);
+  /**
+   * Writes the queued audits now
+   */
+  void flush() {
+    auditWriter.flush();
   }
 }
@@ -13,7 +13,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -40,6 +43,17 @@ public class BizDBPropertySource extends RefreshablePropertySource {
     return Foundation.server().getDataCenter();
   }
 
+  @Override
+  protected String currentVersion() {
+    //changes are detected by the number of the configs and their latest modified time
+    List<Object[]> countAndLastModifiedTime = serverConfigRepository.findCountAndLastModifiedTime();
+    if (CollectionUtils.isEmpty(countAndLastModifiedTime) || countAndLastModifiedTime.get(0) == null) {
+      return null;
+    }
+    Object[] row = countAndLastModifiedTime.get(0);
+    return row[0] + "@" + (row[1] == null ? 0 : ((Date) row[1]).getTime());
+  }
+
   @Override
   protected void refresh() {
     Iterable<ServerConfig> dbConfigs = serverConfigRepository.findAll();
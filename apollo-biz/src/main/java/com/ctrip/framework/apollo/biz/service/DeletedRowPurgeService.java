@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.common.purge.DeletedRowPurger;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Purges the soft deleted rows of the config db once they are older than the retention, see {@link DeletedRowPurger}
+ */
+@Service
+public class DeletedRowPurgeService {
+  private static final Logger logger = LoggerFactory.getLogger(DeletedRowPurgeService.class);
+
+  // the tables referring to others come first
+  static final List<DeletedRowPurger.Table> TABLES = Lists.newArrayList(
+      DeletedRowPurger.Table.of("Item"),
+      DeletedRowPurger.Table.of("Commit"),
+      DeletedRowPurger.Table.of("ReleaseHistory").withChild("ReleaseBranchKey", "ReleaseHistoryId"),
+      DeletedRowPurger.Table.of("Release"),
+      DeletedRowPurger.Table.of("GrayReleaseRule"),
+      DeletedRowPurger.Table.of("Namespace"),
+      DeletedRowPurger.Table.of("Cluster"),
+      DeletedRowPurger.Table.of("AppNamespace"),
+      DeletedRowPurger.Table.of("App"));
+
+  private final DeletedRowPurger purger;
+  private final BizConfig bizConfig;
+
+  public DeletedRowPurgeService(
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final BizConfig bizConfig) {
+    this.purger = new DeletedRowPurger(jdbcTemplate, transactionManager);
+    this.bizConfig = bizConfig;
+  }
+
+  /**
+   * @return the number of rows purged
+   */
+  public int purge() throws InterruptedException {
+    Date deletedBefore = DateUtils.addDays(new Date(), -bizConfig.deletedRowPurgeRetentionInDays());
+    int chunkSize = bizConfig.deletedRowPurgeChunkSize();
+    int chunkInterval = bizConfig.deletedRowPurgeChunkIntervalInMilli();
+    boolean archive = bizConfig.isDeletedRowPurgeArchiveEnabled();
+
+    int total = 0;
+    for (DeletedRowPurger.Table table : TABLES) {
+      Transaction transaction = Tracer.newTransaction("Apollo.DeletedRowPurge", table.getName());
+      try {
+        int purged = purger.purge(table, deletedBefore, chunkSize, chunkInterval, archive);
+        total += purged;
+        logger.info("Purged {} rows of {} deleted before {}", purged, table.getName(), deletedBefore);
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (InterruptedException ex) {
+        transaction.setStatus(ex);
+        throw ex;
+      } catch (Throwable ex) {
+        //go on with the other tables
+        logger.warn("Purge deleted rows of {} failed", table.getName(), ex);
+        transaction.setStatus(ex);
+      } finally {
+        transaction.complete();
+      }
+    }
+    return total;
+  }
+}
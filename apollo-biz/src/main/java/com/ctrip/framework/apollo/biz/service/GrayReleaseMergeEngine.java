@@ -0,0 +1,108 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 灰度分支的合并
+ * <p>
+ * 分支发布时，保存分支修改的 key 及其发布的值（{@link com.ctrip.framework.apollo.biz.entity.ReleaseBranchKey}），
+ * 并按 key 排序序列化分支的配置。之后主干发布或回滚合并到分支时：
+ * <ul>
+ * <li>分支的新配置 = 主干的新配置 + 分支修改的配置，不需要解析分支和主干的旧配置</li>
+ * <li>分支的配置是否变化，直接比较排序后序列化的字符串</li>
+ * </ul>
+ * 发布的配置不会改变，解析过的配置按 Release id 缓存，发布时直接放入，灰度发布和发布历史的变更摘要不需要再解析配置。
+ * <p>
+ * 没有保存分支修改的 key 的旧分支发布，仍按原有方式解析完整配置后计算。
+ */
+public class GrayReleaseMergeEngine {
+    private static final Gson GSON = new Gson();
+    // the total number of keys of the cached configurations
+    private static final long MAX_CACHED_KEYS = 1000000;
+
+    // release id -> parsed configurations
+    private final Cache<Long, ParsedConfigurations> configurationsCache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_KEYS)
+            .weigher((Long releaseId, ParsedConfigurations parsed) -> parsed.configurations.size() + 1)
+            .build();
+
+    /**
+     * @return the configurations of the release, read only
+     */
+    public Map<String, String> getConfigurations(Release release) {
+        ParsedConfigurations parsed = configurationsCache.getIfPresent(release.getId());
+        // 同一个 id 的配置不同时（例如数据被清理后重新插入）重新解析
+        if (parsed == null || !parsed.json.equals(release.getConfigurations())) {
+            Map<String, String> configurations = GSON.fromJson(release.getConfigurations(), GsonType.CONFIG);
+            parsed = new ParsedConfigurations(release.getConfigurations(),
+                    configurations == null ? new HashMap<>() : configurations);
+            configurationsCache.put(release.getId(), parsed);
+        }
+        return parsed.configurations;
+    }
+
+    /**
+     * Called once a release is saved, so that its configurations are not parsed again
+     */
+    public void cacheConfigurations(Release release, Map<String, String> configurations) {
+        configurationsCache.put(release.getId(),
+                new ParsedConfigurations(release.getConfigurations(), new HashMap<>(configurations)));
+    }
+
+    /**
+     * @return the branch configurations: the base configurations overridden by the branch modified configurations,
+     * sorted by key
+     */
+    public Map<String, String> merge(Map<String, String> baseConfigurations,
+                                     Map<String, String> branchModifiedConfigurations) {
+        Map<String, String> result = new TreeMap<>(baseConfigurations);
+        result.putAll(branchModifiedConfigurations);
+        return result;
+    }
+
+    /**
+     * @return the configurations of the branch modified keys, i.e. the per key delta of the branch against the master
+     */
+    public Map<String, String> branchModifiedConfigurations(Map<String, String> branchConfigurations,
+                                                            Collection<String> branchReleaseKeys) {
+        Map<String, String> modifiedConfigurations = new LinkedHashMap<>();
+        if (branchReleaseKeys == null) {
+            return modifiedConfigurations;
+        }
+        for (String key : branchReleaseKeys) {
+            if (branchConfigurations.containsKey(key)) {
+                modifiedConfigurations.put(key, branchConfigurations.get(key));
+            }
+        }
+        return modifiedConfigurations;
+    }
+
+    /**
+     * @return the json of the configurations in key order, so that the same configurations are always serialized
+     * to the same string
+     */
+    public String toCanonicalJson(Map<String, String> configurations) {
+        return GSON.toJson(configurations instanceof TreeMap ? configurations : new TreeMap<>(configurations));
+    }
+
+    private static class ParsedConfigurations {
+        private final String json;
+        private final Map<String, String> configurations;
+
+        ParsedConfigurations(String json, Map<String, String> configurations) {
+            this.json = json == null ? "" : json;
+            this.configurations = Collections.unmodifiableMap(configurations);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.entity.Instance;
+import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceIndex;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the {@link InstanceIndex}, i.e. the instance counts of the namespaces, along with the instance configs.
+ *
+ * <p>An instance config is counted in the hour bucket of its last modified time, and moved to another bucket when
+ * updated. As the instance configs are updated at least once a day, the active instances are counted by the buckets
+ * of the last day, which may include the instance configs expired within the hour. The expired buckets are purged
+ * hourly in the background.
+ */
+@Service
+public class InstanceIndexService {
+  private static final Logger logger = LoggerFactory.getLogger(InstanceIndexService.class);
+  private static final Joiner KEY_JOINER = Joiner.on("+");
+  private static final long PURGE_INTERVAL_IN_MINUTES = TimeUnit.HOURS.toMinutes(1);
+  private static final int RETENTION_IN_DAYS = 2;
+
+  private static final String INCREASE_SQL = "UPDATE `InstanceIndex` SET `InstanceCount` = GREATEST(`InstanceCount` " +
+      "+ ?, 0), `DataChange_LastTime` = ? WHERE `IndexKey` = ? AND `TimeBucket` = ?";
+  private static final String INSERT_SQL = "INSERT INTO `InstanceIndex` (`IndexKey`, `ConfigAppId`, " +
+      "`ConfigClusterName`, `ConfigNamespaceName`, `ReleaseKey`, `InstanceClusterName`, `DataCenter`, `TimeBucket`, " +
+      "`InstanceCount`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String NAMESPACE_CONDITION = "`ConfigAppId` = ? AND `ConfigClusterName` = ? AND " +
+      "`ConfigNamespaceName` = ?";
+  private static final String COUNT_BY_NAMESPACE_SQL = "SELECT SUM(`InstanceCount`) FROM `InstanceIndex` WHERE " +
+      NAMESPACE_CONDITION + " AND `TimeBucket` >= ?";
+  private static final String COUNT_BY_RELEASE_KEY_SQL = "SELECT SUM(`InstanceCount`) FROM `InstanceIndex` WHERE " +
+      "`ReleaseKey` = ? AND `TimeBucket` >= ?";
+  private static final String SUMMARIZE_BY_NAMESPACE_SQL = "SELECT `ReleaseKey`, `InstanceClusterName`, " +
+      "`DataCenter`, SUM(`InstanceCount`) FROM `InstanceIndex` WHERE " + NAMESPACE_CONDITION +
+      " AND `TimeBucket` >= ? GROUP BY `ReleaseKey`, `InstanceClusterName`, `DataCenter` HAVING SUM(`InstanceCount`) > 0";
+  private static final String DELETE_BY_NAMESPACE_SQL = "DELETE FROM `InstanceIndex` WHERE " + NAMESPACE_CONDITION;
+  private static final String DELETE_EXPIRED_SQL = "DELETE FROM `InstanceIndex` WHERE `TimeBucket` < ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ScheduledExecutorService purgeExecutorService;
+
+  public InstanceIndexService(final JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.purgeExecutorService = Executors.newSingleThreadScheduledExecutor(ApolloThreadFactory
+        .create("InstanceIndexService", true));
+  }
+
+  @PostConstruct
+  private void initialize() {
+    purgeExecutorService.scheduleWithFixedDelay(this::purgeExpired, PURGE_INTERVAL_IN_MINUTES,
+        PURGE_INTERVAL_IN_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    purgeExecutorService.shutdownNow();
+  }
+
+  /**
+   * Counts the instance config in, or out if {@code delta} is negative, in the bucket of its last modified time.
+   *
+   * @param instance the instance of the config, null if not found
+   */
+  void add(InstanceConfig instanceConfig, Instance instance, int delta) {
+    String instanceClusterName = instance == null ? "" : Strings.nullToEmpty(instance.getClusterName());
+    String dataCenter = instance == null ? "" : Strings.nullToEmpty(instance.getDataCenter());
+    String indexKey = indexKey(instanceConfig, instanceClusterName, dataCenter);
+    Date timeBucket = timeBucket(instanceConfig.getDataChangeLastModifiedTime());
+    Date now = new Date();
+
+    if (jdbcTemplate.update(INCREASE_SQL, delta, now, indexKey, timeBucket) > 0 || delta <= 0) {
+      //the instance configs counted before the index was built are not counted out
+      return;
+    }
+
+    try {
+      jdbcTemplate.update(INSERT_SQL, indexKey, instanceConfig.getConfigAppId(),
+          instanceConfig.getConfigClusterName(), instanceConfig.getConfigNamespaceName(),
+          instanceConfig.getReleaseKey(), instanceClusterName, dataCenter, timeBucket, delta, now, now);
+    } catch (DuplicateKeyException ex) {
+      //inserted by another config service meanwhile
+      jdbcTemplate.update(INCREASE_SQL, delta, now, indexKey, timeBucket);
+    }
+  }
+
+  /**
+   * Moves the instance config from the bucket of its previous state to the bucket of its updated state, nothing is
+   * updated if it stays in the same bucket.
+   */
+  void move(InstanceConfig previous, InstanceConfig updated, Instance instance) {
+    String instanceClusterName = instance == null ? "" : Strings.nullToEmpty(instance.getClusterName());
+    String dataCenter = instance == null ? "" : Strings.nullToEmpty(instance.getDataCenter());
+    if (Objects.equals(indexKey(previous, instanceClusterName, dataCenter),
+        indexKey(updated, instanceClusterName, dataCenter))
+        && Objects.equals(timeBucket(previous.getDataChangeLastModifiedTime()),
+        timeBucket(updated.getDataChangeLastModifiedTime()))) {
+      return;
+    }
+
+    add(previous, instance, -1);
+    add(updated, instance, 1);
+  }
+
+  public long countInstances(String configAppId, String configClusterName, String configNamespaceName,
+      Date validDate) {
+    Long count = jdbcTemplate.queryForObject(COUNT_BY_NAMESPACE_SQL, Long.class, configAppId, configClusterName,
+        configNamespaceName, timeBucket(validDate));
+    return count == null ? 0 : count;
+  }
+
+  public long countInstancesByReleaseKey(String releaseKey, Date validDate) {
+    Long count = jdbcTemplate.queryForObject(COUNT_BY_RELEASE_KEY_SQL, Long.class, releaseKey, timeBucket(validDate));
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * @return the instance counts of the namespace by release key, instance cluster and data center, without the time
+   * bucket
+   */
+  public List<InstanceIndex> summarize(String configAppId, String configClusterName, String configNamespaceName,
+      Date validDate) {
+    return jdbcTemplate.query(SUMMARIZE_BY_NAMESPACE_SQL, (rs, rowNum) -> {
+      InstanceIndex instanceIndex = new InstanceIndex();
+      instanceIndex.setConfigAppId(configAppId);
+      instanceIndex.setConfigClusterName(configClusterName);
+      instanceIndex.setConfigNamespaceName(configNamespaceName);
+      instanceIndex.setReleaseKey(rs.getString(1));
+      instanceIndex.setInstanceClusterName(rs.getString(2));
+      instanceIndex.setDataCenter(rs.getString(3));
+      instanceIndex.setInstanceCount(rs.getInt(4));
+      return instanceIndex;
+    }, configAppId, configClusterName, configNamespaceName, timeBucket(validDate));
+  }
+
+  void deleteByNamespace(String configAppId, String configClusterName, String configNamespaceName) {
+    jdbcTemplate.update(DELETE_BY_NAMESPACE_SQL, configAppId, configClusterName, configNamespaceName);
+  }
+
+  void purgeExpired() {
+    try {
+      int purged = jdbcTemplate.update(DELETE_EXPIRED_SQL, DateUtils.addDays(timeBucket(new Date()),
+          -RETENTION_IN_DAYS));
+      Tracer.logEvent("Apollo.InstanceIndex.Purged", String.valueOf(purged));
+    } catch (Throwable ex) {
+      logger.error("Purge expired instance indexes failed", ex);
+      Tracer.logError(ex);
+    }
+  }
+
+  private static String indexKey(InstanceConfig instanceConfig, String instanceClusterName, String dataCenter) {
+    return Hashing.md5().hashString(KEY_JOINER.join(instanceConfig.getConfigAppId(),
+        instanceConfig.getConfigClusterName(), instanceConfig.getConfigNamespaceName(),
+        instanceConfig.getReleaseKey(), instanceClusterName, dataCenter), Charsets.UTF_8).toString();
+  }
+
+  private static Date timeBucket(Date time) {
+    return DateUtils.truncate(time == null ? new Date() : time, Calendar.HOUR_OF_DAY);
+  }
+}
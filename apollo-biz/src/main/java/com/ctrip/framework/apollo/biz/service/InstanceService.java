@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceIndex;
 import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
 import com.ctrip.framework.apollo.biz.repository.InstanceRepository;
 import com.google.common.base.Preconditions;
@@ -29,12 +30,15 @@ import java.util.stream.Collectors;
 public class InstanceService {
   private final InstanceRepository instanceRepository;
   private final InstanceConfigRepository instanceConfigRepository;
+  private final InstanceIndexService instanceIndexService;
 
   public InstanceService(
       final InstanceRepository instanceRepository,
-      final InstanceConfigRepository instanceConfigRepository) {
+      final InstanceConfigRepository instanceConfigRepository,
+      final InstanceIndexService instanceIndexService) {
     this.instanceRepository = instanceRepository;
     this.instanceConfigRepository = instanceConfigRepository;
+    this.instanceIndexService = instanceIndexService;
   }
 
   public Instance findInstance(String appId, String clusterName, String dataCenter, String ip) {
@@ -64,28 +68,48 @@ public class InstanceService {
             instanceId, configAppId, configNamespaceName);
   }
 
+  /**
+   * The total is counted by the instance index, instead of scanning the instance configs
+   */
   public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
       pageable) {
-    Page<InstanceConfig> instanceConfigs = instanceConfigRepository
-        .findByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey,
-            getValidInstanceConfigDate(), pageable);
-    return instanceConfigs;
+    Date validDate = getValidInstanceConfigDate();
+    List<InstanceConfig> instanceConfigs = instanceConfigRepository
+        .findByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey, validDate, pageable);
+    return new PageImpl<>(instanceConfigs, pageable,
+        instanceIndexService.countInstancesByReleaseKey(releaseKey, validDate));
   }
 
+  /**
+   * The total is counted by the instance index, instead of scanning the instance configs
+   */
   public Page<Instance> findInstancesByNamespace(String appId, String clusterName, String
       namespaceName, Pageable pageable) {
-    Page<InstanceConfig> instanceConfigs = instanceConfigRepository.
+    Date validDate = getValidInstanceConfigDate();
+    List<InstanceConfig> instanceConfigs = instanceConfigRepository.
         findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(appId, clusterName,
-            namespaceName, getValidInstanceConfigDate(), pageable);
+            namespaceName, validDate, pageable);
 
     List<Instance> instances = Collections.emptyList();
-    if (instanceConfigs.hasContent()) {
-      Set<Long> instanceIds = instanceConfigs.getContent().stream().map
+    if (!instanceConfigs.isEmpty()) {
+      Set<Long> instanceIds = instanceConfigs.stream().map
           (InstanceConfig::getInstanceId).collect(Collectors.toSet());
       instances = findInstancesByIds(instanceIds);
     }
 
-    return new PageImpl<>(instances, pageable, instanceConfigs.getTotalElements());
+    return new PageImpl<>(instances, pageable,
+        instanceIndexService.countInstances(appId, clusterName, namespaceName, validDate));
+  }
+
+  public long countInstancesByNamespace(String appId, String clusterName, String namespaceName) {
+    return instanceIndexService.countInstances(appId, clusterName, namespaceName, getValidInstanceConfigDate());
+  }
+
+  /**
+   * @return the active instance counts of the namespace, by release key, instance cluster and data center
+   */
+  public List<InstanceIndex> summarizeInstancesByNamespace(String appId, String clusterName, String namespaceName) {
+    return instanceIndexService.summarize(appId, clusterName, namespaceName, getValidInstanceConfigDate());
   }
 
   public Page<Instance> findInstancesByNamespaceAndInstanceAppId(String instanceAppId, String
@@ -130,9 +154,17 @@ public class InstanceService {
                                                                                      namespaceName,
                                                                                  Set<String>
                                                                                      releaseKeysNotIn) {
+    Date validDate = getValidInstanceConfigDate();
+    //usually all the instances are with the given releases, e.g. the latest ones
+    boolean withOtherReleases = instanceIndexService.summarize(appId, clusterName, namespaceName, validDate)
+        .stream().anyMatch(instanceIndex -> !releaseKeysNotIn.contains(instanceIndex.getReleaseKey()));
+    if (!withOtherReleases) {
+      return Collections.emptyList();
+    }
+
     List<InstanceConfig> instanceConfigs = instanceConfigRepository.
         findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndReleaseKeyNotIn(appId, clusterName,
-            namespaceName, getValidInstanceConfigDate(), releaseKeysNotIn);
+            namespaceName, validDate, releaseKeysNotIn);
 
     if (CollectionUtils.isEmpty(instanceConfigs)) {
       return Collections.emptyList();
@@ -156,26 +188,46 @@ public class InstanceService {
   public InstanceConfig createInstanceConfig(InstanceConfig instanceConfig) {
     instanceConfig.setId(0); //protection
 
-    return instanceConfigRepository.save(instanceConfig);
+    InstanceConfig created = instanceConfigRepository.save(instanceConfig);
+    instanceIndexService.add(created, instanceRepository.findById(created.getInstanceId()).orElse(null), 1);
+
+    return created;
   }
 
+  /**
+   * The instance config is not updated if it's updated by others meanwhile, e.g. another config service
+   */
   @Transactional
   public InstanceConfig updateInstanceConfig(InstanceConfig instanceConfig) {
     InstanceConfig existedInstanceConfig = instanceConfigRepository.findById(instanceConfig.getId()).orElse(null);
     Preconditions.checkArgument(existedInstanceConfig != null, String.format(
         "Instance config %d doesn't exist", instanceConfig.getId()));
 
-    existedInstanceConfig.setConfigClusterName(instanceConfig.getConfigClusterName());
-    existedInstanceConfig.setReleaseKey(instanceConfig.getReleaseKey());
-    existedInstanceConfig.setReleaseDeliveryTime(instanceConfig.getReleaseDeliveryTime());
-    existedInstanceConfig.setDataChangeLastModifiedTime(instanceConfig
-        .getDataChangeLastModifiedTime());
+    //copy the loaded one, which is detached after updated
+    InstanceConfig loadedInstanceConfig = new InstanceConfig();
+    loadedInstanceConfig.setConfigAppId(existedInstanceConfig.getConfigAppId());
+    loadedInstanceConfig.setConfigClusterName(existedInstanceConfig.getConfigClusterName());
+    loadedInstanceConfig.setConfigNamespaceName(existedInstanceConfig.getConfigNamespaceName());
+    loadedInstanceConfig.setReleaseKey(existedInstanceConfig.getReleaseKey());
+    loadedInstanceConfig.setDataChangeLastModifiedTime(existedInstanceConfig.getDataChangeLastModifiedTime());
+
+    int updated = instanceConfigRepository.updateIfNotChanged(existedInstanceConfig.getId(),
+        instanceConfig.getConfigClusterName(), instanceConfig.getReleaseKey(),
+        instanceConfig.getReleaseDeliveryTime(), instanceConfig.getDataChangeLastModifiedTime(),
+        loadedInstanceConfig.getReleaseKey(), loadedInstanceConfig.getDataChangeLastModifiedTime());
+
+    InstanceConfig updatedInstanceConfig = instanceConfigRepository.findById(instanceConfig.getId()).orElse(null);
+    if (updated > 0 && updatedInstanceConfig != null) {
+      Instance instance = instanceRepository.findById(existedInstanceConfig.getInstanceId()).orElse(null);
+      instanceIndexService.move(loadedInstanceConfig, updatedInstanceConfig, instance);
+    }
 
-    return instanceConfigRepository.save(existedInstanceConfig);
+    return updatedInstanceConfig;
   }
 
   @Transactional
   public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName){
+    instanceIndexService.deleteByNamespace(configAppId, configClusterName, configNamespaceName);
     return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
   }
 }
@@ -1,17 +1,37 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
 import com.ctrip.framework.apollo.biz.repository.NamespaceLockRepository;
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * 锁定记录保存在 NamespaceLock 表中。
+ * <p>
+ * 本实例确认过的锁定人会在租约时间内缓存（{@link BizConfig#namespaceLockLeaseInMilli()}），
+ * 租约内同一个人的再次修改不需要查询 Namespace 和锁定记录，只按 Namespace id 和锁定人确认锁定记录仍然存在。
+ * 锁定记录可能已被其它实例解锁（例如在其它实例发布），此时租约失效，重新走加锁流程写入锁定记录。
+ */
 @Service
 public class NamespaceLockService {
+    private static final Joiner KEY_JOINER = Joiner.on("+");
+    private static final int MAX_LEASES = 10000;
 
     private final NamespaceLockRepository namespaceLockRepository;
+    private final BizConfig bizConfig;
+    // namespace id -> lease
+    private final Cache<Long, Lease> leases = CacheBuilder.newBuilder().maximumSize(MAX_LEASES).build();
+    // appId+cluster+namespace -> namespace id, only for the namespaces with a lease
+    private final Cache<String, Long> leasedNamespaceIds = CacheBuilder.newBuilder().maximumSize(MAX_LEASES).build();
 
-    public NamespaceLockService(final NamespaceLockRepository namespaceLockRepository) {
+    public NamespaceLockService(final NamespaceLockRepository namespaceLockRepository, final BizConfig bizConfig) {
         this.namespaceLockRepository = namespaceLockRepository;
+        this.bizConfig = bizConfig;
     }
 
     /**
@@ -43,6 +63,63 @@ public class NamespaceLockService {
      */
     @Transactional
     public void unlock(Long namespaceId) {
+        invalidateLease(namespaceId);
         namespaceLockRepository.deleteByNamespaceId(namespaceId);
     }
+
+    /**
+     * 租约内是否已确认由该用户锁定，且锁定记录仍然存在。只有一次按 Namespace id 和锁定人的查询
+     */
+    public boolean isLeasedBy(long namespaceId, String user) {
+        Lease lease = leases.getIfPresent(namespaceId);
+        if (lease == null || !lease.isValidFor(user)) {
+            return false;
+        }
+        // 其它实例解锁时本实例的租约不会失效，确认锁定记录没有被删除或被其他人重新锁定
+        if (namespaceLockRepository.existsByNamespaceIdAndDataChangeCreatedBy(namespaceId, user)) {
+            return true;
+        }
+        invalidateLease(namespaceId);
+        return false;
+    }
+
+    /**
+     * 同上，按 Namespace 名字查找租约，不查询 Namespace
+     */
+    public boolean isLeasedBy(String appId, String clusterName, String namespaceName, String user) {
+        Long namespaceId = leasedNamespaceIds.getIfPresent(KEY_JOINER.join(appId, clusterName, namespaceName));
+        return namespaceId != null && isLeasedBy(namespaceId, user);
+    }
+
+    /**
+     * 已确认 Namespace 由该用户锁定（加锁成功，或数据库中的锁定人就是该用户）后调用
+     */
+    public void renewLease(Namespace namespace, String user) {
+        long leaseTime = bizConfig.namespaceLockLeaseInMilli();
+        if (leaseTime <= 0) {
+            return;
+        }
+        leases.put(namespace.getId(), new Lease(user, System.currentTimeMillis() + leaseTime));
+        leasedNamespaceIds.put(KEY_JOINER.join(namespace.getAppId(), namespace.getClusterName(),
+                namespace.getNamespaceName()), namespace.getId());
+    }
+
+    private void invalidateLease(long namespaceId) {
+        leases.invalidate(namespaceId);
+        leasedNamespaceIds.asMap().values().removeIf(id -> id == namespaceId);
+    }
+
+    private static class Lease {
+        private final String owner;
+        private final long expireTime;
+
+        Lease(String owner, long expireTime) {
+            this.owner = owner;
+            this.expireTime = expireTime;
+        }
+
+        boolean isValidFor(String user) {
+            return owner.equals(user) && System.currentTimeMillis() < expireTime;
+        }
+    }
 }
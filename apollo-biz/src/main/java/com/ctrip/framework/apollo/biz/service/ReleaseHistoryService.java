@@ -1,32 +1,58 @@
 package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Audit;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseBranchKey;
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
+import com.ctrip.framework.apollo.biz.repository.ReleaseBranchKeyRepository;
 import com.ctrip.framework.apollo.biz.repository.ReleaseHistoryRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
 public class ReleaseHistoryService {
+  private static final Type OPERATION_CONTEXT_TYPE_REFERENCE = new TypeToken<Map<String, Object>>() {
+  }.getType();
   private Gson gson = new Gson();
 
   private final ReleaseHistoryRepository releaseHistoryRepository;
+  private final ReleaseBranchKeyRepository releaseBranchKeyRepository;
+  private final ReleaseRepository releaseRepository;
   private final AuditService auditService;
 
   public ReleaseHistoryService(
       final ReleaseHistoryRepository releaseHistoryRepository,
+      final ReleaseBranchKeyRepository releaseBranchKeyRepository,
+      final ReleaseRepository releaseRepository,
       final AuditService auditService) {
     this.releaseHistoryRepository = releaseHistoryRepository;
+    this.releaseBranchKeyRepository = releaseBranchKeyRepository;
+    this.releaseRepository = releaseRepository;
     this.auditService = auditService;
   }
 
@@ -50,10 +76,40 @@ public class ReleaseHistoryService {
     return releaseHistoryRepository.findByReleaseIdAndOperationInOrderByIdDesc(releaseId, operations, page);
   }
 
+  /**
+   * @return the branch release keys of the release history and the values released by the branch, the value is null
+   * if the key is not in the branch configurations; or null if the keys are not recorded
+   */
+  public Map<String, String> findBranchReleaseConfigurations(long releaseHistoryId) {
+    List<ReleaseBranchKey> branchKeys = releaseBranchKeyRepository.findByReleaseHistoryIdOrderByIdAsc(releaseHistoryId);
+    if (branchKeys.isEmpty()) {
+      return null;
+    }
+    Map<String, String> configurations = new LinkedHashMap<>();
+    for (ReleaseBranchKey branchKey : branchKeys) {
+      configurations.put(branchKey.getKey(), branchKey.getValue());
+    }
+    return configurations;
+  }
+
   @Transactional
   public ReleaseHistory createReleaseHistory(String appId, String clusterName, String
       namespaceName, String branchName, long releaseId, long previousReleaseId, int operation,
                                              Map<String, Object> operationContext, String operator) {
+    return createReleaseHistory(appId, clusterName, namespaceName, branchName, releaseId, previousReleaseId,
+        operation, operationContext, null, null, operator);
+  }
+
+  /**
+   * @param configurations         the configurations of the release, or null to load them if needed
+   * @param previousConfigurations the configurations of the previous release, or null to load them if needed
+   */
+  @Transactional
+  public ReleaseHistory createReleaseHistory(String appId, String clusterName, String
+      namespaceName, String branchName, long releaseId, long previousReleaseId, int operation,
+                                             Map<String, Object> operationContext,
+                                             Map<String, String> configurations,
+                                             Map<String, String> previousConfigurations, String operator) {
     ReleaseHistory releaseHistory = new ReleaseHistory();
     releaseHistory.setAppId(appId);
     releaseHistory.setClusterName(clusterName);
@@ -62,11 +118,21 @@ public class ReleaseHistoryService {
     releaseHistory.setReleaseId(releaseId);
     releaseHistory.setPreviousReleaseId(previousReleaseId);
     releaseHistory.setOperation(operation);
+
+    //the branch modified configurations are saved as ReleaseBranchKey, not in the operation context
+    Map<String, String> branchReleaseConfigurations = null;
+    if (operationContext != null && operationContext.containsKey(ReleaseOperationContext.BRANCH_RELEASE_CONFIGURATIONS)) {
+      operationContext = new HashMap<>(operationContext);
+      branchReleaseConfigurations =
+          (Map<String, String>) operationContext.remove(ReleaseOperationContext.BRANCH_RELEASE_CONFIGURATIONS);
+    }
+
     if (operationContext == null) {
       releaseHistory.setOperationContext("{}"); //default empty object
     } else {
       releaseHistory.setOperationContext(gson.toJson(operationContext));
     }
+    summarizeChanges(releaseHistory, operationContext, configurations, previousConfigurations);
     releaseHistory.setDataChangeCreatedTime(new Date());
     releaseHistory.setDataChangeCreatedBy(operator);
     releaseHistory.setDataChangeLastModifiedBy(operator);
@@ -76,9 +142,136 @@ public class ReleaseHistoryService {
     auditService.audit(ReleaseHistory.class.getSimpleName(), releaseHistory.getId(),
                        Audit.OP.INSERT, releaseHistory.getDataChangeCreatedBy());
 
+    if (branchReleaseConfigurations != null) {
+      Collection<String> branchReleaseKeys =
+          (Collection<String>) operationContext.get(ReleaseOperationContext.BRANCH_RELEASE_KEYS);
+      saveBranchReleaseKeys(releaseHistory, branchReleaseKeys, branchReleaseConfigurations);
+    }
+
     return releaseHistory;
   }
 
+  /**
+   * Save the branch release keys recorded in the operation context of the branch release histories after the given
+   * id, with the values read from their releases. The histories whose keys are already saved are skipped.
+   *
+   * @return the id of the last release history scanned, or the given id if there is no more
+   */
+  @Transactional
+  public long backfillBranchReleaseKeys(long fromReleaseHistoryId) {
+    List<ReleaseHistory> releaseHistories = releaseHistoryRepository
+        .findFirst500ByIdGreaterThanAndOperationInOrderByIdAsc(fromReleaseHistoryId,
+            ReleaseService.BRANCH_RELEASE_OPERATIONS);
+    long lastId = fromReleaseHistoryId;
+    for (ReleaseHistory releaseHistory : releaseHistories) {
+      lastId = releaseHistory.getId();
+      if (releaseBranchKeyRepository.findFirstByReleaseHistoryId(releaseHistory.getId()) != null) {
+        continue;
+      }
+      Map<String, Object> operationContext =
+          gson.fromJson(releaseHistory.getOperationContext(), OPERATION_CONTEXT_TYPE_REFERENCE);
+      if (operationContext == null || operationContext.get(ReleaseOperationContext.BRANCH_RELEASE_KEYS) == null) {
+        continue;
+      }
+      Map<String, String> configurations = findConfigurations(releaseHistory.getReleaseId());
+      if (configurations == null) {
+        continue;
+      }
+      saveBranchReleaseKeys(releaseHistory,
+          (Collection<String>) operationContext.get(ReleaseOperationContext.BRANCH_RELEASE_KEYS), configurations);
+    }
+    return lastId;
+  }
+
+  /**
+   * Compute the changed keys once at publish time, so that the history list does not need the configurations. The
+   * release is compared with the previous release, or the base release for the first gray release of a branch.
+   * The publish path passes in the configurations it already has, only the missing ones are loaded.
+   */
+  private void summarizeChanges(ReleaseHistory releaseHistory, Map<String, Object> operationContext,
+                                Map<String, String> configurations, Map<String, String> previousConfigurations) {
+    if (releaseHistory.getReleaseId() == 0) {
+      return;
+    }
+
+    long baseReleaseId = releaseHistory.getPreviousReleaseId();
+    Map<String, String> baseConfigurations = previousConfigurations;
+    if (baseReleaseId == 0 && releaseHistory.getOperation() == ReleaseOperation.GRAY_RELEASE
+        && operationContext != null && operationContext.get(ReleaseOperationContext.BASE_RELEASE_ID) instanceof Number) {
+      baseReleaseId = ((Number) operationContext.get(ReleaseOperationContext.BASE_RELEASE_ID)).longValue();
+      baseConfigurations = null;
+    }
+    //e.g. the gray rules are updated, nothing is released
+    if (baseReleaseId == releaseHistory.getReleaseId()) {
+      releaseHistory.setChangedKeyCount(0);
+      releaseHistory.setChangedKeys(gson.toJson(Collections.emptyList()));
+      return;
+    }
+
+    if (configurations == null) {
+      configurations = findConfigurations(releaseHistory.getReleaseId());
+      if (configurations == null) {
+        return;
+      }
+    }
+    if (baseConfigurations == null && baseReleaseId != 0) {
+      baseConfigurations = findConfigurations(baseReleaseId);
+    }
+    if (baseConfigurations == null) {
+      baseConfigurations = Collections.emptyMap();
+    }
+
+    Set<String> changedKeys = new TreeSet<>();
+    for (Map.Entry<String, String> entry : configurations.entrySet()) {
+      if (!Objects.equals(entry.getValue(), baseConfigurations.get(entry.getKey()))) {
+        changedKeys.add(entry.getKey());
+      }
+    }
+    for (String key : baseConfigurations.keySet()) {
+      if (!configurations.containsKey(key)) {
+        changedKeys.add(key);
+      }
+    }
+
+    releaseHistory.setChangedKeyCount(changedKeys.size());
+    List<String> summaryKeys = new ArrayList<>(Math.min(changedKeys.size(), ReleaseHistory.MAX_CHANGED_KEYS));
+    for (String key : changedKeys) {
+      if (summaryKeys.size() >= ReleaseHistory.MAX_CHANGED_KEYS) {
+        break;
+      }
+      summaryKeys.add(key);
+    }
+    releaseHistory.setChangedKeys(gson.toJson(summaryKeys));
+  }
+
+  private Map<String, String> findConfigurations(long releaseId) {
+    Release release = releaseRepository.findById(releaseId).orElse(null);
+    if (release == null) {
+      return null;
+    }
+    Map<String, String> configurations = gson.fromJson(release.getConfigurations(), GsonType.CONFIG);
+    return configurations == null ? Collections.emptyMap() : configurations;
+  }
+
+  private void saveBranchReleaseKeys(ReleaseHistory releaseHistory, Collection<String> branchReleaseKeys,
+                                     Map<String, String> branchConfigurations) {
+    if (branchReleaseKeys == null || branchReleaseKeys.isEmpty()) {
+      return;
+    }
+    List<ReleaseBranchKey> branchKeys = Lists.newArrayListWithCapacity(branchReleaseKeys.size());
+    for (String key : branchReleaseKeys) {
+      ReleaseBranchKey branchKey = new ReleaseBranchKey();
+      branchKey.setReleaseHistoryId(releaseHistory.getId());
+      branchKey.setReleaseId(releaseHistory.getReleaseId());
+      branchKey.setKey(key);
+      branchKey.setValue(branchConfigurations.get(key));
+      branchKey.setDataChangeCreatedBy(releaseHistory.getDataChangeCreatedBy());
+      branchKey.setDataChangeLastModifiedBy(releaseHistory.getDataChangeLastModifiedBy());
+      branchKeys.add(branchKey);
+    }
+    releaseBranchKeyRepository.saveAll(branchKeys);
+  }
+
   @Transactional
   public int batchDelete(String appId, String clusterName, String namespaceName, String operator) {
     return releaseHistoryRepository.batchDelete(appId, clusterName, namespaceName, operator);
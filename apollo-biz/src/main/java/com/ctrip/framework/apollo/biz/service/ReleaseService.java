@@ -9,7 +9,6 @@ import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
 import com.ctrip.framework.apollo.biz.utils.ReleaseKeyGenerator;
-import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
@@ -48,7 +47,7 @@ public class ReleaseService {
 
     private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyyMMddHHmmss");
     private static final Gson gson = new Gson();
-    private static final Set<Integer> BRANCH_RELEASE_OPERATIONS = Sets
+    static final Set<Integer> BRANCH_RELEASE_OPERATIONS = Sets
             .newHashSet(ReleaseOperation.GRAY_RELEASE, ReleaseOperation.MASTER_NORMAL_RELEASE_MERGE_TO_GRAY,
                     ReleaseOperation.MATER_ROLLBACK_MERGE_TO_GRAY);
     private static final Pageable FIRST_ITEM = PageRequest.of(0, 1);
@@ -63,6 +62,7 @@ public class ReleaseService {
     private final NamespaceBranchService namespaceBranchService;
     private final ReleaseHistoryService releaseHistoryService;
     private final ItemSetService itemSetService;
+    private final GrayReleaseMergeEngine mergeEngine = new GrayReleaseMergeEngine();
 
     public ReleaseService(
             final ReleaseRepository releaseRepository,
@@ -100,6 +100,25 @@ public class ReleaseService {
         return Lists.newArrayList(releases);
     }
 
+    /**
+     * 只查询发布的 id、名称和备注，返回的 Release 不包含配置
+     */
+    public List<Release> findNamesAndCommentsByReleaseIds(Set<Long> releaseIds) {
+        if (releaseIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object[]> rows = releaseRepository.findIdAndNameAndCommentByIdIn(releaseIds);
+        List<Release> releases = Lists.newArrayListWithCapacity(rows.size());
+        for (Object[] row : rows) {
+            Release release = new Release();
+            release.setId(((Number) row[0]).longValue());
+            release.setName((String) row[1]);
+            release.setComment((String) row[2]);
+            releases.add(release);
+        }
+        return releases;
+    }
+
     public List<Release> findByReleaseKeys(Set<String> releaseKeys) {
         return releaseRepository.findByReleaseKeyIn(releaseKeys);
     }
@@ -211,11 +230,10 @@ public class ReleaseService {
                                            String operator, boolean isEmergencyPublish, Set<String> grayDelKeys) {
         Release parentLatestRelease = findLatestActiveRelease(parentNamespace);
         Map<String, String> parentConfigurations = parentLatestRelease != null ?
-                gson.fromJson(parentLatestRelease.getConfigurations(),
-                        GsonType.CONFIG) : new HashMap<>();
+                mergeEngine.getConfigurations(parentLatestRelease) : new HashMap<>();
         long baseReleaseId = parentLatestRelease == null ? 0 : parentLatestRelease.getId();
 
-        Map<String, String> configsToPublish = mergeConfiguration(parentConfigurations, childNamespaceItems);
+        Map<String, String> configsToPublish = mergeEngine.merge(parentConfigurations, childNamespaceItems);
 
         if (!(grayDelKeys == null || grayDelKeys.size() == 0)) {
             for (String key : grayDelKeys) {
@@ -224,7 +242,7 @@ public class ReleaseService {
         }
 
         return branchRelease(parentNamespace, childNamespace, releaseName, releaseComment,
-                configsToPublish, baseReleaseId, operator, ReleaseOperation.GRAY_RELEASE, isEmergencyPublish,
+                configsToPublish, null, baseReleaseId, operator, ReleaseOperation.GRAY_RELEASE, isEmergencyPublish,
                 childNamespaceItems.keySet());
 
     }
@@ -269,19 +287,29 @@ public class ReleaseService {
         //create release for child namespace
         Release childNamespaceLatestActiveRelease = findLatestActiveRelease(childNamespace);
 
+        BranchReleaseState branchReleaseState = childNamespaceLatestActiveRelease == null ? null :
+                getBranchReleaseState(childNamespaceLatestActiveRelease.getId());
+
+        // 增量合并：主干的新配置 + 分支修改的配置
+        if (branchReleaseState != null && branchReleaseState.modifiedConfigurations != null) {
+            mergeIncrementallyAndPublishBranch(parentNamespace, childNamespace, childNamespaceLatestActiveRelease,
+                    parentNamespaceItems, branchReleaseState, releaseName, releaseComment, parentRelease.getId(),
+                    operator, ReleaseOperation.MASTER_NORMAL_RELEASE_MERGE_TO_GRAY, isEmergencyPublish);
+            return;
+        }
+
         Map<String, String> childReleaseConfiguration;
         Collection<String> branchReleaseKeys;
         if (childNamespaceLatestActiveRelease != null) {
-            childReleaseConfiguration = gson.fromJson(childNamespaceLatestActiveRelease.getConfigurations(), GsonType.CONFIG);
-            branchReleaseKeys = getBranchReleaseKeys(childNamespaceLatestActiveRelease.getId());
+            childReleaseConfiguration = mergeEngine.getConfigurations(childNamespaceLatestActiveRelease);
+            branchReleaseKeys = branchReleaseState == null ? null : branchReleaseState.keys;
         } else {
             childReleaseConfiguration = Collections.emptyMap();
             branchReleaseKeys = null;
         }
 
         Map<String, String> parentNamespaceOldConfiguration = masterPreviousRelease == null ?
-                null : gson.fromJson(masterPreviousRelease.getConfigurations(),
-                GsonType.CONFIG);
+                null : mergeEngine.getConfigurations(masterPreviousRelease);
 
         Map<String, String> childNamespaceToPublishConfigs =
                 calculateChildNamespaceToPublishConfiguration(parentNamespaceOldConfiguration, parentNamespaceItems,
@@ -290,13 +318,42 @@ public class ReleaseService {
         //compare
         if (!childNamespaceToPublishConfigs.equals(childReleaseConfiguration)) {
             branchRelease(parentNamespace, childNamespace, releaseName, releaseComment,
-                    childNamespaceToPublishConfigs, parentRelease.getId(), operator,
+                    childNamespaceToPublishConfigs, null, parentRelease.getId(), operator,
                     ReleaseOperation.MASTER_NORMAL_RELEASE_MERGE_TO_GRAY, isEmergencyPublish, branchReleaseKeys);
         }
 
     }
 
-    private Collection<String> getBranchReleaseKeys(long releaseId) {
+    /**
+     * 分支的配置按 key 排序序列化，配置相同时字符串也相同，无需解析分支的配置即可判断是否变化。
+     * 字符串不同时再比较解析后的配置：旧版本的分支发布（分支修改的 key 由启动时补录）没有按 key 排序序列化，
+     * 配置相同时字符串也可能不同，不能因此重新发布分支。解析过的配置有缓存，通常不需要真正解析
+     */
+    private void mergeIncrementallyAndPublishBranch(Namespace parentNamespace, Namespace childNamespace,
+                                                    Release childNamespaceLatestActiveRelease,
+                                                    Map<String, String> parentNamespaceNewConfiguration,
+                                                    BranchReleaseState branchReleaseState,
+                                                    String releaseName, String releaseComment, long baseReleaseId,
+                                                    String operator, int releaseOperation,
+                                                    boolean isEmergencyPublish) {
+        Map<String, String> childNamespaceToPublishConfigs =
+                mergeEngine.merge(parentNamespaceNewConfiguration, branchReleaseState.modifiedConfigurations);
+        String childNamespaceToPublishJson = mergeEngine.toCanonicalJson(childNamespaceToPublishConfigs);
+
+        //compare
+        if (!childNamespaceToPublishJson.equals(childNamespaceLatestActiveRelease.getConfigurations())
+                && !childNamespaceToPublishConfigs.equals(mergeEngine.getConfigurations(childNamespaceLatestActiveRelease))) {
+            branchRelease(parentNamespace, childNamespace, releaseName, releaseComment,
+                    childNamespaceToPublishConfigs, childNamespaceToPublishJson, baseReleaseId, operator,
+                    releaseOperation, isEmergencyPublish, branchReleaseState.keys);
+        }
+    }
+
+    /**
+     * @return the branch release keys and their released configurations recorded by the latest branch release
+     * history of the release, or null if not recorded
+     */
+    private BranchReleaseState getBranchReleaseState(long releaseId) {
         Page<ReleaseHistory> releaseHistories = releaseHistoryService
                 .findByReleaseIdAndOperationInOrderByIdDesc(releaseId, BRANCH_RELEASE_OPERATIONS, FIRST_ITEM);
 
@@ -304,14 +361,34 @@ public class ReleaseService {
             return null;
         }
 
+        ReleaseHistory releaseHistory = releaseHistories.getContent().get(0);
+        BranchReleaseState branchReleaseState = new BranchReleaseState();
+
+        // 按发布历史 id 读取分支修改的 key 及其发布的值
+        Map<String, String> branchReleaseConfigurations =
+                releaseHistoryService.findBranchReleaseConfigurations(releaseHistory.getId());
+        if (branchReleaseConfigurations != null) {
+            branchReleaseState.keys = branchReleaseConfigurations.keySet();
+            branchReleaseState.modifiedConfigurations = new HashMap<>();
+            branchReleaseConfigurations.forEach((key, value) -> {
+                if (value != null) {
+                    branchReleaseState.modifiedConfigurations.put(key, value);
+                }
+            });
+            return branchReleaseState;
+        }
+
+        // 没有记录（旧版本的分支发布，或者没有修改的 key），解析发布上下文
         Map<String, Object> operationContext = gson
-                .fromJson(releaseHistories.getContent().get(0).getOperationContext(), OPERATION_CONTEXT_TYPE_REFERENCE);
+                .fromJson(releaseHistory.getOperationContext(), OPERATION_CONTEXT_TYPE_REFERENCE);
 
         if (operationContext == null || !operationContext.containsKey(ReleaseOperationContext.BRANCH_RELEASE_KEYS)) {
             return null;
         }
 
-        return (Collection<String>) operationContext.get(ReleaseOperationContext.BRANCH_RELEASE_KEYS);
+        branchReleaseState.keys =
+                (Collection<String>) operationContext.get(ReleaseOperationContext.BRANCH_RELEASE_KEYS);
+        return branchReleaseState;
     }
 
     private Release publishBranchNamespace(Namespace parentNamespace, Namespace childNamespace,
@@ -329,19 +406,22 @@ public class ReleaseService {
         Release lastActiveRelease = findLatestActiveRelease(namespace);
         long previousReleaseId = lastActiveRelease == null ? 0 : lastActiveRelease.getId();
         Release release = createRelease(namespace, releaseName, releaseComment,
-                configurations, operator);
+                gson.toJson(configurations), operator);
+        mergeEngine.cacheConfigurations(release, configurations);
 
+        // 发布历史的变更摘要直接使用已有的配置，不在事务中重新读取和解析发布
         releaseHistoryService.createReleaseHistory(namespace.getAppId(), namespace.getClusterName(),
                 namespace.getNamespaceName(), namespace.getClusterName(),
                 release.getId(), previousReleaseId, releaseOperation,
-                operationContext, operator);
+                operationContext, configurations,
+                lastActiveRelease == null ? null : mergeEngine.getConfigurations(lastActiveRelease), operator);
 
         return release;
     }
 
     private Release branchRelease(Namespace parentNamespace, Namespace childNamespace,
                                   String releaseName, String releaseComment,
-                                  Map<String, String> configurations, long baseReleaseId,
+                                  Map<String, String> configurations, String configurationsJson, long baseReleaseId,
                                   String operator, int releaseOperation, boolean isEmergencyPublish, Collection<String> branchReleaseKeys) {
         Release previousRelease = findLatestActiveRelease(childNamespace.getAppId(),
                 childNamespace.getClusterName(),
@@ -352,9 +432,18 @@ public class ReleaseService {
         releaseOperationContext.put(ReleaseOperationContext.BASE_RELEASE_ID, baseReleaseId);
         releaseOperationContext.put(ReleaseOperationContext.IS_EMERGENCY_PUBLISH, isEmergencyPublish);
         releaseOperationContext.put(ReleaseOperationContext.BRANCH_RELEASE_KEYS, branchReleaseKeys);
+        if (branchReleaseKeys != null) {
+            // 分支修改的配置，之后合并主干时不需要再解析分支的完整配置
+            releaseOperationContext.put(ReleaseOperationContext.BRANCH_RELEASE_CONFIGURATIONS,
+                    mergeEngine.branchModifiedConfigurations(configurations, branchReleaseKeys));
+        }
 
+        if (configurationsJson == null) {
+            configurationsJson = mergeEngine.toCanonicalJson(configurations);
+        }
         Release release =
-                createRelease(childNamespace, releaseName, releaseComment, configurations, operator);
+                createRelease(childNamespace, releaseName, releaseComment, configurationsJson, operator);
+        mergeEngine.cacheConfigurations(release, configurations);
 
         //update gray release rules
         GrayReleaseRule grayReleaseRule = namespaceBranchService.updateRulesReleaseId(childNamespace.getAppId(),
@@ -371,7 +460,8 @@ public class ReleaseService {
         releaseHistoryService.createReleaseHistory(parentNamespace.getAppId(), parentNamespace.getClusterName(),
                 parentNamespace.getNamespaceName(), childNamespace.getClusterName(),
                 release.getId(),
-                previousReleaseId, releaseOperation, releaseOperationContext, operator);
+                previousReleaseId, releaseOperation, releaseOperationContext, configurations,
+                previousRelease == null ? null : mergeEngine.getConfigurations(previousRelease), operator);
 
         return release;
     }
@@ -407,7 +497,7 @@ public class ReleaseService {
     }
 
     private Release createRelease(Namespace namespace, String name, String comment,
-                                  Map<String, String> configurations, String operator) {
+                                  String configurations, String operator) {
         Release release = new Release();
         release.setReleaseKey(ReleaseKeyGenerator.generateReleaseKey(namespace));
         release.setDataChangeCreatedTime(new Date());
@@ -418,7 +508,7 @@ public class ReleaseService {
         release.setAppId(namespace.getAppId());
         release.setClusterName(namespace.getClusterName());
         release.setNamespaceName(namespace.getNamespaceName());
-        release.setConfigurations(gson.toJson(configurations));
+        release.setConfigurations(configurations);
         release = releaseRepository.save(release);
 
         namespaceLockService.unlock(namespace.getId());
@@ -459,7 +549,9 @@ public class ReleaseService {
 
         releaseHistoryService.createReleaseHistory(appId, clusterName,
                 namespaceName, clusterName, twoLatestActiveReleases.get(1).getId(),
-                release.getId(), ReleaseOperation.ROLLBACK, null, operator);
+                release.getId(), ReleaseOperation.ROLLBACK, null,
+                mergeEngine.getConfigurations(twoLatestActiveReleases.get(1)), mergeEngine.getConfigurations(release),
+                operator);
 
         //publish child namespace if namespace has child
         rollbackChildNamespace(appId, clusterName, namespaceName, twoLatestActiveReleases, operator);
@@ -476,25 +568,36 @@ public class ReleaseService {
         }
 
         Release childNamespaceLatestActiveRelease = findLatestActiveRelease(childNamespace);
+        BranchReleaseState branchReleaseState = childNamespaceLatestActiveRelease == null ? null :
+                getBranchReleaseState(childNamespaceLatestActiveRelease.getId());
+
+        Release abandonedRelease = parentNamespaceTwoLatestActiveRelease.get(0);
+        Release parentNamespaceNewLatestRelease = parentNamespaceTwoLatestActiveRelease.get(1);
+
+        Map<String, String>
+                parentNamespaceNewLatestConfiguration = mergeEngine.getConfigurations(parentNamespaceNewLatestRelease);
+
+        // 增量合并：主干回滚后的配置 + 分支修改的配置
+        if (branchReleaseState != null && branchReleaseState.modifiedConfigurations != null) {
+            mergeIncrementallyAndPublishBranch(parentNamespace, childNamespace, childNamespaceLatestActiveRelease,
+                    parentNamespaceNewLatestConfiguration, branchReleaseState,
+                    TIMESTAMP_FORMAT.format(new Date()) + "-master-rollback-merge-to-gray", "",
+                    parentNamespaceNewLatestRelease.getId(), operator, ReleaseOperation.MATER_ROLLBACK_MERGE_TO_GRAY,
+                    false);
+            return;
+        }
+
         Map<String, String> childReleaseConfiguration;
         Collection<String> branchReleaseKeys;
         if (childNamespaceLatestActiveRelease != null) {
-            childReleaseConfiguration = gson.fromJson(childNamespaceLatestActiveRelease.getConfigurations(), GsonType.CONFIG);
-            branchReleaseKeys = getBranchReleaseKeys(childNamespaceLatestActiveRelease.getId());
+            childReleaseConfiguration = mergeEngine.getConfigurations(childNamespaceLatestActiveRelease);
+            branchReleaseKeys = branchReleaseState == null ? null : branchReleaseState.keys;
         } else {
             childReleaseConfiguration = Collections.emptyMap();
             branchReleaseKeys = null;
         }
 
-        Release abandonedRelease = parentNamespaceTwoLatestActiveRelease.get(0);
-        Release parentNamespaceNewLatestRelease = parentNamespaceTwoLatestActiveRelease.get(1);
-
-        Map<String, String> parentNamespaceAbandonedConfiguration = gson.fromJson(abandonedRelease.getConfigurations(),
-                GsonType.CONFIG);
-
-        Map<String, String>
-                parentNamespaceNewLatestConfiguration =
-                gson.fromJson(parentNamespaceNewLatestRelease.getConfigurations(), GsonType.CONFIG);
+        Map<String, String> parentNamespaceAbandonedConfiguration = mergeEngine.getConfigurations(abandonedRelease);
 
         Map<String, String>
                 childNamespaceNewConfiguration =
@@ -505,7 +608,7 @@ public class ReleaseService {
         if (!childNamespaceNewConfiguration.equals(childReleaseConfiguration)) {
             branchRelease(parentNamespace, childNamespace,
                     TIMESTAMP_FORMAT.format(new Date()) + "-master-rollback-merge-to-gray", "",
-                    childNamespaceNewConfiguration, parentNamespaceNewLatestRelease.getId(), operator,
+                    childNamespaceNewConfiguration, null, parentNamespaceNewLatestRelease.getId(), operator,
                     ReleaseOperation.MATER_ROLLBACK_MERGE_TO_GRAY, false, branchReleaseKeys);
         }
     }
@@ -564,4 +667,10 @@ public class ReleaseService {
         return releaseRepository.batchDelete(appId, clusterName, namespaceName, operator);
     }
 
+    private static class BranchReleaseState {
+        private Collection<String> keys;
+        // null if not recorded
+        private Map<String, String> modifiedConfigurations;
+    }
+
 }
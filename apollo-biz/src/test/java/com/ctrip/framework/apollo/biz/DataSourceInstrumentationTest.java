@@ -0,0 +1,48 @@
+package com.ctrip.framework.apollo.biz;
+
+import com.ctrip.framework.apollo.biz.repository.AppRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataSourceInstrumentationTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private DataSource dataSource;
+  @Autowired
+  private AppRepository appRepository;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    Metrics.addRegistry(meterRegistry);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Metrics.removeRegistry(meterRegistry);
+  }
+
+  @Test
+  public void testInstrumentDataSource() throws Exception {
+    //the type of the data source is kept
+    assertTrue(dataSource instanceof HikariDataSource);
+
+    appRepository.findByAppId("someAppId");
+
+    Timer latency = meterRegistry.find("apollo.sql.latency").tag("statement", "SELECT App").timer();
+    assertEquals(1, latency.count());
+  }
+}
@@ -10,9 +10,13 @@ import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.test.context.transaction.TestTransaction;
 
 public class AdminServiceTest extends AbstractIntegrationTest {
 
@@ -34,8 +38,10 @@ public class AdminServiceTest extends AbstractIntegrationTest {
   @Autowired
   private AppNamespaceService appNamespaceService;
 
+  //the app is committed, so only the rows created are cleaned up, the rows of data.sql are shared by the tests
   @Test
-  public void testCreateNewApp() {
+  @Sql(scripts = "/sql/admin-service-test-clean.sql", executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
+  public void testCreateNewApp() throws Exception {
     String appId = "someAppId";
     App app = new App();
     app.setAppId(appId);
@@ -58,7 +64,16 @@ public class AdminServiceTest extends AbstractIntegrationTest {
     Assert.assertEquals(1, namespaces.size());
     Assert.assertEquals(ConfigConsts.NAMESPACE_APPLICATION, namespaces.get(0).getNamespaceName());
 
+    //the audits are written asynchronously after committed
+    TestTransaction.flagForCommit();
+    TestTransaction.end();
+    auditService.flush();
+
     List<Audit> audits = auditService.findByOwner(owner);
+    for (int i = 0; i < 50 && audits.size() < 4; i++) {
+      TimeUnit.MILLISECONDS.sleep(100);
+      audits = auditService.findByOwner(owner);
+    }
     Assert.assertEquals(4, audits.size());
   }
 
@@ -0,0 +1,79 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeletedRowPurgeServiceTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private BizConfig bizConfig;
+  private DeletedRowPurgeService deletedRowPurgeService;
+
+  @Before
+  public void setUp() throws Exception {
+    bizConfig = mock(BizConfig.class);
+    when(bizConfig.deletedRowPurgeRetentionInDays()).thenReturn(30);
+    //purge one row a time
+    when(bizConfig.deletedRowPurgeChunkSize()).thenReturn(1);
+    when(bizConfig.deletedRowPurgeChunkIntervalInMilli()).thenReturn(0);
+    when(bizConfig.isDeletedRowPurgeArchiveEnabled()).thenReturn(true);
+
+    deletedRowPurgeService = new DeletedRowPurgeService(jdbcTemplate, transactionManager, bizConfig);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/deleted-row-purge-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testPurgeAndArchive() throws Exception {
+    assertEquals(3, deletedRowPurgeService.purge());
+
+    //the rows not deleted or deleted recently are kept
+    assertEquals(Long.valueOf(2), jdbcTemplate.queryForObject("SELECT MIN(`Id`) FROM `Item`", Long.class));
+    assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `Item`", Integer.class));
+    assertEquals(Long.valueOf(11), jdbcTemplate.queryForObject("SELECT `Id` FROM `ReleaseHistory`", Long.class));
+    assertEquals(Long.valueOf(21), jdbcTemplate.queryForObject("SELECT `Id` FROM `ReleaseBranchKey`", Long.class));
+
+    List<String> archived = jdbcTemplate.queryForList(
+        "SELECT CONCAT(`TableName`, ':', `RowId`) FROM `DeletedRowArchive` ORDER BY `TableName`, `RowId`",
+        String.class);
+    assertEquals(4, archived.size());
+    assertEquals("Item:1", archived.get(0));
+    assertEquals("Item:4", archived.get(1));
+    assertEquals("ReleaseBranchKey:20", archived.get(2));
+    assertEquals("ReleaseHistory:10", archived.get(3));
+
+    String content = jdbcTemplate.queryForObject(
+        "SELECT `Content` FROM `DeletedRowArchive` WHERE `TableName` = 'Item' AND `RowId` = 1", String.class);
+    assertTrue(content.contains("\"v1\""));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/deleted-row-purge-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testPurgeWithoutArchive() throws Exception {
+    when(bizConfig.isDeletedRowPurgeArchiveEnabled()).thenReturn(false);
+
+    assertEquals(3, deletedRowPurgeService.purge());
+
+    assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `Item`", Integer.class));
+    assertEquals(Integer.valueOf(0),
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `DeletedRowArchive`", Integer.class));
+  }
+}
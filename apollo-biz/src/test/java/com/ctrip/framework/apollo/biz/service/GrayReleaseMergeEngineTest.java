@@ -0,0 +1,64 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class GrayReleaseMergeEngineTest {
+  private GrayReleaseMergeEngine mergeEngine;
+
+  @Before
+  public void setUp() throws Exception {
+    mergeEngine = new GrayReleaseMergeEngine();
+  }
+
+  @Test
+  public void testMergeBranchModifiedConfigurations() throws Exception {
+    Map<String, String> master = ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3");
+    Map<String, String> branch = ImmutableMap.of("k1", "v1", "k2", "v2-gray", "k4", "v4-gray");
+
+    Map<String, String> modified =
+        mergeEngine.branchModifiedConfigurations(branch, Lists.newArrayList("k2", "k4", "k5"));
+
+    assertEquals(ImmutableMap.of("k2", "v2-gray", "k4", "v4-gray"), modified);
+    assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2-gray", "k3", "v3", "k4", "v4-gray"),
+        mergeEngine.merge(master, modified));
+  }
+
+  @Test
+  public void testCanonicalJsonIgnoresOrder() throws Exception {
+    Map<String, String> someOrder = new LinkedHashMap<>();
+    someOrder.put("b", "2");
+    someOrder.put("a", "1");
+    Map<String, String> anotherOrder = new LinkedHashMap<>();
+    anotherOrder.put("a", "1");
+    anotherOrder.put("b", "2");
+
+    assertEquals("{\"a\":\"1\",\"b\":\"2\"}", mergeEngine.toCanonicalJson(someOrder));
+    assertEquals(mergeEngine.toCanonicalJson(someOrder), mergeEngine.toCanonicalJson(anotherOrder));
+  }
+
+  @Test
+  public void testConfigurationsCachedByRelease() throws Exception {
+    Release release = new Release();
+    release.setId(1);
+    release.setConfigurations("{\"k1\":\"v1\"}");
+
+    Map<String, String> configurations = mergeEngine.getConfigurations(release);
+
+    assertEquals(ImmutableMap.of("k1", "v1"), configurations);
+    assertSame(configurations, mergeEngine.getConfigurations(release));
+
+    //same id with different configurations is parsed again
+    release.setConfigurations("{\"k1\":\"v2\"}");
+    assertEquals(ImmutableMap.of("k1", "v2"), mergeEngine.getConfigurations(release));
+  }
+}
@@ -0,0 +1,96 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.entity.Instance;
+import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class InstanceIndexServiceTest extends AbstractUnitTest {
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  private InstanceIndexService instanceIndexService;
+
+  private Instance someInstance;
+  private Date someBucketStart;
+
+  @Before
+  public void setUp() throws Exception {
+    instanceIndexService = new InstanceIndexService(jdbcTemplate);
+
+    someInstance = new Instance();
+    someInstance.setClusterName("someClusterName");
+    someInstance.setDataCenter("someDataCenter");
+    someBucketStart = DateUtils.truncate(new Date(), Calendar.HOUR_OF_DAY);
+  }
+
+  @Test
+  public void testMoveWithinSameBucket() throws Exception {
+    InstanceConfig previous = assembleInstanceConfig("someReleaseKey", someBucketStart);
+    InstanceConfig updated = assembleInstanceConfig("someReleaseKey", DateUtils.addMinutes(someBucketStart, 30));
+
+    instanceIndexService.move(previous, updated, someInstance);
+
+    verifyZeroInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void testMoveToAnotherReleaseKey() throws Exception {
+    InstanceConfig previous = assembleInstanceConfig("someReleaseKey", someBucketStart);
+    InstanceConfig updated = assembleInstanceConfig("anotherReleaseKey", someBucketStart);
+    when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenReturn(1);
+
+    instanceIndexService.move(previous, updated, someInstance);
+
+    verify(jdbcTemplate, times(1)).update(anyString(), eq(-1), any(), any(), eq(someBucketStart));
+    verify(jdbcTemplate, times(1)).update(anyString(), eq(1), any(), any(), eq(someBucketStart));
+  }
+
+  @Test
+  public void testMoveToAnotherBucket() throws Exception {
+    Date anotherBucketStart = DateUtils.addHours(someBucketStart, 1);
+    InstanceConfig previous = assembleInstanceConfig("someReleaseKey", someBucketStart);
+    InstanceConfig updated = assembleInstanceConfig("someReleaseKey", anotherBucketStart);
+    when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenReturn(1);
+
+    instanceIndexService.move(previous, updated, someInstance);
+
+    verify(jdbcTemplate, times(1)).update(anyString(), eq(-1), any(), any(), eq(someBucketStart));
+    verify(jdbcTemplate, times(1)).update(anyString(), eq(1), any(), any(), eq(anotherBucketStart));
+  }
+
+  @Test
+  public void testAddNotPurgingExpiredBuckets() throws Exception {
+    InstanceConfig instanceConfig = assembleInstanceConfig("someReleaseKey", someBucketStart);
+
+    instanceIndexService.add(instanceConfig, someInstance, 1);
+
+    verify(jdbcTemplate, never()).update(anyString(), any(Date.class));
+  }
+
+  private InstanceConfig assembleInstanceConfig(String releaseKey, Date lastModifiedTime) {
+    InstanceConfig instanceConfig = new InstanceConfig();
+    instanceConfig.setConfigAppId("someConfigAppId");
+    instanceConfig.setConfigClusterName("someConfigClusterName");
+    instanceConfig.setConfigNamespaceName("someConfigNamespaceName");
+    instanceConfig.setReleaseKey(releaseKey);
+    instanceConfig.setDataChangeLastModifiedTime(lastModifiedTime);
+    return instanceConfig;
+  }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Sets;
 import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceIndex;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -170,6 +171,52 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(Lists.newArrayList(someInstance, anotherInstance), result.getContent());
   }
 
+  @Test
+  @Rollback
+  public void testCountAndSummarizeInstancesByNamespace() throws Exception {
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+    Date someValidDate = new Date();
+
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someDataCenter = "someDataCenter";
+    String anotherDataCenter = "anotherDataCenter";
+
+    Instance someInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, someDataCenter, "someIp"));
+    Instance anotherInstance = instanceService.createInstance(assembleInstance(someAppId,
+        someClusterName, anotherDataCenter, "anotherIp"));
+
+    InstanceConfig someInstanceConfig = prepareInstanceConfigForInstance(someInstance.getId(), someConfigAppId,
+        someConfigClusterName, someConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(anotherInstance.getId(), someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+
+    assertEquals(2, instanceService.countInstancesByNamespace(someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName));
+
+    InstanceConfig toUpdate = assembleInstanceConfig(someInstance.getId(), someConfigAppId,
+        someConfigClusterName, someConfigNamespaceName, anotherReleaseKey);
+    toUpdate.setId(someInstanceConfig.getId());
+    toUpdate.setDataChangeLastModifiedTime(new Date());
+
+    instanceService.updateInstanceConfig(toUpdate);
+
+    List<InstanceIndex> summary = instanceService.summarizeInstancesByNamespace(someConfigAppId,
+        someConfigClusterName, someConfigNamespaceName);
+
+    Set<String> entries = summary.stream().map(instanceIndex -> instanceIndex.getReleaseKey() + ":"
+        + instanceIndex.getDataCenter() + ":" + instanceIndex.getInstanceCount()).collect(Collectors.toSet());
+    assertEquals(Sets.newHashSet(anotherReleaseKey + ":" + someDataCenter + ":1",
+        someReleaseKey + ":" + anotherDataCenter + ":1"), entries);
+    assertEquals(2, instanceService.countInstancesByNamespace(someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName));
+  }
+
   @Test
   @Rollback
   public void testFindInstancesByNamespaceAndInstanceAppId() throws Exception {
@@ -0,0 +1,93 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.repository.NamespaceLockRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NamespaceLockServiceTest extends AbstractUnitTest {
+  private static final String APP = "someApp";
+  private static final String CLUSTER = "someCluster";
+  private static final String NAMESPACE = "someNamespace";
+  private static final String CURRENT_USER = "someUser";
+  private static final String ANOTHER_USER = "anotherUser";
+  private static final long NAMESPACE_ID = 100;
+
+  @Mock
+  private NamespaceLockRepository namespaceLockRepository;
+  @Mock
+  private BizConfig bizConfig;
+  private NamespaceLockService namespaceLockService;
+  private Namespace namespace;
+
+  @Before
+  public void setUp() throws Exception {
+    namespaceLockService = new NamespaceLockService(namespaceLockRepository, bizConfig);
+
+    namespace = new Namespace();
+    namespace.setId(NAMESPACE_ID);
+    namespace.setAppId(APP);
+    namespace.setClusterName(CLUSTER);
+    namespace.setNamespaceName(NAMESPACE);
+  }
+
+  @Test
+  public void testLeasedByOwner() throws Exception {
+    when(bizConfig.namespaceLockLeaseInMilli()).thenReturn(10000L);
+    when(namespaceLockRepository.existsByNamespaceIdAndDataChangeCreatedBy(NAMESPACE_ID, CURRENT_USER))
+        .thenReturn(true);
+
+    namespaceLockService.renewLease(namespace, CURRENT_USER);
+
+    assertTrue(namespaceLockService.isLeasedBy(NAMESPACE_ID, CURRENT_USER));
+    assertTrue(namespaceLockService.isLeasedBy(APP, CLUSTER, NAMESPACE, CURRENT_USER));
+    assertFalse(namespaceLockService.isLeasedBy(NAMESPACE_ID, ANOTHER_USER));
+    assertFalse(namespaceLockService.isLeasedBy(APP, CLUSTER, "anotherNamespace", CURRENT_USER));
+  }
+
+  @Test
+  public void testUnlockInvalidatesLease() throws Exception {
+    when(bizConfig.namespaceLockLeaseInMilli()).thenReturn(10000L);
+
+    namespaceLockService.renewLease(namespace, CURRENT_USER);
+    namespaceLockService.unlock(NAMESPACE_ID);
+
+    assertFalse(namespaceLockService.isLeasedBy(NAMESPACE_ID, CURRENT_USER));
+    assertFalse(namespaceLockService.isLeasedBy(APP, CLUSTER, NAMESPACE, CURRENT_USER));
+    verify(namespaceLockRepository).deleteByNamespaceId(NAMESPACE_ID);
+  }
+
+  @Test
+  public void testLockReleasedByAnotherInstance() throws Exception {
+    when(bizConfig.namespaceLockLeaseInMilli()).thenReturn(10000L);
+    //the lock row is deleted by another admin service instance, e.g. published there
+    when(namespaceLockRepository.existsByNamespaceIdAndDataChangeCreatedBy(NAMESPACE_ID, CURRENT_USER))
+        .thenReturn(false);
+
+    namespaceLockService.renewLease(namespace, CURRENT_USER);
+
+    assertFalse(namespaceLockService.isLeasedBy(NAMESPACE_ID, CURRENT_USER));
+    //the lease is invalidated, so the lock is acquired again
+    assertFalse(namespaceLockService.isLeasedBy(APP, CLUSTER, NAMESPACE, CURRENT_USER));
+    verify(namespaceLockRepository, times(1))
+        .existsByNamespaceIdAndDataChangeCreatedBy(NAMESPACE_ID, CURRENT_USER);
+  }
+
+  @Test
+  public void testLeaseDisabled() throws Exception {
+    when(bizConfig.namespaceLockLeaseInMilli()).thenReturn(0L);
+
+    namespaceLockService.renewLease(namespace, CURRENT_USER);
+
+    assertFalse(namespaceLockService.isLeasedBy(NAMESPACE_ID, CURRENT_USER));
+  }
+}
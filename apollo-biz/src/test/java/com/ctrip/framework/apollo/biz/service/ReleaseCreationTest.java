@@ -484,6 +484,29 @@ public class ReleaseCreationTest extends AbstractIntegrationTest {
   }
 
 
+  @Test
+  @Sql(scripts = "/sql/release-creation-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testPublishMasterNamespaceAndBackfilledBranchNotChanged() {
+    long parentNamespaceId = 1013;
+    String parentClusterName = "default7";
+    long childNamespaceId = 1014;
+    String childClusterName = "child-cluster7";
+    Namespace parentNamespace = instanceNamespace(parentNamespaceId, parentClusterName);
+
+    releaseService.publish(parentNamespace, "", "", operator, false);
+
+    //the branch configurations are the same though serialized in another order, so the branch is not published
+    Namespace childNamespace = instanceNamespace(childNamespaceId, childClusterName);
+    Release latestChildNamespaceRelease = releaseService.findLatestActiveRelease(childNamespace);
+    Assert.assertEquals(10, latestChildNamespaceRelease.getId());
+
+    Page<ReleaseHistory> releaseHistories = releaseHistoryService.findReleaseHistoriesByNamespace
+        (testApp, parentClusterName, testNamespace, pageable);
+    Assert.assertEquals(2, releaseHistories.getTotalElements());
+    Assert.assertEquals(ReleaseOperation.NORMAL_RELEASE, releaseHistories.getContent().get(0).getOperation());
+  }
+
   private Namespace instanceNamespace(long id, String clusterName) {
     Namespace namespace = new Namespace();
     namespace.setAppId(testApp);
@@ -0,0 +1,179 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseBranchKey;
+import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
+import com.ctrip.framework.apollo.biz.repository.ReleaseBranchKeyRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseHistoryRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReleaseHistoryServiceTest extends AbstractUnitTest {
+  private static final String APP = "someApp";
+  private static final String CLUSTER = "someCluster";
+  private static final String NAMESPACE = "someNamespace";
+  private static final String BRANCH = "someBranch";
+  private static final String OPERATOR = "someUser";
+
+  @Mock
+  private ReleaseHistoryRepository releaseHistoryRepository;
+  @Mock
+  private ReleaseBranchKeyRepository releaseBranchKeyRepository;
+  @Mock
+  private ReleaseRepository releaseRepository;
+  @Mock
+  private AuditService auditService;
+  @InjectMocks
+  private ReleaseHistoryService releaseHistoryService;
+
+  @Test
+  public void testSaveBranchReleaseKeys() throws Exception {
+    Map<String, Object> operationContext = Maps.newHashMap();
+    operationContext.put(ReleaseOperationContext.BASE_RELEASE_ID, 1L);
+    operationContext.put(ReleaseOperationContext.BRANCH_RELEASE_KEYS, Lists.newArrayList("k1", "k2"));
+    operationContext.put(ReleaseOperationContext.BRANCH_RELEASE_CONFIGURATIONS, ImmutableMap.of("k1", "v1"));
+
+    ReleaseHistory releaseHistory = releaseHistoryService.createReleaseHistory(APP, CLUSTER, NAMESPACE, BRANCH, 2,
+        0, ReleaseOperation.GRAY_RELEASE, operationContext, OPERATOR);
+
+    assertFalse(releaseHistory.getOperationContext()
+        .contains(ReleaseOperationContext.BRANCH_RELEASE_CONFIGURATIONS));
+
+    ArgumentCaptor<List<ReleaseBranchKey>> branchKeysCaptor = ArgumentCaptor.forClass(List.class);
+    verify(releaseBranchKeyRepository).saveAll(branchKeysCaptor.capture());
+    List<ReleaseBranchKey> branchKeys = branchKeysCaptor.getValue();
+    assertEquals(2, branchKeys.size());
+    assertEquals("k1", branchKeys.get(0).getKey());
+    assertEquals("v1", branchKeys.get(0).getValue());
+    assertEquals(2, branchKeys.get(0).getReleaseId());
+    assertEquals("k2", branchKeys.get(1).getKey());
+    assertNull(branchKeys.get(1).getValue());
+  }
+
+  @Test
+  public void testSummarizeChanges() throws Exception {
+    Release previousRelease = new Release();
+    previousRelease.setId(1);
+    previousRelease.setConfigurations("{\"k1\":\"v1\",\"k2\":\"v2\",\"k3\":\"v3\"}");
+    Release release = new Release();
+    release.setId(2);
+    release.setConfigurations("{\"k1\":\"v1\",\"k2\":\"v2-1\",\"k4\":\"v4\"}");
+    when(releaseRepository.findById(1L)).thenReturn(Optional.of(previousRelease));
+    when(releaseRepository.findById(2L)).thenReturn(Optional.of(release));
+
+    ReleaseHistory releaseHistory = releaseHistoryService.createReleaseHistory(APP, CLUSTER, NAMESPACE, CLUSTER, 2,
+        1, ReleaseOperation.NORMAL_RELEASE, null, OPERATOR);
+
+    assertEquals(Integer.valueOf(3), releaseHistory.getChangedKeyCount());
+    assertEquals("[\"k2\",\"k3\",\"k4\"]", releaseHistory.getChangedKeys());
+  }
+
+  @Test
+  public void testSummarizeChangesWithGivenConfigurations() throws Exception {
+    ReleaseHistory releaseHistory = releaseHistoryService.createReleaseHistory(APP, CLUSTER, NAMESPACE, CLUSTER, 2,
+        1, ReleaseOperation.NORMAL_RELEASE, null, ImmutableMap.of("k1", "v1", "k2", "v2-1"),
+        ImmutableMap.of("k1", "v1", "k2", "v2"), OPERATOR);
+
+    assertEquals(Integer.valueOf(1), releaseHistory.getChangedKeyCount());
+    assertEquals("[\"k2\"]", releaseHistory.getChangedKeys());
+    verify(releaseRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  public void testSummarizeChangesWithoutNewRelease() throws Exception {
+    ReleaseHistory releaseHistory = releaseHistoryService.createReleaseHistory(APP, CLUSTER, NAMESPACE, BRANCH, 2,
+        2, ReleaseOperation.APPLY_GRAY_RULES, null, OPERATOR);
+
+    assertEquals(Integer.valueOf(0), releaseHistory.getChangedKeyCount());
+    assertEquals("[]", releaseHistory.getChangedKeys());
+    verify(releaseRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  public void testFindBranchReleaseConfigurations() throws Exception {
+    long releaseHistoryId = 10;
+    when(releaseBranchKeyRepository.findByReleaseHistoryIdOrderByIdAsc(releaseHistoryId))
+        .thenReturn(Lists.newArrayList(branchKey("k1", "v1"), branchKey("k2", null)));
+
+    Map<String, String> configurations = releaseHistoryService.findBranchReleaseConfigurations(releaseHistoryId);
+
+    assertEquals(Lists.newArrayList("k1", "k2"), Lists.newArrayList(configurations.keySet()));
+    assertEquals("v1", configurations.get("k1"));
+    assertNull(configurations.get("k2"));
+  }
+
+  @Test
+  public void testFindBranchReleaseConfigurationsNotRecorded() throws Exception {
+    when(releaseBranchKeyRepository.findByReleaseHistoryIdOrderByIdAsc(anyLong()))
+        .thenReturn(Collections.emptyList());
+
+    assertNull(releaseHistoryService.findBranchReleaseConfigurations(10));
+  }
+
+  @Test
+  public void testBackfillBranchReleaseKeys() throws Exception {
+    ReleaseHistory legacyHistory = releaseHistory(11, 2, "{\"branchReleaseKeys\":[\"k1\"]}");
+    ReleaseHistory backfilledHistory = releaseHistory(12, 3, "{\"branchReleaseKeys\":[\"k1\"]}");
+    ReleaseHistory noKeysHistory = releaseHistory(13, 4, "{}");
+    Release release = new Release();
+    release.setId(2);
+    release.setConfigurations("{\"k1\":\"v1\",\"k2\":\"v2\"}");
+
+    when(releaseHistoryRepository.findFirst500ByIdGreaterThanAndOperationInOrderByIdAsc(eq(0L), any()))
+        .thenReturn(Lists.newArrayList(legacyHistory, backfilledHistory, noKeysHistory));
+    when(releaseBranchKeyRepository.findFirstByReleaseHistoryId(12)).thenReturn(branchKey("k1", "v1"));
+    when(releaseRepository.findById(2L)).thenReturn(Optional.of(release));
+
+    assertEquals(13, releaseHistoryService.backfillBranchReleaseKeys(0));
+
+    ArgumentCaptor<List<ReleaseBranchKey>> branchKeysCaptor = ArgumentCaptor.forClass(List.class);
+    verify(releaseBranchKeyRepository).saveAll(branchKeysCaptor.capture());
+    List<ReleaseBranchKey> branchKeys = branchKeysCaptor.getValue();
+    assertEquals(1, branchKeys.size());
+    assertEquals(11, branchKeys.get(0).getReleaseHistoryId());
+    assertEquals("k1", branchKeys.get(0).getKey());
+    assertEquals("v1", branchKeys.get(0).getValue());
+    verify(releaseRepository, never()).findById(3L);
+  }
+
+  private ReleaseHistory releaseHistory(long id, long releaseId, String operationContext) {
+    ReleaseHistory releaseHistory = new ReleaseHistory();
+    releaseHistory.setId(id);
+    releaseHistory.setReleaseId(releaseId);
+    releaseHistory.setOperation(ReleaseOperation.GRAY_RELEASE);
+    releaseHistory.setOperationContext(operationContext);
+    releaseHistory.setDataChangeCreatedBy(OPERATOR);
+    return releaseHistory;
+  }
+
+  private ReleaseBranchKey branchKey(String key, String value) {
+    ReleaseBranchKey branchKey = new ReleaseBranchKey();
+    branchKey.setKey(key);
+    branchKey.setValue(value);
+    return branchKey;
+  }
+}
@@ -0,0 +1,5 @@
+DELETE FROM App WHERE AppId = 'someAppId';
+DELETE FROM AppNamespace WHERE AppId = 'someAppId';
+DELETE FROM Cluster WHERE AppId = 'someAppId';
+DELETE FROM Namespace WHERE AppId = 'someAppId';
+DELETE FROM Audit WHERE DataChange_CreatedBy = 'someOwnerName';
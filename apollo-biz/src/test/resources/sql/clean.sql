@@ -9,3 +9,6 @@ DELETE FROM releasemessage;
 DELETE FROM releasehistory;
 DELETE FROM namespacelock;
 DELETE FROM `commit`;
+DELETE FROM releasebranchkey;
+DELETE FROM deletedrowarchive;
+DELETE FROM audit;
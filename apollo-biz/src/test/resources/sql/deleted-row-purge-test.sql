@@ -0,0 +1,10 @@
+INSERT INTO `item` (`Id`, `NamespaceId`, `Key`, `Value`, `Comment`, `LineNum`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (1, 1, 'k1', 'v1', '', 1, 1, 'apollo', '2018-01-01 00:00:00', '2018-01-01 00:00:00');
+INSERT INTO `item` (`Id`, `NamespaceId`, `Key`, `Value`, `Comment`, `LineNum`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (2, 1, 'k2', 'v2', '', 2, 0, 'apollo', '2018-01-01 00:00:00', '2018-01-01 00:00:00');
+INSERT INTO `item` (`Id`, `NamespaceId`, `Key`, `Value`, `Comment`, `LineNum`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (3, 1, 'k3', 'v3', '', 3, 1, 'apollo', '2018-01-01 00:00:00', CURRENT_TIMESTAMP());
+INSERT INTO `item` (`Id`, `NamespaceId`, `Key`, `Value`, `Comment`, `LineNum`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (4, 1, 'k4', 'v4', '', 4, 1, 'apollo', '2018-01-01 00:00:00', '2018-01-01 00:00:00');
+
+INSERT INTO `releasehistory` (`Id`, `AppId`, `ClusterName`, `NamespaceName`, `BranchName`, `ReleaseId`, `PreviousReleaseId`, `Operation`, `OperationContext`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (10, 'someApp', 'default', 'application', 'someBranch', 100, 0, 2, '{}', 1, 'apollo', '2018-01-01 00:00:00', '2018-01-01 00:00:00');
+INSERT INTO `releasehistory` (`Id`, `AppId`, `ClusterName`, `NamespaceName`, `BranchName`, `ReleaseId`, `PreviousReleaseId`, `Operation`, `OperationContext`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`, `DataChange_LastTime`) VALUES (11, 'someApp', 'default', 'application', 'someBranch', 101, 100, 2, '{}', 0, 'apollo', '2018-01-01 00:00:00', '2018-01-01 00:00:00');
+
+INSERT INTO `releasebranchkey` (`Id`, `ReleaseHistoryId`, `ReleaseId`, `Key`, `Value`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`) VALUES (20, 10, 100, 'k1', 'v1', 0, 'apollo', '2018-01-01 00:00:00');
+INSERT INTO `releasebranchkey` (`Id`, `ReleaseHistoryId`, `ReleaseId`, `Key`, `Value`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_CreatedTime`) VALUES (21, 11, 101, 'k1', 'v2', 0, 'apollo', '2018-01-01 00:00:00');
@@ -97,3 +97,21 @@ INSERT INTO `namespace` (ID, `AppId`, `ClusterName`, `NamespaceName`, `IsDeleted
 INSERT INTO `release` (`Id`, `ReleaseKey`, `Name`, `Comment`, `AppId`, `ClusterName`, `NamespaceName`, `Configurations`, `IsAbandoned`)VALUES(6, '20160823102253-fc0071ddf9fd3260', '20160823101703-release', '', 'test', 'default6', 'application', '{"k1":"v1-1","k2":"v2-1","k3":"v3"}', 0);
 INSERT INTO `release` (`Id`, `ReleaseKey`, `Name`, `Comment`, `AppId`, `ClusterName`, `NamespaceName`, `Configurations`, `IsAbandoned`)VALUES(7, '20160823102253-fc0071ddf9fd3260', '20160823101703-release', '', 'test', 'default6', 'application', '{"k1":"v1","k2":"v2"}', 0);
 INSERT INTO `release` (`Id`, `ReleaseKey`, `Name`, `Comment`, `AppId`, `ClusterName`, `NamespaceName`, `Configurations`, `IsAbandoned`)VALUES(8, '20160823102253-fc0071ddf9fd3260', '20160823101703-release', '', 'test', 'child-cluster6', 'application', '{"k1":"v1-2","k2":"v2","k3":"v3"}', 0);
+
+/* branch released before the branch configurations were serialized in key order, its branch keys are backfilled */
+INSERT INTO `cluster` (ID, `Name`, `AppId`, `ParentClusterId`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`) VALUES (1013, 'default7', 'test', 0, 0, 'default', 'default');
+INSERT INTO `cluster` (ID, `Name`, `AppId`, `ParentClusterId`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`)VALUES(1014, 'child-cluster7', 'test', 1013, 0, 'default', 'default');
+
+INSERT INTO `namespace` (ID, `AppId`, `ClusterName`, `NamespaceName`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`)VALUES(1013, 'test', 'default7', 'application', 0, 'apollo', 'apollo');
+INSERT INTO `namespace` (ID, `AppId`, `ClusterName`, `NamespaceName`, `IsDeleted`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`)VALUES(1014, 'test', 'child-cluster7', 'application', 0, 'apollo', 'apollo');
+
+INSERT INTO `item` (`NamespaceId`, `Key`, `Value`, `Comment`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`)VALUES(1013, 'k1', 'v1', '', 'apollo', 'apollo');
+INSERT INTO `item` (`NamespaceId`, `Key`, `Value`, `Comment`, `DataChange_CreatedBy`, `DataChange_LastModifiedBy`)VALUES(1013, 'k2', 'v2', '', 'apollo', 'apollo');
+
+INSERT INTO `release` (`Id`, `ReleaseKey`, `Name`, `Comment`, `AppId`, `ClusterName`, `NamespaceName`, `Configurations`, `IsAbandoned`)VALUES(9, '20160823102253-fc0071ddf9fd3260', '20160823101703-release', '', 'test', 'default7', 'application', '{"k1":"v1","k2":"v2"}', 0);
+INSERT INTO `release` (`Id`, `ReleaseKey`, `Name`, `Comment`, `AppId`, `ClusterName`, `NamespaceName`, `Configurations`, `IsAbandoned`)VALUES(10, '20160823102253-fc0071ddf9fd3260', '20160823101703-release', '', 'test', 'child-cluster7', 'application', '{"k2":"v2","k1":"v1-1"}', 0);
+
+INSERT INTO `releasehistory` (`Id`, `AppId`, `ClusterName`, `NamespaceName`, `BranchName`, `ReleaseId`, `PreviousReleaseId`, `Operation`, `OperationContext`, `DataChange_CreatedBy`) VALUES (1, 'test', 'default7', 'application', 'child-cluster7', 10, 0, 2, '{"baseReleaseId":9,"branchReleaseKeys":["k1"]}', 'apollo');
+INSERT INTO `releasebranchkey` (`ReleaseHistoryId`, `ReleaseId`, `Key`, `Value`, `DataChange_CreatedBy`) VALUES (1, 10, 'k1', 'v1-1', 'apollo');
+
+INSERT INTO `grayreleaserule` (`AppId`, `ClusterName`, `NamespaceName`, `BranchName`, `Rules`, `ReleaseId`, `BranchStatus`)VALUES ('test', 'default7', 'application', 'child-cluster7', '[]', 10, 1);
@@ -0,0 +1,89 @@
+package com.ctrip.framework.apollo;
+
+import com.ctrip.framework.apollo.model.BooleanConfigValue;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.ConfigValue;
+import com.ctrip.framework.apollo.model.DoubleConfigValue;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import com.ctrip.framework.apollo.model.LongConfigValue;
+import com.ctrip.framework.apollo.model.StringConfigValue;
+
+import java.util.Collections;
+
+/**
+ * The typed property handles of any {@link Config}, e.g.
+ * <pre>
+ *   IntConfigValue timeout = ConfigValues.intValue(ConfigService.getAppConfig(), "timeout", 1000);
+ * </pre>
+ *
+ * <p>The handles of a {@link TypedConfig} are cached and updated by the config itself, the ones of other configs are
+ * created for each call and updated by a change listener of the key.
+ *
+ * @since 1.6.0
+ */
+public class ConfigValues {
+
+  private ConfigValues() {
+  }
+
+  /**
+   * @see TypedConfig#intValue(String, int)
+   */
+  public static IntConfigValue intValue(Config config, String key, int defaultValue) {
+    if (config instanceof TypedConfig) {
+      return ((TypedConfig) config).intValue(key, defaultValue);
+    }
+    return listen(config, new IntConfigValue(key, defaultValue));
+  }
+
+  /**
+   * @see TypedConfig#longValue(String, long)
+   */
+  public static LongConfigValue longValue(Config config, String key, long defaultValue) {
+    if (config instanceof TypedConfig) {
+      return ((TypedConfig) config).longValue(key, defaultValue);
+    }
+    return listen(config, new LongConfigValue(key, defaultValue));
+  }
+
+  /**
+   * @see TypedConfig#doubleValue(String, double)
+   */
+  public static DoubleConfigValue doubleValue(Config config, String key, double defaultValue) {
+    if (config instanceof TypedConfig) {
+      return ((TypedConfig) config).doubleValue(key, defaultValue);
+    }
+    return listen(config, new DoubleConfigValue(key, defaultValue));
+  }
+
+  /**
+   * @see TypedConfig#booleanValue(String, boolean)
+   */
+  public static BooleanConfigValue booleanValue(Config config, String key, boolean defaultValue) {
+    if (config instanceof TypedConfig) {
+      return ((TypedConfig) config).booleanValue(key, defaultValue);
+    }
+    return listen(config, new BooleanConfigValue(key, defaultValue));
+  }
+
+  /**
+   * @see TypedConfig#stringValue(String, String)
+   */
+  public static StringConfigValue stringValue(Config config, String key, String defaultValue) {
+    if (config instanceof TypedConfig) {
+      return ((TypedConfig) config).stringValue(key, defaultValue);
+    }
+    return listen(config, new StringConfigValue(key, defaultValue));
+  }
+
+  private static <T extends ConfigValue> T listen(final Config config, final T handle) {
+    config.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        handle.refresh(config.getProperty(handle.getKey(), null));
+      }
+    }, Collections.singleton(handle.getKey()));
+    handle.refresh(config.getProperty(handle.getKey(), null));
+    return handle;
+  }
+}
@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo;
+
+import com.ctrip.framework.apollo.model.BooleanConfigValue;
+import com.ctrip.framework.apollo.model.DoubleConfigValue;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import com.ctrip.framework.apollo.model.LongConfigValue;
+import com.ctrip.framework.apollo.model.StringConfigValue;
+
+/**
+ * A config providing typed property handles, implemented by the configs returned by {@link ConfigService}.
+ *
+ * <p>The handles are not part of {@link Config}, so that the existing implementations of {@link Config} keep
+ * compiling, use {@link ConfigValues} to get the handles of any {@link Config}.
+ *
+ * @since 1.6.0
+ */
+public interface TypedConfig extends Config {
+  /**
+   * Return a handle of the integer property with the given key. The handle holds the parsed value
+   * and is only updated when the property changes, so it is preferred for properties read in hot
+   * paths. The same handle is returned for the same key and default value.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property handle
+   */
+  public IntConfigValue intValue(String key, int defaultValue);
+
+  /**
+   * Return a handle of the long property with the given key.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property handle
+   * @see #intValue(String, int)
+   */
+  public LongConfigValue longValue(String key, long defaultValue);
+
+  /**
+   * Return a handle of the double property with the given key.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property handle
+   * @see #intValue(String, int)
+   */
+  public DoubleConfigValue doubleValue(String key, double defaultValue);
+
+  /**
+   * Return a handle of the boolean property with the given key.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found
+   * @return the property handle
+   * @see #intValue(String, int)
+   */
+  public BooleanConfigValue booleanValue(String key, boolean defaultValue);
+
+  /**
+   * Return a handle of the property with the given key.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found
+   * @return the property handle
+   * @see #intValue(String, int)
+   */
+  public StringConfigValue stringValue(String key, String defaultValue);
+}
@@ -5,18 +5,36 @@ package com.ctrip.framework.apollo.exceptions;
  */
 public class ApolloConfigStatusCodeException extends RuntimeException{
   private final int m_statusCode;
+  private final long m_retryAfterInSecond;
 
   public ApolloConfigStatusCodeException(int statusCode, String message) {
+    this(statusCode, message, -1);
+  }
+
+  public ApolloConfigStatusCodeException(int statusCode, String message, long retryAfterInSecond) {
     super(String.format("[status code: %d] %s", statusCode, message));
     this.m_statusCode = statusCode;
+    this.m_retryAfterInSecond = retryAfterInSecond;
   }
 
   public ApolloConfigStatusCodeException(int statusCode, Throwable cause) {
+    this(statusCode, cause, -1);
+  }
+
+  public ApolloConfigStatusCodeException(int statusCode, Throwable cause, long retryAfterInSecond) {
     super(cause);
     this.m_statusCode = statusCode;
+    this.m_retryAfterInSecond = retryAfterInSecond;
   }
 
   public int getStatusCode() {
     return m_statusCode;
   }
+
+  /**
+   * @return the seconds to wait before retrying given by the server's Retry-After header, -1 if not present
+   */
+  public long getRetryAfterInSecond() {
+    return m_retryAfterInSecond;
+  }
 }
@@ -1,15 +1,20 @@
 package com.ctrip.framework.apollo.internals;
 
-import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.TypedConfig;
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.BooleanConfigValue;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.ConfigValue;
+import com.ctrip.framework.apollo.model.DoubleConfigValue;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import com.ctrip.framework.apollo.model.LongConfigValue;
+import com.ctrip.framework.apollo.model.StringConfigValue;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.function.Functions;
 import com.ctrip.framework.apollo.util.parser.Parsers;
@@ -29,21 +34,26 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public abstract class AbstractConfig implements Config {
+public abstract class AbstractConfig implements TypedConfig {
   private static final Logger logger = LoggerFactory.getLogger(AbstractConfig.class);
 
-  private static final ExecutorService m_executorService;
+  private static volatile ExecutorService m_executorService;
 
   private final List<ConfigChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
   private final Map<ConfigChangeListener, Set<String>> m_interestedKeys = Maps.newConcurrentMap();
   private final Map<ConfigChangeListener, Set<String>> m_interestedKeyPrefixes = Maps.newConcurrentMap();
+  private final Map<ConfigChangeListener, ConfigChangeMailbox> m_mailboxes = Maps.newConcurrentMap();
+  private volatile ConfigChangeListenerIndex m_listenerIndex = ConfigChangeListenerIndex.EMPTY;
   private final ConfigUtil m_configUtil;
   private volatile Cache<String, Integer> m_integerCache;
   private volatile Cache<String, Long> m_longCache;
@@ -57,17 +67,16 @@ public abstract class AbstractConfig implements Config {
   private final Map<String, Cache<String, String[]>> m_arrayCache;
   private final List<Cache> allCaches;
   private final AtomicLong m_configVersion; //indicate config version
-
-  static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("Config", true));
-  }
+  //property key -> (handle type and default value -> handle)
+  private final ConcurrentMap<String, ConcurrentMap<String, ConfigValue>> m_configValues;
 
   public AbstractConfig() {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    initExecutorService(m_configUtil.getListenerExecutorThreads());
     m_configVersion = new AtomicLong();
     m_arrayCache = Maps.newConcurrentMap();
     allCaches = Lists.newArrayList();
+    m_configValues = Maps.newConcurrentMap();
   }
 
   @Override
@@ -82,22 +91,36 @@ public abstract class AbstractConfig implements Config {
 
   @Override
   public void addChangeListener(ConfigChangeListener listener, Set<String> interestedKeys, Set<String> interestedKeyPrefixes) {
-    if (!m_listeners.contains(listener)) {
-      m_listeners.add(listener);
-      if (interestedKeys != null && !interestedKeys.isEmpty()) {
-        m_interestedKeys.put(listener, Sets.newHashSet(interestedKeys));
-      }
-      if (interestedKeyPrefixes != null && !interestedKeyPrefixes.isEmpty()) {
-        m_interestedKeyPrefixes.put(listener, Sets.newHashSet(interestedKeyPrefixes));
+    synchronized (m_listeners) {
+      if (!m_listeners.contains(listener)) {
+        m_listeners.add(listener);
+        if (interestedKeys != null && !interestedKeys.isEmpty()) {
+          m_interestedKeys.put(listener, Sets.newHashSet(interestedKeys));
+        }
+        if (interestedKeyPrefixes != null && !interestedKeyPrefixes.isEmpty()) {
+          m_interestedKeyPrefixes.put(listener, Sets.newHashSet(interestedKeyPrefixes));
+        }
+        m_mailboxes.put(listener, new ConfigChangeMailbox(listener, m_executorService,
+            m_configUtil.getMaxPendingChangeEventsPerListener()));
+        rebuildListenerIndex();
       }
     }
   }
 
   @Override
   public boolean removeChangeListener(ConfigChangeListener listener) {
-    m_interestedKeys.remove(listener);
-    m_interestedKeyPrefixes.remove(listener);
-    return m_listeners.remove(listener);
+    synchronized (m_listeners) {
+      m_interestedKeys.remove(listener);
+      m_interestedKeyPrefixes.remove(listener);
+      m_mailboxes.remove(listener);
+      boolean removed = m_listeners.remove(listener);
+      rebuildListenerIndex();
+      return removed;
+    }
+  }
+
+  private void rebuildListenerIndex() {
+    m_listenerIndex = new ConfigChangeListenerIndex(m_listeners, m_interestedKeys, m_interestedKeyPrefixes);
   }
 
   @Override
@@ -364,6 +387,106 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
+  @Override
+  public IntConfigValue intValue(String key, int defaultValue) {
+    String signature = "int:" + defaultValue;
+    ConfigValue handle = findConfigValue(key, signature);
+    if (handle == null) {
+      handle = registerConfigValue(signature, new IntConfigValue(key, defaultValue));
+    }
+    return (IntConfigValue) handle;
+  }
+
+  @Override
+  public LongConfigValue longValue(String key, long defaultValue) {
+    String signature = "long:" + defaultValue;
+    ConfigValue handle = findConfigValue(key, signature);
+    if (handle == null) {
+      handle = registerConfigValue(signature, new LongConfigValue(key, defaultValue));
+    }
+    return (LongConfigValue) handle;
+  }
+
+  @Override
+  public DoubleConfigValue doubleValue(String key, double defaultValue) {
+    String signature = "double:" + defaultValue;
+    ConfigValue handle = findConfigValue(key, signature);
+    if (handle == null) {
+      handle = registerConfigValue(signature, new DoubleConfigValue(key, defaultValue));
+    }
+    return (DoubleConfigValue) handle;
+  }
+
+  @Override
+  public BooleanConfigValue booleanValue(String key, boolean defaultValue) {
+    String signature = "boolean:" + defaultValue;
+    ConfigValue handle = findConfigValue(key, signature);
+    if (handle == null) {
+      handle = registerConfigValue(signature, new BooleanConfigValue(key, defaultValue));
+    }
+    return (BooleanConfigValue) handle;
+  }
+
+  @Override
+  public StringConfigValue stringValue(String key, String defaultValue) {
+    String signature = "string:" + defaultValue;
+    ConfigValue handle = findConfigValue(key, signature);
+    if (handle == null) {
+      handle = registerConfigValue(signature, new StringConfigValue(key, defaultValue));
+    }
+    return (StringConfigValue) handle;
+  }
+
+  private ConfigValue findConfigValue(String key, String signature) {
+    Map<String, ConfigValue> handles = m_configValues.get(key);
+    return handles == null ? null : handles.get(signature);
+  }
+
+  /**
+   * Register the handle and initialize it with the current property value, holding the lock so that
+   * no config change could happen in between.
+   */
+  private ConfigValue registerConfigValue(String signature, ConfigValue handle) {
+    synchronized (this) {
+      ConcurrentMap<String, ConfigValue> handles = m_configValues.get(handle.getKey());
+      if (handles == null) {
+        handles = Maps.newConcurrentMap();
+        m_configValues.put(handle.getKey(), handles);
+      }
+      ConfigValue existing = handles.get(signature);
+      if (existing != null) {
+        return existing;
+      }
+      handle.refresh(getProperty(handle.getKey(), null));
+      handles.put(signature, handle);
+      return handle;
+    }
+  }
+
+  /**
+   * Re-parse the property handles of the changed keys, should be invoked after the config
+   * properties are updated.
+   *
+   * @param changedKeys the keys whose value has changed
+   */
+  protected void refreshConfigValues(Set<String> changedKeys) {
+    if (m_configValues.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (String changedKey : changedKeys) {
+        Map<String, ConfigValue> handles = m_configValues.get(changedKey);
+        if (handles == null) {
+          continue;
+        }
+        String value = getProperty(changedKey, null);
+        for (ConfigValue handle : handles.values()) {
+          handle.refresh(value);
+        }
+      }
+    }
+  }
+
   @Override
   public <T> T getProperty(String key, Function<String, T> function, T defaultValue) {
     try {
@@ -435,59 +558,32 @@ public abstract class AbstractConfig implements Config {
   }
 
   protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
-    for (final ConfigChangeListener listener : m_listeners) {
-      // check whether the listener is interested in this change event
-      if (!isConfigChangeListenerInterested(listener, changeEvent)) {
-        continue;
+    // only the listeners interested in this change event are routed
+    for (ConfigChangeListener listener : m_listenerIndex.route(changeEvent.changedKeys())) {
+      ConfigChangeMailbox mailbox = m_mailboxes.get(listener);
+      if (mailbox != null) {
+        mailbox.post(changeEvent);
       }
-      m_executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          String listenerName = listener.getClass().getName();
-          Transaction transaction = Tracer.newTransaction("Apollo.ConfigChangeListener", listenerName);
-          try {
-            listener.onChange(changeEvent);
-            transaction.setStatus(Transaction.SUCCESS);
-          } catch (Throwable ex) {
-            transaction.setStatus(ex);
-            Tracer.logError(ex);
-            logger.error("Failed to invoke config change listener {}", listenerName, ex);
-          } finally {
-            transaction.complete();
-          }
-        }
-      });
     }
   }
 
-  private boolean isConfigChangeListenerInterested(ConfigChangeListener configChangeListener, ConfigChangeEvent configChangeEvent) {
-    Set<String> interestedKeys = m_interestedKeys.get(configChangeListener);
-    Set<String> interestedKeyPrefixes = m_interestedKeyPrefixes.get(configChangeListener);
-
-    if ((interestedKeys == null || interestedKeys.isEmpty())
-        && (interestedKeyPrefixes == null || interestedKeyPrefixes.isEmpty())) {
-      return true; // no interested keys means interested in all keys
-    }
-
-    if (interestedKeys != null) {
-      for (String interestedKey : interestedKeys) {
-        if (configChangeEvent.isChanged(interestedKey)) {
-          return true;
-        }
-      }
+  /**
+   * The listener threads are shared by all config instances, events of one listener are delivered
+   * one by one through its {@link ConfigChangeMailbox}. The work queue holds at most one task per
+   * listener, the pending events themselves are bounded by the mailboxes.
+   */
+  private static void initExecutorService(int threads) {
+    if (m_executorService != null) {
+      return;
     }
-
-    if (interestedKeyPrefixes != null) {
-      for (String prefix : interestedKeyPrefixes) {
-        for (final String changedKey : configChangeEvent.changedKeys()) {
-          if (changedKey.startsWith(prefix)) {
-            return true;
-          }
-        }
+    synchronized (AbstractConfig.class) {
+      if (m_executorService == null) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), ApolloThreadFactory.create("Config", true));
+        executor.allowCoreThreadTimeOut(true);
+        m_executorService = executor;
       }
     }
-
-    return false;
   }
 
   List<ConfigChange> calcPropertyChanges(String namespace, Properties previous,
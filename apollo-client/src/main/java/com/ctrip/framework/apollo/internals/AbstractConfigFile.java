@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.ConfigFileChangeListener;
+import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
@@ -42,6 +43,8 @@ public abstract class AbstractConfigFile implements ConfigFile, RepositoryChange
     m_configRepository = configRepository;
     m_namespace = namespace;
     m_configProperties = new AtomicReference<>();
+    //the content of a config file is read as a whole
+    ApolloInjector.getInstance(KeySubscriptionRegistry.class).subscribeNamespace(namespace);
     initialize();
   }
 
@@ -0,0 +1,143 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable routing index of the config change listeners, which finds the listeners interested in
+ * a change without visiting the others.
+ *
+ * <ul>
+ * <li>listeners without interested keys or prefixes are interested in all changes</li>
+ * <li>interested keys are indexed in a hash map</li>
+ * <li>interested key prefixes are indexed in a trie, a changed key is matched in one walk</li>
+ * </ul>
+ *
+ * The routed listeners are returned in registration order.
+ */
+class ConfigChangeListenerIndex {
+  static final ConfigChangeListenerIndex EMPTY = new ConfigChangeListenerIndex(
+      Collections.<ConfigChangeListener>emptyList(),
+      Collections.<ConfigChangeListener, Set<String>>emptyMap(),
+      Collections.<ConfigChangeListener, Set<String>>emptyMap());
+
+  private final List<ConfigChangeListener> m_allKeysListeners;
+  private final Map<String, List<ConfigChangeListener>> m_keyIndex;
+  private final TrieNode m_prefixRoot;
+  private final Map<ConfigChangeListener, Integer> m_order;
+
+  ConfigChangeListenerIndex(List<ConfigChangeListener> listeners,
+      Map<ConfigChangeListener, Set<String>> interestedKeys,
+      Map<ConfigChangeListener, Set<String>> interestedKeyPrefixes) {
+    List<ConfigChangeListener> allKeysListeners = Lists.newArrayList();
+    m_keyIndex = Maps.newHashMap();
+    m_prefixRoot = new TrieNode();
+    m_order = Maps.newIdentityHashMap();
+
+    for (ConfigChangeListener listener : listeners) {
+      m_order.put(listener, m_order.size());
+      Set<String> keys = interestedKeys.get(listener);
+      Set<String> prefixes = interestedKeyPrefixes.get(listener);
+      boolean hasKeys = keys != null && !keys.isEmpty();
+      boolean hasPrefixes = prefixes != null && !prefixes.isEmpty();
+
+      if (!hasKeys && !hasPrefixes) {
+        // no interested keys means interested in all keys
+        allKeysListeners.add(listener);
+        continue;
+      }
+      if (hasKeys) {
+        for (String key : keys) {
+          List<ConfigChangeListener> keyListeners = m_keyIndex.get(key);
+          if (keyListeners == null) {
+            keyListeners = Lists.newArrayList();
+            m_keyIndex.put(key, keyListeners);
+          }
+          keyListeners.add(listener);
+        }
+      }
+      if (hasPrefixes) {
+        for (String prefix : prefixes) {
+          m_prefixRoot.insert(prefix).listeners.add(listener);
+        }
+      }
+    }
+    m_allKeysListeners = ImmutableList.copyOf(allKeysListeners);
+  }
+
+  /**
+   * @return the listeners interested in any of the changed keys, in registration order
+   */
+  List<ConfigChangeListener> route(Set<String> changedKeys) {
+    if (m_keyIndex.isEmpty() && m_prefixRoot.isEmpty()) {
+      return m_allKeysListeners;
+    }
+
+    Set<ConfigChangeListener> matched = Sets.newIdentityHashSet();
+    matched.addAll(m_allKeysListeners);
+    for (String changedKey : changedKeys) {
+      List<ConfigChangeListener> keyListeners = m_keyIndex.get(changedKey);
+      if (keyListeners != null) {
+        matched.addAll(keyListeners);
+      }
+      m_prefixRoot.collect(changedKey, matched);
+    }
+
+    List<ConfigChangeListener> routed = Lists.newArrayList(matched);
+    Collections.sort(routed, new Comparator<ConfigChangeListener>() {
+      @Override
+      public int compare(ConfigChangeListener o1, ConfigChangeListener o2) {
+        return Integer.compare(m_order.get(o1), m_order.get(o2));
+      }
+    });
+    return routed;
+  }
+
+  private static class TrieNode {
+    private final Map<Character, TrieNode> children = Maps.newHashMap();
+    private final List<ConfigChangeListener> listeners = Lists.newArrayList();
+
+    TrieNode insert(String prefix) {
+      TrieNode node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        Character c = prefix.charAt(i);
+        TrieNode child = node.children.get(c);
+        if (child == null) {
+          child = new TrieNode();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+
+    /**
+     * Collect the listeners of all the prefixes of the key, i.e. the nodes on the path of the key
+     */
+    void collect(String key, Collection<ConfigChangeListener> result) {
+      TrieNode node = this;
+      result.addAll(node.listeners);
+      for (int i = 0; i < key.length(); i++) {
+        node = node.children.get(key.charAt(i));
+        if (node == null) {
+          return;
+        }
+        result.addAll(node.listeners);
+      }
+    }
+
+    boolean isEmpty() {
+      return children.isEmpty() && listeners.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Delivers the change events of one listener in order, at most one event of the listener is being
+ * handled at any time while the executor threads are shared by all listeners.
+ *
+ * <p>Back pressure: when a slow listener has {@code maxPendingEvents} events waiting, a new event is
+ * merged into the last pending one instead of being queued. The merged event carries the oldest
+ * old value and the latest new value of each key, so the listener still sees the final state
+ * while the backlog stays bounded.
+ */
+class ConfigChangeMailbox {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigChangeMailbox.class);
+
+  private final ConfigChangeListener m_listener;
+  private final Executor m_executor;
+  private final int m_maxPendingEvents;
+  private final Deque<ConfigChangeEvent> m_pendingEvents = new ArrayDeque<>();
+  // guarded by m_pendingEvents
+  private boolean m_scheduled;
+  private final Runnable m_drainTask = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  ConfigChangeMailbox(ConfigChangeListener listener, Executor executor, int maxPendingEvents) {
+    m_listener = listener;
+    m_executor = executor;
+    m_maxPendingEvents = Math.max(1, maxPendingEvents);
+  }
+
+  void post(ConfigChangeEvent changeEvent) {
+    synchronized (m_pendingEvents) {
+      if (m_pendingEvents.size() >= m_maxPendingEvents) {
+        ConfigChangeEvent merged = merge(m_pendingEvents.pollLast(), changeEvent);
+        if (!merged.changedKeys().isEmpty()) {
+          m_pendingEvents.addLast(merged);
+        }
+        Tracer.logEvent("Apollo.ConfigChangeListener.Coalesced", m_listener.getClass().getName());
+      } else {
+        m_pendingEvents.addLast(changeEvent);
+      }
+      if (m_scheduled) {
+        return;
+      }
+      m_scheduled = true;
+    }
+
+    try {
+      m_executor.execute(m_drainTask);
+    } catch (RejectedExecutionException ex) {
+      synchronized (m_pendingEvents) {
+        m_scheduled = false;
+      }
+      Tracer.logError(ex);
+      logger.error("Failed to schedule config change listener {}", m_listener.getClass().getName(), ex);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      ConfigChangeEvent changeEvent;
+      synchronized (m_pendingEvents) {
+        changeEvent = m_pendingEvents.pollFirst();
+        if (changeEvent == null) {
+          m_scheduled = false;
+          return;
+        }
+      }
+      deliver(changeEvent);
+    }
+  }
+
+  private void deliver(ConfigChangeEvent changeEvent) {
+    String listenerName = m_listener.getClass().getName();
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigChangeListener", listenerName);
+    try {
+      m_listener.onChange(changeEvent);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      Tracer.logError(ex);
+      logger.error("Failed to invoke config change listener {}", listenerName, ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  static ConfigChangeEvent merge(ConfigChangeEvent earlier, ConfigChangeEvent later) {
+    Map<String, ConfigChange> changes = Maps.newHashMap();
+    for (String key : earlier.changedKeys()) {
+      changes.put(key, earlier.getChange(key));
+    }
+
+    for (String key : later.changedKeys()) {
+      ConfigChange latest = later.getChange(key);
+      ConfigChange previous = changes.get(key);
+      if (previous == null) {
+        changes.put(key, latest);
+        continue;
+      }
+      String oldValue = previous.getOldValue();
+      String newValue = latest.getNewValue();
+      if (Objects.equal(oldValue, newValue)) {
+        // changed back, nothing changed in total
+        changes.remove(key);
+        continue;
+      }
+      PropertyChangeType changeType = oldValue == null ? PropertyChangeType.ADDED
+          : newValue == null ? PropertyChangeType.DELETED : PropertyChangeType.MODIFIED;
+      changes.put(key, new ConfigChange(latest.getNamespace(), key, oldValue, newValue, changeType));
+    }
+
+    return new ConfigChangeEvent(later.getNamespace(), changes);
+  }
+}
@@ -0,0 +1,44 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+
+import java.util.List;
+
+/**
+ * Chooses among the config services located by {@link ConfigServiceLocator}, based on the outcome of the previous
+ * requests.
+ * <p>
+ * The default implementation is {@link DefaultConfigServiceLoadBalancer}, a custom one could be bound by a custom
+ * {@link Injector} loaded through the service loader.
+ */
+public interface ConfigServiceLoadBalancer {
+
+  /**
+   * @param services the located config services, not empty
+   * @return the config service to send the next request to
+   */
+  ServiceDTO choose(List<ServiceDTO> services);
+
+  /**
+   * @param services the located config services
+   * @return all the services in the order to try them, the preferred one first
+   */
+  List<ServiceDTO> order(List<ServiceDTO> services);
+
+  /**
+   * Called before sending a request to the service, must be followed by {@link #onRequestComplete}
+   */
+  void onRequestStart(ServiceDTO service);
+
+  /**
+   * @param latencyInNanos the time from sending the request to receiving the response
+   * @param success        false if the service is unreachable or responds with a server error
+   */
+  void onRequestComplete(ServiceDTO service, long latencyInNanos, boolean success);
+
+  /**
+   * Called when a request held by the service, e.g. a long poll, completes. The latency of such a request tells
+   * nothing about the service, so only the outcome is recorded.
+   */
+  void onHeldRequestComplete(ServiceDTO service, boolean success);
+}
@@ -4,10 +4,13 @@ import com.ctrip.framework.apollo.core.ServiceNameConsts;
 import com.ctrip.framework.foundation.Foundation;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -37,16 +40,26 @@ import com.google.gson.reflect.TypeToken;
  * <p>
  * 初始时，从 Meta Service 获取 Config Service 集群地址进行缓存。
  * 定时任务，每 5 分钟，从 Meta Service 获取 Config Service 集群地址刷新缓存。
+ * <p>
+ * If a node local config agent is configured via apollo.agent.url, the agent is preferred while it is
+ * available, the config services are only located from meta service when the agent is down. The agent serves
+ * /configs and the plain long polling only, see {@link #isAgentInUse()}.
  */
 public class ConfigServiceLocator {
     private static final Logger logger = LoggerFactory.getLogger(ConfigServiceLocator.class);
     private HttpUtil m_httpUtil;
     private ConfigUtil m_configUtil;
     private AtomicReference<List<ServiceDTO>> m_configServices;
+    // Meta Service 返回的 ETag ，用于条件请求，服务列表不变时只返回 304
+    private volatile String m_configServicesETag;
+    private List<ServiceDTO> m_agentServices;
+    private final AtomicBoolean m_agentAvailable = new AtomicBoolean(false);
     private Type m_responseType;
+    private Type m_agentHealthResponseType;
     private ScheduledExecutorService m_executorService;
     private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
     private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+    private static final int AGENT_CHECK_TIMEOUT_IN_MILLI = 1000;
 
     /**
      * Create a config service locator.
@@ -56,6 +69,8 @@ public class ConfigServiceLocator {
         m_configServices = new AtomicReference<>(initial);
         m_responseType = new TypeToken<List<ServiceDTO>>() {
         }.getType();
+        m_agentHealthResponseType = new TypeToken<Map<String, String>>() {
+        }.getType();
         m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
         this.m_executorService = Executors.newScheduledThreadPool(1,
@@ -69,6 +84,13 @@ public class ConfigServiceLocator {
 
         if (customizedConfigServices != null) {
             setConfigServices(customizedConfigServices);
+            initAgentServices();
+            return;
+        }
+
+        if (initAgentServices()) {
+            // config services are located lazily when the agent is down
+            this.schedulePeriodicRefresh();
             return;
         }
 
@@ -77,6 +99,57 @@ public class ConfigServiceLocator {
         this.schedulePeriodicRefresh();
     }
 
+    /**
+     * @return whether the node local agent is configured and available now
+     */
+    private boolean initAgentServices() {
+        final String agentUrl = m_configUtil.getAgentUrl();
+        if (Strings.isNullOrEmpty(agentUrl)) {
+            return false;
+        }
+
+        ServiceDTO agentService = new ServiceDTO();
+        agentService.setHomepageUrl(agentUrl);
+        agentService.setAppName(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+        agentService.setInstanceId(agentUrl);
+        m_agentServices = Collections.singletonList(agentService);
+
+        checkAgent();
+        long checkInterval = m_configUtil.getAgentCheckIntervalInMilli();
+        this.m_executorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkAgent();
+            }
+        }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+
+        return m_agentAvailable.get();
+    }
+
+    private void checkAgent() {
+        String url = m_agentServices.get(0).getHomepageUrl();
+        if (!url.endsWith("/")) {
+            url += "/";
+        }
+        HttpRequest request = new HttpRequest(url + "agent/health");
+        request.setConnectTimeout(AGENT_CHECK_TIMEOUT_IN_MILLI);
+        request.setReadTimeout(AGENT_CHECK_TIMEOUT_IN_MILLI);
+
+        boolean available;
+        try {
+            HttpResponse<Map<String, String>> response = m_httpUtil.doGet(request, m_agentHealthResponseType);
+            available = response.getStatusCode() == 200 && response.getBody() != null
+                    && "UP".equals(response.getBody().get("status"));
+        } catch (Throwable ex) {
+            available = false;
+        }
+
+        if (m_agentAvailable.compareAndSet(!available, available)) {
+            logger.warn("Config agent {} is {}", url, available ? "available" : "unavailable");
+            Tracer.logEvent("Apollo.Config.Agent", available ? "Available" : "Unavailable");
+        }
+    }
+
     private List<ServiceDTO> getCustomizedConfigService() {
         // 1. Get from System Property
         String configServices = System.getProperty("apollo.configService");
@@ -111,12 +184,24 @@ public class ConfigServiceLocator {
         return serviceDTOS;
     }
 
+    /**
+     * @return whether the node local agent is used instead of the config services now. The agent doesn't serve the
+     * notification stream or the watch session, so the clients long poll it plainly.
+     */
+    public boolean isAgentInUse() {
+        return m_agentAvailable.get();
+    }
+
     /**
      * Get the config service info from remote meta server.
      *
      * @return the services dto
      */
     public List<ServiceDTO> getConfigServices() {
+        if (m_agentAvailable.get()) {
+            return m_agentServices;
+        }
+
         if (m_configServices.get().isEmpty()) {
             updateConfigServices();
         }
@@ -139,6 +224,9 @@ public class ConfigServiceLocator {
                 new Runnable() {
                     @Override
                     public void run() {
+                        if (m_agentAvailable.get()) {
+                            return;
+                        }
                         logger.debug("refresh config services");
                         Tracer.logEvent("Apollo.MetaService", "periodicRefresh");
                         tryUpdateConfigServices();
@@ -148,24 +236,41 @@ public class ConfigServiceLocator {
     }
 
     private synchronized void updateConfigServices() {
-        String url = assembleMetaServiceUrl();
+        String url = assembleMetaServiceUrl(m_configUtil.getMetaServerDomainName());
 
-        HttpRequest request = new HttpRequest(url);
         int maxRetries = 2;
         Throwable exception = null;
 
         for (int i = 0; i < maxRetries; i++) {
+            if (i > 0) {
+                // 重试时使用按延迟排序的下一个 meta server
+                List<String> domainNames = m_configUtil.getMetaServerDomainNames();
+                if (domainNames.size() > 1) {
+                    url = assembleMetaServiceUrl(domainNames.get(i % domainNames.size()));
+                }
+            }
+            HttpRequest request = new HttpRequest(url);
+            String eTag = m_configServicesETag;
+            if (eTag != null && !m_configServices.get().isEmpty()) {
+                request.setHeader("If-None-Match", eTag);
+            }
             Transaction transaction = Tracer.newTransaction("Apollo.MetaService", "getConfigService");
             transaction.addData("Url", url);
             try {
                 HttpResponse<List<ServiceDTO>> response = m_httpUtil.doGet(request, m_responseType);
                 transaction.setStatus(Transaction.SUCCESS);
+                if (response.getStatusCode() == 304) {
+                    // 服务列表未变化
+                    logger.debug("Config services not modified, ETag: {}", eTag);
+                    return;
+                }
                 List<ServiceDTO> services = response.getBody();
                 if (services == null || services.isEmpty()) {
                     logConfigService("Empty response!");
                     continue;
                 }
                 setConfigServices(services);
+                m_configServicesETag = response.getHeader("ETag");
                 return;
             } catch (Throwable ex) {
                 Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
@@ -191,8 +296,7 @@ public class ConfigServiceLocator {
         logConfigServices(services);
     }
 
-    private String assembleMetaServiceUrl() {
-        String domainName = m_configUtil.getMetaServerDomainName();
+    private String assembleMetaServiceUrl(String domainName) {
         String appId = m_configUtil.getAppId();
         String localIp = m_configUtil.getLocalIp();
 
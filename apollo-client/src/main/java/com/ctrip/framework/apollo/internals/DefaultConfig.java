@@ -15,6 +15,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
@@ -35,6 +37,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   private final AtomicReference<Properties> m_configProperties;
   private final ConfigRepository m_configRepository;
   private final RateLimiter m_warnLogRateLimiter;
+  private final KeySubscriptionRegistry m_keySubscriptionRegistry;
 
   private volatile ConfigSourceType m_sourceType = ConfigSourceType.NONE;
 
@@ -50,6 +53,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     m_configRepository = configRepository;
     m_configProperties = new AtomicReference<>();
     m_warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
+    m_keySubscriptionRegistry = ApolloInjector.getInstance(KeySubscriptionRegistry.class);
     initialize();
   }
 
@@ -69,6 +73,21 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   @Override
   public String getProperty(String key, String defaultValue) {
+    m_keySubscriptionRegistry.subscribeKey(m_namespace, key);
+
+    String value = findProperty(key);
+
+    if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
+      logger.warn("Could not load config for namespace {} from Apollo, please check whether the configs are released in Apollo! Return default value now!", m_namespace);
+    }
+
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Looks up the key from all the config sources, without subscribing to it
+   */
+  private String findProperty(String key) {
     // step 1: check system properties, i.e. -Dkey=value
     String value = System.getProperty(key);
 
@@ -91,15 +110,13 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
       value = (String) m_resourceProperties.get(key);
     }
 
-    if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
-      logger.warn("Could not load config for namespace {} from Apollo, please check whether the configs are released in Apollo! Return default value now!", m_namespace);
-    }
-
-    return value == null ? defaultValue : value;
+    return value;
   }
 
   @Override
   public Set<String> getPropertyNames() {
+    m_keySubscriptionRegistry.subscribeNamespace(m_namespace);
+
     Properties properties = m_configProperties.get();
     if (properties == null) {
       return Collections.emptySet();
@@ -108,6 +125,13 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     return stringPropertyNames(properties);
   }
 
+  @Override
+  public void addChangeListener(ConfigChangeListener listener, Set<String> interestedKeys,
+      Set<String> interestedKeyPrefixes) {
+    super.addChangeListener(listener, interestedKeys, interestedKeyPrefixes);
+    m_keySubscriptionRegistry.subscribeKeys(m_namespace, interestedKeys, interestedKeyPrefixes);
+  }
+
   @Override
   public ConfigSourceType getSourceType() {
     return m_sourceType;
@@ -153,6 +177,11 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     m_sourceType = sourceType;
   }
 
+  private String findProperty(String key, String defaultValue) {
+    String value = findProperty(key);
+    return value == null ? defaultValue : value;
+  }
+
   private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties,
       ConfigSourceType sourceType) {
     List<ConfigChange> configChanges =
@@ -163,18 +192,18 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
     /** === Double check since DefaultConfig has multiple config sources ==== **/
 
-    //1. use getProperty to update configChanges's old value
+    //1. use findProperty to update configChanges's old value, the changed keys are not subscribed by the lookup
     for (ConfigChange change : configChanges) {
-      change.setOldValue(this.getProperty(change.getPropertyName(), change.getOldValue()));
+      change.setOldValue(findProperty(change.getPropertyName(), change.getOldValue()));
     }
 
     //2. update m_configProperties
     updateConfig(newConfigProperties, sourceType);
     clearConfigCache();
 
-    //3. use getProperty to update configChange's new value and calc the final changes
+    //3. use findProperty to update configChange's new value and calc the final changes
     for (ConfigChange change : configChanges) {
-      change.setNewValue(this.getProperty(change.getPropertyName(), change.getNewValue()));
+      change.setNewValue(findProperty(change.getPropertyName(), change.getNewValue()));
       switch (change.getChangeType()) {
         case ADDED:
           if (Objects.equals(change.getOldValue(), change.getNewValue())) {
@@ -204,7 +233,11 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
           break;
       }
     }
-    return actualChanges.build();
+
+    ImmutableMap<String, ConfigChange> result = actualChanges.build();
+    //4. re-parse the property handles of the actually changed keys
+    refreshConfigValues(result.keySet());
+    return result;
   }
 
   private Properties loadFromResource(String namespace) {
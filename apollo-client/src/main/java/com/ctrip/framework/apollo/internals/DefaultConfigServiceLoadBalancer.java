@@ -0,0 +1,201 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Power of two choices on the peak EWMA latency multiplied by the in-flight requests of each config service.
+ * <ul>
+ * <li>The services in the same data center as the client, see {@link ConfigUtil#getDataCenter()}, are preferred as
+ * long as one of them is available.</li>
+ * <li>A service failing {@link #EJECTION_CONSECUTIVE_FAILURES} times in a row is ejected, and re-admitted after the
+ * ejection time, which doubles on every ejection in a row up to {@link #MAX_EJECTION_TIME_IN_MILLI}. Ejected services
+ * are still tried last, and used if all the services are ejected.</li>
+ * <li>A service without latency samples costs nothing, so that new services are tried soon.</li>
+ * </ul>
+ */
+public class DefaultConfigServiceLoadBalancer implements ConfigServiceLoadBalancer {
+  private static final Logger logger = LoggerFactory.getLogger(DefaultConfigServiceLoadBalancer.class);
+  static final int EJECTION_CONSECUTIVE_FAILURES = 3;
+  static final long BASE_EJECTION_TIME_IN_MILLI = 10000;//10 seconds
+  static final long MAX_EJECTION_TIME_IN_MILLI = 120000;//2 minutes
+  private static final double DECAY_TIME_IN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final ConcurrentMap<String, ServiceStats> m_stats = Maps.newConcurrentMap();
+  private final Random m_random = new Random();
+  private final Ticker m_ticker;
+  private final String m_dataCenter;
+
+  public DefaultConfigServiceLoadBalancer() {
+    this(ApolloInjector.getInstance(ConfigUtil.class).getDataCenter(), Ticker.systemTicker());
+  }
+
+  DefaultConfigServiceLoadBalancer(String dataCenter, Ticker ticker) {
+    m_dataCenter = dataCenter;
+    m_ticker = ticker;
+  }
+
+  @Override
+  public ServiceDTO choose(List<ServiceDTO> services) {
+    return order(services).get(0);
+  }
+
+  @Override
+  public List<ServiceDTO> order(List<ServiceDTO> services) {
+    if (services.size() <= 1) {
+      return services;
+    }
+    long now = m_ticker.read();
+    List<ServiceDTO> local = Lists.newArrayList();
+    List<ServiceDTO> remote = Lists.newArrayList();
+    List<ServiceDTO> ejected = Lists.newArrayList();
+    for (ServiceDTO service : services) {
+      if (getStats(service).isEjected(now)) {
+        ejected.add(service);
+      } else if (m_dataCenter != null && m_dataCenter.equals(service.getDataCenter())) {
+        local.add(service);
+      } else {
+        remote.add(service);
+      }
+    }
+    Collections.shuffle(local, m_random);
+    Collections.shuffle(remote, m_random);
+    Collections.shuffle(ejected, m_random);
+
+    List<ServiceDTO> preferred = !local.isEmpty() ? local : !remote.isEmpty() ? remote : ejected;
+    // power of two choices, the shuffled list is already random
+    if (preferred.size() > 1 && cost(preferred.get(1)) < cost(preferred.get(0))) {
+      Collections.swap(preferred, 0, 1);
+    }
+
+    List<ServiceDTO> ordered = Lists.newArrayListWithCapacity(services.size());
+    ordered.addAll(local);
+    ordered.addAll(remote);
+    ordered.addAll(ejected);
+    return ordered;
+  }
+
+  @Override
+  public void onRequestStart(ServiceDTO service) {
+    getStats(service).m_inflight.incrementAndGet();
+  }
+
+  @Override
+  public void onRequestComplete(ServiceDTO service, long latencyInNanos, boolean success) {
+    ServiceStats stats = getStats(service);
+    stats.m_inflight.decrementAndGet();
+    if (success) {
+      stats.observe(latencyInNanos, m_ticker.read());
+    }
+    onOutcome(service, stats, success);
+  }
+
+  @Override
+  public void onHeldRequestComplete(ServiceDTO service, boolean success) {
+    onOutcome(service, getStats(service), success);
+  }
+
+  private void onOutcome(ServiceDTO service, ServiceStats stats, boolean success) {
+    if (success) {
+      stats.onSuccess();
+      return;
+    }
+    long ejectionTime = stats.onFailure(m_ticker.read());
+    if (ejectionTime > 0) {
+      logger.warn("Config service {} failed {} times in a row, ejected for {} ms", service.getHomepageUrl(),
+          EJECTION_CONSECUTIVE_FAILURES, ejectionTime);
+      Tracer.logEvent("Apollo.Config.Services.Ejected", service.getHomepageUrl());
+    }
+  }
+
+  private double cost(ServiceDTO service) {
+    ServiceStats stats = getStats(service);
+    return stats.getLatency() * (stats.m_inflight.get() + 1);
+  }
+
+  private ServiceStats getStats(ServiceDTO service) {
+    String key = service.getHomepageUrl() == null ? "" : service.getHomepageUrl();
+    ServiceStats stats = m_stats.get(key);
+    if (stats == null) {
+      m_stats.putIfAbsent(key, new ServiceStats());
+      stats = m_stats.get(key);
+    }
+    return stats;
+  }
+
+  private static class ServiceStats {
+    private final AtomicInteger m_inflight = new AtomicInteger();
+    private boolean m_sampled;
+    private double m_latency;
+    private long m_lastSampleTime;
+    private int m_consecutiveFailures;
+    private int m_consecutiveEjections;
+    private long m_ejectedUntil;
+    private boolean m_ejected;
+
+    /**
+     * The peak EWMA: a slower sample is taken at once, faster samples decay the latency over time
+     */
+    synchronized void observe(long latencyInNanos, long now) {
+      if (latencyInNanos < 0) {
+        return;
+      }
+      if (!m_sampled || latencyInNanos > m_latency) {
+        m_latency = latencyInNanos;
+      } else {
+        double weight = Math.exp(-(now - m_lastSampleTime) / DECAY_TIME_IN_NANOS);
+        m_latency = m_latency * weight + latencyInNanos * (1 - weight);
+      }
+      m_sampled = true;
+      m_lastSampleTime = now;
+    }
+
+    synchronized double getLatency() {
+      return m_latency;
+    }
+
+    synchronized boolean isEjected(long now) {
+      if (m_ejected && now - m_ejectedUntil >= 0) {
+        // re-admitted, a single failure ejects it again with a longer time
+        m_ejected = false;
+        m_consecutiveFailures = EJECTION_CONSECUTIVE_FAILURES - 1;
+      }
+      return m_ejected;
+    }
+
+    synchronized void onSuccess() {
+      m_ejected = false;
+      m_consecutiveFailures = 0;
+      m_consecutiveEjections = 0;
+    }
+
+    /**
+     * @return the ejection time in milliseconds if the service is ejected by this failure, otherwise 0
+     */
+    synchronized long onFailure(long now) {
+      if (m_ejected || ++m_consecutiveFailures < EJECTION_CONSECUTIVE_FAILURES) {
+        return 0;
+      }
+      long ejectionTime = Math.min(MAX_EJECTION_TIME_IN_MILLI,
+          BASE_EJECTION_TIME_IN_MILLI << Math.min(m_consecutiveEjections, 16));
+      m_consecutiveEjections++;
+      m_ejected = true;
+      m_ejectedUntil = now + TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+      return ejectionTime;
+    }
+  }
+}
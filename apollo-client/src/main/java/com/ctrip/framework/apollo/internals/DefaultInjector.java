@@ -60,7 +60,9 @@ public class DefaultInjector implements Injector {
       bind(ConfigUtil.class).in(Singleton.class);
       bind(HttpUtil.class).in(Singleton.class);
       bind(ConfigServiceLocator.class).in(Singleton.class);
+      bind(ConfigServiceLoadBalancer.class).to(DefaultConfigServiceLoadBalancer.class).in(Singleton.class);
       bind(RemoteConfigLongPollService.class).in(Singleton.class);
+      bind(KeySubscriptionRegistry.class).in(Singleton.class);
       bind(YamlParser.class).in(Singleton.class);
     }
   }
@@ -0,0 +1,148 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the keys the application reads from each namespace, so that long polling is only woken up by the releases
+ * changing them.
+ * <p>
+ * A namespace falls back to the whole namespace subscription once its property names are enumerated, a change
+ * listener without interested keys is added or it is read as a config file. So the namespaces injected into Spring
+ * are always subscribed as a whole.
+ *
+ * @see ConfigUtil#isKeySubscriptionEnabled()
+ */
+public class KeySubscriptionRegistry {
+  private static final String PROPERTIES_SUFFIX = "." + ConfigFileFormat.Properties.getValue();
+
+  private final ConcurrentMap<String, KeySubscription> m_subscriptions = Maps.newConcurrentMap();
+  private final AtomicLong m_version = new AtomicLong();
+  private final boolean m_enabled;
+
+  public KeySubscriptionRegistry() {
+    m_enabled = ApolloInjector.getInstance(ConfigUtil.class).isKeySubscriptionEnabled();
+  }
+
+  public void subscribeKey(String namespace, String key) {
+    if (!m_enabled || key == null) {
+      return;
+    }
+    if (getOrCreate(namespace).addKey(key)) {
+      m_version.incrementAndGet();
+    }
+  }
+
+  public void subscribeKeys(String namespace, Set<String> keys, Set<String> keyPrefixes) {
+    if (!m_enabled) {
+      return;
+    }
+    if ((keys == null || keys.isEmpty()) && (keyPrefixes == null || keyPrefixes.isEmpty())) {
+      subscribeNamespace(namespace);
+      return;
+    }
+    KeySubscription subscription = getOrCreate(namespace);
+    boolean changed = false;
+    if (keys != null) {
+      for (String key : keys) {
+        changed |= subscription.addKey(key);
+      }
+    }
+    if (keyPrefixes != null) {
+      for (String keyPrefix : keyPrefixes) {
+        changed |= subscription.addKeyPrefix(keyPrefix);
+      }
+    }
+    if (changed) {
+      m_version.incrementAndGet();
+    }
+  }
+
+  public void subscribeNamespace(String namespace) {
+    if (!m_enabled) {
+      return;
+    }
+    if (getOrCreate(namespace).subscribeAll()) {
+      m_version.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the version increased whenever a subscription is widened
+   */
+  public long getVersion() {
+    return m_version.get();
+  }
+
+  /**
+   * Fill the subscribed keys of the notification's namespace, nothing is filled if the whole namespace is subscribed
+   */
+  public void fillSubscription(ApolloConfigNotification notification) {
+    if (!m_enabled) {
+      return;
+    }
+    KeySubscription subscription = m_subscriptions.get(normalize(notification.getNamespaceName()));
+    if (subscription != null) {
+      subscription.fill(notification);
+    }
+  }
+
+  private KeySubscription getOrCreate(String namespace) {
+    String normalizedNamespace = normalize(namespace);
+    KeySubscription subscription = m_subscriptions.get(normalizedNamespace);
+    if (subscription == null) {
+      m_subscriptions.putIfAbsent(normalizedNamespace, new KeySubscription());
+      subscription = m_subscriptions.get(normalizedNamespace);
+    }
+    return subscription;
+  }
+
+  //application.properties and application are the same namespace
+  private String normalize(String namespace) {
+    if (namespace.endsWith(PROPERTIES_SUFFIX)) {
+      return namespace.substring(0, namespace.length() - PROPERTIES_SUFFIX.length());
+    }
+    return namespace;
+  }
+
+  private static class KeySubscription {
+    private volatile boolean m_allKeys;
+    private final Set<String> m_keys = Sets.newConcurrentHashSet();
+    private final Set<String> m_keyPrefixes = Sets.newConcurrentHashSet();
+
+    boolean addKey(String key) {
+      //fast path for the keys read repeatedly
+      return !m_allKeys && !m_keys.contains(key) && m_keys.add(key);
+    }
+
+    boolean addKeyPrefix(String keyPrefix) {
+      return !m_allKeys && m_keyPrefixes.add(keyPrefix);
+    }
+
+    boolean subscribeAll() {
+      if (m_allKeys) {
+        return false;
+      }
+      m_allKeys = true;
+      m_keys.clear();
+      m_keyPrefixes.clear();
+      return true;
+    }
+
+    void fill(ApolloConfigNotification notification) {
+      if (m_allKeys || (m_keys.isEmpty() && m_keyPrefixes.isEmpty())) {
+        return;
+      }
+      notification.setInterestedKeys(Sets.newHashSet(m_keys));
+      notification.setInterestedKeyPrefixes(Sets.newHashSet(m_keyPrefixes));
+    }
+  }
+}
@@ -17,16 +17,18 @@ import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ApolloWatchSession;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
-import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.EventStreamHandler;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -52,9 +54,13 @@ public class RemoteConfigLongPollService {
     private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
     private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
     private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+    private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
     private static final long INIT_NOTIFICATION_ID = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
     //90 seconds, should be longer than server side's long polling timeout, which is now 60 seconds
     private static final int LONG_POLLING_READ_TIMEOUT = 90 * 1000;
+    //90 seconds, should be longer than server side's heartbeat interval of the notification stream
+    private static final int STREAMING_READ_TIMEOUT = 90 * 1000;
+    private static final String NOTIFICATIONS_EVENT = "notifications";
     /**
      * 长轮询 ExecutorService
      */
@@ -66,7 +72,7 @@ public class RemoteConfigLongPollService {
     /**
      * 失败定时重试策略，使用 {@link ExponentialSchedulePolicy}
      */
-    private SchedulePolicy m_longPollFailSchedulePolicyInSecond;
+    private ExponentialSchedulePolicy m_longPollFailSchedulePolicyInSecond;
     /**
      * 长轮询的 RateLimiter
      */
@@ -98,11 +104,39 @@ public class RemoteConfigLongPollService {
      * VALUE：ApolloNotificationMessages 对象
      */
     private final Map<String, ApolloNotificationMessages> m_remoteNotificationMessages;//namespaceName -> watchedKey -> notificationId
+    /**
+     * Config Service 不支持推送通道（404/405）时，在此时间前改为长轮询，之后重新尝试推送通道。
+     * 只在长轮询线程中访问
+     */
+    private long m_streamingUnsupportedUntil;
+    /**
+     * Config Service 不支持 Watch 会话（404/405）时，在此时间前改为普通长轮询，之后重新尝试创建会话。
+     * 只在长轮询线程中访问
+     */
+    private long m_sessionUnsupportedUntil;
+    /**
+     * 当前的 Watch 会话编号，会话只保存在创建它的 Config Service 中。只在长轮询线程中访问
+     */
+    private String m_watchSessionId;
+    /**
+     * 当前 Watch 会话已知的最大 ReleaseMessage 编号。只在长轮询线程中访问
+     */
+    private long m_watchSessionReleaseMessageId;
+    /**
+     * 创建当前 Watch 会话时 Key 订阅的版本，订阅扩大后重新创建会话。只在长轮询线程中访问
+     */
+    private long m_watchSessionSubscriptionVersion;
+    /**
+     * 是否有新的 Namespace 加入，推送通道在下一个事件或心跳时用新的 Watch 集合重新建立连接
+     */
+    private final AtomicBoolean m_watchedNamespacesChanged;
     private Type m_responseType;
     private Gson gson;
     private ConfigUtil m_configUtil;
     private HttpUtil m_httpUtil;
     private ConfigServiceLocator m_serviceLocator;
+    private ConfigServiceLoadBalancer m_loadBalancer;
+    private KeySubscriptionRegistry m_keySubscriptionRegistry;
 
     /**
      * Constructor.
@@ -120,12 +154,15 @@ public class RemoteConfigLongPollService {
                 Multimaps.synchronizedSetMultimap(HashMultimap.<String, RemoteConfigRepository>create());
         m_notifications = Maps.newConcurrentMap();
         m_remoteNotificationMessages = Maps.newConcurrentMap();
+        m_watchedNamespacesChanged = new AtomicBoolean(false);
         m_responseType = new TypeToken<List<ApolloConfigNotification>>() {
         }.getType();
         gson = new Gson();
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
         m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+        m_loadBalancer = ApolloInjector.getInstance(ConfigServiceLoadBalancer.class);
+        m_keySubscriptionRegistry = ApolloInjector.getInstance(KeySubscriptionRegistry.class);
         m_longPollRateLimiter = RateLimiter.create(m_configUtil.getLongPollQPS());
     }
 
@@ -138,7 +175,9 @@ public class RemoteConfigLongPollService {
      */
     public boolean submit(String namespace, RemoteConfigRepository remoteConfigRepository) {
         boolean added = m_longPollNamespaces.put(namespace, remoteConfigRepository);
-        m_notifications.putIfAbsent(namespace, INIT_NOTIFICATION_ID);
+        if (m_notifications.putIfAbsent(namespace, INIT_NOTIFICATION_ID) == null) {
+            m_watchedNamespacesChanged.set(true);
+        }
         if (!m_longPollStarted.get()) {
             startLongPolling();
         }
@@ -194,6 +233,7 @@ public class RemoteConfigLongPollService {
     private void doLongPollingRefresh(String appId, String cluster, String dataCenter) {
         final Random random = new Random();
         ServiceDTO lastServiceDto = null;
+        boolean lastAgentInUse = false;
         // 循环执行，直到停止或线程中断
         while (!m_longPollingStopped.get() && !Thread.currentThread().isInterrupted()) {
             //限流重试
@@ -204,13 +244,31 @@ public class RemoteConfigLongPollService {
                 } catch (InterruptedException e) {
                 }
             }
+            // 本机 Agent 只支持普通长轮询，Agent 可用性变化时重新选择，避免在 Agent 上尝试推送通道或 Watch 会话
+            boolean agentInUse = m_serviceLocator.isAgentInUse();
+            if (agentInUse != lastAgentInUse) {
+                lastServiceDto = null;
+                lastAgentInUse = agentInUse;
+            }
+            // 推送模式，连接断开后重新建立；Config Service 不支持时回退到长轮询
+            if (!agentInUse && m_configUtil.isNotificationStreamingEnabled()
+                    && System.currentTimeMillis() >= m_streamingUnsupportedUntil) {
+                lastServiceDto = doStreaming(appId, cluster, dataCenter, lastServiceDto);
+                continue;
+            }
+            // 会话模式，Namespace 只在创建会话时提交一次；Config Service 不支持时回退到普通长轮询
+            if (!agentInUse && m_configUtil.isNotificationSessionEnabled()
+                    && System.currentTimeMillis() >= m_sessionUnsupportedUntil) {
+                lastServiceDto = doSessionLongPolling(appId, cluster, dataCenter, lastServiceDto);
+                continue;
+            }
             Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "pollNotification");
             String url = null;
             try {
                 // 获得 Config Service 的地址
                 if (lastServiceDto == null) {
                     List<ServiceDTO> configServices = getConfigServices();
-                    lastServiceDto = configServices.get(random.nextInt(configServices.size()));
+                    lastServiceDto = m_loadBalancer.choose(configServices);
                 }
                 //长轮询 Config Service 的配置变更通知 /notifications / v2 接口的 URL ，
                 url = assembleLongPollRefreshUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter,
@@ -228,15 +286,12 @@ public class RemoteConfigLongPollService {
                 logger.debug("Long polling response: {}, url: {}", response.getStatusCode(), url);
                 // 有新的通知，刷新本地的缓存---轮询得到新的通知、说明配置变化，此时可以通知调用获取配置接口
                 if (response.getStatusCode() == 200 && response.getBody() != null) {
-                    // 更新 m_notifications
-                    updateNotifications(response.getBody());
-                    // 更新 m_remoteNotificationMessages
-                    updateRemoteNotifications(response.getBody());
                     transaction.addData("Result", response.getBody().toString());
-                    // 通知对应的 RemoteConfigRepository 们---获取配置信息
-                    notify(lastServiceDto, response.getBody());
+                    onNotifications(lastServiceDto, response.getBody());
                 }
 
+                m_loadBalancer.onHeldRequestComplete(lastServiceDto, true);
+
                 //try to load balance
                 // 无新的通知，重置连接的 Config Service 的地址，下次请求不同的 Config Service ，实现负载均衡。
                 // 随机策略实现负载均衡
@@ -248,24 +303,276 @@ public class RemoteConfigLongPollService {
                 transaction.addData("StatusCode", response.getStatusCode());
                 transaction.setStatus(Transaction.SUCCESS);
             } catch (Throwable ex) {
+                onServiceFailed(lastServiceDto, ex);
                 lastServiceDto = null;
-                Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
                 transaction.setStatus(ex);
-                long sleepTimeInSecond = m_longPollFailSchedulePolicyInSecond.fail();
-                logger.warn(
-                        "Long polling failed, will retry in {} seconds. appId: {}, cluster: {}, namespaces: {}, long polling url: {}, reason: {}",
-                        sleepTimeInSecond, appId, cluster, assembleNamespaces(), url, ExceptionUtil.getDetailMessage(ex));
-                try {
-                    TimeUnit.SECONDS.sleep(sleepTimeInSecond);
-                } catch (InterruptedException ie) {
-                    //ignore
-                }
+                onLongPollingFailed(appId, cluster, url, ex);
             } finally {
                 transaction.complete();
             }
         }
     }
 
+    /**
+     * 通过推送通道接收通知，直到连接被服务端关闭、出错或有新的 Namespace 加入
+     *
+     * @return 下次连接的 Config Service ，null 表示重新随机选择
+     */
+    private ServiceDTO doStreaming(String appId, String cluster, String dataCenter, ServiceDTO lastServiceDto) {
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "streamNotification");
+        String url = null;
+        try {
+            if (lastServiceDto == null) {
+                List<ServiceDTO> configServices = getConfigServices();
+                lastServiceDto = m_loadBalancer.choose(configServices);
+            }
+            // 连接时带上当前的通知编号，服务端会先推送错过的通知
+            m_watchedNamespacesChanged.set(false);
+            url = assembleNotificationStreamUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter,
+                    m_notifications);
+
+            logger.debug("Streaming notifications from {}", url);
+            HttpRequest request = new HttpRequest(url);
+            request.setReadTimeout(STREAMING_READ_TIMEOUT);
+
+            transaction.addData("Url", url);
+
+            final ServiceDTO serviceDto = lastServiceDto;
+            m_httpUtil.doGetEventStream(request, new EventStreamHandler() {
+                @Override
+                public boolean onEvent(String id, String name, String data) {
+                    if (NOTIFICATIONS_EVENT.equals(name) && !Strings.isNullOrEmpty(data)) {
+                        List<ApolloConfigNotification> notifications = gson.fromJson(data, m_responseType);
+                        logger.debug("Stream notifications: {}, last event id: {}, url: {}", notifications, id,
+                                serviceDto.getHomepageUrl());
+                        if (notifications != null) {
+                            onNotifications(serviceDto, notifications);
+                        }
+                    }
+                    m_longPollFailSchedulePolicyInSecond.success();
+                    return keepStreaming();
+                }
+
+                @Override
+                public boolean onComment(String comment) {
+                    m_longPollFailSchedulePolicyInSecond.success();
+                    return keepStreaming();
+                }
+            });
+
+            m_loadBalancer.onHeldRequestComplete(serviceDto, true);
+            transaction.setStatus(Transaction.SUCCESS);
+            //the server closes the stream periodically, reconnect to a random config service to balance the load
+            return null;
+        } catch (ApolloConfigStatusCodeException ex) {
+            transaction.setStatus(ex);
+            if (ex.getStatusCode() == 404 || ex.getStatusCode() == 405) {
+                // Config Service 版本较老，不支持推送通道，暂时回退到长轮询，之后重新尝试（Config Service 可能已升级）
+                m_streamingUnsupportedUntil =
+                        System.currentTimeMillis() + m_configUtil.getNotificationFallbackRetryIntervalInMilli();
+                logger.warn("Config service {} doesn't support notification stream, fall back to long polling "
+                                + "and try again in {} ms", lastServiceDto == null ? null : lastServiceDto.getHomepageUrl(),
+                        m_configUtil.getNotificationFallbackRetryIntervalInMilli());
+                return lastServiceDto;
+            }
+            onServiceFailed(lastServiceDto, ex);
+            onStreamingFailed(appId, cluster, url, ex);
+            return null;
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            onServiceFailed(lastServiceDto, ex);
+            onStreamingFailed(appId, cluster, url, ex);
+            return null;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * 通过 Watch 会话长轮询一次，会话不存在、已过期或有新的 Namespace 加入时先创建会话
+     *
+     * @return 下次长轮询的 Config Service ，null 表示重新随机选择
+     */
+    private ServiceDTO doSessionLongPolling(String appId, String cluster, String dataCenter,
+                                            ServiceDTO lastServiceDto) {
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "pollSessionNotification");
+        String url = null;
+        boolean creatingSession = false;
+        boolean sessionCreated = false;
+        try {
+            if (lastServiceDto == null) {
+                List<ServiceDTO> configServices = getConfigServices();
+                lastServiceDto = m_loadBalancer.choose(configServices);
+                m_watchSessionId = null;
+            }
+            boolean namespacesChanged = m_watchedNamespacesChanged.getAndSet(false);
+            boolean subscriptionChanged = m_watchSessionSubscriptionVersion != m_keySubscriptionRegistry.getVersion();
+            if (m_watchSessionId == null || namespacesChanged || subscriptionChanged) {
+                creatingSession = true;
+                url = assembleWatchSessionUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter);
+                createWatchSession(lastServiceDto, url, transaction);
+                creatingSession = false;
+                sessionCreated = true;
+            }
+
+            url = assembleSessionLongPollRefreshUrl(lastServiceDto.getHomepageUrl(), m_watchSessionId,
+                    m_watchSessionReleaseMessageId);
+            logger.debug("Long polling watch session from {}", url);
+            HttpRequest request = new HttpRequest(url);
+            request.setReadTimeout(LONG_POLLING_READ_TIMEOUT);
+
+            transaction.addData("Url", url);
+
+            final HttpResponse<List<ApolloConfigNotification>> response =
+                    m_httpUtil.doGet(request, m_responseType);
+
+            logger.debug("Long polling watch session response: {}, url: {}", response.getStatusCode(), url);
+            if (response.getStatusCode() == 200 && response.getBody() != null) {
+                transaction.addData("Result", response.getBody().toString());
+                advanceWatchSession(response.getBody());
+                onNotifications(lastServiceDto, response.getBody());
+            }
+
+            m_longPollFailSchedulePolicyInSecond.success();
+            m_loadBalancer.onHeldRequestComplete(lastServiceDto, true);
+            transaction.addData("StatusCode", response.getStatusCode());
+            transaction.setStatus(Transaction.SUCCESS);
+            // 会话绑定在创建它的 Config Service ，不做随机切换，会话过期后重新选择
+            return lastServiceDto;
+        } catch (ApolloConfigStatusCodeException ex) {
+            transaction.setStatus(ex);
+            m_watchSessionId = null;
+            if (creatingSession && (ex.getStatusCode() == 404 || ex.getStatusCode() == 405)) {
+                // Config Service 版本较老，不支持 Watch 会话，暂时回退到普通长轮询，之后重新尝试
+                m_sessionUnsupportedUntil =
+                        System.currentTimeMillis() + m_configUtil.getNotificationFallbackRetryIntervalInMilli();
+                logger.warn("Config service {} doesn't support watch session, fall back to long polling "
+                                + "and try again in {} ms", lastServiceDto.getHomepageUrl(),
+                        m_configUtil.getNotificationFallbackRetryIntervalInMilli());
+                return lastServiceDto;
+            }
+            if (!creatingSession && !sessionCreated && ex.getStatusCode() == 404) {
+                // 会话已过期或被 Config Service 淘汰，在同一个 Config Service 重新创建会话，不视为失败
+                logger.debug("Watch session not found, create it again, url: {}", url);
+                return lastServiceDto;
+            }
+            // 刚创建的会话也不存在（例如 Config Service 的会话数已满），按失败处理，避免不断重建会话
+            onServiceFailed(lastServiceDto, ex);
+            onLongPollingFailed(appId, cluster, url, ex);
+            return null;
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            m_watchSessionId = null;
+            onServiceFailed(lastServiceDto, ex);
+            onLongPollingFailed(appId, cluster, url, ex);
+            return null;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private void createWatchSession(ServiceDTO serviceDto, String url, Transaction transaction) {
+        logger.debug("Creating watch session from {}", url);
+        transaction.addData("SessionUrl", url);
+        // 带上按 Key 的订阅，服务端只在订阅的 Key 被修改时唤醒
+        m_watchSessionSubscriptionVersion = m_keySubscriptionRegistry.getVersion();
+        List<ApolloConfigNotification> notifications = toNotifications(m_notifications);
+        for (ApolloConfigNotification notification : notifications) {
+            m_keySubscriptionRegistry.fillSubscription(notification);
+        }
+        HttpResponse<ApolloWatchSession> response = m_httpUtil.doPost(new HttpRequest(url),
+                notifications, ApolloWatchSession.class);
+        ApolloWatchSession session = response.getBody();
+        if (session == null || Strings.isNullOrEmpty(session.getSessionId())) {
+            throw new ApolloConfigException(String.format("Invalid watch session response from %s: %s", url, session));
+        }
+        m_watchSessionId = session.getSessionId();
+        m_watchSessionReleaseMessageId = session.getReleaseMessageId();
+        if (session.getNotifications() != null && !session.getNotifications().isEmpty()) {
+            transaction.addData("Result", session.getNotifications().toString());
+            onNotifications(serviceDto, session.getNotifications());
+        }
+    }
+
+    /**
+     * 通知编号即 ReleaseMessage 编号，推进会话已知的最大 ReleaseMessage 编号
+     */
+    private void advanceWatchSession(List<ApolloConfigNotification> notifications) {
+        for (ApolloConfigNotification notification : notifications) {
+            m_watchSessionReleaseMessageId = Math.max(m_watchSessionReleaseMessageId, notification.getNotificationId());
+        }
+    }
+
+    private void onLongPollingFailed(String appId, String cluster, String url, Throwable ex) {
+        Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+        long sleepTimeInSecond = m_longPollFailSchedulePolicyInSecond.fail(retryAfterInSecond(ex));
+        logger.warn(
+                "Long polling failed, will retry in {} seconds. appId: {}, cluster: {}, namespaces: {}, long polling url: {}, reason: {}",
+                sleepTimeInSecond, appId, cluster, assembleNamespaces(), url, ExceptionUtil.getDetailMessage(ex));
+        sleepQuietly(sleepTimeInSecond);
+    }
+
+    /**
+     * 无法连接或 5xx 计为 Config Service 的失败，连续失败的 Config Service 会被负载均衡器暂时摘除
+     */
+    private void onServiceFailed(ServiceDTO serviceDto, Throwable ex) {
+        if (serviceDto == null) {
+            return;
+        }
+        boolean serviceAvailable = ex instanceof ApolloConfigStatusCodeException
+                && ((ApolloConfigStatusCodeException) ex).getStatusCode() < 500;
+        m_loadBalancer.onHeldRequestComplete(serviceDto, serviceAvailable);
+    }
+
+    /**
+     * 过载的 Config Service 返回 503 和 Retry-After ，重试不早于该时间
+     */
+    private long retryAfterInSecond(Throwable ex) {
+        if (ex instanceof ApolloConfigStatusCodeException) {
+            return ((ApolloConfigStatusCodeException) ex).getRetryAfterInSecond();
+        }
+        return -1;
+    }
+
+    private boolean keepStreaming() {
+        return !m_longPollingStopped.get() && !m_watchedNamespacesChanged.get();
+    }
+
+    private void onStreamingFailed(String appId, String cluster, String url, Throwable ex) {
+        Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+        long sleepTimeInSecond = m_longPollFailSchedulePolicyInSecond.fail(retryAfterInSecond(ex));
+        logger.warn(
+                "Streaming notifications failed, will retry in {} seconds. appId: {}, cluster: {}, namespaces: {}, url: {}, reason: {}",
+                sleepTimeInSecond, appId, cluster, assembleNamespaces(), url, ExceptionUtil.getDetailMessage(ex));
+        sleepQuietly(sleepTimeInSecond);
+    }
+
+    private void sleepQuietly(long seconds) {
+        try {
+            TimeUnit.SECONDS.sleep(seconds);
+        } catch (InterruptedException ie) {
+            //ignore
+        }
+    }
+
+    /**
+     * 处理新的通知：更新 m_notifications 和 m_remoteNotificationMessages ，并通知对应的 RemoteConfigRepository 们
+     */
+    private void onNotifications(ServiceDTO serviceDto, List<ApolloConfigNotification> notifications) {
+        // 更新 m_notifications
+        updateNotifications(notifications);
+        // 更新 m_remoteNotificationMessages
+        updateRemoteNotifications(notifications);
+        // 通知对应的 RemoteConfigRepository 们---获取配置信息。订阅的 Key 没有被修改的通知只更新通知编号
+        List<ApolloConfigNotification> changedNotifications = Lists.newArrayList();
+        for (ApolloConfigNotification notification : notifications) {
+            if (!notification.isKeysUnchanged()) {
+                changedNotifications.add(notification);
+            }
+        }
+        notify(serviceDto, changedNotifications);
+    }
+
     /**
      * 更新 m_remoteNotificationMessages
      *
@@ -354,11 +661,36 @@ public class RemoteConfigLongPollService {
 
     String assembleLongPollRefreshUrl(String uri, String appId, String cluster, String dataCenter,
                                       Map<String, Long> notificationsMap) {
+        return assembleNotificationsUrl(uri, "notifications/v2", appId, cluster, dataCenter, notificationsMap);
+    }
+
+    String assembleNotificationStreamUrl(String uri, String appId, String cluster, String dataCenter,
+                                         Map<String, Long> notificationsMap) {
+        return assembleNotificationsUrl(uri, "notifications/v2/stream", appId, cluster, dataCenter,
+                notificationsMap);
+    }
+
+    String assembleWatchSessionUrl(String uri, String appId, String cluster, String dataCenter) {
+        return assembleNotificationsUrl(uri, "notifications/v2/sessions", appId, cluster, dataCenter, null);
+    }
+
+    String assembleSessionLongPollRefreshUrl(String uri, String sessionId, long releaseMessageId) {
+        if (!uri.endsWith("/")) {
+            uri += "/";
+        }
+        return String.format("%snotifications/v2/sessions/%s?releaseMessageId=%d", uri,
+                pathEscaper.escape(sessionId), releaseMessageId);
+    }
+
+    private String assembleNotificationsUrl(String uri, String path, String appId, String cluster,
+                                            String dataCenter, Map<String, Long> notificationsMap) {
         Map<String, String> queryParams = Maps.newHashMap();
         queryParams.put("appId", queryParamEscaper.escape(appId));
         queryParams.put("cluster", queryParamEscaper.escape(cluster));
-        queryParams
-                .put("notifications", queryParamEscaper.escape(assembleNotifications(notificationsMap)));
+        if (notificationsMap != null) {
+            queryParams
+                    .put("notifications", queryParamEscaper.escape(assembleNotifications(notificationsMap)));
+        }
 
         if (!Strings.isNullOrEmpty(dataCenter)) {
             queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
@@ -373,16 +705,20 @@ public class RemoteConfigLongPollService {
             uri += "/";
         }
 
-        return uri + "notifications/v2?" + params;
+        return uri + path + "?" + params;
     }
 
     String assembleNotifications(Map<String, Long> notificationsMap) {
+        return gson.toJson(toNotifications(notificationsMap));
+    }
+
+    private List<ApolloConfigNotification> toNotifications(Map<String, Long> notificationsMap) {
         List<ApolloConfigNotification> notifications = Lists.newArrayList();
         for (Map.Entry<String, Long> entry : notificationsMap.entrySet()) {
             ApolloConfigNotification notification = new ApolloConfigNotification(entry.getKey(), entry.getValue());
             notifications.add(notification);
         }
-        return gson.toJson(notifications);
+        return notifications;
     }
 
     private List<ServiceDTO> getConfigServices() {
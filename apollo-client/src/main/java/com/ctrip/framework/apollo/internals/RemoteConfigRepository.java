@@ -2,7 +2,6 @@ package com.ctrip.framework.apollo.internals;
 
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -57,6 +56,10 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
 
     private final ConfigServiceLocator m_serviceLocator;
+    /**
+     * 按延迟和失败情况选择 Config Service
+     */
+    private final ConfigServiceLoadBalancer m_loadBalancer;
     private final HttpUtil m_httpUtil;
     private final ConfigUtil m_configUtil;
     /**
@@ -119,6 +122,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         //通过 ConfigServiceLocator ，可获得 Config Service 集群的地址们
         m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+        m_loadBalancer = ApolloInjector.getInstance(ConfigServiceLoadBalancer.class);
         remoteConfigLongPollService = ApolloInjector.getInstance(RemoteConfigLongPollService.class);
         m_longPollServiceDto = new AtomicReference<>();
         m_remoteMessages = new AtomicReference<>();
@@ -240,16 +244,15 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         String url = null;
         // 循环读取配置重试次数直到成功。每一次，都会循环所有的 ServiceDTO 数组。
         for (int i = 0; i < maxRetries; i++) {
-            // 随机所有的 Config Service 的地址
-            List<ServiceDTO> randomConfigServices = Lists.newLinkedList(configServices);
-            Collections.shuffle(randomConfigServices);
+            // 按负载均衡器给出的顺序访问 Config Service ：同一数据中心、延迟低的优先，被摘除的最后
+            List<ServiceDTO> orderedConfigServices = Lists.newLinkedList(m_loadBalancer.order(configServices));
             // 优先访问通知配置变更的 Config Service 的地址。并且，获取到时，需要置空，避免重复优先访问
             //Access the server which notifies the client first
             if (m_longPollServiceDto.get() != null) {
-                randomConfigServices.add(0, m_longPollServiceDto.getAndSet(null));
+                orderedConfigServices.add(0, m_longPollServiceDto.getAndSet(null));
             }
             // 循环所有的 Config Service 的地址
-            for (ServiceDTO configService : randomConfigServices) {
+            for (ServiceDTO configService : orderedConfigServices) {
                 if (onErrorSleepTime > 0) {
                     logger.warn(
                             "Load config failed, will retry in {} {}. appId: {}, cluster: {}, namespaces: {}",
@@ -270,9 +273,13 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
                 Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfig");
                 transaction.addData("Url", url);
+                m_loadBalancer.onRequestStart(configService);
+                long start = System.nanoTime();
+                boolean serviceAvailable = false;
                 try {
                     // 定时调用获取配置信息接口
                     HttpResponse<ApolloConfig> response = m_httpUtil.doGet(request, ApolloConfig.class);
+                    serviceAvailable = true;
                     m_configNeedForceRefresh.set(false);
                     m_loadConfigFailSchedulePolicy.success();
 
@@ -290,6 +297,8 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
                     return result;
                 } catch (ApolloConfigStatusCodeException ex) {
+                    // 4xx 说明服务可用，5xx（包括过载时的 503）计为失败
+                    serviceAvailable = ex.getStatusCode() < 500;
                     ApolloConfigStatusCodeException statusCodeException = ex;
                     //config not found
                     if (ex.getStatusCode() == 404) {
@@ -308,6 +317,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
                     transaction.setStatus(ex);
                     exception = ex;
                 } finally {
+                    m_loadBalancer.onRequestComplete(configService, System.nanoTime() - start, serviceAvailable);
                     transaction.complete();
                 }
 
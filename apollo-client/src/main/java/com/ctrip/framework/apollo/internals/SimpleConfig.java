@@ -95,6 +95,7 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
 
     updateConfig(newConfigProperties, m_configRepository.getSourceType());
     clearConfigCache();
+    refreshConfigValues(changeMap.keySet());
 
     this.fireConfigChange(new ConfigChangeEvent(m_namespace, changeMap));
 
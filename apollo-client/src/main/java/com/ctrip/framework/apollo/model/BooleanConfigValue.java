@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A handle of a boolean property.
+ */
+public class BooleanConfigValue extends ConfigValue {
+  private final boolean defaultValue;
+  private volatile boolean value;
+
+  public BooleanConfigValue(String key, boolean defaultValue) {
+    super(key);
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+  }
+
+  public boolean get() {
+    return value;
+  }
+
+  public boolean getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  protected void parse(String property) {
+    value = Boolean.parseBoolean(property);
+  }
+
+  @Override
+  protected void resetToDefault() {
+    value = defaultValue;
+  }
+
+  @Override
+  protected String getDefaultValueAsString() {
+    return String.valueOf(defaultValue);
+  }
+}
@@ -0,0 +1,49 @@
+package com.ctrip.framework.apollo.model;
+
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+
+/**
+ * A handle of one typed property, the value is parsed when the handle is created and re-parsed only
+ * when the property changes, so reading it is a single volatile field load.
+ *
+ * @see com.ctrip.framework.apollo.TypedConfig#intValue(String, int)
+ */
+public abstract class ConfigValue {
+  private final String key;
+
+  protected ConfigValue(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Update the handle with the latest property value, invoked by the config which created the
+   * handle when the property changes.
+   *
+   * @param value the latest property value, null if the property doesn't exist
+   */
+  public void refresh(String value) {
+    if (value == null) {
+      resetToDefault();
+      return;
+    }
+    try {
+      parse(value);
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("parse %s for %s failed, use default value %s", value, key,
+              getDefaultValueAsString()), ex));
+      resetToDefault();
+    }
+  }
+
+  protected abstract void parse(String property);
+
+  protected abstract void resetToDefault();
+
+  protected abstract String getDefaultValueAsString();
+}
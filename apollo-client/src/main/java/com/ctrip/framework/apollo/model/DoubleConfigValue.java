@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A handle of a double property.
+ */
+public class DoubleConfigValue extends ConfigValue {
+  private final double defaultValue;
+  private volatile double value;
+
+  public DoubleConfigValue(String key, double defaultValue) {
+    super(key);
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+  }
+
+  public double get() {
+    return value;
+  }
+
+  public double getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  protected void parse(String property) {
+    value = Double.parseDouble(property);
+  }
+
+  @Override
+  protected void resetToDefault() {
+    value = defaultValue;
+  }
+
+  @Override
+  protected String getDefaultValueAsString() {
+    return String.valueOf(defaultValue);
+  }
+}
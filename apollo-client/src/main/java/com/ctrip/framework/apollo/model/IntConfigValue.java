@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A handle of an integer property.
+ */
+public class IntConfigValue extends ConfigValue {
+  private final int defaultValue;
+  private volatile int value;
+
+  public IntConfigValue(String key, int defaultValue) {
+    super(key);
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+  }
+
+  public int get() {
+    return value;
+  }
+
+  public int getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  protected void parse(String property) {
+    value = Integer.parseInt(property);
+  }
+
+  @Override
+  protected void resetToDefault() {
+    value = defaultValue;
+  }
+
+  @Override
+  protected String getDefaultValueAsString() {
+    return String.valueOf(defaultValue);
+  }
+}
@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A handle of a long property.
+ */
+public class LongConfigValue extends ConfigValue {
+  private final long defaultValue;
+  private volatile long value;
+
+  public LongConfigValue(String key, long defaultValue) {
+    super(key);
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+  }
+
+  public long get() {
+    return value;
+  }
+
+  public long getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  protected void parse(String property) {
+    value = Long.parseLong(property);
+  }
+
+  @Override
+  protected void resetToDefault() {
+    value = defaultValue;
+  }
+
+  @Override
+  protected String getDefaultValueAsString() {
+    return String.valueOf(defaultValue);
+  }
+}
@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A handle of a string property.
+ */
+public class StringConfigValue extends ConfigValue {
+  private final String defaultValue;
+  private volatile String value;
+
+  public StringConfigValue(String key, String defaultValue) {
+    super(key);
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+  }
+
+  public String get() {
+    return value;
+  }
+
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  protected void parse(String property) {
+    value = property;
+  }
+
+  @Override
+  protected void resetToDefault() {
+    value = defaultValue;
+  }
+
+  @Override
+  protected String getDefaultValueAsString() {
+    return String.valueOf(defaultValue);
+  }
+}
@@ -5,11 +5,12 @@ import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.util.Collection;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,29 +50,49 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     if (CollectionUtils.isEmpty(keys)) {
       return;
     }
+
+    // 1. collect the targets of all the changed keys, a target referring to several changed keys is updated once
+    Map<Target, SpringValue> targets = Maps.newLinkedHashMap();
     for (String key : keys) {
-      // 1. check whether the changed key is relevant
       Collection<SpringValue> targetValues = springValueRegistry.get(beanFactory, key);
       if (targetValues == null || targetValues.isEmpty()) {
         continue;
       }
-
-      // 2. update the value
       for (SpringValue val : targetValues) {
-        updateSpringValue(val);
+        Object bean = val.getTargetBean();
+        if (bean != null) {
+          targets.put(new Target(bean, val.getTargetMember()), val);
+        }
       }
     }
+    if (targets.isEmpty()) {
+      return;
+    }
+
+    // 2. update the values, each placeholder is resolved only once in this batch
+    Map<String, String> resolvedPlaceholders = Maps.newHashMap();
+    int updated = 0;
+    for (SpringValue val : targets.values()) {
+      if (updateSpringValue(val, resolvedPlaceholders)) {
+        updated++;
+      }
+    }
+
+    logger.info("Auto update apollo changed value successfully, {} of {} spring values updated for keys {}",
+        updated, targets.size(), keys);
   }
 
-  private void updateSpringValue(SpringValue springValue) {
+  private boolean updateSpringValue(SpringValue springValue, Map<String, String> resolvedPlaceholders) {
     try {
-      Object value = resolvePropertyValue(springValue);
+      Object value = resolvePropertyValue(springValue, resolvedPlaceholders);
       springValue.update(value);
 
-      logger.info("Auto update apollo changed value successfully, new value: {}, {}", value,
+      logger.debug("Auto update apollo changed value successfully, new value: {}, {}", value,
           springValue);
+      return true;
     } catch (Throwable ex) {
       logger.error("Auto update apollo changed value failed, {}", springValue.toString(), ex);
+      return false;
     }
   }
 
@@ -79,10 +100,18 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
    * Logic transplanted from DefaultListableBeanFactory
    * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
    */
-  private Object resolvePropertyValue(SpringValue springValue) {
+  private Object resolvePropertyValue(SpringValue springValue, Map<String, String> resolvedPlaceholders) {
+    String placeholder = springValue.getPlaceholder();
+    String strVal;
+    if (resolvedPlaceholders.containsKey(placeholder)) {
+      strVal = resolvedPlaceholders.get(placeholder);
+    } else {
+      strVal = beanFactory.resolveEmbeddedValue(placeholder);
+      resolvedPlaceholders.put(placeholder, strVal);
+    }
+
     // value will never be null, as @Value and @ApolloJsonValue will not allow that
-    Object value = placeholderHelper
-        .resolvePropertyValue(beanFactory, springValue.getBeanName(), springValue.getPlaceholder());
+    Object value = placeholderHelper.evaluateExpression(beanFactory, springValue.getBeanName(), strVal);
 
     if (springValue.isJson()) {
       value = parseJsonValue((String)value, springValue.getGenericType());
@@ -113,6 +142,36 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     }
   }
 
+  /**
+   * Identity of an injection point, i.e. the bean instance and its field or method
+   */
+  private static class Target {
+    private final Object bean;
+    private final Object member;
+
+    Target(Object bean, Object member) {
+      this.bean = bean;
+      this.member = member;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Target)) {
+        return false;
+      }
+      Target target = (Target) o;
+      return bean == target.bean && member.equals(target.member);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(bean) + member.hashCode();
+    }
+  }
+
   private boolean testTypeConverterHasConvertIfNecessaryWithFieldParameter() {
     try {
       TypeConverter.class.getMethod("convertIfNecessary", Object.class, Class.class, Field.class);
@@ -34,6 +34,18 @@ public class PlaceholderHelper {
     // resolve string value
     String strVal = beanFactory.resolveEmbeddedValue(placeholder);
 
+    return evaluateExpression(beanFactory, beanName, strVal);
+  }
+
+  /**
+   * Evaluate the expressions like "#{systemProperties.myProp}" in an already resolved placeholder
+   * value, the value is returned as is if it contains no expression.
+   */
+  public Object evaluateExpression(ConfigurableBeanFactory beanFactory, String beanName, String strVal) {
+    if (strVal == null || !strVal.contains(EXPRESSION_PREFIX)) {
+      return strVal;
+    }
+
     BeanDefinition bd = (beanFactory.containsBean(beanName) ? beanFactory
         .getMergedBeanDefinition(beanName) : null);
 
@@ -1,11 +1,15 @@
 package com.ctrip.framework.apollo.spring.property;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import org.springframework.core.MethodParameter;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Spring @Value method info
@@ -14,6 +18,7 @@ import org.springframework.core.MethodParameter;
  * @since 2018/2/6.
  */
 public class SpringValue {
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
 
   private MethodParameter methodParameter;
   private Field field;
@@ -24,6 +29,8 @@ public class SpringValue {
   private Class<?> targetType;
   private Type genericType;
   private boolean isJson;
+  //(bean, value)void, created once so that updates don't touch the accessible flag
+  private final MethodHandle setter;
 
   public SpringValue(String key, String placeholder, Object bean, String beanName, Field field, boolean isJson) {
     this.beanRef = new WeakReference<>(bean);
@@ -36,6 +43,7 @@ public class SpringValue {
     if(isJson){
       this.genericType = field.getGenericType();
     }
+    this.setter = fieldSetter(field);
   }
 
   public SpringValue(String key, String placeholder, Object bean, String beanName, Method method, boolean isJson) {
@@ -50,34 +58,44 @@ public class SpringValue {
     if(isJson){
       this.genericType = method.getGenericParameterTypes()[0];
     }
+    this.setter = methodSetter(method);
   }
 
   public void update(Object newVal) throws IllegalAccessException, InvocationTargetException {
-    if (isField()) {
-      injectField(newVal);
-    } else {
-      injectMethod(newVal);
-    }
-  }
-
-  private void injectField(Object newVal) throws IllegalAccessException {
     Object bean = beanRef.get();
     if (bean == null) {
       return;
     }
-    boolean accessible = field.isAccessible();
-    field.setAccessible(true);
-    field.set(bean, newVal);
-    field.setAccessible(accessible);
+    try {
+      setter.invokeExact(bean, newVal);
+    } catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
   }
 
-  private void injectMethod(Object newVal)
-      throws InvocationTargetException, IllegalAccessException {
-    Object bean = beanRef.get();
-    if (bean == null) {
-      return;
+  private static MethodHandle fieldSetter(Field field) {
+    ReflectionUtils.makeAccessible(field);
+    try {
+      return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      // e.g. final fields, fall back to Field.set
+      try {
+        return MethodHandles.lookup()
+            .findVirtual(Field.class, "set", SETTER_TYPE)
+            .bindTo(field);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Failed to create setter for field " + field, e);
+      }
+    }
+  }
+
+  private static MethodHandle methodSetter(Method method) {
+    ReflectionUtils.makeAccessible(method);
+    try {
+      return MethodHandles.lookup().unreflect(method).asType(SETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException("Failed to create setter for method " + method, ex);
     }
-    methodParameter.getMethod().invoke(bean, newVal);
   }
 
   public String getBeanName() {
@@ -116,6 +134,14 @@ public class SpringValue {
     return beanRef.get() != null;
   }
 
+  Object getTargetBean() {
+    return beanRef.get();
+  }
+
+  Object getTargetMember() {
+    return isField() ? field : methodParameter.getMethod();
+  }
+
   @Override
   public String toString() {
     Object bean = beanRef.get();
@@ -1,23 +1,27 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
-import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import com.google.common.collect.Multimaps;
 import org.springframework.beans.factory.BeanFactory;
 
+/**
+ * Registry of the auto updatable spring values, indexed by bean factory and normalized property key.
+ *
+ * <p>All the structures are concurrent, registration, lookup and the periodic cleanup of values whose
+ * bean has been garbage collected don't block each other.
+ */
 public class SpringValueRegistry {
   private static final long CLEAN_INTERVAL_IN_SECONDS = 5;
-  private final Map<BeanFactory, Multimap<String, SpringValue>> registry = Maps.newConcurrentMap();
+  private final Map<BeanFactory, ConcurrentMap<String, Collection<SpringValue>>> registry = Maps.newConcurrentMap();
   private final AtomicBoolean initialized = new AtomicBoolean(false);
   private final Object LOCK = new Object();
 
@@ -25,12 +29,22 @@ public class SpringValueRegistry {
     if (!registry.containsKey(beanFactory)) {
       synchronized (LOCK) {
         if (!registry.containsKey(beanFactory)) {
-          registry.put(beanFactory, Multimaps.synchronizedListMultimap(LinkedListMultimap.<String, SpringValue>create()));
+          registry.put(beanFactory, Maps.<String, Collection<SpringValue>>newConcurrentMap());
         }
       }
     }
 
-    registry.get(beanFactory).put(key, springValue);
+    ConcurrentMap<String, Collection<SpringValue>> springValues = registry.get(beanFactory);
+    String normalizedKey = normalizeKey(key);
+    Collection<SpringValue> values = springValues.get(normalizedKey);
+    if (values == null) {
+      Collection<SpringValue> created = new ConcurrentLinkedQueue<>();
+      values = springValues.putIfAbsent(normalizedKey, created);
+      if (values == null) {
+        values = created;
+      }
+    }
+    values.add(springValue);
 
     // lazy initialize
     if (initialized.compareAndSet(false, true)) {
@@ -39,11 +53,19 @@ public class SpringValueRegistry {
   }
 
   public Collection<SpringValue> get(BeanFactory beanFactory, String key) {
-    Multimap<String, SpringValue> beanFactorySpringValues = registry.get(beanFactory);
+    Map<String, Collection<SpringValue>> beanFactorySpringValues = registry.get(beanFactory);
     if (beanFactorySpringValues == null) {
       return null;
     }
-    return beanFactorySpringValues.get(key);
+    return beanFactorySpringValues.get(normalizeKey(key));
+  }
+
+  /**
+   * Placeholder keys may carry blanks, e.g. ${ some.key }, so keys are compared trimmed on both sides,
+   * a false match only costs one redundant update
+   */
+  private String normalizeKey(String key) {
+    return key.trim();
   }
 
   private void initialize() {
@@ -61,15 +83,15 @@ public class SpringValueRegistry {
   }
 
   private void scanAndClean() {
-    Iterator<Multimap<String, SpringValue>> iterator = registry.values().iterator();
+    Iterator<ConcurrentMap<String, Collection<SpringValue>>> iterator = registry.values().iterator();
     while (!Thread.currentThread().isInterrupted() && iterator.hasNext()) {
-      Multimap<String, SpringValue> springValues = iterator.next();
-      Iterator<Entry<String, SpringValue>> springValueIterator = springValues.entries().iterator();
-      while (springValueIterator.hasNext()) {
-        Entry<String, SpringValue> springValue = springValueIterator.next();
-        if (!springValue.getValue().isTargetBeanValid()) {
-          // clear unused spring values
-          springValueIterator.remove();
+      for (Collection<SpringValue> springValues : iterator.next().values()) {
+        Iterator<SpringValue> springValueIterator = springValues.iterator();
+        while (springValueIterator.hasNext()) {
+          if (!springValueIterator.next().isTargetBeanValid()) {
+            // clear unused spring values
+            springValueIterator.remove();
+          }
         }
       }
     }
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.util;
 
 import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -35,6 +36,19 @@ public class ConfigUtil {
   private TimeUnit configCacheExpireTimeUnit = TimeUnit.MINUTES;//1 minute
   private long longPollingInitialDelayInMills = 2000;//2 seconds
   private boolean autoUpdateInjectedSpringProperties = true;
+  //for config change listener dispatching
+  private int listenerExecutorThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+  private int maxPendingChangeEventsPerListener = 16;
+  //for the node local config agent
+  private String agentUrl;
+  private long agentCheckIntervalInMilli = 5000;//5 seconds
+  //for the server push notification stream
+  private boolean notificationStreamingEnabled = false;
+  //for the long polling watch session
+  private boolean notificationSessionEnabled = false;
+  private long notificationFallbackRetryIntervalInMilli = 600000;//10 minutes
+  //for the key level subscriptions
+  private boolean keySubscriptionEnabled = false;
   private final RateLimiter warnLogRateLimiter;
 
   public ConfigUtil() {
@@ -47,6 +61,12 @@ public class ConfigUtil {
     initMaxConfigCacheSize();
     initLongPollingInitialDelayInMills();
     initAutoUpdateInjectedSpringProperties();
+    initListenerDispatching();
+    initAgent();
+    initNotificationStreaming();
+    initNotificationSession();
+    initNotificationFallbackRetryInterval();
+    initKeySubscription();
   }
 
   /**
@@ -116,6 +136,13 @@ public class ConfigUtil {
     return MetaDomainConsts.getDomain(getApolloEnv());
   }
 
+  /**
+   * @return all the meta server addresses ranked by latency, the first one is {@link #getMetaServerDomainName()}
+   */
+  public List<String> getMetaServerDomainNames() {
+    return MetaDomainConsts.getDomains(getApolloEnv());
+  }
+
   private void initConnectTimeout() {
     String customizedConnectTimeout = System.getProperty("apollo.connectTimeout");
     if (!Strings.isNullOrEmpty(customizedConnectTimeout)) {
@@ -301,4 +328,159 @@ public class ConfigUtil {
   public boolean isAutoUpdateInjectedSpringPropertiesEnabled() {
     return autoUpdateInjectedSpringProperties;
   }
+
+  private void initListenerDispatching() {
+    String customizedThreads = System.getProperty("apollo.listenerExecutorThreads");
+    if (!Strings.isNullOrEmpty(customizedThreads)) {
+      try {
+        listenerExecutorThreads = Math.max(1, Integer.parseInt(customizedThreads.trim()));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.listenerExecutorThreads is invalid: {}", customizedThreads);
+      }
+    }
+    String customizedMaxPendingEvents = System.getProperty("apollo.maxPendingChangeEventsPerListener");
+    if (!Strings.isNullOrEmpty(customizedMaxPendingEvents)) {
+      try {
+        maxPendingChangeEventsPerListener = Math.max(1, Integer.parseInt(customizedMaxPendingEvents.trim()));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.maxPendingChangeEventsPerListener is invalid: {}",
+            customizedMaxPendingEvents);
+      }
+    }
+  }
+
+  /**
+   * @return the number of threads shared by all config change listeners
+   */
+  public int getListenerExecutorThreads() {
+    return listenerExecutorThreads;
+  }
+
+  /**
+   * @return the max number of change events waiting for one listener, more events are merged
+   */
+  public int getMaxPendingChangeEventsPerListener() {
+    return maxPendingChangeEventsPerListener;
+  }
+
+  private void initAgent() {
+    // 1. Get from System Property, an empty value disables the agent, e.g. in the agent process itself
+    String customizedAgentUrl = System.getProperty("apollo.agent.url");
+    if (customizedAgentUrl == null) {
+      // 2. Get from OS environment variable
+      customizedAgentUrl = System.getenv("APOLLO_AGENT_URL");
+    }
+    if (customizedAgentUrl == null) {
+      // 3. Get from server.properties
+      customizedAgentUrl = Foundation.server().getProperty("apollo.agent.url", null);
+    }
+    if (customizedAgentUrl != null && !customizedAgentUrl.trim().isEmpty()) {
+      agentUrl = customizedAgentUrl.trim();
+    }
+
+    String customizedAgentCheckInterval = System.getProperty("apollo.agent.checkIntervalInMilli");
+    if (!Strings.isNullOrEmpty(customizedAgentCheckInterval)) {
+      try {
+        agentCheckIntervalInMilli = Math.max(100, Long.parseLong(customizedAgentCheckInterval.trim()));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.agent.checkIntervalInMilli is invalid: {}", customizedAgentCheckInterval);
+      }
+    }
+  }
+
+  /**
+   * @return the address of the node local config agent, null if the agent is not configured
+   */
+  public String getAgentUrl() {
+    return agentUrl;
+  }
+
+  /**
+   * @return the interval of checking whether the node local config agent is available
+   */
+  public long getAgentCheckIntervalInMilli() {
+    return agentCheckIntervalInMilli;
+  }
+
+  private void initNotificationStreaming() {
+    // 1. Get from System Property
+    String enableStreaming = System.getProperty("apollo.notification.streaming.enabled");
+    if (Strings.isNullOrEmpty(enableStreaming)) {
+      // 2. Get from app.properties
+      enableStreaming = Foundation.app().getProperty("apollo.notification.streaming.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableStreaming)) {
+      notificationStreamingEnabled = Boolean.parseBoolean(enableStreaming.trim());
+    }
+  }
+
+  /**
+   * @return whether to receive notifications from the server push stream, falls back to long polling if the
+   * config service doesn't support it or the node local agent is used
+   */
+  public boolean isNotificationStreamingEnabled() {
+    return notificationStreamingEnabled;
+  }
+
+  private void initNotificationSession() {
+    // 1. Get from System Property
+    String enableSession = System.getProperty("apollo.notification.session.enabled");
+    if (Strings.isNullOrEmpty(enableSession)) {
+      // 2. Get from app.properties
+      enableSession = Foundation.app().getProperty("apollo.notification.session.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableSession)) {
+      notificationSessionEnabled = Boolean.parseBoolean(enableSession.trim());
+    }
+  }
+
+  /**
+   * @return whether to long poll through a watch session, which sends the namespaces only once, falls back to
+   * the plain long polling if the config service doesn't support it or the node local agent is used
+   */
+  public boolean isNotificationSessionEnabled() {
+    return notificationSessionEnabled;
+  }
+
+  private void initNotificationFallbackRetryInterval() {
+    String customizedRetryInterval = System.getProperty("apollo.notification.fallbackRetryIntervalInMilli");
+    if (!Strings.isNullOrEmpty(customizedRetryInterval)) {
+      try {
+        notificationFallbackRetryIntervalInMilli = Math.max(1000, Long.parseLong(customizedRetryInterval.trim()));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.notification.fallbackRetryIntervalInMilli is invalid: {}",
+            customizedRetryInterval);
+      }
+    }
+  }
+
+  /**
+   * @return the interval of trying the notification stream or the watch session again, after the config service
+   * didn't support it and the client fell back to long polling
+   */
+  public long getNotificationFallbackRetryIntervalInMilli() {
+    return notificationFallbackRetryIntervalInMilli;
+  }
+
+  private void initKeySubscription() {
+    // 1. Get from System Property
+    String enableKeySubscription = System.getProperty("apollo.keySubscription.enabled");
+    if (Strings.isNullOrEmpty(enableKeySubscription)) {
+      // 2. Get from app.properties
+      enableKeySubscription = Foundation.app().getProperty("apollo.keySubscription.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableKeySubscription)) {
+      keySubscriptionEnabled = Boolean.parseBoolean(enableKeySubscription.trim());
+    }
+  }
+
+  /**
+   * @return whether to subscribe to the keys read by the application only, so that long polling is not woken up by
+   * releases changing other keys. Takes effect with the watch session, see {@link #isNotificationSessionEnabled()}.
+   * It doesn't narrow the namespaces injected into Spring, whose property names are enumerated and whose changes are
+   * listened for auto update, so they are subscribed as a whole
+   */
+  public boolean isKeySubscriptionEnabled() {
+    return keySubscriptionEnabled;
+  }
 }
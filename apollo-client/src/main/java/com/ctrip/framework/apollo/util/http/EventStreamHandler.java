@@ -0,0 +1,24 @@
+package com.ctrip.framework.apollo.util.http;
+
+/**
+ * Receives the events of a <code>text/event-stream</code> response, see {@link HttpUtil#doGetEventStream}.
+ */
+public interface EventStreamHandler {
+
+  /**
+   * Called for every dispatched event.
+   *
+   * @param id   the last event id seen on the stream, null if there is none
+   * @param name the event name, null if the event has no name
+   * @param data the event data, lines are joined with '\n'
+   * @return true to keep reading the stream, false to close it
+   */
+  boolean onEvent(String id, String name, String data);
+
+  /**
+   * Called for every comment line, which the server uses as heartbeat.
+   *
+   * @return true to keep reading the stream, false to close it
+   */
+  boolean onComment(String comment);
+}
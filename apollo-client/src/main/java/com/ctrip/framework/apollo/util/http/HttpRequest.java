@@ -1,5 +1,9 @@
 package com.ctrip.framework.apollo.util.http;
 
+import com.google.common.collect.Maps;
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -7,6 +11,7 @@ public class HttpRequest {
   private String m_url;
   private int m_connectTimeout;
   private int m_readTimeout;
+  private Map<String, String> m_headers;
 
   /**
    * Create the request for the url.
@@ -37,4 +42,18 @@ public class HttpRequest {
   public void setReadTimeout(int readTimeout) {
     this.m_readTimeout = readTimeout;
   }
+
+  public Map<String, String> getHeaders() {
+    return m_headers == null ? Collections.<String, String>emptyMap() : m_headers;
+  }
+
+  /**
+   * Set a request header, e.g. If-None-Match for a conditional request.
+   */
+  public void setHeader(String name, String value) {
+    if (m_headers == null) {
+      m_headers = Maps.newLinkedHashMap();
+    }
+    m_headers.put(name, value);
+  }
 }
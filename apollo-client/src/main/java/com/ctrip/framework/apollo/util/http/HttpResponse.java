@@ -1,15 +1,33 @@
 package com.ctrip.framework.apollo.util.http;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public class HttpResponse<T> {
   private final int m_statusCode;
   private final T m_body;
+  private final Map<String, List<String>> m_headers;
 
   public HttpResponse(int statusCode, T body) {
+    this(statusCode, body, Collections.<String, List<String>>emptyMap());
+  }
+
+  public HttpResponse(int statusCode, T body, Map<String, List<String>> headers) {
     this.m_statusCode = statusCode;
     this.m_body = body;
+    // header names are case insensitive
+    this.m_headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      // HttpURLConnection returns the status line with a null key
+      if (header.getKey() != null) {
+        m_headers.put(header.getKey(), header.getValue());
+      }
+    }
   }
 
   public int getStatusCode() {
@@ -19,4 +37,12 @@ public class HttpResponse<T> {
   public T getBody() {
     return m_body;
   }
+
+  /**
+   * @return the first value of the response header, or null if absent
+   */
+  public String getHeader(String name) {
+    List<String> values = m_headers.get(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
 }
@@ -7,13 +7,16 @@ import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.base.Function;
 import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -68,15 +71,182 @@ public class HttpUtil {
     return doGetWithSerializeFunction(httpRequest, convertResponse);
   }
 
+  /**
+   * Do post operation for the http request, the body is sent as json.
+   *
+   * @param httpRequest  the request
+   * @param body         the request body, serialized to json
+   * @param responseType the response type
+   * @return the response
+   * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
+   */
+  public <T> HttpResponse<T> doPost(HttpRequest httpRequest, Object body, final Type responseType) {
+    Function<String, T> convertResponse = new Function<String, T>() {
+      @Override
+      public T apply(String input) {
+        return gson.fromJson(input, responseType);
+      }
+    };
+
+    return doRequestWithSerializeFunction("POST", httpRequest, gson.toJson(body), convertResponse);
+  }
+
+  /**
+   * Do get operation for a server-sent events stream, the events are passed to the handler until the
+   * stream ends or the handler asks to close it.
+   *
+   * @param httpRequest the request, the read timeout should be longer than the server side heartbeat interval
+   * @param handler     the handler of the events
+   * @throws ApolloConfigStatusCodeException if the response code is not 200
+   * @throws ApolloConfigException           if any other error happened
+   */
+  public void doGetEventStream(HttpRequest httpRequest, EventStreamHandler handler) {
+    HttpURLConnection conn = null;
+    BufferedReader reader = null;
+    int statusCode;
+    try {
+      conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+      conn.setRequestMethod("GET");
+      conn.setRequestProperty("Accept", "text/event-stream");
+
+      int connectTimeout = httpRequest.getConnectTimeout();
+      if (connectTimeout < 0) {
+        connectTimeout = m_configUtil.getConnectTimeout();
+      }
+
+      int readTimeout = httpRequest.getReadTimeout();
+      if (readTimeout < 0) {
+        readTimeout = m_configUtil.getReadTimeout();
+      }
+
+      conn.setConnectTimeout(connectTimeout);
+      conn.setReadTimeout(readTimeout);
+
+      conn.connect();
+
+      statusCode = conn.getResponseCode();
+      if (statusCode != 200) {
+        InputStream errorStream = conn.getErrorStream();
+        if (errorStream != null) {
+          InputStreamReader esr = new InputStreamReader(errorStream, StandardCharsets.UTF_8);
+          try {
+            CharStreams.toString(esr);
+          } catch (IOException ioe) {
+            //ignore
+          } finally {
+            esr.close();
+          }
+        }
+        throw new ApolloConfigStatusCodeException(statusCode,
+            String.format("Get event stream failed for %s", httpRequest.getUrl()), parseRetryAfter(conn));
+      }
+
+      reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+      readEventStream(reader, handler);
+    } catch (ApolloConfigStatusCodeException ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new ApolloConfigException("Could not complete get event stream operation", ex);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException ex) {
+          // ignore
+        }
+      }
+      if (conn != null) {
+        // the stream may be closed before the server ends it, so the connection can't be reused
+        conn.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Parse the <code>text/event-stream</code> format, see https://html.spec.whatwg.org/multipage/server-sent-events.html
+   */
+  static void readEventStream(BufferedReader reader, EventStreamHandler handler) throws IOException {
+    String lastEventId = null;
+    String eventName = null;
+    StringBuilder data = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isEmpty()) {
+        // dispatch the event
+        if (data != null && !handler.onEvent(lastEventId, eventName, data.toString())) {
+          return;
+        }
+        eventName = null;
+        data = null;
+        continue;
+      }
+      if (line.startsWith(":")) {
+        if (!handler.onComment(line.substring(1).trim())) {
+          return;
+        }
+        continue;
+      }
+
+      String field = line;
+      String value = "";
+      int colon = line.indexOf(':');
+      if (colon >= 0) {
+        field = line.substring(0, colon);
+        value = line.substring(colon + 1);
+        if (value.startsWith(" ")) {
+          value = value.substring(1);
+        }
+      }
+      switch (field) {
+        case "id":
+          lastEventId = value;
+          break;
+        case "event":
+          eventName = value;
+          break;
+        case "data":
+          if (data == null) {
+            data = new StringBuilder(value);
+          } else {
+            data.append('\n').append(value);
+          }
+          break;
+        default:
+          // ignore retry and unknown fields
+      }
+    }
+  }
+
+  /**
+   * The overloaded config service responds 503 with a Retry-After header in seconds, the http-date form is not used
+   */
+  static long parseRetryAfter(HttpURLConnection conn) {
+    String retryAfter = conn.getHeaderField("Retry-After");
+    if (retryAfter == null) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Long.parseLong(retryAfter.trim()));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
   private <T> HttpResponse<T> doGetWithSerializeFunction(HttpRequest httpRequest,
                                                          Function<String, T> serializeFunction) {
+    return doRequestWithSerializeFunction("GET", httpRequest, null, serializeFunction);
+  }
+
+  private <T> HttpResponse<T> doRequestWithSerializeFunction(String method, HttpRequest httpRequest, String body,
+                                                             Function<String, T> serializeFunction) {
     InputStreamReader isr = null;
     InputStreamReader esr = null;
     int statusCode;
     try {
       HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
 
-      conn.setRequestMethod("GET");
+      conn.setRequestMethod(method);
 
       int connectTimeout = httpRequest.getConnectTimeout();
       if (connectTimeout < 0) {
@@ -91,8 +261,26 @@ public class HttpUtil {
       conn.setConnectTimeout(connectTimeout);
       conn.setReadTimeout(readTimeout);
 
+      for (Map.Entry<String, String> header : httpRequest.getHeaders().entrySet()) {
+        conn.setRequestProperty(header.getKey(), header.getValue());
+      }
+
+      if (body != null) {
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+      }
+
       conn.connect();
 
+      if (body != null) {
+        OutputStream os = conn.getOutputStream();
+        try {
+          os.write(body.getBytes(StandardCharsets.UTF_8));
+        } finally {
+          os.close();
+        }
+      }
+
       statusCode = conn.getResponseCode();
       String response;
 
@@ -121,21 +309,21 @@ public class HttpUtil {
           throw ex;
         } else {
           // for status codes like 404, IOException is expected when calling conn.getInputStream()
-          throw new ApolloConfigStatusCodeException(statusCode, ex);
+          throw new ApolloConfigStatusCodeException(statusCode, ex, parseRetryAfter(conn));
         }
       }
 
       if (statusCode == 200) {
-        return new HttpResponse<>(statusCode, serializeFunction.apply(response));
+        return new HttpResponse<>(statusCode, serializeFunction.apply(response), conn.getHeaderFields());
       }
 
       if (statusCode == 304) {
-        return new HttpResponse<>(statusCode, null);
+        return new HttpResponse<>(statusCode, null, conn.getHeaderFields());
       }
     } catch (ApolloConfigStatusCodeException ex) {
       throw ex;
     } catch (Throwable ex) {
-      throw new ApolloConfigException("Could not complete get operation", ex);
+      throw new ApolloConfigException(String.format("Could not complete %s operation", method.toLowerCase()), ex);
     } finally {
       if (isr != null) {
         try {
@@ -155,7 +343,7 @@ public class HttpUtil {
     }
 
     throw new ApolloConfigStatusCodeException(statusCode,
-        String.format("Get operation failed for %s", httpRequest.getUrl()));
+        String.format("%s operation failed for %s", method, httpRequest.getUrl()));
   }
 
 }
@@ -0,0 +1,49 @@
+package com.ctrip.framework.apollo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ConfigValuesTest {
+
+  @Test
+  public void testTypedConfig() throws Exception {
+    String someKey = "someKey";
+    TypedConfig config = mock(TypedConfig.class);
+    IntConfigValue someHandle = new IntConfigValue(someKey, 1);
+    when(config.intValue(someKey, 1)).thenReturn(someHandle);
+
+    assertSame(someHandle, ConfigValues.intValue(config, someKey, 1));
+  }
+
+  @Test
+  public void testOtherConfig() throws Exception {
+    String someKey = "someKey";
+    Config config = mock(Config.class);
+    when(config.getProperty(someKey, null)).thenReturn("2");
+
+    IntConfigValue handle = ConfigValues.intValue(config, someKey, 1);
+
+    assertEquals(2, handle.get());
+
+    ArgumentCaptor<ConfigChangeListener> listener = ArgumentCaptor.forClass(ConfigChangeListener.class);
+    verify(config).addChangeListener(listener.capture(), anySetOf(String.class));
+
+    when(config.getProperty(someKey, null)).thenReturn("3");
+    listener.getValue().onChange(new ConfigChangeEvent("someNamespace",
+        Collections.<String, ConfigChange>emptyMap()));
+
+    assertEquals(3, handle.get());
+  }
+}
@@ -0,0 +1,59 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class ConfigChangeListenerIndexTest {
+
+  @Test
+  public void testRoute() throws Exception {
+    ConfigChangeListener allKeysListener = mock(ConfigChangeListener.class);
+    ConfigChangeListener someKeyListener = mock(ConfigChangeListener.class);
+    ConfigChangeListener somePrefixListener = mock(ConfigChangeListener.class);
+    ConfigChangeListener anotherPrefixListener = mock(ConfigChangeListener.class);
+    ConfigChangeListener keyAndPrefixListener = mock(ConfigChangeListener.class);
+
+    Map<ConfigChangeListener, Set<String>> interestedKeys = ImmutableMap.<ConfigChangeListener, Set<String>>of(
+        someKeyListener, Sets.newHashSet("some.key"),
+        keyAndPrefixListener, Sets.newHashSet("yet.another.key"));
+    Map<ConfigChangeListener, Set<String>> interestedKeyPrefixes = ImmutableMap.<ConfigChangeListener, Set<String>>of(
+        somePrefixListener, Sets.newHashSet("some."),
+        anotherPrefixListener, Sets.newHashSet("another.", "some.other"),
+        keyAndPrefixListener, Sets.newHashSet("yet."));
+
+    ConfigChangeListenerIndex index = new ConfigChangeListenerIndex(Lists.newArrayList(keyAndPrefixListener,
+        anotherPrefixListener, somePrefixListener, someKeyListener, allKeysListener), interestedKeys,
+        interestedKeyPrefixes);
+
+    assertEquals(Lists.newArrayList(somePrefixListener, someKeyListener, allKeysListener),
+        index.route(Sets.newHashSet("some.key")));
+    assertEquals(Lists.newArrayList(anotherPrefixListener, somePrefixListener, allKeysListener),
+        index.route(Sets.newHashSet("some.other.key")));
+    assertEquals(Lists.newArrayList(keyAndPrefixListener, anotherPrefixListener, allKeysListener),
+        index.route(Sets.newHashSet("another.key", "yet.some.key")));
+    assertEquals(Lists.newArrayList(allKeysListener), index.route(Sets.newHashSet("some")));
+  }
+
+  @Test
+  public void testRouteWithoutInterests() throws Exception {
+    ConfigChangeListener someListener = mock(ConfigChangeListener.class);
+    ConfigChangeListener anotherListener = mock(ConfigChangeListener.class);
+
+    ConfigChangeListenerIndex index = new ConfigChangeListenerIndex(Lists.newArrayList(someListener,
+        anotherListener), Collections.<ConfigChangeListener, Set<String>>emptyMap(),
+        Collections.<ConfigChangeListener, Set<String>>emptyMap());
+
+    assertEquals(Lists.newArrayList(someListener, anotherListener), index.route(Sets.newHashSet("any.key")));
+    assertTrue(ConfigChangeListenerIndex.EMPTY.route(Sets.newHashSet("any.key")).isEmpty());
+  }
+}
@@ -0,0 +1,119 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigChangeMailboxTest {
+  private static final String SOME_NAMESPACE = "someNamespace";
+  private static final String SOME_KEY = "someKey";
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() throws Exception {
+    executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testDeliverInOrder() throws Exception {
+    int eventCount = 100;
+    final List<String> received = Lists.newCopyOnWriteArrayList();
+    final CountDownLatch done = new CountDownLatch(eventCount);
+    ConfigChangeMailbox mailbox = new ConfigChangeMailbox(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        received.add(changeEvent.getChange(SOME_KEY).getNewValue());
+        done.countDown();
+      }
+    }, executorService, eventCount);
+
+    for (int i = 0; i < eventCount; i++) {
+      mailbox.post(changeEvent(String.valueOf(i), String.valueOf(i + 1)));
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < eventCount; i++) {
+      assertEquals(String.valueOf(i + 1), received.get(i));
+    }
+  }
+
+  @Test
+  public void testMergeWhenListenerIsSlow() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<ConfigChangeEvent> received = Lists.newCopyOnWriteArrayList();
+    ConfigChangeMailbox mailbox = new ConfigChangeMailbox(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        received.add(changeEvent);
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, executorService, 1);
+
+    mailbox.post(changeEvent("0", "1"));
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+    mailbox.post(changeEvent("1", "2"));
+    mailbox.post(changeEvent("2", "3"));
+    mailbox.post(changeEvent("3", "4"));
+    release.countDown();
+
+    executorService.shutdown();
+    assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+
+    assertEquals(2, received.size());
+    ConfigChange merged = received.get(1).getChange(SOME_KEY);
+    assertEquals("1", merged.getOldValue());
+    assertEquals("4", merged.getNewValue());
+    assertEquals(PropertyChangeType.MODIFIED, merged.getChangeType());
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    String anotherKey = "anotherKey";
+    ConfigChangeEvent earlier = new ConfigChangeEvent(SOME_NAMESPACE, ImmutableMap.of(
+        SOME_KEY, new ConfigChange(SOME_NAMESPACE, SOME_KEY, null, "1", PropertyChangeType.ADDED),
+        anotherKey, new ConfigChange(SOME_NAMESPACE, anotherKey, "1", "2", PropertyChangeType.MODIFIED)));
+    ConfigChangeEvent later = new ConfigChangeEvent(SOME_NAMESPACE, ImmutableMap.of(
+        SOME_KEY, new ConfigChange(SOME_NAMESPACE, SOME_KEY, "1", "2", PropertyChangeType.MODIFIED),
+        anotherKey, new ConfigChange(SOME_NAMESPACE, anotherKey, "2", "1", PropertyChangeType.MODIFIED)));
+
+    ConfigChangeEvent merged = ConfigChangeMailbox.merge(earlier, later);
+
+    assertFalse(merged.isChanged(anotherKey));
+    assertEquals(null, merged.getChange(SOME_KEY).getOldValue());
+    assertEquals("2", merged.getChange(SOME_KEY).getNewValue());
+    assertEquals(PropertyChangeType.ADDED, merged.getChange(SOME_KEY).getChangeType());
+  }
+
+  private ConfigChangeEvent changeEvent(String oldValue, String newValue) {
+    return new ConfigChangeEvent(SOME_NAMESPACE, ImmutableMap.of(SOME_KEY,
+        new ConfigChange(SOME_NAMESPACE, SOME_KEY, oldValue, newValue, PropertyChangeType.MODIFIED)));
+  }
+}
@@ -1,17 +1,29 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.ImmutableMap;
+import java.lang.reflect.Type;
 import java.util.List;
 import org.junit.After;
 import org.junit.Test;
 
 public class ConfigServiceLocatorTest {
+  private static final String SOME_AGENT_URL = "http://127.0.0.1:8060";
 
   @After
   public void tearDown() throws Exception {
     System.clearProperty("apollo.configService");
+    MockInjector.reset();
   }
 
   @Test
@@ -20,6 +32,7 @@ public class ConfigServiceLocatorTest {
     String anotherConfigServiceUrl = " anotherConfigServiceUrl ";
 
     System.setProperty("apollo.configService", someConfigServiceUrl + "," + anotherConfigServiceUrl);
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
 
     ConfigServiceLocator configServiceLocator = new ConfigServiceLocator();
 
@@ -30,4 +43,53 @@ public class ConfigServiceLocatorTest {
     assertEquals(someConfigServiceUrl.trim(), result.get(0).getHomepageUrl());
     assertEquals(anotherConfigServiceUrl.trim(), result.get(1).getHomepageUrl());
   }
+
+  @Test
+  public void testGetConfigServicesPreferAvailableAgent() throws Exception {
+    String someConfigServiceUrl = "someConfigServiceUrl";
+    System.setProperty("apollo.configService", someConfigServiceUrl);
+    mockAgent(200, ImmutableMap.of("status", "UP"));
+
+    ConfigServiceLocator configServiceLocator = new ConfigServiceLocator();
+
+    List<ServiceDTO> result = configServiceLocator.getConfigServices();
+
+    assertEquals(1, result.size());
+    assertEquals(SOME_AGENT_URL, result.get(0).getHomepageUrl());
+  }
+
+  @Test
+  public void testGetConfigServicesWithUnavailableAgent() throws Exception {
+    String someConfigServiceUrl = "someConfigServiceUrl";
+    System.setProperty("apollo.configService", someConfigServiceUrl);
+    mockAgent(200, ImmutableMap.of("status", "DOWN"));
+
+    ConfigServiceLocator configServiceLocator = new ConfigServiceLocator();
+
+    List<ServiceDTO> result = configServiceLocator.getConfigServices();
+
+    assertEquals(1, result.size());
+    assertEquals(someConfigServiceUrl, result.get(0).getHomepageUrl());
+  }
+
+  private void mockAgent(int statusCode, ImmutableMap<String, String> body) {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+
+    HttpResponse<Object> response = new HttpResponse<Object>(statusCode, body);
+    HttpUtil httpUtil = mock(HttpUtil.class);
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenReturn(response);
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+  }
+
+  private static class MockConfigUtil extends ConfigUtil {
+    @Override
+    public String getAgentUrl() {
+      return SOME_AGENT_URL;
+    }
+
+    @Override
+    public long getAgentCheckIntervalInMilli() {
+      return 60000;
+    }
+  }
 }
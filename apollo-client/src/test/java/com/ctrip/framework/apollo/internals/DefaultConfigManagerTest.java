@@ -32,6 +32,7 @@ public class DefaultConfigManagerTest {
     MockInjector.reset();
     MockInjector.setInstance(ConfigFactoryManager.class, new MockConfigFactoryManager());
     MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+    MockInjector.setInstance(KeySubscriptionRegistry.class, mock(KeySubscriptionRegistry.class));
     defaultConfigManager = new DefaultConfigManager();
     someConfigContent = "someContent";
   }
@@ -0,0 +1,138 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultConfigServiceLoadBalancerTest {
+  private FakeTicker ticker;
+  private ServiceDTO someService;
+  private ServiceDTO anotherService;
+  private ServiceDTO remoteService;
+  private String someDataCenter;
+
+  @Before
+  public void setUp() throws Exception {
+    ticker = new FakeTicker();
+    someDataCenter = "someDC";
+    someService = assembleService("http://someService", someDataCenter);
+    anotherService = assembleService("http://anotherService", someDataCenter);
+    remoteService = assembleService("http://remoteService", "anotherDC");
+  }
+
+  @Test
+  public void testPreferLocalDataCenter() throws Exception {
+    DefaultConfigServiceLoadBalancer loadBalancer = new DefaultConfigServiceLoadBalancer(someDataCenter, ticker);
+
+    for (int i = 0; i < 20; i++) {
+      List<ServiceDTO> ordered = loadBalancer.order(Lists.newArrayList(remoteService, someService, anotherService));
+
+      assertEquals(3, ordered.size());
+      assertSame(remoteService, ordered.get(2));
+    }
+  }
+
+  @Test
+  public void testPreferLowerLatency() throws Exception {
+    DefaultConfigServiceLoadBalancer loadBalancer = new DefaultConfigServiceLoadBalancer(null, ticker);
+
+    request(loadBalancer, someService, TimeUnit.MILLISECONDS.toNanos(500), true);
+    request(loadBalancer, anotherService, TimeUnit.MILLISECONDS.toNanos(5), true);
+
+    for (int i = 0; i < 20; i++) {
+      assertSame(anotherService, loadBalancer.choose(Lists.newArrayList(someService, anotherService)));
+    }
+  }
+
+  @Test
+  public void testPreferFewerInflightRequests() throws Exception {
+    DefaultConfigServiceLoadBalancer loadBalancer = new DefaultConfigServiceLoadBalancer(null, ticker);
+
+    request(loadBalancer, someService, TimeUnit.MILLISECONDS.toNanos(10), true);
+    request(loadBalancer, anotherService, TimeUnit.MILLISECONDS.toNanos(10), true);
+    loadBalancer.onRequestStart(someService);
+    loadBalancer.onRequestStart(someService);
+
+    for (int i = 0; i < 20; i++) {
+      assertSame(anotherService, loadBalancer.choose(Lists.newArrayList(someService, anotherService)));
+    }
+  }
+
+  @Test
+  public void testEjectAndReadmit() throws Exception {
+    DefaultConfigServiceLoadBalancer loadBalancer = new DefaultConfigServiceLoadBalancer(someDataCenter, ticker);
+
+    for (int i = 0; i < DefaultConfigServiceLoadBalancer.EJECTION_CONSECUTIVE_FAILURES; i++) {
+      loadBalancer.onHeldRequestComplete(someService, false);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      List<ServiceDTO> ordered = loadBalancer.order(Lists.newArrayList(someService, anotherService, remoteService));
+
+      assertSame(anotherService, ordered.get(0));
+      assertSame(remoteService, ordered.get(1));
+      assertSame(someService, ordered.get(2));
+    }
+
+    //all ejected, still usable
+    assertSame(someService, loadBalancer.choose(Lists.newArrayList(someService)));
+
+    ticker.advance(DefaultConfigServiceLoadBalancer.BASE_EJECTION_TIME_IN_MILLI, TimeUnit.MILLISECONDS);
+
+    List<ServiceDTO> ordered = loadBalancer.order(Lists.newArrayList(someService, remoteService));
+    assertSame(someService, ordered.get(0));
+
+    //a single failure after re-admission ejects it again
+    loadBalancer.onHeldRequestComplete(someService, false);
+    ordered = loadBalancer.order(Lists.newArrayList(someService, remoteService));
+    assertSame(remoteService, ordered.get(0));
+  }
+
+  @Test
+  public void testSuccessResetsFailures() throws Exception {
+    DefaultConfigServiceLoadBalancer loadBalancer = new DefaultConfigServiceLoadBalancer(someDataCenter, ticker);
+
+    for (int i = 0; i < DefaultConfigServiceLoadBalancer.EJECTION_CONSECUTIVE_FAILURES - 1; i++) {
+      loadBalancer.onHeldRequestComplete(someService, false);
+    }
+    loadBalancer.onHeldRequestComplete(someService, true);
+    loadBalancer.onHeldRequestComplete(someService, false);
+
+    List<ServiceDTO> ordered = loadBalancer.order(Lists.newArrayList(someService, remoteService));
+    assertSame(someService, ordered.get(0));
+  }
+
+  private void request(DefaultConfigServiceLoadBalancer loadBalancer, ServiceDTO service, long latencyInNanos,
+      boolean success) {
+    loadBalancer.onRequestStart(service);
+    loadBalancer.onRequestComplete(service, latencyInNanos, success);
+  }
+
+  private ServiceDTO assembleService(String homepageUrl, String dataCenter) {
+    ServiceDTO service = new ServiceDTO();
+    service.setHomepageUrl(homepageUrl);
+    service.setInstanceId(homepageUrl);
+    service.setDataCenter(dataCenter);
+    return service;
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long time, TimeUnit timeUnit) {
+      nanos += timeUnit.toNanos(time);
+    }
+  }
+}
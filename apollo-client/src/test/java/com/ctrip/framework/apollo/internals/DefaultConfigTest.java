@@ -3,8 +3,10 @@ package com.ctrip.framework.apollo.internals;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,8 +36,13 @@ import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.BooleanConfigValue;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.DoubleConfigValue;
+import com.ctrip.framework.apollo.model.IntConfigValue;
+import com.ctrip.framework.apollo.model.LongConfigValue;
+import com.ctrip.framework.apollo.model.StringConfigValue;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
@@ -57,6 +64,7 @@ public class DefaultConfigTest {
   public void setUp() throws Exception {
     MockInjector.reset();
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+    MockInjector.setInstance(KeySubscriptionRegistry.class, mock(KeySubscriptionRegistry.class));
 
     someResourceDir = new File(ClassLoaderUtil.getClassPath() + "/META-INF/config");
     someResourceDir.mkdirs();
@@ -200,6 +208,79 @@ public class DefaultConfigTest {
     assertEquals(anotherValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
   }
 
+  @Test
+  public void testIntValueWithPropertyChanges() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    int someValue = 2;
+    int anotherValue = 3;
+    int someDefaultValue = -1;
+
+    //set up config repo
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    someProperties.setProperty(anotherKey, "anotherKeyValue");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    IntConfigValue someHandle = defaultConfig.intValue(someKey, someDefaultValue);
+    IntConfigValue badHandle = defaultConfig.intValue(anotherKey, someDefaultValue);
+
+    assertEquals(someValue, someHandle.get());
+    assertEquals(someDefaultValue, badHandle.get());
+    assertSame(someHandle, defaultConfig.intValue(someKey, someDefaultValue));
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, String.valueOf(anotherValue));
+    anotherProperties.setProperty(anotherKey, String.valueOf(anotherValue));
+
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals(anotherValue, someHandle.get());
+    assertEquals(anotherValue, badHandle.get());
+
+    defaultConfig.onRepositoryChange(someNamespace, new Properties());
+
+    assertEquals(someDefaultValue, someHandle.get());
+  }
+
+  @Test
+  public void testTypedValuesWithPropertyChanges() throws Exception {
+    String someKey = "someKey";
+    String someValue = "true";
+    String anotherValue = "1.5";
+
+    //set up config repo
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    BooleanConfigValue booleanHandle = defaultConfig.booleanValue(someKey, false);
+    DoubleConfigValue doubleHandle = defaultConfig.doubleValue(someKey, -1);
+    LongConfigValue longHandle = defaultConfig.longValue(someKey, -1);
+    StringConfigValue stringHandle = defaultConfig.stringValue(someKey, null);
+
+    assertTrue(booleanHandle.get());
+    assertEquals(-1, doubleHandle.get(), 0);
+    assertEquals(-1, longHandle.get());
+    assertEquals(someValue, stringHandle.get());
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, anotherValue);
+
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertFalse(booleanHandle.get());
+    assertEquals(1.5, doubleHandle.get(), 0);
+    assertEquals(-1, longHandle.get());
+    assertEquals(anotherValue, stringHandle.get());
+  }
+
   @Test
   public void testGetIntPropertyMultipleTimesWithSmallCache() throws Exception {
     String someKey = "someKey";
@@ -580,6 +661,29 @@ public class DefaultConfigTest {
     assertEquals(someDefaultValue, defaultConfig.getDurationProperty("stringProperty", someDefaultValue));
   }
 
+  @Test
+  public void testOnRepositoryChangeWithoutSubscribingChangedKeys() throws Exception {
+    KeySubscriptionRegistry keySubscriptionRegistry = mock(KeySubscriptionRegistry.class);
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
+
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, "someValue");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, "anotherValue");
+    anotherProperties.setProperty(anotherKey, "anotherValue");
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals("anotherValue", defaultConfig.getProperty(someKey, null));
+    verify(keySubscriptionRegistry, times(1)).subscribeKey(someNamespace, someKey);
+    verify(keySubscriptionRegistry, never()).subscribeKey(someNamespace, anotherKey);
+  }
+
   @Test
   public void testOnRepositoryChange() throws Exception {
     String someKey = "someKey";
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
+import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import java.util.Properties;
 
@@ -26,12 +27,17 @@ public class JsonConfigFileTest {
   private String someNamespace;
   @Mock
   private ConfigRepository configRepository;
+  @Mock
+  private KeySubscriptionRegistry keySubscriptionRegistry;
 
   private ConfigSourceType someSourceType;
 
   @Before
   public void setUp() throws Exception {
     someNamespace = "someName";
+
+    MockInjector.reset();
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
   }
 
   @Test
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.ConfigFileChangeListener;
+import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
 import com.google.common.util.concurrent.SettableFuture;
@@ -29,10 +30,15 @@ public class PropertiesConfigFileTest {
   private String someNamespace;
   @Mock
   private ConfigRepository configRepository;
+  @Mock
+  private KeySubscriptionRegistry keySubscriptionRegistry;
 
   @Before
   public void setUp() throws Exception {
     someNamespace = "someName";
+
+    MockInjector.reset();
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
   }
 
   @Test
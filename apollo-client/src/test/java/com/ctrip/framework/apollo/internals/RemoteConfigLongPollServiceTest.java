@@ -1,9 +1,11 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -32,14 +34,18 @@ import org.springframework.test.util.ReflectionTestUtils;
 import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ApolloWatchSession;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.EventStreamHandler;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.gson.Gson;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -72,6 +78,8 @@ public class RemoteConfigLongPollServiceTest {
     MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
 
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+    MockInjector.setInstance(ConfigServiceLoadBalancer.class, new DefaultConfigServiceLoadBalancer());
+    MockInjector.setInstance(KeySubscriptionRegistry.class, new KeySubscriptionRegistry());
 
     remoteConfigLongPollService = new RemoteConfigLongPollService();
 
@@ -465,6 +473,388 @@ public class RemoteConfigLongPollServiceTest {
             + "%22%2C%22notificationId%22%3A" + anotherNotificationId + "%7D%5D"));
   }
 
+  @Test
+  public void testSubmitNamespaceWithNotificationStream() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamingConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+    final long someNotificationId = 1;
+    ApolloConfigNotification someNotification = new ApolloConfigNotification(someNamespace, someNotificationId);
+    someNotification.addMessage("someKey", someNotificationId);
+    final String someEventData = new Gson().toJson(Lists.newArrayList(someNotification));
+
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        EventStreamHandler handler = invocation.getArgumentAt(1, EventStreamHandler.class);
+
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2/stream?"));
+        assertTrue(request.getUrl().contains(someNamespace));
+
+        handler.onComment("heartbeat");
+        handler.onEvent(String.valueOf(someNotificationId), "notifications", someEventData);
+        TimeUnit.MILLISECONDS.sleep(50);
+        return null;
+      }
+    }).when(httpUtil).doGetEventStream(any(HttpRequest.class), any(EventStreamHandler.class));
+
+    final SettableFuture<ApolloNotificationMessages> onNotified = SettableFuture.create();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        onNotified.set(invocation.getArgumentAt(1, ApolloNotificationMessages.class));
+        return null;
+      }
+    }).when(someRepository).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    ApolloNotificationMessages captured = onNotified.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    assertEquals(someNotificationId, captured.get("someKey").longValue());
+    verify(httpUtil, never()).doGet(any(HttpRequest.class), eq(responseType));
+  }
+
+  @Test
+  public void testNotificationStreamNotSupportedFallsBackToLongPolling() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamingConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        throw new ApolloConfigStatusCodeException(HttpServletResponse.SC_NOT_FOUND, "not found");
+      }
+    }).when(httpUtil).doGetEventStream(any(HttpRequest.class), any(EventStreamHandler.class));
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    final SettableFuture<Boolean> longPollFinished = SettableFuture.create();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2?"));
+        longPollFinished.set(true);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    longPollFinished.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    verify(httpUtil, times(1)).doGetEventStream(any(HttpRequest.class), any(EventStreamHandler.class));
+  }
+
+  @Test
+  public void testLongPollAgentWithNotificationStreamEnabled() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamingConfigUtil());
+    when(configServiceLocator.isAgentInUse()).thenReturn(true);
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    final SettableFuture<Boolean> longPollFinished = SettableFuture.create();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2?"));
+        longPollFinished.set(true);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    longPollFinished.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    //the agent doesn't serve the notification stream
+    verify(httpUtil, never()).doGetEventStream(any(HttpRequest.class), any(EventStreamHandler.class));
+  }
+
+  @Test
+  public void testNotificationStreamTriedAgainAfterFallback() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockStreamingConfigUtil() {
+      @Override
+      public long getNotificationFallbackRetryIntervalInMilli() {
+        return 100;
+      }
+    });
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+
+    final AtomicInteger streamTimes = new AtomicInteger();
+    final SettableFuture<Boolean> streamTriedAgain = SettableFuture.create();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        if (streamTimes.incrementAndGet() > 1) {
+          streamTriedAgain.set(true);
+        }
+        throw new ApolloConfigStatusCodeException(HttpServletResponse.SC_NOT_FOUND, "not found");
+      }
+    }).when(httpUtil).doGetEventStream(any(HttpRequest.class), any(EventStreamHandler.class));
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    streamTriedAgain.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    verify(httpUtil, atLeastOnce()).doGet(any(HttpRequest.class), eq(responseType));
+  }
+
+  @Test
+  public void testSubmitNamespaceWithWatchSession() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockSessionConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+    final String someSessionId = "someSessionId";
+    final long someReleaseMessageId = 5;
+    final long anotherReleaseMessageId = 6;
+
+    doAnswer(new Answer<HttpResponse<ApolloWatchSession>>() {
+      @Override
+      public HttpResponse<ApolloWatchSession> answer(InvocationOnMock invocation) throws Throwable {
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2/sessions?"));
+        assertTrue(request.getUrl().contains("appId=" + someAppId));
+        assertFalse(request.getUrl().contains("notifications="));
+        return new HttpResponse<>(HttpServletResponse.SC_OK,
+            new ApolloWatchSession(someSessionId, someReleaseMessageId, null));
+      }
+    }).when(httpUtil).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+
+    ApolloConfigNotification someNotification = new ApolloConfigNotification(someNamespace, anotherReleaseMessageId);
+    someNotification.addMessage("someKey", anotherReleaseMessageId);
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_OK);
+    when(pollResponse.getBody()).thenReturn(Lists.newArrayList(someNotification));
+
+    final List<String> pollUrls = Lists.newCopyOnWriteArrayList();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        pollUrls.add(invocation.getArgumentAt(0, HttpRequest.class).getUrl());
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    final SettableFuture<Boolean> onNotified = SettableFuture.create();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        onNotified.set(true);
+        return null;
+      }
+    }).when(someRepository).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    onNotified.get(5000, TimeUnit.MILLISECONDS);
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    assertEquals(someServerUrl + "/notifications/v2/sessions/" + someSessionId + "?releaseMessageId="
+        + someReleaseMessageId, pollUrls.get(0));
+    //the session is created only once, the following polls carry the latest release message id
+    assertTrue(pollUrls.size() > 1);
+    assertTrue(pollUrls.get(1).endsWith("releaseMessageId=" + anotherReleaseMessageId));
+    verify(httpUtil, times(1)).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+  }
+
+  @Test
+  public void testWatchSessionNotFoundCreatedAgain() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockSessionConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+    final String someSessionId = "someSessionId";
+    final String anotherSessionId = "anotherSessionId";
+    final long someReleaseMessageId = 5;
+
+    final AtomicInteger createTimes = new AtomicInteger();
+    final SettableFuture<Boolean> createdAgain = SettableFuture.create();
+    doAnswer(new Answer<HttpResponse<ApolloWatchSession>>() {
+      @Override
+      public HttpResponse<ApolloWatchSession> answer(InvocationOnMock invocation) throws Throwable {
+        if (createTimes.incrementAndGet() == 1) {
+          return new HttpResponse<>(HttpServletResponse.SC_OK,
+              new ApolloWatchSession(someSessionId, someReleaseMessageId, null));
+        }
+        createdAgain.set(true);
+        return new HttpResponse<>(HttpServletResponse.SC_OK,
+            new ApolloWatchSession(anotherSessionId, someReleaseMessageId, null));
+      }
+    }).when(httpUtil).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    final AtomicInteger pollTimes = new AtomicInteger();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        //the session is dropped by the config service after the first poll
+        if (pollTimes.incrementAndGet() == 2) {
+          throw new ApolloConfigStatusCodeException(HttpServletResponse.SC_NOT_FOUND, "not found");
+        }
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    //created again right away, without the failure back off
+    createdAgain.get(800, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+  }
+
+  @Test
+  public void testWatchSessionNotSupportedFallsBackToLongPolling() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockSessionConfigUtil());
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someNamespace = "someNamespace";
+
+    doAnswer(new Answer<HttpResponse<ApolloWatchSession>>() {
+      @Override
+      public HttpResponse<ApolloWatchSession> answer(InvocationOnMock invocation) throws Throwable {
+        throw new ApolloConfigStatusCodeException(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "not allowed");
+      }
+    }).when(httpUtil).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+
+    when(pollResponse.getStatusCode()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+    final SettableFuture<Boolean> longPollFinished = SettableFuture.create();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        assertTrue(request.getUrl().contains(someServerUrl + "/notifications/v2?"));
+        longPollFinished.set(true);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    longPollFinished.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    verify(httpUtil, times(1)).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+  }
+
+  @Test
+  public void testWatchSessionWithKeySubscription() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockKeySubscriptionConfigUtil());
+    final String someNamespace = "someNamespace";
+    final String someKey = "someKey";
+    KeySubscriptionRegistry keySubscriptionRegistry = new KeySubscriptionRegistry();
+    keySubscriptionRegistry.subscribeKey(someNamespace, someKey);
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    RemoteConfigRepository someRepository = mock(RemoteConfigRepository.class);
+    final String someSessionId = "someSessionId";
+    final long someReleaseMessageId = 5;
+    final long unchangedReleaseMessageId = 6;
+    final long changedReleaseMessageId = 7;
+
+    doAnswer(new Answer<HttpResponse<ApolloWatchSession>>() {
+      @Override
+      public HttpResponse<ApolloWatchSession> answer(InvocationOnMock invocation) throws Throwable {
+        List<ApolloConfigNotification> notifications = invocation.getArgumentAt(1, List.class);
+        assertEquals(1, notifications.size());
+        assertEquals(someNamespace, notifications.get(0).getNamespaceName());
+        assertTrue(notifications.get(0).getInterestedKeys().contains(someKey));
+        return new HttpResponse<>(HttpServletResponse.SC_OK,
+            new ApolloWatchSession(someSessionId, someReleaseMessageId, null));
+      }
+    }).when(httpUtil).doPost(any(HttpRequest.class), any(), eq(ApolloWatchSession.class));
+
+    final ApolloConfigNotification unchangedNotification =
+        new ApolloConfigNotification(someNamespace, unchangedReleaseMessageId);
+    unchangedNotification.setKeysUnchanged(true);
+    final ApolloConfigNotification changedNotification =
+        new ApolloConfigNotification(someNamespace, changedReleaseMessageId);
+
+    final List<String> pollUrls = Lists.newCopyOnWriteArrayList();
+    doAnswer(new Answer<HttpResponse<List<ApolloConfigNotification>>>() {
+      @Override
+      public HttpResponse<List<ApolloConfigNotification>> answer(InvocationOnMock invocation)
+          throws Throwable {
+        TimeUnit.MILLISECONDS.sleep(50);
+        pollUrls.add(invocation.getArgumentAt(0, HttpRequest.class).getUrl());
+        if (pollUrls.size() > 2) {
+          return new HttpResponse<List<ApolloConfigNotification>>(HttpServletResponse.SC_NOT_MODIFIED, null);
+        }
+        ApolloConfigNotification notification = pollUrls.size() == 1 ? unchangedNotification : changedNotification;
+        return new HttpResponse<List<ApolloConfigNotification>>(HttpServletResponse.SC_OK,
+            Lists.newArrayList(notification));
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(responseType));
+
+    final SettableFuture<Boolean> onNotified = SettableFuture.create();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        onNotified.set(true);
+        return null;
+      }
+    }).when(someRepository).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+
+    remoteConfigLongPollService.submit(someNamespace, someRepository);
+
+    onNotified.get(5000, TimeUnit.MILLISECONDS);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    //the unchanged notification only advances the release message id
+    assertTrue(pollUrls.get(1).endsWith("releaseMessageId=" + unchangedReleaseMessageId));
+    verify(someRepository, times(1)).onLongPollNotified(any(ServiceDTO.class), any(ApolloNotificationMessages.class));
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
@@ -497,4 +887,24 @@ public class RemoteConfigLongPollServiceTest {
     }
   }
 
+  public static class MockStreamingConfigUtil extends MockConfigUtil {
+    @Override
+    public boolean isNotificationStreamingEnabled() {
+      return true;
+    }
+  }
+
+  public static class MockSessionConfigUtil extends MockConfigUtil {
+    @Override
+    public boolean isNotificationSessionEnabled() {
+      return true;
+    }
+  }
+
+  public static class MockKeySubscriptionConfigUtil extends MockSessionConfigUtil {
+    @Override
+    public boolean isKeySubscriptionEnabled() {
+      return true;
+    }
+  }
 }
@@ -73,6 +73,7 @@ public class RemoteConfigRepositoryTest {
     MockInjector.reset();
     configUtil = new MockConfigUtil();
     MockInjector.setInstance(ConfigUtil.class, configUtil);
+    MockInjector.setInstance(ConfigServiceLoadBalancer.class, new DefaultConfigServiceLoadBalancer());
 
     someServerUrl = "http://someServer";
 
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.internals;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
 
+import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import java.util.Properties;
@@ -18,10 +19,15 @@ public class TxtConfigFileTest {
   private String someNamespace;
   @Mock
   private ConfigRepository configRepository;
+  @Mock
+  private KeySubscriptionRegistry keySubscriptionRegistry;
 
   @Before
   public void setUp() throws Exception {
     someNamespace = "someName";
+
+    MockInjector.reset();
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
   }
 
   @Test
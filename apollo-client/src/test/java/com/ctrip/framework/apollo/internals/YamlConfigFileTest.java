@@ -22,6 +22,8 @@ public class YamlConfigFileTest {
   private ConfigRepository configRepository;
   @Mock
   private YamlParser yamlParser;
+  @Mock
+  private KeySubscriptionRegistry keySubscriptionRegistry;
 
   private ConfigSourceType someSourceType;
 
@@ -31,6 +33,7 @@ public class YamlConfigFileTest {
 
     MockInjector.reset();
     MockInjector.setInstance(YamlParser.class, yamlParser);
+    MockInjector.setInstance(KeySubscriptionRegistry.class, keySubscriptionRegistry);
   }
 
   @Test
@@ -24,6 +24,7 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.internals.DefaultConfig;
 import com.ctrip.framework.apollo.internals.JsonConfigFile;
+import com.ctrip.framework.apollo.internals.KeySubscriptionRegistry;
 import com.ctrip.framework.apollo.internals.LocalFileConfigRepository;
 import com.ctrip.framework.apollo.internals.PropertiesConfigFile;
 import com.ctrip.framework.apollo.internals.XmlConfigFile;
@@ -45,6 +46,7 @@ public class DefaultConfigFactoryTest {
     someEnv = Env.DEV;
     MockInjector.reset();
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+    MockInjector.setInstance(KeySubscriptionRegistry.class, mock(KeySubscriptionRegistry.class));
     defaultConfigFactory = spy(new DefaultConfigFactory());
   }
 
@@ -0,0 +1,94 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.ImmutableMap;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.env.Environment;
+
+public class AutoUpdateConfigChangeListenerTest {
+  private static final String SOME_NAMESPACE = "someNamespace";
+
+  private ConfigurableListableBeanFactory beanFactory;
+  private SpringValueRegistry springValueRegistry;
+  private AutoUpdateConfigChangeListener listener;
+
+  @Before
+  public void setUp() throws Exception {
+    beanFactory = mock(ConfigurableListableBeanFactory.class);
+    when(beanFactory.getTypeConverter()).thenReturn(new SimpleTypeConverter());
+    springValueRegistry = SpringInjector.getInstance(SpringValueRegistry.class);
+    listener = new AutoUpdateConfigChangeListener(mock(Environment.class), beanFactory);
+  }
+
+  @Test
+  public void testUpdateTargetOnceAndResolvePlaceholderOnce() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    String somePlaceholder = "${someKey}${anotherKey}";
+    Field someField = SomeBean.class.getDeclaredField("someValue");
+    Method someMethod = SomeBean.class.getMethod("setAnotherValue", int.class);
+
+    SomeBean someBean = new SomeBean();
+    SomeBean anotherBean = new SomeBean();
+    springValueRegistry.register(beanFactory, someKey,
+        new SpringValue(someKey, somePlaceholder, someBean, "someBean", someMethod, false));
+    springValueRegistry.register(beanFactory, anotherKey,
+        new SpringValue(anotherKey, somePlaceholder, someBean, "someBean", someMethod, false));
+    springValueRegistry.register(beanFactory, someKey,
+        new SpringValue(someKey, somePlaceholder, anotherBean, "anotherBean", someField, false));
+
+    when(beanFactory.resolveEmbeddedValue(somePlaceholder)).thenReturn("12");
+
+    listener.onChange(new ConfigChangeEvent(SOME_NAMESPACE, ImmutableMap.of(
+        someKey, new ConfigChange(SOME_NAMESPACE, someKey, "0", "1", PropertyChangeType.MODIFIED),
+        anotherKey, new ConfigChange(SOME_NAMESPACE, anotherKey, "0", "2", PropertyChangeType.MODIFIED))));
+
+    assertEquals(12, someBean.anotherValue);
+    assertEquals(1, someBean.anotherValueUpdateCount);
+    assertEquals(12, anotherBean.someValue);
+    verify(beanFactory, times(1)).resolveEmbeddedValue(somePlaceholder);
+  }
+
+  @Test
+  public void testUpdateWithBlankInPlaceholderKey() throws Exception {
+    String someKey = "someKeyWithBlank";
+    String somePlaceholder = "${ someKeyWithBlank }";
+    Method someMethod = SomeBean.class.getMethod("setAnotherValue", int.class);
+
+    SomeBean someBean = new SomeBean();
+    springValueRegistry.register(beanFactory, " " + someKey + " ",
+        new SpringValue(" " + someKey + " ", somePlaceholder, someBean, "someBean", someMethod, false));
+
+    when(beanFactory.resolveEmbeddedValue(somePlaceholder)).thenReturn("3");
+
+    listener.onChange(new ConfigChangeEvent(SOME_NAMESPACE, ImmutableMap.of(
+        someKey, new ConfigChange(SOME_NAMESPACE, someKey, "0", "3", PropertyChangeType.MODIFIED))));
+
+    assertEquals(3, someBean.anotherValue);
+  }
+
+  public static class SomeBean {
+    private int someValue;
+    private int anotherValue;
+    private int anotherValueUpdateCount;
+
+    public void setAnotherValue(int anotherValue) {
+      this.anotherValue = anotherValue;
+      anotherValueUpdateCount++;
+    }
+  }
+}
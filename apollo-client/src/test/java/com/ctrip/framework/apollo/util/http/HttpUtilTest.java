@@ -0,0 +1,91 @@
+package com.ctrip.framework.apollo.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.util.List;
+import org.junit.Test;
+
+public class HttpUtilTest {
+
+  @Test
+  public void testReadEventStream() throws Exception {
+    String stream = ":heartbeat\n"
+        + "\n"
+        + "id:1\n"
+        + "event:notifications\n"
+        + "data:[{\"namespaceName\":\"application\",\n"
+        + "data: \"notificationId\":1}]\n"
+        + "\n"
+        + "retry:1000\n"
+        + "data:no name\n"
+        + "\n";
+    RecordingHandler handler = new RecordingHandler(true);
+
+    HttpUtil.readEventStream(new BufferedReader(new StringReader(stream)), handler);
+
+    assertEquals(Lists.newArrayList("heartbeat"), handler.comments);
+    assertEquals(2, handler.names.size());
+    assertEquals("1", handler.ids.get(0));
+    assertEquals("notifications", handler.names.get(0));
+    assertEquals("[{\"namespaceName\":\"application\",\n\"notificationId\":1}]", handler.data.get(0));
+    assertEquals("1", handler.ids.get(1));
+    assertNull(handler.names.get(1));
+    assertEquals("no name", handler.data.get(1));
+  }
+
+  @Test
+  public void testReadEventStreamStopsWhenHandlerAsks() throws Exception {
+    String stream = "data:first\n\ndata:second\n\n";
+    RecordingHandler handler = new RecordingHandler(false);
+
+    HttpUtil.readEventStream(new BufferedReader(new StringReader(stream)), handler);
+
+    assertEquals(Lists.newArrayList("first"), handler.data);
+  }
+
+  @Test
+  public void testParseRetryAfter() throws Exception {
+    HttpURLConnection conn = mock(HttpURLConnection.class);
+
+    assertEquals(-1, HttpUtil.parseRetryAfter(conn));
+
+    when(conn.getHeaderField("Retry-After")).thenReturn(" 3 ");
+    assertEquals(3, HttpUtil.parseRetryAfter(conn));
+
+    when(conn.getHeaderField("Retry-After")).thenReturn("Wed, 21 Oct 2015 07:28:00 GMT");
+    assertEquals(-1, HttpUtil.parseRetryAfter(conn));
+  }
+
+  private static class RecordingHandler implements EventStreamHandler {
+    private final boolean keepReading;
+    private final List<String> ids = Lists.newArrayList();
+    private final List<String> names = Lists.newArrayList();
+    private final List<String> data = Lists.newArrayList();
+    private final List<String> comments = Lists.newArrayList();
+
+    RecordingHandler(boolean keepReading) {
+      this.keepReading = keepReading;
+    }
+
+    @Override
+    public boolean onEvent(String id, String name, String data) {
+      this.ids.add(id);
+      this.names.add(name);
+      this.data.add(data);
+      return keepReading;
+    }
+
+    @Override
+    public boolean onComment(String comment) {
+      comments.add(comment);
+      return keepReading;
+    }
+  }
+}
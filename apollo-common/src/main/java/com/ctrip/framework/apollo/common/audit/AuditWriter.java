@@ -0,0 +1,387 @@
+package com.ctrip.framework.apollo.common.audit;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the audits in batches, off the request path.
+ * <ul>
+ * <li>the audits are queued and written by a background thread, up to {@code batchSize} audits at a time</li>
+ * <li>the audits which can't be queued, as the queue is full, or can't be written, e.g. the database is down, are
+ * spilled to a local file, and written later when the queue is idle</li>
+ * <li>a batch failed to be written is written one audit at a time, the audits still failed while the others are
+ * written, e.g. too long for a column, are dropped, so that they don't hold the others back</li>
+ * <li>the spill file is capped, the audits beyond it are dropped</li>
+ * <li>the queued audits are written when stopped</li>
+ * </ul>
+ */
+public class AuditWriter<T> {
+
+  private static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+  private static final Gson GSON = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create();
+  private static final String DEFAULT_SPILL_DIRECTORY = new File(System.getProperty("java.io.tmpdir"),
+      "apollo-audit").getPath();
+  // the spill files of the writers with the same name, e.g. in the same host
+  private static final int MAX_SPILL_FILES = 10;
+  private static final long DEFAULT_MAX_SPILL_FILE_SIZE_IN_BYTES = 100 * 1024 * 1024; //100MB
+  // the sink is considered down if the first audits of a failed batch all fail again one at a time
+  private static final int MAX_LEADING_SINGLE_FAILURES = 3;
+  private static final long RETRY_INTERVAL_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long STOP_TIMEOUT_IN_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  public interface Sink<T> {
+
+    void write(List<T> audits);
+  }
+
+  private final String name;
+  private final Class<T> type;
+  private final Sink<T> sink;
+  private final BlockingQueue<T> queue;
+  private final int batchSize;
+  private final long batchTimeoutInMillis;
+  private final File spillDirectory;
+  private final long maxSpillFileSize;
+  private final ExecutorService executorService;
+
+  private final Object spillLock = new Object();
+  private FileChannel spillLockChannel;
+  private final File spillFile;
+  private volatile long nextReplayTime;
+  private volatile boolean stopped;
+
+  private final Counter writtenCounter;
+  private final Counter failedCounter;
+  private final Counter spilledCounter;
+  private final Counter droppedCounter;
+  private final Timer writeTimer;
+
+  /**
+   * @param name           the name of the audits, e.g. the table, unique in the host
+   * @param dataSource     the data source the audits are written to, e.g. the jdbc url, so that the writers of the
+   *                       same name but different data sources in the host, e.g. for different environments, don't
+   *                       replay each other's spilled audits. Null if there is only one
+   * @param spillDirectory the directory of the spill files, the system property {@code apollo.audit.spill-dir} or
+   *                       {@code java.io.tmpdir/apollo-audit} if null
+   */
+  public AuditWriter(String name, String dataSource, Class<T> type, Sink<T> sink, int capacity, int batchSize,
+      long batchTimeoutInMillis, File spillDirectory, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.type = type;
+    this.sink = sink;
+    this.queue = Queues.newLinkedBlockingQueue(capacity);
+    this.batchSize = batchSize;
+    this.batchTimeoutInMillis = batchTimeoutInMillis;
+    this.spillDirectory = spillDirectory != null ? spillDirectory :
+        new File(System.getProperty("apollo.audit.spill-dir", DEFAULT_SPILL_DIRECTORY));
+    this.maxSpillFileSize = Long.getLong("apollo.audit.spill-max-bytes", DEFAULT_MAX_SPILL_FILE_SIZE_IN_BYTES);
+    this.executorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("AuditWriter-" + name, true));
+
+    Gauge.builder("apollo.audit.depth", queue, BlockingQueue::size)
+        .description("The audits waiting to be written")
+        .tag("name", name)
+        .register(meterRegistry);
+    writtenCounter = counter("apollo.audit.written", "The audits written", meterRegistry);
+    failedCounter = counter("apollo.audit.failed", "The audits failed to be written, and spilled", meterRegistry);
+    spilledCounter = counter("apollo.audit.spilled", "The audits spilled to the local file", meterRegistry);
+    droppedCounter = counter("apollo.audit.dropped",
+        "The audits failed to be spilled or written one at a time, and dropped", meterRegistry);
+    writeTimer = Timer.builder("apollo.audit.write")
+        .description("The time of writing a batch of audits")
+        .tag("name", name)
+        .register(meterRegistry);
+
+    spillFile = lockSpillFile(Strings.isNullOrEmpty(dataSource) ? name :
+        name + "-" + Hashing.murmur3_32().hashString(dataSource, Charsets.UTF_8));
+  }
+
+  private Counter counter(String metric, String description, MeterRegistry meterRegistry) {
+    return Counter.builder(metric).description(description).tag("name", name).register(meterRegistry);
+  }
+
+  public void start() {
+    executorService.submit(() -> {
+      while (!stopped && !Thread.currentThread().isInterrupted()) {
+        try {
+          List<T> batch = Lists.newArrayListWithCapacity(batchSize);
+          Queues.drain(queue, batch, batchSize, batchTimeoutInMillis, TimeUnit.MILLISECONDS);
+          if (!batch.isEmpty()) {
+            write(batch);
+          }
+          //the queue is idle
+          if (batch.size() < batchSize) {
+            replaySpilled();
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (Throwable ex) {
+          logger.error("Write audits failed.", ex);
+          Tracer.logError(ex);
+        }
+      }
+    });
+  }
+
+  /**
+   * Stops the background thread, then writes the queued audits.
+   */
+  public void stop() {
+    stopped = true;
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(STOP_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+
+    if (spillLockChannel != null) {
+      try {
+        //the lock is released along with the channel
+        spillLockChannel.close();
+      } catch (IOException ex) {
+        logger.warn("Release the lock of {} failed.", spillFile, ex);
+      }
+    }
+  }
+
+  /**
+   * Queues the audit, or spills it if the queue is full.
+   */
+  public void audit(T audit) {
+    if (!queue.offer(audit)) {
+      spill(Collections.singletonList(audit));
+    }
+  }
+
+  /**
+   * Writes the queued audits now.
+   */
+  public void flush() {
+    while (true) {
+      List<T> batch = Lists.newArrayListWithCapacity(batchSize);
+      queue.drainTo(batch, batchSize);
+      if (batch.isEmpty()) {
+        return;
+      }
+      write(batch);
+    }
+  }
+
+  /**
+   * @return whether written or dropped, the audits are spilled otherwise
+   */
+  private boolean write(List<T> batch) {
+    long start = System.nanoTime();
+    try {
+      sink.write(batch);
+      writtenCounter.increment(batch.size());
+      return true;
+    } catch (Throwable ex) {
+      logger.error("Write {} {} audits failed, write them one at a time.", batch.size(), name, ex);
+      Tracer.logError(ex);
+      return writeOneByOne(batch);
+    } finally {
+      writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Writes the audits of a failed batch one at a time. The audits failed while some others are written can never be
+   * written, and are dropped. If the first audits all fail, the sink is down, and the rest are spilled.
+   *
+   * @return whether written or dropped, the audits are spilled otherwise
+   */
+  private boolean writeOneByOne(List<T> batch) {
+    List<T> failed = Lists.newArrayList();
+    boolean anyWritten = false;
+    for (int i = 0; i < batch.size(); i++) {
+      T audit = batch.get(i);
+      try {
+        sink.write(Collections.singletonList(audit));
+        writtenCounter.increment();
+        anyWritten = true;
+      } catch (Throwable ex) {
+        failed.add(audit);
+        if (!anyWritten && failed.size() >= Math.min(MAX_LEADING_SINGLE_FAILURES, batch.size())) {
+          failed.addAll(batch.subList(i + 1, batch.size()));
+          logger.error("Write {} {} audits failed, spill them.", failed.size(), name, ex);
+          failedCounter.increment(failed.size());
+          spill(failed);
+          nextReplayTime = System.currentTimeMillis() + RETRY_INTERVAL_IN_MILLIS;
+          return false;
+        }
+      }
+    }
+    for (T audit : failed) {
+      logger.error("Write the {} audit failed, drop it: {}", name, GSON.toJson(audit));
+    }
+    droppedCounter.increment(failed.size());
+    return true;
+  }
+
+  private void spill(List<T> audits) {
+    List<String> lines = Lists.newArrayListWithCapacity(audits.size());
+    for (T audit : audits) {
+      lines.add(GSON.toJson(audit));
+    }
+    spillLines(lines);
+  }
+
+  private void spillLines(List<String> lines) {
+    synchronized (spillLock) {
+      if (spillFile != null && spillFile.length() >= maxSpillFileSize) {
+        logger.error("The audit spill file {} exceeds {} bytes, drop {} audits.", spillFile, maxSpillFileSize,
+            lines.size());
+      } else if (spillFile != null) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile.toPath(), Charsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+          for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+          }
+          spilledCounter.increment(lines.size());
+          return;
+        } catch (IOException ex) {
+          logger.error("Spill {} audits to {} failed.", lines.size(), spillFile, ex);
+          Tracer.logError(ex);
+        }
+      }
+      droppedCounter.increment(lines.size());
+    }
+  }
+
+  /**
+   * Writes the spilled audits, stops at the first failure and spills the rest again.
+   */
+  private void replaySpilled() throws IOException {
+    if (spillFile == null || System.currentTimeMillis() < nextReplayTime) {
+      return;
+    }
+
+    File replayingFile = new File(spillFile.getPath() + ".replaying");
+    synchronized (spillLock) {
+      //the replaying file is left if the last replay didn't finish
+      if (!replayingFile.exists()) {
+        if (!spillFile.exists()) {
+          return;
+        }
+        Files.move(spillFile.toPath(), replayingFile.toPath());
+      }
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(replayingFile.toPath(), Charsets.UTF_8)) {
+      List<String> lines = Lists.newArrayListWithCapacity(batchSize);
+      boolean failed = false;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        lines.add(line);
+        if (lines.size() >= batchSize) {
+          failed = replayOrSpill(lines, failed);
+          lines.clear();
+        }
+      }
+      if (!lines.isEmpty()) {
+        replayOrSpill(lines, failed);
+      }
+    }
+    Files.delete(replayingFile.toPath());
+  }
+
+  /**
+   * @return whether failed, i.e. the lines are spilled again
+   */
+  private boolean replayOrSpill(List<String> lines, boolean failed) {
+    if (failed) {
+      spillLines(lines);
+      return true;
+    }
+    return !replay(lines);
+  }
+
+  private boolean replay(List<String> lines) {
+    List<T> audits = Lists.newArrayListWithCapacity(lines.size());
+    for (String line : lines) {
+      try {
+        audits.add(GSON.fromJson(line, type));
+      } catch (Throwable ex) {
+        logger.error("Parse the spilled audit failed, drop it: {}", line, ex);
+        droppedCounter.increment();
+      }
+    }
+    return audits.isEmpty() || write(audits);
+  }
+
+  private File lockSpillFile(String baseName) {
+    if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+      logger.error("Create the audit spill directory {} failed, the audits will be dropped if not written.",
+          spillDirectory);
+      return null;
+    }
+
+    for (int i = 0; i < MAX_SPILL_FILES; i++) {
+      String fileName = i == 0 ? baseName : baseName + "-" + i;
+      FileChannel channel = null;
+      try {
+        channel = FileChannel.open(new File(spillDirectory, fileName + ".lock").toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = channel.tryLock();
+        if (lock != null) {
+          spillLockChannel = channel;
+          return new File(spillDirectory, fileName + ".spill");
+        }
+      } catch (OverlappingFileLockException ex) {
+        //locked by another writer in this process
+      } catch (IOException ex) {
+        logger.warn("Lock the audit spill file {} failed.", fileName, ex);
+      }
+      closeQuietly(channel);
+    }
+
+    logger.error("No audit spill file available for {}, the audits will be dropped if not written.", name);
+    return null;
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      //ignore
+    }
+  }
+}
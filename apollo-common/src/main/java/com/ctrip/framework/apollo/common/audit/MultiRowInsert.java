@@ -0,0 +1,43 @@
+package com.ctrip.framework.apollo.common.audit;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Inserts rows with one {@code INSERT INTO ... VALUES (...), (...)} statement, i.e. one round trip for all the rows.
+ */
+public class MultiRowInsert<T> {
+
+  private static final Joiner COMMA_JOINER = Joiner.on(", ");
+
+  private final String insertSql;
+  private final String rowPlaceholders;
+  private final Function<T, Object[]> rowMapper;
+
+  /**
+   * @param rowMapper maps a row to the values of the columns, in the order of the columns
+   */
+  public MultiRowInsert(String table, List<String> columns, Function<T, Object[]> rowMapper) {
+    List<String> quotedColumns = Lists.transform(columns, column -> "`" + column + "`");
+    this.insertSql = String.format("INSERT INTO `%s` (%s) VALUES ", table, COMMA_JOINER.join(quotedColumns));
+    this.rowPlaceholders = "(" + COMMA_JOINER.join(Collections.nCopies(columns.size(), "?")) + ")";
+    this.rowMapper = rowMapper;
+  }
+
+  public int insert(JdbcTemplate jdbcTemplate, List<T> rows) {
+    if (rows.isEmpty()) {
+      return 0;
+    }
+    List<Object> args = Lists.newArrayList();
+    for (T row : rows) {
+      Collections.addAll(args, rowMapper.apply(row));
+    }
+    String sql = insertSql + COMMA_JOINER.join(Collections.nCopies(rows.size(), rowPlaceholders));
+    return jdbcTemplate.update(sql, args.toArray());
+  }
+}
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.common.config;
 
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
 
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
@@ -13,20 +14,35 @@ import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.util.CollectionUtils;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.annotation.PostConstruct;
 
 
+/**
+ * The server configs, read from the environment, in which the {@link RefreshablePropertySource}s, e.g. the ServerConfig
+ * table, are registered.
+ *
+ * <p>The property sources are checked for changes every few seconds, and only reloaded when changed (or every few
+ * minutes anyway). The values are parsed once and kept in a snapshot, which is replaced after the property sources are
+ * reloaded, so reading a config on a hot path is a map lookup.
+ */
 public abstract class RefreshableConfig {
 
   private static final Logger logger = LoggerFactory.getLogger(RefreshableConfig.class);
 
   private static final String LIST_SEPARATOR = ",";
   //TimeUnit: second
-  private static final int CONFIG_REFRESH_INTERVAL = 60;
+  private static final int CONFIG_CHANGE_CHECK_INTERVAL = 5;
+  //TimeUnit: second, reload even if no change is detected, e.g. changes in the same second are not detected
+  private static final int CONFIG_REFRESH_INTERVAL = 300;
+  // the value of a config not set or invalid
+  private static final Object ABSENT = new Object();
 
   protected Splitter splitter = Splitter.on(LIST_SEPARATOR).omitEmptyStrings().trimResults();
 
@@ -35,6 +51,9 @@ public abstract class RefreshableConfig {
 
   private List<RefreshablePropertySource> propertySources;
 
+  private volatile Snapshot snapshot = new Snapshot();
+  private long lastRefreshTime;
+
   /**
    * register refreshable property source.
    * Notice: The front property source has higher priority.
@@ -51,9 +70,11 @@ public abstract class RefreshableConfig {
 
     //add property source to environment
     for (RefreshablePropertySource propertySource : propertySources) {
-      propertySource.refresh();
+      propertySource.refreshIfChanged(true);
       environment.getPropertySources().addLast(propertySource);
     }
+    lastRefreshTime = System.currentTimeMillis();
+    snapshot = new Snapshot();
 
     //task to update configs
     ScheduledExecutorService
@@ -63,55 +84,93 @@ public abstract class RefreshableConfig {
     executorService
         .scheduleWithFixedDelay(() -> {
           try {
-            propertySources.forEach(RefreshablePropertySource::refresh);
+            refreshIfChanged();
           } catch (Throwable t) {
             logger.error("Refresh configs failed.", t);
             Tracer.logError("Refresh configs failed.", t);
           }
-        }, CONFIG_REFRESH_INTERVAL, CONFIG_REFRESH_INTERVAL, TimeUnit.SECONDS);
+        }, CONFIG_CHANGE_CHECK_INTERVAL, CONFIG_CHANGE_CHECK_INTERVAL, TimeUnit.SECONDS);
   }
 
-  public int getIntProperty(String key, int defaultValue) {
-    try {
-      String value = getValue(key);
-      return value == null ? defaultValue : Integer.parseInt(value);
-    } catch (Throwable e) {
-      Tracer.logError("Get int property failed.", e);
-      return defaultValue;
+  void refreshIfChanged() {
+    long now = System.currentTimeMillis();
+    boolean force = now - lastRefreshTime >= TimeUnit.SECONDS.toMillis(CONFIG_REFRESH_INTERVAL);
+
+    boolean refreshed = false;
+    for (RefreshablePropertySource propertySource : propertySources) {
+      refreshed |= propertySource.refreshIfChanged(force);
+    }
+
+    if (force) {
+      lastRefreshTime = now;
+    }
+    if (refreshed) {
+      snapshot = new Snapshot();
     }
   }
 
+  public int getIntProperty(String key, int defaultValue) {
+    Object value = snapshot.intValues.computeIfAbsent(key, k -> parse(k, Integer::parseInt));
+    return value == ABSENT ? defaultValue : (Integer) value;
+  }
+
   public boolean getBooleanProperty(String key, boolean defaultValue) {
-    try {
-      String value = getValue(key);
-      return value == null ? defaultValue : "true".equals(value);
-    } catch (Throwable e) {
-      Tracer.logError("Get boolean property failed.", e);
-      return defaultValue;
-    }
+    Object value = snapshot.booleanValues.computeIfAbsent(key, k -> parse(k, "true"::equals));
+    return value == ABSENT ? defaultValue : (Boolean) value;
   }
 
   public String[] getArrayProperty(String key, String[] defaultValue) {
+    Object value = snapshot.arrayValues.computeIfAbsent(key,
+        k -> parse(k, v -> Strings.isNullOrEmpty(v) ? ABSENT : v.split(LIST_SEPARATOR)));
+    return value == ABSENT ? defaultValue : ((String[]) value).clone();
+  }
+
+  public String getValue(String key, String defaultValue) {
     try {
       String value = getValue(key);
-      return Strings.isNullOrEmpty(value) ? defaultValue : value.split(LIST_SEPARATOR);
+      return value == null ? defaultValue : value;
     } catch (Throwable e) {
-      Tracer.logError("Get array property failed.", e);
+      Tracer.logError("Get value failed.", e);
       return defaultValue;
     }
   }
 
-  public String getValue(String key, String defaultValue) {
+  public String getValue(String key) {
+    Object value = snapshot.stringValues.computeIfAbsent(key, k -> {
+      String property = environment.getProperty(k);
+      return property == null ? ABSENT : property;
+    });
+    return value == ABSENT ? null : (String) value;
+  }
+
+  /**
+   * For the configs which are expensive to build, e.g. parsed from json, the value is built once and kept until the
+   * configs change.
+   *
+   * @param name    the name of the value, unique in the config
+   * @param builder builds the value from the configs, should not return null
+   */
+  @SuppressWarnings("unchecked")
+  protected <T> T getDerivedProperty(String name, Supplier<T> builder) {
+    return (T) snapshot.derivedValues.computeIfAbsent(name, k -> builder.get());
+  }
+
+  private Object parse(String key, Function<String, Object> parser) {
     try {
-      return environment.getProperty(key, defaultValue);
+      String value = getValue(key);
+      return value == null ? ABSENT : parser.apply(value);
     } catch (Throwable e) {
-      Tracer.logError("Get value failed.", e);
-      return defaultValue;
+      Tracer.logError(String.format("Get property %s failed.", key), e);
+      return ABSENT;
     }
   }
 
-  public String getValue(String key) {
-    return environment.getProperty(key);
+  private static class Snapshot {
+    private final ConcurrentMap<String, Object> intValues = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Object> booleanValues = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Object> arrayValues = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Object> stringValues = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Object> derivedValues = Maps.newConcurrentMap();
   }
 
 }
@@ -3,9 +3,12 @@ package com.ctrip.framework.apollo.common.config;
 import org.springframework.core.env.MapPropertySource;
 
 import java.util.Map;
+import java.util.Objects;
 
 public abstract class RefreshablePropertySource extends MapPropertySource {
 
+  // the version of the configs loaded by the last refresh
+  private volatile String loadedVersion;
 
   public RefreshablePropertySource(String name, Map<String, Object> source) {
     super(name, source);
@@ -21,4 +24,29 @@ public abstract class RefreshablePropertySource extends MapPropertySource {
    */
   protected abstract void refresh();
 
+  /**
+   * A value which changes whenever the configs change, e.g. the number of the configs and their latest modified time.
+   * Checked every few seconds, so it should be much cheaper than {@link #refresh()}.
+   *
+   * @return null if unknown, then the configs are refreshed every time
+   */
+  protected String currentVersion() {
+    return null;
+  }
+
+  /**
+   * @return whether refreshed
+   */
+  boolean refreshIfChanged(boolean force) {
+    //read the version first, so that the changes made during refreshing are detected next time
+    String version = currentVersion();
+    if (!force && version != null && Objects.equals(version, loadedVersion)) {
+      return false;
+    }
+
+    refresh();
+    loadedVersion = version;
+    return true;
+  }
+
 }
@@ -0,0 +1,43 @@
+package com.ctrip.framework.apollo.common.dto;
+
+/**
+ * The number of the active instances of a namespace, with the same release, instance cluster and data center
+ */
+public class InstanceSummaryDTO {
+  private String releaseKey;
+  private String clusterName;
+  private String dataCenter;
+  private int instanceCount;
+
+  public String getReleaseKey() {
+    return releaseKey;
+  }
+
+  public void setReleaseKey(String releaseKey) {
+    this.releaseKey = releaseKey;
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public void setClusterName(String clusterName) {
+    this.clusterName = clusterName;
+  }
+
+  public String getDataCenter() {
+    return dataCenter;
+  }
+
+  public void setDataCenter(String dataCenter) {
+    this.dataCenter = dataCenter;
+  }
+
+  public int getInstanceCount() {
+    return instanceCount;
+  }
+
+  public void setInstanceCount(int instanceCount) {
+    this.instanceCount = instanceCount;
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.common.dto;
 
 
+import java.util.List;
 import java.util.Map;
 
 public class ReleaseHistoryDTO extends BaseDTO{
@@ -23,6 +24,23 @@ public class ReleaseHistoryDTO extends BaseDTO{
 
   private Map<String, Object> operationContext;
 
+  /**
+   * null if not computed, e.g. the histories created before it was recorded
+   */
+  private Integer changedKeyCount;
+
+  /**
+   * the first changed keys in key order
+   */
+  private List<String> changedKeys;
+
+  /**
+   * only set by the summary api
+   */
+  private String releaseName;
+
+  private String releaseComment;
+
   public ReleaseHistoryDTO(){}
 
   public long getId() {
@@ -96,4 +114,36 @@ public class ReleaseHistoryDTO extends BaseDTO{
   public void setOperationContext(Map<String, Object> operationContext) {
     this.operationContext = operationContext;
   }
+
+  public Integer getChangedKeyCount() {
+    return changedKeyCount;
+  }
+
+  public void setChangedKeyCount(Integer changedKeyCount) {
+    this.changedKeyCount = changedKeyCount;
+  }
+
+  public List<String> getChangedKeys() {
+    return changedKeys;
+  }
+
+  public void setChangedKeys(List<String> changedKeys) {
+    this.changedKeys = changedKeys;
+  }
+
+  public String getReleaseName() {
+    return releaseName;
+  }
+
+  public void setReleaseName(String releaseName) {
+    this.releaseName = releaseName;
+  }
+
+  public String getReleaseComment() {
+    return releaseComment;
+  }
+
+  public void setReleaseComment(String releaseComment) {
+    this.releaseComment = releaseComment;
+  }
 }
@@ -0,0 +1,82 @@
+package com.ctrip.framework.apollo.common.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * 清理的已删除数据的归档，由 {@link com.ctrip.framework.apollo.common.purge.DeletedRowPurger} 写入
+ */
+@Entity
+@Table(name = "DeletedRowArchive")
+public class DeletedRowArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "Id")
+    private long id;
+
+    /**
+     * 数据所在的表
+     */
+    @Column(name = "TableName", nullable = false)
+    private String tableName;
+
+    /**
+     * 数据在原表中的 Id
+     */
+    @Column(name = "RowId", nullable = false)
+    private long rowId;
+
+    /**
+     * 数据所有列的值，json 格式
+     */
+    @Column(name = "Content", nullable = false)
+    @Lob
+    private String content;
+
+    @Column(name = "DataChange_CreatedTime", nullable = false)
+    private Date dataChangeCreatedTime;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Date getDataChangeCreatedTime() {
+        return dataChangeCreatedTime;
+    }
+
+    public void setDataChangeCreatedTime(Date dataChangeCreatedTime) {
+        this.dataChangeCreatedTime = dataChangeCreatedTime;
+    }
+}
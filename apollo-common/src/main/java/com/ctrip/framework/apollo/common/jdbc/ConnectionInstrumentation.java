@@ -0,0 +1,225 @@
+package com.ctrip.framework.apollo.common.jdbc;
+
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instruments the jdbc connections, so that the sql statements executed through them are measured, i.e. the execution
+ * time, the rows returned or updated and the failures, see {@link SqlMetrics}.
+ *
+ * <p>The executions are aggregated into the metrics, only one of every {@link #TRACE_SAMPLE_RATE} executions of a
+ * statement and the slow ones are reported to the tracer.
+ */
+class ConnectionInstrumentation {
+
+  private static final int TRACE_SAMPLE_RATE = 100;
+  private static final long SLOW_SQL_THRESHOLD_IN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final SqlMetrics sqlMetrics;
+
+  ConnectionInstrumentation(MeterRegistry meterRegistry) {
+    this.sqlMetrics = new SqlMetrics(meterRegistry, TRACE_SAMPLE_RATE);
+  }
+
+  Connection instrument(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+        new ConnectionHandler(connection));
+  }
+
+  private abstract static class JdbcHandler implements InvocationHandler {
+    protected final Object target;
+
+    JdbcHandler(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          return doInvoke(proxy, method, args);
+      }
+    }
+
+    protected abstract Object doInvoke(Object proxy, Method method, Object[] args) throws Throwable;
+
+    protected Object invokeTarget(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+    }
+  }
+
+  private class ConnectionHandler extends JdbcHandler {
+
+    ConnectionHandler(Connection connection) {
+      super(connection);
+    }
+
+    @Override
+    protected Object doInvoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = invokeTarget(method, args);
+      if (result instanceof Statement) {
+        //prepareStatement and prepareCall come with the sql, createStatement doesn't
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{method.getReturnType()},
+            new StatementHandler((Statement) result, (Connection) proxy, sql));
+      }
+      return result;
+    }
+  }
+
+  private class StatementHandler extends JdbcHandler {
+    private final Connection connection;
+    private final String preparedSql;
+    // the sql executed last, or added to the batch of a statement which is not prepared
+    private String sql;
+
+    StatementHandler(Statement statement, Connection connection, String preparedSql) {
+      super(statement);
+      this.connection = connection;
+      this.preparedSql = preparedSql;
+      this.sql = preparedSql;
+    }
+
+    @Override
+    protected Object doInvoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.startsWith("execute")) {
+        if (args != null && args.length > 0 && args[0] instanceof String) {
+          sql = (String) args[0];
+        }
+        return execute(proxy, method, args);
+      }
+
+      switch (name) {
+        case "addBatch":
+          if (preparedSql == null && args != null && args.length > 0) {
+            sql = (String) args[0];
+          }
+          return invokeTarget(method, args);
+        case "getConnection":
+          return connection;
+        case "getResultSet":
+          return wrap(invokeTarget(method, args), proxy, sqlMetrics.get(sql));
+        default:
+          return invokeTarget(method, args);
+      }
+    }
+
+    private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+      SqlMetrics.Meters meters = sqlMetrics.get(sql);
+      Transaction transaction = meters.sample() ? Tracer.newTransaction("SQL", meters.getName()) : null;
+      long start = System.nanoTime();
+      try {
+        Object result = invokeTarget(method, args);
+        recordUpdatedRows(meters, result);
+        if (transaction != null) {
+          transaction.setStatus(Transaction.SUCCESS);
+        }
+        return wrap(result, proxy, meters);
+      } catch (Throwable ex) {
+        meters.getErrors().increment();
+        if (transaction != null) {
+          transaction.setStatus(ex);
+        }
+        throw ex;
+      } finally {
+        long duration = System.nanoTime() - start;
+        meters.getLatency().record(duration, TimeUnit.NANOSECONDS);
+        if (duration >= SLOW_SQL_THRESHOLD_IN_NANOS) {
+          Tracer.logEvent("SQL.Slow", meters.getName());
+        }
+        if (transaction != null) {
+          transaction.complete();
+        }
+      }
+    }
+
+    private void recordUpdatedRows(SqlMetrics.Meters meters, Object result) {
+      if (result instanceof Number) {
+        long rows = ((Number) result).longValue();
+        if (rows >= 0) {
+          meters.getRows().record(rows);
+        }
+      } else if (result instanceof int[]) {
+        long rows = 0;
+        for (int count : (int[]) result) {
+          rows += Math.max(count, 0);
+        }
+        meters.getRows().record(rows);
+      } else if (result instanceof long[]) {
+        long rows = 0;
+        for (long count : (long[]) result) {
+          rows += Math.max(count, 0);
+        }
+        meters.getRows().record(rows);
+      }
+    }
+
+    private Object wrap(Object result, Object statement, SqlMetrics.Meters meters) {
+      if (!(result instanceof ResultSet)) {
+        return result;
+      }
+      return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+          new ResultSetHandler((ResultSet) result, (Statement) statement, meters));
+    }
+  }
+
+  /**
+   * Counts the rows read from the result set, recorded when it's closed.
+   */
+  private static class ResultSetHandler extends JdbcHandler {
+    private final Statement statement;
+    private final SqlMetrics.Meters meters;
+    private long rows;
+    private boolean closed;
+
+    ResultSetHandler(ResultSet resultSet, Statement statement, SqlMetrics.Meters meters) {
+      super(resultSet);
+      this.statement = statement;
+      this.meters = meters;
+    }
+
+    @Override
+    protected Object doInvoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "next":
+          Object hasNext = invokeTarget(method, args);
+          if (Boolean.TRUE.equals(hasNext)) {
+            rows++;
+          }
+          return hasNext;
+        case "close":
+          try {
+            return invokeTarget(method, args);
+          } finally {
+            if (!closed) {
+              closed = true;
+              meters.getRows().record(rows);
+            }
+          }
+        case "getStatement":
+          return statement;
+        default:
+          return invokeTarget(method, args);
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.ctrip.framework.apollo.common.jdbc;
+
+import io.micrometer.core.instrument.Metrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+/**
+ * Instruments the connections of the data sources, so that all the sql statements, executed by jpa repositories or
+ * jdbc templates, are measured, see {@link ConnectionInstrumentation}.
+ *
+ * <p>The data sources are advised instead of replaced, so that their types are kept, e.g. a refresh scoped
+ * {@code HikariDataSource}, whose scoped proxy must be backed by a {@code HikariDataSource}. The scoped targets are
+ * skipped, as their connections are got through the scoped proxies, which are advised.
+ */
+@Component
+public class DataSourceInstrumentationPostProcessor implements BeanPostProcessor {
+
+  private final Advisor advisor;
+
+  public DataSourceInstrumentationPostProcessor() {
+    ConnectionInstrumentation connectionInstrumentation = new ConnectionInstrumentation(Metrics.globalRegistry);
+    NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(
+        (MethodInterceptor) invocation -> connectionInstrumentation.instrument((Connection) invocation.proceed()));
+    advisor.setMappedName("getConnection");
+    this.advisor = advisor;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+    if (!(bean instanceof DataSource) || ScopedProxyUtils.isScopedTarget(beanName)) {
+      return bean;
+    }
+
+    if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+      Advised advised = (Advised) bean;
+      if (advised.indexOf(advisor) < 0) {
+        advised.addAdvisor(advisor);
+      }
+      return bean;
+    }
+
+    ProxyFactory proxyFactory = new ProxyFactory(bean);
+    //keep the type of the data source if possible
+    proxyFactory.setProxyTargetClass(!Modifier.isFinal(bean.getClass().getModifiers()));
+    proxyFactory.addAdvisor(advisor);
+    return proxyFactory.getProxy();
+  }
+}
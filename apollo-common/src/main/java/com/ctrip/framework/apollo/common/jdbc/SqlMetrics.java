@@ -0,0 +1,156 @@
+package com.ctrip.framework.apollo.common.jdbc;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * The metrics of the sql statements, aggregated by the command and the table, e.g. {@code SELECT ReleaseMessage}, so
+ * that the number of the metrics is bounded by the number of the tables.
+ *
+ * <p>The name of a sql is resolved once and cached along with its meters, so recording an execution is a cache lookup.
+ */
+class SqlMetrics {
+
+  static final String UNKNOWN = "UNKNOWN";
+
+  private static final String LATENCY_METRIC = "apollo.sql.latency";
+  private static final String ROWS_METRIC = "apollo.sql.rows";
+  private static final String ERRORS_METRIC = "apollo.sql.errors";
+  private static final String STATEMENT_TAG = "statement";
+  private static final int MAX_CACHED_SQLS = 2000;
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final MeterRegistry meterRegistry;
+  private final int traceSampleRate;
+  // sql -> meters
+  private final LoadingCache<String, Meters> sqlMeters;
+  // name -> meters
+  private final ConcurrentMap<String, Meters> namedMeters = Maps.newConcurrentMap();
+
+  /**
+   * @param traceSampleRate one of every {@code traceSampleRate} executions of a statement is traced
+   */
+  SqlMetrics(MeterRegistry meterRegistry, int traceSampleRate) {
+    this.meterRegistry = meterRegistry;
+    this.traceSampleRate = traceSampleRate;
+    this.sqlMeters = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SQLS).build(new CacheLoader<String, Meters>() {
+      @Override
+      public Meters load(String sql) {
+        return named(resolveName(sql));
+      }
+    });
+  }
+
+  Meters get(String sql) {
+    return sql == null ? named(UNKNOWN) : sqlMeters.getUnchecked(sql);
+  }
+
+  private Meters named(String name) {
+    return namedMeters.computeIfAbsent(name, Meters::new);
+  }
+
+  /**
+   * @return the command followed by the table, e.g. {@code SELECT Item}, or only the command if the table is unknown
+   */
+  static String resolveName(String sql) {
+    String[] tokens = WHITESPACE.split(sql.trim());
+    String command = tokens[0].toUpperCase(Locale.ROOT);
+
+    String tableKeyword;
+    switch (command) {
+      case "SELECT":
+      case "DELETE":
+        tableKeyword = "FROM";
+        break;
+      case "INSERT":
+      case "REPLACE":
+        tableKeyword = "INTO";
+        break;
+      case "UPDATE":
+        return withTable(command, tokens.length > 1 ? tokens[1] : null);
+      default:
+        return UNKNOWN;
+    }
+
+    for (int i = 1; i < tokens.length - 1; i++) {
+      if (tableKeyword.equalsIgnoreCase(tokens[i])) {
+        return withTable(command, tokens[i + 1]);
+      }
+    }
+    return command;
+  }
+
+  private static String withTable(String command, String token) {
+    if (token == null) {
+      return command;
+    }
+    String table = token;
+    int bracket = table.indexOf('(');
+    if (bracket >= 0) {
+      table = table.substring(0, bracket);
+    }
+    //ignore the schema
+    table = table.substring(table.lastIndexOf('.') + 1).replace("`", "");
+    return table.isEmpty() ? command : command + " " + table;
+  }
+
+  class Meters {
+    private final String name;
+    private final Timer latency;
+    private final DistributionSummary rows;
+    private final Counter errors;
+    private final AtomicLong executions = new AtomicLong();
+
+    private Meters(String name) {
+      this.name = name;
+      this.latency = Timer.builder(LATENCY_METRIC)
+          .description("The execution time of the sql statements")
+          .tag(STATEMENT_TAG, name)
+          .publishPercentileHistogram()
+          .register(meterRegistry);
+      this.rows = DistributionSummary.builder(ROWS_METRIC)
+          .description("The rows returned or updated by the sql statements")
+          .tag(STATEMENT_TAG, name)
+          .publishPercentileHistogram()
+          .register(meterRegistry);
+      this.errors = Counter.builder(ERRORS_METRIC)
+          .description("The failed executions of the sql statements")
+          .tag(STATEMENT_TAG, name)
+          .register(meterRegistry);
+    }
+
+    String getName() {
+      return name;
+    }
+
+    Timer getLatency() {
+      return latency;
+    }
+
+    DistributionSummary getRows() {
+      return rows;
+    }
+
+    Counter getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return whether this execution should be traced
+     */
+    boolean sample() {
+      return executions.getAndIncrement() % traceSampleRate == 0;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.ctrip.framework.apollo.common.purge;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges the soft deleted rows, i.e. {@code IsDeleted = 1}, which were deleted before a given time.
+ *
+ * <p>The rows are scanned by id and purged in chunks, one transaction per chunk, sleeping between the chunks so that
+ * the database is not kept busy. Each chunk locks the rows it purges and checks again that they are still deleted,
+ * so the rows changed meanwhile are kept. The purged rows are optionally archived to {@code DeletedRowArchive} first.
+ */
+public class DeletedRowPurger {
+  private static final Gson GSON = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS").serializeNulls().create();
+  private static final Joiner COMMA_JOINER = Joiner.on(", ");
+  private static final String ARCHIVE_SQL = "INSERT INTO `DeletedRowArchive` (`TableName`, `RowId`, `Content`, " +
+      "`DataChange_CreatedTime`) VALUES (?, ?, ?, ?)";
+  // lobs are archived as strings
+  private static final ColumnMapRowMapper ROW_MAPPER = new ColumnMapRowMapper() {
+    @Override
+    protected Object getColumnValue(ResultSet rs, int index) throws SQLException {
+      Object value = super.getColumnValue(rs, index);
+      return value instanceof Clob ? rs.getString(index) : value;
+    }
+  };
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  public DeletedRowPurger(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * @return the number of rows purged from the table, not counting the child rows
+   */
+  public int purge(Table table, Date deletedBefore, int chunkSize, long chunkIntervalInMillis, boolean archive)
+      throws InterruptedException {
+    String scanSql = String.format("SELECT `Id` FROM `%s` WHERE `Id` > ? AND `IsDeleted` = 1 AND " +
+        "`DataChange_LastTime` < ? ORDER BY `Id` LIMIT ?", table.name);
+
+    int purged = 0;
+    long lastId = 0;
+    while (true) {
+      List<Long> ids = jdbcTemplate.queryForList(scanSql, Long.class, lastId, deletedBefore, chunkSize);
+      if (ids.isEmpty()) {
+        break;
+      }
+      lastId = ids.get(ids.size() - 1);
+
+      Integer chunkPurged = transactionTemplate.execute(status -> purgeChunk(table, ids, deletedBefore, archive));
+      purged += chunkPurged == null ? 0 : chunkPurged;
+
+      if (ids.size() < chunkSize) {
+        break;
+      }
+      TimeUnit.MILLISECONDS.sleep(chunkIntervalInMillis);
+    }
+    return purged;
+  }
+
+  private int purgeChunk(Table table, List<Long> ids, Date deletedBefore, boolean archive) {
+    String placeholders = placeholders(ids.size());
+    List<Object> args = Lists.newArrayList(ids);
+    args.add(deletedBefore);
+
+    //lock the rows and check again, in case they are changed after scanned
+    List<Map<String, Object>> rows = jdbcTemplate.query(String.format("SELECT * FROM `%s` WHERE `Id` IN (%s) AND " +
+            "`IsDeleted` = 1 AND `DataChange_LastTime` < ? FOR UPDATE", table.name, placeholders), args.toArray(),
+        ROW_MAPPER);
+    if (rows.isEmpty()) {
+      return 0;
+    }
+
+    List<Object> rowIds = Lists.newArrayListWithCapacity(rows.size());
+    for (Map<String, Object> row : rows) {
+      rowIds.add(row.get("Id"));
+    }
+    String rowIdPlaceholders = placeholders(rowIds.size());
+
+    if (table.childName != null) {
+      String childCondition = String.format("FROM `%s` WHERE `%s` IN (%s)", table.childName, table.childColumn,
+          rowIdPlaceholders);
+      if (archive) {
+        archive(table.childName,
+            jdbcTemplate.query("SELECT * " + childCondition + " FOR UPDATE", rowIds.toArray(), ROW_MAPPER));
+      }
+      jdbcTemplate.update("DELETE " + childCondition, rowIds.toArray());
+    }
+
+    if (archive) {
+      archive(table.name, rows);
+    }
+    jdbcTemplate.update(String.format("DELETE FROM `%s` WHERE `Id` IN (%s)", table.name, rowIdPlaceholders),
+        rowIds.toArray());
+
+    return rows.size();
+  }
+
+  private void archive(String tableName, List<Map<String, Object>> rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    Date now = new Date();
+    List<Object[]> batchArgs = Lists.newArrayListWithCapacity(rows.size());
+    for (Map<String, Object> row : rows) {
+      batchArgs.add(new Object[]{tableName, ((Number) row.get("Id")).longValue(), GSON.toJson(row), now});
+    }
+    jdbcTemplate.batchUpdate(ARCHIVE_SQL, batchArgs);
+  }
+
+  private static String placeholders(int count) {
+    return COMMA_JOINER.join(Collections.nCopies(count, "?"));
+  }
+
+  /**
+   * A table with soft deleted rows. The rows of the child table referring to a purged row are purged along with it.
+   */
+  public static class Table {
+    private final String name;
+    private final String childName;
+    private final String childColumn;
+
+    private Table(String name, String childName, String childColumn) {
+      this.name = name;
+      this.childName = childName;
+      this.childColumn = childColumn;
+    }
+
+    public static Table of(String name) {
+      return new Table(name, null, null);
+    }
+
+    public Table withChild(String childName, String childColumn) {
+      return new Table(name, childName, childColumn);
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
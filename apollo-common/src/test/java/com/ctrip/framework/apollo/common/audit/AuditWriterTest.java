@@ -0,0 +1,169 @@
+package com.ctrip.framework.apollo.common.audit;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AuditWriterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private List<SomeAudit> written;
+  private SimpleMeterRegistry meterRegistry;
+  private AuditWriter<SomeAudit> auditWriter;
+
+  @Before
+  public void setUp() throws Exception {
+    written = new CopyOnWriteArrayList<>();
+    meterRegistry = new SimpleMeterRegistry();
+    //only one audit could be queued
+    auditWriter = new AuditWriter<>("SomeAudit", null, SomeAudit.class, written::addAll, 1, 10, 50,
+        temporaryFolder.getRoot(), meterRegistry);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    auditWriter.stop();
+  }
+
+  @Test
+  public void testSpillAndReplay() throws Exception {
+    auditWriter.audit(new SomeAudit("a"));
+    auditWriter.audit(new SomeAudit("b"));
+    auditWriter.audit(new SomeAudit("c"));
+
+    List<String> spilled = Files.readAllLines(new File(temporaryFolder.getRoot(), "SomeAudit.spill").toPath(),
+        Charsets.UTF_8);
+    assertEquals(2, spilled.size());
+    assertEquals(2, meterRegistry.get("apollo.audit.spilled").counter().count(), 0);
+
+    auditWriter.start();
+
+    for (int i = 0; i < 50 && written.size() < 3; i++) {
+      TimeUnit.MILLISECONDS.sleep(20);
+    }
+    assertEquals(Lists.newArrayList("a", "b", "c"), values());
+    assertEquals(3, meterRegistry.get("apollo.audit.written").counter().count(), 0);
+  }
+
+  @Test
+  public void testFlushWhenStopped() throws Exception {
+    auditWriter.audit(new SomeAudit("a"));
+
+    auditWriter.stop();
+
+    assertEquals(Lists.newArrayList("a"), values());
+  }
+
+  @Test
+  public void testDropAuditsFailedOneAtATime() throws Exception {
+    AuditWriter<SomeAudit> anotherWriter = new AuditWriter<>("AnotherAudit", null, SomeAudit.class, audits -> {
+      for (SomeAudit audit : audits) {
+        if (audit.value.length() > 1) {
+          throw new IllegalArgumentException("Data too long");
+        }
+      }
+      written.addAll(audits);
+    }, 10, 10, 50, temporaryFolder.getRoot(), meterRegistry);
+
+    anotherWriter.audit(new SomeAudit("a"));
+    anotherWriter.audit(new SomeAudit("too long"));
+    anotherWriter.audit(new SomeAudit("c"));
+    anotherWriter.stop();
+
+    assertEquals(Lists.newArrayList("a", "c"), values());
+    assertEquals(1, meterRegistry.get("apollo.audit.dropped").tag("name", "AnotherAudit").counter().count(), 0);
+    assertFalse(new File(temporaryFolder.getRoot(), "AnotherAudit.spill").exists());
+  }
+
+  @Test
+  public void testSpillWhenSinkDown() throws Exception {
+    AuditWriter<SomeAudit> anotherWriter = new AuditWriter<>("AnotherAudit", null, SomeAudit.class, audits -> {
+      throw new IllegalStateException("Database is down");
+    }, 10, 10, 50, temporaryFolder.getRoot(), meterRegistry);
+
+    for (int i = 0; i < 5; i++) {
+      anotherWriter.audit(new SomeAudit(String.valueOf(i)));
+    }
+    anotherWriter.stop();
+
+    List<String> spilled = Files.readAllLines(new File(temporaryFolder.getRoot(), "AnotherAudit.spill").toPath(),
+        Charsets.UTF_8);
+    assertEquals(5, spilled.size());
+    assertEquals(0, meterRegistry.get("apollo.audit.dropped").tag("name", "AnotherAudit").counter().count(), 0);
+  }
+
+  @Test
+  public void testSpillFileCapped() throws Exception {
+    System.setProperty("apollo.audit.spill-max-bytes", "1");
+    AuditWriter<SomeAudit> anotherWriter;
+    try {
+      anotherWriter = new AuditWriter<>("AnotherAudit", null, SomeAudit.class, written::addAll, 1, 10, 50,
+          temporaryFolder.getRoot(), meterRegistry);
+    } finally {
+      System.clearProperty("apollo.audit.spill-max-bytes");
+    }
+
+    anotherWriter.audit(new SomeAudit("a"));
+    anotherWriter.audit(new SomeAudit("b"));
+    anotherWriter.audit(new SomeAudit("c"));
+
+    List<String> spilled = Files.readAllLines(new File(temporaryFolder.getRoot(), "AnotherAudit.spill").toPath(),
+        Charsets.UTF_8);
+    assertEquals(1, spilled.size());
+    assertEquals(1, meterRegistry.get("apollo.audit.dropped").tag("name", "AnotherAudit").counter().count(), 0);
+
+    anotherWriter.stop();
+  }
+
+  @Test
+  public void testSpillFilesOfDifferentDataSources() throws Exception {
+    AuditWriter<SomeAudit> someWriter = new AuditWriter<>("AnotherAudit", "jdbc:mysql://someHost/someDB",
+        SomeAudit.class, written::addAll, 1, 10, 50, temporaryFolder.getRoot(), new SimpleMeterRegistry());
+    AuditWriter<SomeAudit> anotherWriter = new AuditWriter<>("AnotherAudit", "jdbc:mysql://anotherHost/someDB",
+        SomeAudit.class, written::addAll, 1, 10, 50, temporaryFolder.getRoot(), new SimpleMeterRegistry());
+
+    someWriter.audit(new SomeAudit("a"));
+    someWriter.audit(new SomeAudit("b"));
+    anotherWriter.audit(new SomeAudit("c"));
+    anotherWriter.audit(new SomeAudit("d"));
+
+    File[] spillFiles = temporaryFolder.getRoot().listFiles((dir, fileName) -> fileName.startsWith("AnotherAudit")
+        && fileName.endsWith(".spill"));
+    assertEquals(2, spillFiles.length);
+
+    someWriter.stop();
+    anotherWriter.stop();
+  }
+
+  private List<String> values() {
+    List<String> values = Lists.newArrayList();
+    for (SomeAudit audit : written) {
+      values.add(audit.value);
+    }
+    return values;
+  }
+
+  private static class SomeAudit {
+    private String value;
+
+    SomeAudit(String value) {
+      this.value = value;
+    }
+  }
+}
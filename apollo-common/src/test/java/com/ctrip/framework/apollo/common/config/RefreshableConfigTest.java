@@ -0,0 +1,114 @@
+package com.ctrip.framework.apollo.common.config;
+
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshableConfigTest {
+
+  private Map<String, String> serverConfigs;
+  private String version;
+  private AtomicInteger refreshTimes;
+  private SomeConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    serverConfigs = Maps.newHashMap();
+    version = "1";
+    refreshTimes = new AtomicInteger();
+
+    config = new SomeConfig(new SomePropertySource());
+    ReflectionTestUtils.setField(config, "environment", new StandardEnvironment());
+  }
+
+  @Test
+  public void testTypedValues() throws Exception {
+    serverConfigs.put("someInt", "10");
+    serverConfigs.put("someBoolean", "true");
+    serverConfigs.put("someArray", "a,b");
+    serverConfigs.put("someInvalidInt", "someNAN");
+    config.setup();
+
+    assertEquals(10, config.getIntProperty("someInt", 1));
+    assertEquals(1, config.getIntProperty("someInvalidInt", 1));
+    assertEquals(2, config.getIntProperty("someMissingInt", 2));
+    assertTrue(config.getBooleanProperty("someBoolean", false));
+    assertFalse(config.getBooleanProperty("someMissingBoolean", false));
+    assertArrayEquals(new String[]{"a", "b"}, config.getArrayProperty("someArray", null));
+    assertNull(config.getValue("someMissingValue"));
+    assertEquals("default", config.getValue("someMissingValue", "default"));
+  }
+
+  @Test
+  public void testRefreshOnlyWhenChanged() throws Exception {
+    serverConfigs.put("someInt", "10");
+    config.setup();
+    List<String> derived = config.someDerivedValue();
+    assertEquals(1, refreshTimes.get());
+    assertEquals(10, config.getIntProperty("someInt", 1));
+
+    serverConfigs.put("someInt", "20");
+    config.refreshIfChanged();
+
+    //the version is not changed
+    assertEquals(1, refreshTimes.get());
+    assertEquals(10, config.getIntProperty("someInt", 1));
+    assertSame(derived, config.someDerivedValue());
+
+    version = "2";
+    config.refreshIfChanged();
+
+    assertEquals(2, refreshTimes.get());
+    assertEquals(20, config.getIntProperty("someInt", 1));
+    assertEquals(Collections.singletonList("20"), config.someDerivedValue());
+  }
+
+  private class SomeConfig extends RefreshableConfig {
+    private final RefreshablePropertySource propertySource;
+
+    SomeConfig(RefreshablePropertySource propertySource) {
+      this.propertySource = propertySource;
+    }
+
+    @Override
+    protected List<RefreshablePropertySource> getRefreshablePropertySources() {
+      return Collections.singletonList(propertySource);
+    }
+
+    List<String> someDerivedValue() {
+      return getDerivedProperty("someDerivedValue", () -> Collections.singletonList(getValue("someInt")));
+    }
+  }
+
+  private class SomePropertySource extends RefreshablePropertySource {
+
+    SomePropertySource() {
+      super("SomeConfig", Maps.newConcurrentMap());
+    }
+
+    @Override
+    protected String currentVersion() {
+      return version;
+    }
+
+    @Override
+    protected void refresh() {
+      refreshTimes.incrementAndGet();
+      source.putAll(serverConfigs);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.ctrip.framework.apollo.common.jdbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectionInstrumentationTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private Connection connection;
+  private ConnectionInstrumentation connectionInstrumentation;
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    connection = mock(Connection.class);
+
+    connectionInstrumentation = new ConnectionInstrumentation(meterRegistry);
+  }
+
+  @Test
+  public void testResolveName() throws Exception {
+    assertEquals("SELECT Item", SqlMetrics.resolveName(
+        "select item0_.Id as Id1_8_ from Item item0_ where item0_.NamespaceId=?"));
+    assertEquals("SELECT ReleaseMessage",
+        SqlMetrics.resolveName("SELECT COUNT(*) FROM `ApolloConfigDB`.`ReleaseMessage`"));
+    assertEquals("INSERT Instance", SqlMetrics.resolveName("insert into Instance(AppId, ClusterName) values (?, ?)"));
+    assertEquals("UPDATE App", SqlMetrics.resolveName("Update App set isDeleted = 1 where id = ?"));
+    assertEquals("DELETE Commit", SqlMetrics.resolveName("\n DELETE FROM Commit WHERE Id = ?"));
+    assertEquals("SELECT", SqlMetrics.resolveName("SELECT 1"));
+    assertEquals(SqlMetrics.UNKNOWN, SqlMetrics.resolveName("call someProcedure()"));
+  }
+
+  @Test
+  public void testPreparedQuery() throws Exception {
+    String sql = "SELECT * FROM Item WHERE NamespaceId = ?";
+    PreparedStatement statement = mock(PreparedStatement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.prepareStatement(sql)).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+
+    Connection instrumented = connectionInstrumentation.instrument(connection);
+    PreparedStatement instrumentedStatement = instrumented.prepareStatement(sql);
+    ResultSet instrumentedResultSet = instrumentedStatement.executeQuery();
+    while (instrumentedResultSet.next()) {
+      instrumentedResultSet.getLong("Id");
+    }
+    instrumentedResultSet.close();
+    instrumentedStatement.close();
+    instrumented.close();
+
+    verify(resultSet, times(2)).getLong("Id");
+    verify(statement).close();
+    verify(connection).close();
+    assertSame(instrumented, instrumentedStatement.getConnection());
+
+    assertEquals(1, latency("SELECT Item").count());
+    assertEquals(1, rows("SELECT Item").count());
+    assertEquals(2, rows("SELECT Item").totalAmount(), 0);
+  }
+
+  @Test
+  public void testUpdateAndBatch() throws Exception {
+    Statement statement = mock(Statement.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeUpdate(anyString())).thenReturn(3);
+    when(statement.executeBatch()).thenReturn(new int[]{1, Statement.SUCCESS_NO_INFO, 2});
+
+    Statement instrumentedStatement = connectionInstrumentation.instrument(connection).createStatement();
+    instrumentedStatement.executeUpdate("UPDATE Item SET IsDeleted = 1 WHERE NamespaceId = 1");
+    instrumentedStatement.addBatch("DELETE FROM Commit WHERE Id = 1");
+    instrumentedStatement.addBatch("DELETE FROM Commit WHERE Id = 2");
+    instrumentedStatement.executeBatch();
+
+    assertEquals(1, latency("UPDATE Item").count());
+    assertEquals(3, rows("UPDATE Item").totalAmount(), 0);
+    assertEquals(1, latency("DELETE Commit").count());
+    assertEquals(3, rows("DELETE Commit").totalAmount(), 0);
+  }
+
+  @Test
+  public void testFailedExecution() throws Exception {
+    String sql = "DELETE FROM Item WHERE Id = ?";
+    PreparedStatement statement = mock(PreparedStatement.class);
+    SQLException someException = new SQLException("some error");
+    when(connection.prepareStatement(sql)).thenReturn(statement);
+    when(statement.executeUpdate()).thenThrow(someException);
+
+    try {
+      connectionInstrumentation.instrument(connection).prepareStatement(sql).executeUpdate();
+      fail();
+    } catch (SQLException ex) {
+      assertSame(someException, ex);
+    }
+
+    assertEquals(1, latency("DELETE Item").count());
+    assertEquals(1, meterRegistry.get("apollo.sql.errors").tag("statement", "DELETE Item").counter().count(), 0);
+  }
+
+  private Timer latency(String statement) {
+    return meterRegistry.get("apollo.sql.latency").tag("statement", statement).timer();
+  }
+
+  private DistributionSummary rows(String statement) {
+    return meterRegistry.get("apollo.sql.rows").tag("statement", statement).summary();
+  }
+}
@@ -3,15 +3,19 @@ package com.ctrip.framework.apollo.configservice;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.configservice.admission.AdmissionControlFilter;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.controller.NotificationStreamController;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigService;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 
 /**
@@ -43,6 +47,17 @@ public class ConfigServiceAutoConfiguration {
         return new DefaultConfigService();
     }
 
+    // 准入控制，过载时按优先级丢弃请求  通过该配置：admission-control.enabled
+    @Bean
+    public FilterRegistrationBean admissionControlFilter() {
+        FilterRegistrationBean bean = new FilterRegistrationBean();
+        bean.setFilter(new AdmissionControlFilter(bizConfig));
+        bean.setName("admissionControlFilter");
+        bean.addUrlPatterns("/*");
+        bean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return bean;
+    }
+
     @Bean
     public static NoOpPasswordEncoder passwordEncoder() {
         return (NoOpPasswordEncoder) NoOpPasswordEncoder.getInstance();
@@ -54,6 +69,7 @@ public class ConfigServiceAutoConfiguration {
         private final NotificationController notificationController;
         private final ConfigFileController configFileController;
         private final NotificationControllerV2 notificationControllerV2;
+        private final NotificationStreamController notificationStreamController;
         private final GrayReleaseRulesHolder grayReleaseRulesHolder;
         private final ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
         private final ConfigService configService;
@@ -62,12 +78,14 @@ public class ConfigServiceAutoConfiguration {
                 final NotificationController notificationController,
                 final ConfigFileController configFileController,
                 final NotificationControllerV2 notificationControllerV2,
+                final NotificationStreamController notificationStreamController,
                 final GrayReleaseRulesHolder grayReleaseRulesHolder,
                 final ReleaseMessageServiceWithCache releaseMessageServiceWithCache,
                 final ConfigService configService) {
             this.notificationController = notificationController;
             this.configFileController = configFileController;
             this.notificationControllerV2 = notificationControllerV2;
+            this.notificationStreamController = notificationStreamController;
             this.grayReleaseRulesHolder = grayReleaseRulesHolder;
             this.releaseMessageServiceWithCache = releaseMessageServiceWithCache;
             this.configService = configService;
@@ -86,6 +104,7 @@ public class ConfigServiceAutoConfiguration {
             releaseMessageScanner.addMessageListener(configFileController);
             //3. notify clients
             releaseMessageScanner.addMessageListener(notificationControllerV2);
+            releaseMessageScanner.addMessageListener(notificationStreamController);
             releaseMessageScanner.addMessageListener(notificationController);
             return releaseMessageScanner;
         }
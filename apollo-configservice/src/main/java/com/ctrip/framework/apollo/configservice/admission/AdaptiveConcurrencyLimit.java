@@ -0,0 +1,86 @@
+package com.ctrip.framework.apollo.configservice.admission;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按耗时自适应的并发限制（AIMD）
+ * <p>
+ * 1. 请求耗时超过阈值时，并发限制乘以 {@link #BACKOFF_RATIO} ，每个阈值时间内最多减少一次，避免同一批慢请求把限制降到最低
+ * 2. 请求耗时正常且并发数超过限制的一半时，并发限制增加 1 / limit ，即每轮满额的请求增加 1
+ * <p>
+ * 异步的长轮询只统计注册阶段（Servlet 容器线程被占用的时间），挂起的时间不计入。
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final BizConfig bizConfig;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecreaseTime;
+
+    public AdaptiveConcurrencyLimit(final BizConfig bizConfig) {
+        this.bizConfig = bizConfig;
+        this.limit = bizConfig.admissionControlInitialLimit();
+        this.lastDecreaseTime = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+    }
+
+    /**
+     * @return true if the request is admitted, {@link #release} must be called once it is processed
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        if (priority == RequestPriority.CRITICAL) {
+            inflight.incrementAndGet();
+            return true;
+        }
+        int currentLimit = (int) limit;
+        if (priority == RequestPriority.LONG_POLL) {
+            currentLimit = Math.max(1, currentLimit * bizConfig.admissionControlLongPollShare() / 100);
+        }
+        while (true) {
+            int current = inflight.get();
+            if (current >= currentLimit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(RequestPriority priority, long latencyInNanos) {
+        int current = inflight.getAndDecrement();
+        // 健康检查等请求耗时稳定，不参与调整
+        if (priority != RequestPriority.CRITICAL) {
+            onSample(latencyInNanos, current);
+        }
+    }
+
+    private synchronized void onSample(long latencyInNanos, int inflightWhenCompleted) {
+        long thresholdInNanos = TimeUnit.MILLISECONDS.toNanos(bizConfig.admissionControlLatencyThresholdInMilli());
+        int minLimit = bizConfig.admissionControlMinLimit();
+        int maxLimit = Math.max(minLimit, bizConfig.admissionControlMaxLimit());
+        double newLimit = limit;
+        if (latencyInNanos > thresholdInNanos) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseTime < thresholdInNanos) {
+                return;
+            }
+            lastDecreaseTime = now;
+            newLimit = newLimit * BACKOFF_RATIO;
+        } else if (inflightWhenCompleted * 2 >= newLimit) {
+            newLimit = newLimit + 1 / newLimit;
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.configservice.admission;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 准入控制：大量发布或客户端批量重启时，按 {@link RequestPriority} 丢弃超出 {@link AdaptiveConcurrencyLimit} 的请求，
+ * 返回 503 和 Retry-After ，避免容器线程池被占满导致健康检查超时、节点被 Eureka 摘除后压力转移到其它节点。
+ * <p>
+ * 通过 admission-control.enabled 开启。
+ */
+public class AdmissionControlFilter implements Filter {
+    private static final String TRACER_EVENT_REJECTED = "Apollo.AdmissionControl.Rejected";
+
+    private final BizConfig bizConfig;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public AdmissionControlFilter(final BizConfig bizConfig) {
+        this.bizConfig = bizConfig;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(bizConfig);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        //nothing
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws
+            IOException, ServletException {
+        if (!bizConfig.isAdmissionControlEnabled()) {
+            chain.doFilter(req, resp);
+            return;
+        }
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) resp;
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RequestPriority priority = RequestPriority.of(path);
+        if (!concurrencyLimit.tryAcquire(priority)) {
+            reject(response, priority);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            concurrencyLimit.release(priority, System.nanoTime() - start);
+        }
+    }
+
+    private void reject(HttpServletResponse response, RequestPriority priority) {
+        Tracer.logEvent(TRACER_EVENT_REJECTED, priority.name());
+        // 随机打散重试时间，避免被拒绝的客户端同时重试
+        int retryAfter = bizConfig.admissionControlRetryAfterInSecond();
+        retryAfter += ThreadLocalRandom.current().nextInt(retryAfter + 1);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Override
+    public void destroy() {
+        //nothing
+    }
+}
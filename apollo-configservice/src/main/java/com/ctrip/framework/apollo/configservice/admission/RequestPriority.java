@@ -0,0 +1,32 @@
+package com.ctrip.framework.apollo.configservice.admission;
+
+/**
+ * 请求优先级，过载时优先丢弃低优先级的请求
+ */
+public enum RequestPriority {
+    /**
+     * 健康检查、Meta Service 、Eureka 等，不受并发限制，保证过载时节点不会被摘除
+     */
+    CRITICAL,
+    /**
+     * 配置读取 /configs 、/configfiles
+     */
+    CONFIG_FETCH,
+    /**
+     * 新的长轮询注册 /notifications ，只能使用一部分并发额度
+     */
+    LONG_POLL;
+
+    /**
+     * @param path the request path without the context path
+     */
+    public static RequestPriority of(String path) {
+        if (path.startsWith("/notifications")) {
+            return LONG_POLL;
+        }
+        if (path.startsWith("/configs/") || path.startsWith("/configfiles/")) {
+            return CONFIG_FETCH;
+        }
+        return CRITICAL;
+    }
+}
@@ -6,15 +6,19 @@ import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.common.exception.NotFoundException;
+import com.ctrip.framework.apollo.configservice.service.ReleaseChangedKeysService;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
-import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.service.WatchSession;
+import com.ctrip.framework.apollo.configservice.service.WatchSessionService;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.dto.ApolloWatchSession;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.*;
 import com.google.gson.Gson;
@@ -25,6 +29,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,7 +42,6 @@ import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -54,8 +60,6 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
      */
     private final Multimap<String, DeferredResultWrapper> deferredResults =
             Multimaps.synchronizedSetMultimap(TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
-    private static final Splitter STRING_SPLITTER =
-            Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
     private static final Type notificationsTypeReference =
             new TypeToken<List<ApolloConfigNotification>>() {
             }.getType();
@@ -68,7 +72,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     private final WatchKeysUtil watchKeysUtil;
     private final ReleaseMessageServiceWithCache releaseMessageService;
     private final EntityManagerUtil entityManagerUtil;
-    private final NamespaceUtil namespaceUtil;
+    private final WatchNotificationsUtil watchNotificationsUtil;
+    private final WatchSessionService watchSessionService;
+    private final ReleaseChangedKeysService releaseChangedKeysService;
     private final Gson gson;
     private final BizConfig bizConfig;
 
@@ -77,7 +83,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             final WatchKeysUtil watchKeysUtil,
             final ReleaseMessageServiceWithCache releaseMessageService,
             final EntityManagerUtil entityManagerUtil,
-            final NamespaceUtil namespaceUtil,
+            final WatchNotificationsUtil watchNotificationsUtil,
+            final WatchSessionService watchSessionService,
+            final ReleaseChangedKeysService releaseChangedKeysService,
             final Gson gson,
             final BizConfig bizConfig) {
         largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create
@@ -85,7 +93,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         this.watchKeysUtil = watchKeysUtil;
         this.releaseMessageService = releaseMessageService;
         this.entityManagerUtil = entityManagerUtil;
-        this.namespaceUtil = namespaceUtil;
+        this.watchNotificationsUtil = watchNotificationsUtil;
+        this.watchSessionService = watchSessionService;
+        this.releaseChangedKeysService = releaseChangedKeysService;
         this.gson = gson;
         this.bizConfig = bizConfig;
     }
@@ -130,7 +140,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         // 客户端的通知 Map 。key 为 Namespace 名，value 为通知编号。
         Map<String, Long> clientSideNotifications = Maps.newHashMap();
         // 过滤并创建 ApolloConfigNotification Map
-        Map<String, ApolloConfigNotification> filteredNotifications = filterNotifications(appId, notifications);
+        Map<String, ApolloConfigNotification> filteredNotifications = watchNotificationsUtil.filterNotifications(appId, notifications);
         // 循环 ApolloConfigNotification Map ，初始化上述变量。
         for (Map.Entry<String, ApolloConfigNotification> notificationEntry : filteredNotifications.entrySet()) {
             String normalizedNamespace = notificationEntry.getKey();
@@ -144,6 +154,10 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             if (!Objects.equals(notification.getNamespaceName(), normalizedNamespace)) {
                 deferredResultWrapper.recordNamespaceNameNormalizedResult(notification.getNamespaceName(), normalizedNamespace);
             }
+            // 记录按 Key 订阅的 Namespace ，只有订阅的 Key 被修改时才唤醒客户端
+            if (notification.hasKeySubscription()) {
+                deferredResultWrapper.recordKeySubscription(normalizedNamespace, notification);
+            }
         }
 
         if (CollectionUtils.isEmpty(namespaces)) {
@@ -154,7 +168,105 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
                 watchKeysUtil.assembleAllWatchKeys(appId, cluster, namespaces, dataCenter);
         // 生成 Watch Key 集合
         Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
+        logger.debug("Listening {} from appId: {}, cluster: {}, namespace: {}, datacenter: {}",
+                watchedKeys, appId, cluster, namespaces, dataCenter);
+
+        return watch(deferredResultWrapper, namespaces, clientSideNotifications, watchedKeysMap, watchedKeys);
+    }
+
+    /**
+     * 创建 Watch 会话。客户端只在创建会话时提交一次 Namespace 及通知编号，
+     * 服务端保存解析好的 Watch Key ，之后客户端通过 {@link #pollSessionNotification(String, long)} 长轮询
+     *
+     * @param notifications 客户端的通知，格式同 {@link #pollNotification} 的 notifications 参数
+     * @return 会话编号、会话 Watch 的 Key 中最新的 ReleaseMessage 编号，以及客户端尚未知道的通知
+     */
+    @PostMapping("/sessions")
+    public ApolloWatchSession createSession(
+            @RequestParam(value = "appId") String appId,
+            @RequestParam(value = "cluster") String cluster,
+            @RequestParam(value = "dataCenter", required = false) String dataCenter,
+            @RequestParam(value = "ip", required = false) String clientIp,
+            @RequestBody List<ApolloConfigNotification> notifications) {
+        if (CollectionUtils.isEmpty(notifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notifications);
+        }
+        Map<String, ApolloConfigNotification> filteredNotifications =
+                watchNotificationsUtil.filterNotifications(appId, notifications);
+        if (CollectionUtils.isEmpty(filteredNotifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notifications);
+        }
+        Map<String, Long> clientSideNotifications = Maps.newHashMap();
+        for (Map.Entry<String, ApolloConfigNotification> entry : filteredNotifications.entrySet()) {
+            clientSideNotifications.put(entry.getKey(), entry.getValue().getNotificationId());
+        }
+
+        WatchSession session = watchSessionService.createSession(appId, cluster, dataCenter, filteredNotifications);
+        logger.debug("Created watch session {} of {} from appId: {}, cluster: {}, datacenter: {}, ip: {}",
+                session.getSessionId(), session.getWatchedKeys(), appId, cluster, dataCenter, clientIp);
+
+        List<ReleaseMessage> latestReleaseMessages =
+                releaseMessageService.findLatestReleaseMessagesGroupByMessages(session.getWatchedKeys());
+        long releaseMessageId = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
+        if (latestReleaseMessages != null) {
+            for (ReleaseMessage releaseMessage : latestReleaseMessages) {
+                releaseMessageId = Math.max(releaseMessageId, releaseMessage.getId());
+            }
+        }
+        List<ApolloConfigNotification> newNotifications =
+                watchNotificationsUtil.getApolloConfigNotifications(session.getNamespaces(), clientSideNotifications,
+                        session.getWatchedKeysMap(), latestReleaseMessages);
+        for (ApolloConfigNotification notification : newNotifications) {
+            String originalNamespace =
+                    session.getNormalizedNamespaceNameToOriginalNamespaceName().get(notification.getNamespaceName());
+            if (originalNamespace != null) {
+                notification.setNamespaceName(originalNamespace);
+            }
+        }
+
+        return new ApolloWatchSession(session.getSessionId(), releaseMessageId, newNotifications);
+    }
+
+    /**
+     * 会话长轮询，只需要会话编号和客户端已知的最大 ReleaseMessage 编号，会话 Watch 的 Key 有更新的 ReleaseMessage 时返回
+     *
+     * @param releaseMessageId 客户端已知的最大 ReleaseMessage 编号
+     * @throws NotFoundException 会话不存在或已过期，客户端需要重新创建会话
+     */
+    @GetMapping("/sessions/{sessionId}")
+    public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> pollSessionNotification(
+            @PathVariable String sessionId,
+            @RequestParam(value = "releaseMessageId") long releaseMessageId) {
+        WatchSession session = watchSessionService.getSession(sessionId);
+        if (session == null) {
+            throw new NotFoundException(String.format("watch session not found for %s", sessionId));
+        }
+
+        DeferredResultWrapper deferredResultWrapper = new DeferredResultWrapper(bizConfig.longPollingTimeoutInMilli());
+        for (Map.Entry<String, String> entry : session.getNormalizedNamespaceNameToOriginalNamespaceName().entrySet()) {
+            deferredResultWrapper.recordNamespaceNameNormalizedResult(entry.getValue(), entry.getKey());
+        }
+        for (Map.Entry<String, ApolloConfigNotification> entry : session.getKeySubscriptions().entrySet()) {
+            deferredResultWrapper.recordKeySubscription(entry.getKey(), entry.getValue());
+        }
+        // Namespace 的通知编号为其 Watch Key 中最大的 ReleaseMessage 编号，因此任一 Key 有更新的 ReleaseMessage 即有新通知
+        Map<String, Long> clientSideNotifications = Maps.newHashMap();
+        for (String namespace : session.getNamespaces()) {
+            clientSideNotifications.put(namespace, releaseMessageId);
+        }
+        logger.debug("Listening {} of watch session {}", session.getWatchedKeys(), sessionId);
 
+        return watch(deferredResultWrapper, session.getNamespaces(), clientSideNotifications,
+                session.getWatchedKeysMap(), session.getWatchedKeys());
+    }
+
+    /**
+     * 注册 Watch Key 并检查是否已有新通知
+     */
+    private DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> watch(
+            DeferredResultWrapper deferredResultWrapper, Set<String> namespaces,
+            Map<String, Long> clientSideNotifications, Multimap<String, String> watchedKeysMap,
+            Set<String> watchedKeys) {
         /**
          * 1、set deferredResult before the check, for avoid more waiting
          * If the check before setting deferredResult,it may receive a notification the next time
@@ -177,8 +289,6 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         }
 
         logWatchedKeys(watchedKeys, "Apollo.LongPoll.RegisteredKeys");
-        logger.debug("Listening {} from appId: {}, cluster: {}, namespace: {}, datacenter: {}",
-                watchedKeys, appId, cluster, namespaces, dataCenter);
 
         /**
          * 2、check new release
@@ -200,90 +310,76 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         entityManagerUtil.closeEntityManager();
         // 获得新的 ApolloConfigNotification 通知数组
         List<ApolloConfigNotification> newNotifications =
-                getApolloConfigNotifications(namespaces, clientSideNotifications, watchedKeysMap,
+                watchNotificationsUtil.getApolloConfigNotifications(namespaces, clientSideNotifications, watchedKeysMap,
                         latestReleaseMessages);
+        trackKeySubscriptions(deferredResultWrapper, namespaces, watchedKeysMap, latestReleaseMessages);
+        // 按 Key 订阅的 Namespace ，新的发布没有修改订阅的 Key 时不立即返回
+        List<ApolloConfigNotification> changedNotifications = Lists.newArrayList();
+        for (ApolloConfigNotification notification : newNotifications) {
+            ApolloConfigNotification subscription =
+                    deferredResultWrapper.getKeySubscription(notification.getNamespaceName());
+            if (subscription != null && !watchNotificationsUtil.isInterested(
+                    findChangedKeys(notification, clientSideNotifications.get(notification.getNamespaceName())),
+                    subscription)) {
+                deferredResultWrapper.addUnchangedNotification(notification);
+            } else {
+                changedNotifications.add(notification);
+            }
+        }
         // 若有新的通知，直接设置结果。
-        if (!CollectionUtils.isEmpty(newNotifications)) {
-            deferredResultWrapper.setResult(newNotifications);
+        if (!CollectionUtils.isEmpty(changedNotifications)) {
+            deferredResultWrapper.setResult(changedNotifications);
         }
 
         return deferredResultWrapper.getResult();
     }
 
     /**
-     * 过滤并创建 ApolloConfigNotification Map
-     * 针对传递的namespace的大小写的名称做归一化处理
-     *
-     * @param appId         应用Id
-     * @param notifications
-     * @return
+     * 跟踪按 Key 订阅的 Namespace 的 Watch Key ，记录之后的发布修改的 Key
      */
-    private Map<String, ApolloConfigNotification> filterNotifications(String appId,
-                                                                      List<ApolloConfigNotification> notifications) {
-        // KEY 为 Namespace 的名字
-        Map<String, ApolloConfigNotification> filteredNotifications = Maps.newHashMap();
-        for (ApolloConfigNotification notification : notifications) {
-            if (Strings.isNullOrEmpty(notification.getNamespaceName())) {
+    private void trackKeySubscriptions(DeferredResultWrapper deferredResultWrapper, Set<String> namespaces,
+                                       Multimap<String, String> watchedKeysMap,
+                                       List<ReleaseMessage> latestReleaseMessages) {
+        Map<String, Long> latestNotifications = null;
+        for (String namespace : namespaces) {
+            if (deferredResultWrapper.getKeySubscription(namespace) == null) {
                 continue;
             }
-            // 若 Namespace 名以 .properties 结尾，移除该结尾，并设置到 ApolloConfigNotification 中。例如 application.properties => application 。
-            //strip out .properties suffix
-            String originalNamespace = namespaceUtil.filterNamespaceName(notification.getNamespaceName());
-            notification.setNamespaceName(originalNamespace);
-            // 获得归一化的 Namespace 名字。因为，客户端 Namespace 会填写错大小写。
-            // 例如，数据库中 Namespace 名为 Fx.Apollo ，而客户端 Namespace 名为 fx.Apollo
-            // 通过归一化后，统一为 Fx.Apollo
-            //fix the character case issue, such as FX.apollo <-> fx.apollo
-            String normalizedNamespace = namespaceUtil.normalizeNamespace(appId, originalNamespace);
-
-            // in case client side namespace name has character case issue and has difference notification ids
-            // such as FX.apollo = 1 but fx.apollo = 2, we should let FX.apollo have the chance to update its notification id
-            // which means we should record FX.apollo = 1 here and ignore fx.apollo = 2
-            // 如果客户端 Namespace 的名字有大小写的问题，并且恰好有不同的通知编号。
-            // 例如 Namespace 名字为 FX.apollo 的通知编号是 1 ，但是 fx.apollo 的通知编号为 2 。
-            // 我们应该让 FX.apollo 可以更新它的通知编号，
-            // 所以，我们使用 FX.apollo 的 ApolloConfigNotification 对象，添加到结果，而忽略 fx.apollo 。
-            if (filteredNotifications.containsKey(normalizedNamespace) &&
-                    filteredNotifications.get(normalizedNamespace).getNotificationId() < notification.getNotificationId()) {
-                continue;
+            if (latestNotifications == null) {
+                latestNotifications = Maps.newTreeMap(String.CASE_INSENSITIVE_ORDER);
+                if (latestReleaseMessages != null) {
+                    for (ReleaseMessage releaseMessage : latestReleaseMessages) {
+                        latestNotifications.put(releaseMessage.getMessage(), releaseMessage.getId());
+                    }
+                }
+            }
+            for (String watchedKey : watchedKeysMap.get(namespace)) {
+                releaseChangedKeysService.track(watchedKey,
+                        latestNotifications.getOrDefault(watchedKey, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER));
             }
-
-            filteredNotifications.put(normalizedNamespace, notification);
         }
-        return filteredNotifications;
     }
 
-    private List<ApolloConfigNotification> getApolloConfigNotifications(Set<String> namespaces,
-                                                                        Map<String, Long> clientSideNotifications,
-                                                                        Multimap<String, String> watchedKeysMap,
-                                                                        List<ReleaseMessage> latestReleaseMessages) {
-        List<ApolloConfigNotification> newNotifications = Lists.newArrayList();
-        if (!CollectionUtils.isEmpty(latestReleaseMessages)) {
-            Map<String, Long> latestNotifications = Maps.newHashMap();
-            for (ReleaseMessage releaseMessage : latestReleaseMessages) {
-                latestNotifications.put(releaseMessage.getMessage(), releaseMessage.getId());
+    /**
+     * @return the keys changed since the client side notification id, null if unknown
+     */
+    private Set<String> findChangedKeys(ApolloConfigNotification notification, long clientSideNotificationId) {
+        if (notification.getMessages() == null) {
+            return null;
+        }
+        Set<String> changedKeys = Sets.newHashSet();
+        for (Map.Entry<String, Long> entry : notification.getMessages().getDetails().entrySet()) {
+            if (entry.getValue() <= clientSideNotificationId) {
+                continue;
             }
-
-            for (String namespace : namespaces) {
-                long clientSideId = clientSideNotifications.get(namespace);
-                long latestId = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
-                Collection<String> namespaceWatchedKeys = watchedKeysMap.get(namespace);
-                for (String namespaceWatchedKey : namespaceWatchedKeys) {
-                    long namespaceNotificationId =
-                            latestNotifications.getOrDefault(namespaceWatchedKey, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER);
-                    if (namespaceNotificationId > latestId) {
-                        latestId = namespaceNotificationId;
-                    }
-                }
-                if (latestId > clientSideId) {
-                    ApolloConfigNotification notification = new ApolloConfigNotification(namespace, latestId);
-                    namespaceWatchedKeys.stream().filter(latestNotifications::containsKey).forEach(namespaceWatchedKey ->
-                            notification.addMessage(namespaceWatchedKey, latestNotifications.get(namespaceWatchedKey)));
-                    newNotifications.add(notification);
-                }
+            Set<String> keys = releaseChangedKeysService.findChangedKeys(entry.getKey(), clientSideNotificationId,
+                    entry.getValue());
+            if (keys == null) {
+                return null;
             }
+            changedKeys.addAll(keys);
         }
-        return newNotifications;
+        return changedKeys;
     }
 
     /**
@@ -302,13 +398,16 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             return;
         }
         // 获得对应的 Namespace 的名字
-        String changedNamespace = retrieveNamespaceFromReleaseMessage.apply(content);
+        String changedNamespace = watchNotificationsUtil.retrieveNamespaceFromReleaseMessage(content);
 
         if (Strings.isNullOrEmpty(changedNamespace)) {
             logger.error("message format invalid - {}", content);
             return;
         }
 
+        // 先记录该消息修改的 Key ，再判断按 Key 订阅的客户端是否需要唤醒
+        releaseChangedKeysService.handleMessage(message);
+
         if (!deferredResults.containsKey(content)) {
             return;
         }
@@ -320,6 +419,28 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
         configNotification.addMessage(content, message.getId());
 
+        // 按 Key 订阅且订阅的 Key 没有被修改的客户端，只记录通知，不唤醒
+        Set<String> changedKeys = null;
+        boolean changedKeysResolved = false;
+        for (Iterator<DeferredResultWrapper> iterator = results.iterator(); iterator.hasNext(); ) {
+            DeferredResultWrapper result = iterator.next();
+            ApolloConfigNotification subscription = result.getKeySubscription(changedNamespace);
+            if (subscription == null) {
+                continue;
+            }
+            if (!changedKeysResolved) {
+                changedKeys = releaseChangedKeysService.findChangedKeys(content, message.getId() - 1, message.getId());
+                changedKeysResolved = true;
+            }
+            if (!watchNotificationsUtil.isInterested(changedKeys, subscription)) {
+                result.addUnchangedNotification(configNotification);
+                iterator.remove();
+            }
+        }
+        if (results.isEmpty()) {
+            return;
+        }
+
         //do async notification if too many clients
         // 若需要通知的客户端过多，使用 ExecutorService 异步通知，避免“惊群效应”
         // 假设一个公共 Namespace 有10W 台机器使用，如果该公共 Namespace 发布时直接下发配置更新消息的话，就会导致这 10W 台机器一下子都来请求配置，这动静就有点大了，而且对 Config Service 的压力也会比较大。
@@ -351,23 +472,6 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         logger.debug("Notification completed");
     }
 
-    /**
-     * 通过 ReleaseMessage 的消息内容，获得对应 Namespace 的名字
-     */
-    private static final Function<String, String> retrieveNamespaceFromReleaseMessage =
-            releaseMessage -> {
-                if (Strings.isNullOrEmpty(releaseMessage)) {
-                    return null;
-                }
-                List<String> keys = STRING_SPLITTER.splitToList(releaseMessage);
-                //message should be appId+cluster+namespace
-                if (keys.size() != 3) {
-                    logger.error("message format invalid - {}", releaseMessage);
-                    return null;
-                }
-                return keys.get(2);
-            };
-
     private void logWatchedKeys(Set<String> watchedKeys, String eventName) {
         for (String watchedKey : watchedKeys) {
             Tracer.logEvent(eventName, watchedKey);
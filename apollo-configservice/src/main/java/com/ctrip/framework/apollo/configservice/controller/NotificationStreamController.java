@@ -0,0 +1,272 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.NotificationStreamWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知推送通道（Server-Sent Events），与 {@link NotificationControllerV2} 的长轮询协议相同的参数。
+ * <p>
+ * 客户端建立连接时注册一次 Watch Key，之后配置变更的 ApolloConfigNotification 通过同一个连接推送，
+ * 不需要每 60 秒重新解析通知、组装 Watch Key、查询最新的 ReleaseMessage 和重新注册。
+ * <p>
+ * 1. 连接建立时，若已有客户端未知的通知，立即推送，客户端重连时带上已知的通知编号即可续传
+ * 2. 定时发送心跳，客户端据此判断连接存活
+ * 3. 连接在 {@link BizConfig#notificationStreamTimeoutInMilli()} 后关闭，客户端重连，使连接在 Config Service 间重新均衡
+ * 4. 写入超过 {@link BizConfig#notificationStreamWriteTimeoutInMilli()} 时放弃连接，客户端重连后续传
+ */
+@RestController
+@RequestMapping("/notifications/v2/stream")
+public class NotificationStreamController implements ReleaseMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamController.class);
+    private static final Type notificationsTypeReference =
+            new TypeToken<List<ApolloConfigNotification>>() {
+            }.getType();
+    private static final long WRITE_TIMEOUT_CHECK_INTERVAL_IN_MILLI = 1000;
+
+    /**
+     * Watch Key 与 NotificationStreamWrapper 的 Multimap，Watch Key 大小写不敏感
+     */
+    private final Multimap<String, NotificationStreamWrapper> streams =
+            Multimaps.synchronizedSetMultimap(TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.arbitrary()));
+    /**
+     * 所有打开的推送通道，用于心跳
+     */
+    private final Set<NotificationStreamWrapper> openStreams = ConcurrentHashMap.newKeySet();
+    /**
+     * 推送和心跳在固定大小的线程池中进行，慢客户端不阻塞 ReleaseMessageScanner 。每个连接最多占用一个线程，
+     * 也最多排队一个任务，所以队列长度不超过连接数，不需要（也不应该）因为队列满而放弃连接
+     */
+    private final ExecutorService notificationExecutorService;
+    private final ScheduledExecutorService heartbeatExecutorService;
+    private final long writeTimeoutInMilli;
+
+    private final WatchKeysUtil watchKeysUtil;
+    private final WatchNotificationsUtil watchNotificationsUtil;
+    private final ReleaseMessageServiceWithCache releaseMessageService;
+    private final EntityManagerUtil entityManagerUtil;
+    private final Gson gson;
+    private final BizConfig bizConfig;
+
+    public NotificationStreamController(
+            final WatchKeysUtil watchKeysUtil,
+            final WatchNotificationsUtil watchNotificationsUtil,
+            final ReleaseMessageServiceWithCache releaseMessageService,
+            final EntityManagerUtil entityManagerUtil,
+            final Gson gson,
+            final BizConfig bizConfig) {
+        this.watchKeysUtil = watchKeysUtil;
+        this.watchNotificationsUtil = watchNotificationsUtil;
+        this.releaseMessageService = releaseMessageService;
+        this.entityManagerUtil = entityManagerUtil;
+        this.gson = gson;
+        this.bizConfig = bizConfig;
+        int pushThreads = bizConfig.notificationStreamPushThreads();
+        notificationExecutorService = new ThreadPoolExecutor(pushThreads, pushThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), ApolloThreadFactory.create("NotificationStream", true));
+        writeTimeoutInMilli = bizConfig.notificationStreamWriteTimeoutInMilli();
+        heartbeatExecutorService = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory.create("NotificationStreamHeartbeat", true));
+        long heartbeatInterval = bizConfig.notificationStreamHeartbeatIntervalInMilli();
+        heartbeatExecutorService.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval,
+                TimeUnit.MILLISECONDS);
+        heartbeatExecutorService.scheduleWithFixedDelay(this::checkWriteTimeout, WRITE_TIMEOUT_CHECK_INTERVAL_IN_MILLI,
+                WRITE_TIMEOUT_CHECK_INTERVAL_IN_MILLI, TimeUnit.MILLISECONDS);
+    }
+
+    @GetMapping
+    public SseEmitter streamNotifications(
+            @RequestParam(value = "appId") String appId,
+            @RequestParam(value = "cluster") String cluster,
+            @RequestParam(value = "notifications") String notificationsAsString,
+            @RequestParam(value = "dataCenter", required = false) String dataCenter,
+            @RequestParam(value = "ip", required = false) String clientIp) {
+        List<ApolloConfigNotification> notifications = null;
+        try {
+            notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
+        } catch (Throwable ex) {
+            Tracer.logError(ex);
+        }
+        if (CollectionUtils.isEmpty(notifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+
+        Map<String, ApolloConfigNotification> filteredNotifications =
+                watchNotificationsUtil.filterNotifications(appId, notifications);
+        if (CollectionUtils.isEmpty(filteredNotifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+        Set<String> namespaces = filteredNotifications.keySet();
+        Map<String, Long> clientSideNotifications = Maps.newHashMap();
+        for (Map.Entry<String, ApolloConfigNotification> entry : filteredNotifications.entrySet()) {
+            clientSideNotifications.put(entry.getKey(), entry.getValue().getNotificationId());
+        }
+
+        Multimap<String, String> watchedKeysMap =
+                watchKeysUtil.assembleAllWatchKeys(appId, cluster, namespaces, dataCenter);
+        Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
+
+        NotificationStreamWrapper stream = new NotificationStreamWrapper(
+                bizConfig.notificationStreamTimeoutInMilli(), clientSideNotifications, watchedKeysMap);
+        for (Map.Entry<String, ApolloConfigNotification> entry : filteredNotifications.entrySet()) {
+            if (!Objects.equals(entry.getValue().getNamespaceName(), entry.getKey())) {
+                stream.recordNamespaceNameNormalizedResult(entry.getValue().getNamespaceName(), entry.getKey());
+            }
+        }
+
+        stream.onCompletion(() -> {
+            unregister(stream);
+            logWatchedKeys(watchedKeys, "Apollo.NotificationStream.CompletedKeys");
+        });
+
+        //register all keys before querying the latest messages, so no message in between is missed
+        for (String key : watchedKeys) {
+            streams.put(key, stream);
+        }
+        openStreams.add(stream);
+        logWatchedKeys(watchedKeys, "Apollo.NotificationStream.RegisteredKeys");
+        logger.debug("Streaming {} to appId: {}, cluster: {}, namespace: {}, datacenter: {}, ip: {}",
+                watchedKeys, appId, cluster, namespaces, dataCenter, clientIp);
+
+        List<ReleaseMessage> latestReleaseMessages =
+                releaseMessageService.findLatestReleaseMessagesGroupByMessages(watchedKeys);
+
+        // 推送连接是长期持有的，手动关闭 EntityManager，避免 db 连接被长期占用
+        entityManagerUtil.closeEntityManager();
+
+        // 已有客户端未知的通知，立即推送（续传）
+        List<ApolloConfigNotification> newNotifications =
+                watchNotificationsUtil.getApolloConfigNotifications(namespaces, clientSideNotifications,
+                        watchedKeysMap, latestReleaseMessages);
+        if (!CollectionUtils.isEmpty(newNotifications)) {
+            // the emitter is not returned yet, so the notifications are buffered instead of written
+            stream.send(newNotifications);
+        }
+
+        return stream.getEmitter();
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        String content = message.getMessage();
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+            return;
+        }
+
+        List<NotificationStreamWrapper> targets;
+        synchronized (streams) {
+            if (!streams.containsKey(content)) {
+                return;
+            }
+            //create a new list to avoid ConcurrentModificationException
+            targets = Lists.newArrayList(streams.get(content));
+        }
+
+        logger.debug("Push {} to {} streams", content, targets.size());
+        for (NotificationStreamWrapper stream : targets) {
+            stream.execute(() -> stream.send(content, message.getId()), notificationExecutorService);
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            for (NotificationStreamWrapper stream : openStreams) {
+                // 有推送在进行的连接不需要心跳
+                if (stream.isWriting()) {
+                    continue;
+                }
+                stream.execute(() -> {
+                    if (!stream.heartbeat()) {
+                        openStreams.remove(stream);
+                    }
+                }, notificationExecutorService);
+            }
+        } catch (Throwable ex) {
+            logger.warn("Send notification stream heartbeat failed", ex);
+        }
+    }
+
+    /**
+     * 放弃写入超时的连接，不再向其推送，连接在写入返回后关闭
+     */
+    private void checkWriteTimeout() {
+        try {
+            long now = System.currentTimeMillis();
+            for (NotificationStreamWrapper stream : openStreams) {
+                if (stream.isWriteTimedOut(now, writeTimeoutInMilli)) {
+                    Tracer.logEvent("Apollo.NotificationStream.WriteTimeout", String.valueOf(stream.getWatchedKeys()));
+                    abort(stream);
+                }
+            }
+        } catch (Throwable ex) {
+            logger.warn("Check notification stream write timeout failed", ex);
+        }
+    }
+
+    private void abort(NotificationStreamWrapper stream) {
+        // the completion callback is not called until the blocked write returns
+        unregister(stream);
+        stream.abort();
+    }
+
+    private void unregister(NotificationStreamWrapper stream) {
+        for (String key : stream.getWatchedKeys()) {
+            streams.remove(key, stream);
+        }
+        openStreams.remove(stream);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeatExecutorService.shutdownNow();
+        notificationExecutorService.shutdownNow();
+    }
+
+    private void logWatchedKeys(Set<String> watchedKeys, String eventName) {
+        for (String watchedKey : watchedKeys) {
+            Tracer.logEvent(eventName, watchedKey);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ctrip.framework.apollo.configservice.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Netty 长轮询请求
+ * <p>
+ * 与 {@link com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper} 不同，挂起的连接只保留 Channel 、
+ * Watch Key 、名字被归一化的 Namespace 和超时任务，不持有容器的 request/response 和异步分发的对象。
+ */
+class NettyLongPoll {
+    private static final AtomicIntegerFieldUpdater<NettyLongPoll> COMPLETED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(NettyLongPoll.class, "completed");
+
+    private final Channel channel;
+    private final boolean keepAlive;
+    private final String[] watchedKeys;
+    /**
+     * 归一化和原始的 Namespace 的名字的 Map ，没有名字被归一化的 Namespace 时为 null
+     */
+    private final Map<String, String> normalizedNamespaceNameToOriginalNamespaceName;
+    private volatile Timeout timeout;
+    /**
+     * 1 表示已响应（有新通知、超时或连接关闭），使用 field updater 代替 AtomicBoolean ，减少每个连接的对象
+     */
+    private volatile int completed;
+
+    NettyLongPoll(Channel channel, boolean keepAlive, String[] watchedKeys,
+                  Map<String, String> normalizedNamespaceNameToOriginalNamespaceName) {
+        this.channel = channel;
+        this.keepAlive = keepAlive;
+        this.watchedKeys = watchedKeys;
+        this.normalizedNamespaceNameToOriginalNamespaceName = normalizedNamespaceNameToOriginalNamespaceName;
+    }
+
+    Channel getChannel() {
+        return channel;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    String[] getWatchedKeys() {
+        return watchedKeys;
+    }
+
+    /**
+     * The namespace name is used as a key in client side, so we have to return the original one instead of the correct one
+     */
+    String getOriginalNamespaceName(String namespaceName) {
+        if (normalizedNamespaceNameToOriginalNamespaceName == null) {
+            return namespaceName;
+        }
+        String originalNamespaceName = normalizedNamespaceNameToOriginalNamespaceName.get(namespaceName);
+        return originalNamespaceName == null ? namespaceName : originalNamespaceName;
+    }
+
+    void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return true if this call completes the long poll, only the first caller could respond
+     */
+    boolean complete() {
+        if (!COMPLETED_UPDATER.compareAndSet(this, 0, 1)) {
+            return false;
+        }
+        Timeout currentTimeout = timeout;
+        if (currentTimeout != null) {
+            currentTimeout.cancel();
+        }
+        return true;
+    }
+}
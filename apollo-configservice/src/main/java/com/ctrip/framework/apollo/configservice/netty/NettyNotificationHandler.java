@@ -0,0 +1,58 @@
+package com.ctrip.framework.apollo.configservice.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 解析 HTTP 请求，只处理 GET /notifications/v2 ，其它请求返回 404/405
+ */
+@ChannelHandler.Sharable
+class NettyNotificationHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(NettyNotificationHandler.class);
+    static final String NOTIFICATIONS_PATH = "/notifications/v2";
+
+    private final NettyNotificationServer server;
+
+    NettyNotificationHandler(NettyNotificationServer server) {
+        this.server = server;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
+        String path = decoder.path();
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (!NOTIFICATIONS_PATH.equals(path)) {
+            server.respond(ctx.channel(), keepAlive, HttpResponseStatus.NOT_FOUND, null);
+            return;
+        }
+        if (!HttpMethod.GET.equals(request.method())) {
+            server.respond(ctx.channel(), keepAlive, HttpResponseStatus.METHOD_NOT_ALLOWED, null);
+            return;
+        }
+        server.pollNotification(ctx.channel(), keepAlive, decoder.parameters());
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        server.channelClosed(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.debug("Notification connection {} failed", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,388 @@
+package com.ctrip.framework.apollo.configservice.netty;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Netty 事件循环的通知服务，与 {@link com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2}
+ * 的 GET /notifications/v2 协议相同，运行在 Config Service 进程内的独立端口上。
+ * <p>
+ * 1. 挂起的长轮询只占用一个 {@link NettyLongPoll} 对象，不经过 Servlet 容器的异步请求和 Spring MVC 的异步分发
+ * 2. 超时使用 {@link HashedWheelTimer} ，百万级的超时任务不需要为每个请求创建调度任务
+ * 3. 解析请求时只访问内存中的缓存（Watch Key 组装、最新的 ReleaseMessage），不会阻塞事件循环
+ * <p>
+ * 按 Key 订阅和 Watch 会话只由 Servlet 接口支持。
+ */
+public class NettyNotificationServer implements ReleaseMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(NettyNotificationServer.class);
+    private static final Type notificationsTypeReference =
+            new TypeToken<List<ApolloConfigNotification>>() {
+            }.getType();
+    private static final int MAX_INITIAL_LINE_LENGTH = 16 * 1024;
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+    private static final int MAX_CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_CONTENT_LENGTH = 64 * 1024;
+    private static final long TIMER_TICK_IN_MILLI = 100;
+    private static final int TIMER_TICKS_PER_WHEEL = 1024;
+    /**
+     * 连接上挂起的长轮询，连接断开时取消，完成后清除，避免 keep-alive 连接上已完成的长轮询一直被引用
+     */
+    static final AttributeKey<NettyLongPoll> LONG_POLL = AttributeKey.valueOf("apolloLongPoll");
+
+    /**
+     * Watch Key（小写，Watch Key 大小写不敏感）与挂起的长轮询
+     */
+    private final ConcurrentMap<String, Set<NettyLongPoll>> longPolls = new ConcurrentHashMap<>();
+    /**
+     * 大量通知分批执行，与 NotificationControllerV2 相同
+     */
+    private final ExecutorService largeNotificationBatchExecutorService;
+
+    private final WatchKeysUtil watchKeysUtil;
+    private final WatchNotificationsUtil watchNotificationsUtil;
+    private final ReleaseMessageServiceWithCache releaseMessageService;
+    private final Gson gson;
+    private final BizConfig bizConfig;
+    private final int port;
+    private final int workerThreads;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private HashedWheelTimer timer;
+    private Channel serverChannel;
+
+    /**
+     * @param port          the port to listen on, 0 for a random port
+     * @param workerThreads the event loop threads, 0 for the netty default (twice the processors)
+     */
+    public NettyNotificationServer(
+            final WatchKeysUtil watchKeysUtil,
+            final WatchNotificationsUtil watchNotificationsUtil,
+            final ReleaseMessageServiceWithCache releaseMessageService,
+            final Gson gson,
+            final BizConfig bizConfig,
+            final int port,
+            final int workerThreads) {
+        this.watchKeysUtil = watchKeysUtil;
+        this.watchNotificationsUtil = watchNotificationsUtil;
+        this.releaseMessageService = releaseMessageService;
+        this.gson = gson;
+        this.bizConfig = bizConfig;
+        this.port = port;
+        this.workerThreads = workerThreads;
+        largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(
+                ApolloThreadFactory.create("NettyNotificationServer", true));
+    }
+
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1, ApolloThreadFactory.create("NettyNotificationBoss", true));
+        workerGroup = new NioEventLoopGroup(workerThreads, ApolloThreadFactory.create("NettyNotificationWorker", true));
+        timer = new HashedWheelTimer(ApolloThreadFactory.create("NettyNotificationTimer", true), TIMER_TICK_IN_MILLI,
+                TimeUnit.MILLISECONDS, TIMER_TICKS_PER_WHEEL);
+        timer.start();
+
+        final NettyNotificationHandler handler = new NettyNotificationHandler(this);
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline()
+                                .addLast(new HttpServerCodec(MAX_INITIAL_LINE_LENGTH, MAX_HEADER_SIZE, MAX_CHUNK_SIZE))
+                                .addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                                .addLast(handler);
+                    }
+                });
+        serverChannel = bootstrap.bind(port).sync().channel();
+        logger.info("Netty notification server started on port {}", getPort());
+    }
+
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        if (timer != null) {
+            timer.stop();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        largeNotificationBatchExecutorService.shutdownNow();
+    }
+
+    /**
+     * @return the bound port, which differs from the configured one if it is 0
+     */
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * @return the number of the pending long polls
+     */
+    public int getPendingLongPolls() {
+        Set<NettyLongPoll> pending = Sets.newIdentityHashSet();
+        for (Set<NettyLongPoll> polls : longPolls.values()) {
+            pending.addAll(polls);
+        }
+        return pending.size();
+    }
+
+    void pollNotification(Channel channel, boolean keepAlive, Map<String, List<String>> parameters) {
+        try {
+            doPollNotification(channel, keepAlive, parameters);
+        } catch (BadRequestException ex) {
+            respond(channel, keepAlive, HttpResponseStatus.BAD_REQUEST, ex.getMessage());
+        } catch (Throwable ex) {
+            Tracer.logError(ex);
+            logger.error("Poll notification failed", ex);
+            respond(channel, keepAlive, HttpResponseStatus.INTERNAL_SERVER_ERROR, null);
+        }
+    }
+
+    private void doPollNotification(Channel channel, boolean keepAlive, Map<String, List<String>> parameters) {
+        String appId = requiredParameter(parameters, "appId");
+        String cluster = requiredParameter(parameters, "cluster");
+        String notificationsAsString = requiredParameter(parameters, "notifications");
+        String dataCenter = parameter(parameters, "dataCenter");
+
+        List<ApolloConfigNotification> notifications = null;
+        try {
+            notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
+        } catch (Throwable ex) {
+            Tracer.logError(ex);
+        }
+        if (CollectionUtils.isEmpty(notifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+
+        Map<String, ApolloConfigNotification> filteredNotifications =
+                watchNotificationsUtil.filterNotifications(appId, notifications);
+        if (CollectionUtils.isEmpty(filteredNotifications)) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+        Set<String> namespaces = filteredNotifications.keySet();
+        Map<String, Long> clientSideNotifications = Maps.newHashMap();
+        Map<String, String> normalizedNamespaceNameToOriginalNamespaceName = null;
+        for (Map.Entry<String, ApolloConfigNotification> entry : filteredNotifications.entrySet()) {
+            clientSideNotifications.put(entry.getKey(), entry.getValue().getNotificationId());
+            if (!Objects.equals(entry.getValue().getNamespaceName(), entry.getKey())) {
+                if (normalizedNamespaceNameToOriginalNamespaceName == null) {
+                    normalizedNamespaceNameToOriginalNamespaceName = Maps.newHashMap();
+                }
+                normalizedNamespaceNameToOriginalNamespaceName.put(entry.getKey(), entry.getValue().getNamespaceName());
+            }
+        }
+
+        Multimap<String, String> watchedKeysMap =
+                watchKeysUtil.assembleAllWatchKeys(appId, cluster, namespaces, dataCenter);
+        Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
+
+        NettyLongPoll longPoll = new NettyLongPoll(channel, keepAlive, watchedKeys.toArray(new String[0]),
+                normalizedNamespaceNameToOriginalNamespaceName);
+        longPoll.setTimeout(timer.newTimeout(timeout -> {
+            if (longPoll.complete()) {
+                unregister(longPoll);
+                respond(longPoll.getChannel(), longPoll.isKeepAlive(), HttpResponseStatus.NOT_MODIFIED, null);
+            }
+        }, bizConfig.longPollingTimeoutInMilli(), TimeUnit.MILLISECONDS));
+        // 客户端断开时取消长轮询，见 channelClosed
+        channel.attr(LONG_POLL).set(longPoll);
+
+        //register all keys before checking the latest messages, so no message in between is missed
+        for (String key : longPoll.getWatchedKeys()) {
+            longPolls.compute(key.toLowerCase(), (k, polls) -> {
+                if (polls == null) {
+                    polls = ConcurrentHashMap.newKeySet();
+                }
+                polls.add(longPoll);
+                return polls;
+            });
+        }
+        logger.debug("Listening {} from appId: {}, cluster: {}, namespace: {}, datacenter: {}",
+                watchedKeys, appId, cluster, namespaces, dataCenter);
+
+        List<ReleaseMessage> latestReleaseMessages =
+                releaseMessageService.findLatestReleaseMessagesGroupByMessages(watchedKeys);
+        List<ApolloConfigNotification> newNotifications =
+                watchNotificationsUtil.getApolloConfigNotifications(namespaces, clientSideNotifications,
+                        watchedKeysMap, latestReleaseMessages);
+        if (!CollectionUtils.isEmpty(newNotifications)) {
+            notify(longPoll, newNotifications);
+        }
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        String content = message.getMessage();
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+            return;
+        }
+        String changedNamespace = watchNotificationsUtil.retrieveNamespaceFromReleaseMessage(content);
+        if (Strings.isNullOrEmpty(changedNamespace)) {
+            return;
+        }
+        Set<NettyLongPoll> polls = longPolls.get(content.toLowerCase());
+        if (polls == null || polls.isEmpty()) {
+            return;
+        }
+        //create a new list to avoid ConcurrentModificationException
+        List<NettyLongPoll> targets = Lists.newArrayList(polls);
+
+        ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
+        configNotification.addMessage(content, message.getId());
+        List<ApolloConfigNotification> notifications = Lists.newArrayList(configNotification);
+
+        //do async notification if too many clients
+        int batch = bizConfig.releaseMessageNotificationBatch();
+        if (targets.size() > batch) {
+            largeNotificationBatchExecutorService.submit(() -> {
+                logger.debug("Async notify {} netty clients for key {} with batch {}", targets.size(), content, batch);
+                for (int i = 0; i < targets.size(); i++) {
+                    if (i > 0 && i % batch == 0) {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
+                        } catch (InterruptedException e) {
+                            //ignore
+                        }
+                    }
+                    notify(targets.get(i), notifications);
+                }
+            });
+            return;
+        }
+
+        logger.debug("Notify {} netty clients for key {}", targets.size(), content);
+        for (NettyLongPoll target : targets) {
+            notify(target, notifications);
+        }
+    }
+
+    private void notify(NettyLongPoll longPoll, List<ApolloConfigNotification> notifications) {
+        if (!longPoll.complete()) {
+            return;
+        }
+        unregister(longPoll);
+        // 通知对象在多个连接间共享，返回原始 Namespace 名字时需要复制
+        List<ApolloConfigNotification> response = Lists.newArrayListWithCapacity(notifications.size());
+        for (ApolloConfigNotification notification : notifications) {
+            ApolloConfigNotification copy = new ApolloConfigNotification(
+                    longPoll.getOriginalNamespaceName(notification.getNamespaceName()),
+                    notification.getNotificationId());
+            copy.setMessages(notification.getMessages());
+            response.add(copy);
+        }
+        respond(longPoll.getChannel(), longPoll.isKeepAlive(), HttpResponseStatus.OK, gson.toJson(response));
+    }
+
+    /**
+     * 连接断开时取消挂起的长轮询，在连接的事件循环中调用
+     */
+    void channelClosed(Channel channel) {
+        NettyLongPoll longPoll = channel.attr(LONG_POLL).getAndSet(null);
+        if (longPoll != null && longPoll.complete()) {
+            unregister(longPoll);
+        }
+    }
+
+    private void unregister(NettyLongPoll longPoll) {
+        longPoll.getChannel().attr(LONG_POLL).compareAndSet(longPoll, null);
+        for (String key : longPoll.getWatchedKeys()) {
+            longPolls.computeIfPresent(key.toLowerCase(), (k, polls) -> {
+                polls.remove(longPoll);
+                return polls.isEmpty() ? null : polls;
+            });
+        }
+    }
+
+    void respond(Channel channel, boolean keepAlive, HttpResponseStatus status, String body) {
+        if (!channel.isActive()) {
+            return;
+        }
+        ByteBuf content = body == null ? Unpooled.EMPTY_BUFFER : Unpooled.copiedBuffer(body, StandardCharsets.UTF_8);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
+        if (body != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json;charset=UTF-8");
+        }
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            channel.writeAndFlush(response);
+        } else {
+            channel.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private String requiredParameter(Map<String, List<String>> parameters, String name) {
+        String value = parameter(parameters, name);
+        if (Strings.isNullOrEmpty(value)) {
+            throw new BadRequestException(String.format("Required parameter '%s' is not present", name));
+        }
+        return value;
+    }
+
+    private String parameter(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return CollectionUtils.isEmpty(values) ? null : values.get(0);
+    }
+}
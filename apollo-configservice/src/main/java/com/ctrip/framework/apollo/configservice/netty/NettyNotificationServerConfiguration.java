@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.configservice.netty;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.google.gson.Gson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 开启 Netty 通知服务：apollo.notification.netty.enabled=true ，端口 apollo.notification.netty.port（默认 8090）。
+ * 客户端仍然访问 Config Service 的地址，由负载均衡将 /notifications/v2 转发到该端口。
+ */
+@Configuration
+@ConditionalOnProperty(name = "apollo.notification.netty.enabled", havingValue = "true")
+public class NettyNotificationServerConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public NettyNotificationServer nettyNotificationServer(
+            final WatchKeysUtil watchKeysUtil,
+            final WatchNotificationsUtil watchNotificationsUtil,
+            final ReleaseMessageServiceWithCache releaseMessageService,
+            final Gson gson,
+            final BizConfig bizConfig,
+            final ReleaseMessageScanner releaseMessageScanner,
+            @Value("${apollo.notification.netty.port:8090}") int port,
+            @Value("${apollo.notification.netty.worker-threads:0}") int workerThreads) {
+        NettyNotificationServer server = new NettyNotificationServer(watchKeysUtil, watchNotificationsUtil,
+                releaseMessageService, gson, bizConfig, port, workerThreads);
+        //3. notify clients, after the release message cache is updated
+        releaseMessageScanner.addMessageListener(server);
+        return server;
+    }
+}
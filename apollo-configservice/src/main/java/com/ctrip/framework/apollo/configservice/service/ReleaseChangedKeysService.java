@@ -0,0 +1,208 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录 Watch Key 每条 ReleaseMessage 修改的配置 Key ，用于按 Key 订阅的长轮询判断是否需要唤醒客户端
+ * <p>
+ * 只跟踪有客户端按 Key 订阅的 Watch Key 。修改的 Key 通过对比 Namespace 前后两次发布的配置得到，
+ * 只在最近一次操作为普通发布或回滚时可信，其它情况（灰度、合并等）及超出记录范围的消息视为“未知”，此时唤醒所有客户端。
+ */
+@Service
+public class ReleaseChangedKeysService {
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseChangedKeysService.class);
+    private static final Splitter STRING_SPLITTER =
+            Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+    private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
+    }.getType();
+    private static final Pageable FIRST_ITEM = PageRequest.of(0, 1);
+    private static final Set<Integer> TRUSTED_OPERATIONS =
+            ImmutableSet.of(ReleaseOperation.NORMAL_RELEASE, ReleaseOperation.ROLLBACK);
+    /**
+     * 每个 Watch Key 最多记录的 ReleaseMessage 数量
+     */
+    private static final int MAX_TRACKED_MESSAGES = 100;
+    private static final int MAX_TRACKED_WATCH_KEYS = 10000;
+    private static final Gson GSON = new Gson();
+
+    private final ReleaseService releaseService;
+    private final ReleaseHistoryService releaseHistoryService;
+    /**
+     * KEY 为小写的 Watch Key ，Watch Key 大小写不敏感
+     */
+    private final Cache<String, TrackedWatchKey> trackedWatchKeys;
+
+    public ReleaseChangedKeysService(final ReleaseService releaseService,
+                                     final ReleaseHistoryService releaseHistoryService) {
+        this.releaseService = releaseService;
+        this.releaseHistoryService = releaseHistoryService;
+        this.trackedWatchKeys = CacheBuilder.newBuilder()
+                .maximumSize(MAX_TRACKED_WATCH_KEYS)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * 开始跟踪 Watch Key ，之后的 ReleaseMessage 修改的 Key 会被记录
+     *
+     * @param latestMessageId Watch Key 当前最新的 ReleaseMessage 编号，该编号及之前的消息修改的 Key 视为未知
+     */
+    public void track(String watchKey, long latestMessageId) {
+        trackedWatchKeys.asMap().putIfAbsent(watchKey.toLowerCase(), new TrackedWatchKey(latestMessageId));
+    }
+
+    /**
+     * 记录 ReleaseMessage 修改的 Key ，需要在唤醒客户端之前调用
+     */
+    public void handleMessage(ReleaseMessage message) {
+        TrackedWatchKey tracked = trackedWatchKeys.getIfPresent(message.getMessage().toLowerCase());
+        if (tracked == null) {
+            return;
+        }
+        synchronized (tracked) {
+            Set<String> changedKeys = null;
+            try {
+                changedKeys = resolveChangedKeys(message.getMessage(), tracked);
+            } catch (Throwable ex) {
+                logger.warn("Resolve changed keys of {} failed", message, ex);
+                Tracer.logError(ex);
+            }
+            tracked.record(message.getId(), changedKeys);
+        }
+    }
+
+    /**
+     * @return the keys changed by the release messages of the watch key in (fromId, toId], null if unknown
+     */
+    public Set<String> findChangedKeys(String watchKey, long fromId, long toId) {
+        TrackedWatchKey tracked = trackedWatchKeys.getIfPresent(watchKey.toLowerCase());
+        if (tracked == null) {
+            return null;
+        }
+        synchronized (tracked) {
+            return tracked.changedKeys(fromId, toId);
+        }
+    }
+
+    private Set<String> resolveChangedKeys(String watchKey, TrackedWatchKey tracked) {
+        List<String> keys = STRING_SPLITTER.splitToList(watchKey);
+        //message should be appId+cluster+namespace
+        if (keys.size() != 3) {
+            return null;
+        }
+        String appId = keys.get(0);
+        String cluster = keys.get(1);
+        String namespace = keys.get(2);
+
+        Release latestRelease = releaseService.findLatestActiveRelease(appId, cluster, namespace);
+        if (latestRelease == null) {
+            return null;
+        }
+        long previousReleaseId = tracked.lastReleaseId;
+        tracked.lastReleaseId = latestRelease.getId();
+
+        Page<ReleaseHistory> histories =
+                releaseHistoryService.findReleaseHistoriesByNamespace(appId, cluster, namespace, FIRST_ITEM);
+        if (!histories.hasContent()) {
+            return null;
+        }
+        ReleaseHistory latestHistory = histories.getContent().get(0);
+        // 灰度发布、合并等操作，对比主版本不能说明客户端看到的变化
+        if (!TRUSTED_OPERATIONS.contains(latestHistory.getOperation())
+                || latestHistory.getReleaseId() != latestRelease.getId()) {
+            return null;
+        }
+        if (previousReleaseId <= 0) {
+            previousReleaseId = latestHistory.getPreviousReleaseId();
+        }
+        if (previousReleaseId <= 0 || previousReleaseId == latestRelease.getId()) {
+            return null;
+        }
+        Release previousRelease = releaseService.findOne(previousReleaseId);
+        if (previousRelease == null) {
+            return null;
+        }
+
+        Map<String, String> previous = GSON.fromJson(previousRelease.getConfigurations(), configurationTypeReference);
+        Map<String, String> current = GSON.fromJson(latestRelease.getConfigurations(), configurationTypeReference);
+        Set<String> changedKeys = Sets.newHashSet();
+        for (String key : Sets.union(previous.keySet(), current.keySet())) {
+            if (!Objects.equals(previous.get(key), current.get(key))) {
+                changedKeys.add(key);
+            }
+        }
+        return changedKeys;
+    }
+
+    private static class TrackedWatchKey {
+        /**
+         * 该编号及之前的 ReleaseMessage 修改的 Key 未知
+         */
+        private long baselineId;
+        /**
+         * 最近一次处理消息时的最新发布编号，作为下一次对比的基准
+         */
+        private long lastReleaseId;
+        /**
+         * ReleaseMessage 编号与修改的 Key ，VALUE 为 null 时表示未知
+         */
+        private final TreeMap<Long, Set<String>> changes = new TreeMap<>();
+
+        TrackedWatchKey(long baselineId) {
+            this.baselineId = baselineId;
+        }
+
+        void record(long messageId, Set<String> changedKeys) {
+            if (messageId <= baselineId || changes.containsKey(messageId)) {
+                return;
+            }
+            changes.put(messageId, changedKeys == null ? null : ImmutableSet.copyOf(changedKeys));
+            while (changes.size() > MAX_TRACKED_MESSAGES) {
+                baselineId = changes.pollFirstEntry().getKey();
+            }
+        }
+
+        Set<String> changedKeys(long fromId, long toId) {
+            long lastRecordedId = changes.isEmpty() ? baselineId : changes.lastKey();
+            if (fromId < baselineId || toId > lastRecordedId) {
+                return null;
+            }
+            Set<String> result = Sets.newHashSet();
+            for (Set<String> changedKeys : changes.subMap(fromId, false, toId, true).values()) {
+                if (changedKeys == null) {
+                    return null;
+                }
+                result.addAll(changedKeys);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 长轮询的 Watch 会话，保存创建时已解析好的 Namespace 和 Watch Key ，之后的长轮询不需要重新归一化和组装
+ */
+public class WatchSession {
+    private final String sessionId;
+    private final String appId;
+    private final String cluster;
+    private final String dataCenter;
+    /**
+     * 归一化的 Namespace 名字
+     */
+    private final Set<String> namespaces;
+    /**
+     * 归一化和原始的 Namespace 的名字的 Map ，只包含名字被归一化的 Namespace
+     */
+    private final Map<String, String> normalizedNamespaceNameToOriginalNamespaceName;
+    /**
+     * Namespace 对应的 Watch Key 们
+     */
+    private final Multimap<String, String> watchedKeysMap;
+    private final Set<String> watchedKeys;
+    /**
+     * 按 Key 订阅的 Namespace 的客户端通知，KEY 为归一化的 Namespace 名字
+     */
+    private final Map<String, ApolloConfigNotification> keySubscriptions;
+
+    public WatchSession(String sessionId, String appId, String cluster, String dataCenter,
+                        Map<String, String> normalizedNamespaceNameToOriginalNamespaceName,
+                        Multimap<String, String> watchedKeysMap, Set<String> namespaces,
+                        Map<String, ApolloConfigNotification> keySubscriptions) {
+        this.sessionId = sessionId;
+        this.appId = appId;
+        this.cluster = cluster;
+        this.dataCenter = dataCenter;
+        this.namespaces = ImmutableSet.copyOf(namespaces);
+        this.normalizedNamespaceNameToOriginalNamespaceName =
+                ImmutableMap.copyOf(normalizedNamespaceNameToOriginalNamespaceName);
+        this.watchedKeysMap = ImmutableMultimap.copyOf(watchedKeysMap);
+        this.watchedKeys = ImmutableSet.copyOf(watchedKeysMap.values());
+        this.keySubscriptions = ImmutableMap.copyOf(keySubscriptions);
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public String getCluster() {
+        return cluster;
+    }
+
+    public String getDataCenter() {
+        return dataCenter;
+    }
+
+    public Set<String> getNamespaces() {
+        return namespaces;
+    }
+
+    public Map<String, String> getNormalizedNamespaceNameToOriginalNamespaceName() {
+        return normalizedNamespaceNameToOriginalNamespaceName;
+    }
+
+    public Multimap<String, String> getWatchedKeysMap() {
+        return watchedKeysMap;
+    }
+
+    public Set<String> getWatchedKeys() {
+        return watchedKeys;
+    }
+
+    public Map<String, ApolloConfigNotification> getKeySubscriptions() {
+        return keySubscriptions;
+    }
+}
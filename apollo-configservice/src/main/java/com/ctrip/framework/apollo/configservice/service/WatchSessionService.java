@@ -0,0 +1,88 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 管理长轮询的 Watch 会话
+ * <p>
+ * 会话只保存在当前 Config Service 的内存中，创建后 {@link BizConfig#notificationSessionExpireInMilli()} 过期，
+ * 会话数超过 {@link BizConfig#notificationSessionMaxSize()} 时淘汰最近最少使用的会话，
+ * 客户端收到 404 后重新创建会话，同时刷新 Watch Key（例如关联的公共 Namespace 有变化）。
+ */
+@Service
+public class WatchSessionService {
+    private static final String TRACER_EVENT_SESSION_EXPIRED = "Apollo.LongPoll.SessionExpired";
+    private static final String TRACER_EVENT_SESSION_EVICTED = "Apollo.LongPoll.SessionEvicted";
+
+    private final WatchKeysUtil watchKeysUtil;
+    private final Cache<String, WatchSession> sessions;
+
+    public WatchSessionService(final WatchKeysUtil watchKeysUtil, final BizConfig bizConfig) {
+        this.watchKeysUtil = watchKeysUtil;
+        this.sessions = CacheBuilder.newBuilder()
+                .expireAfterWrite(bizConfig.notificationSessionExpireInMilli(), TimeUnit.MILLISECONDS)
+                .maximumSize(bizConfig.notificationSessionMaxSize())
+                .removalListener((RemovalListener<String, WatchSession>) notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        Tracer.logEvent(TRACER_EVENT_SESSION_EVICTED, notification.getValue().getAppId());
+                    } else if (notification.wasEvicted()) {
+                        Tracer.logEvent(TRACER_EVENT_SESSION_EXPIRED, notification.getValue().getAppId());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 创建会话
+     *
+     * @param filteredNotifications 过滤后的客户端通知，KEY 为归一化的 Namespace 名字
+     */
+    public WatchSession createSession(String appId, String cluster, String dataCenter,
+                                      Map<String, ApolloConfigNotification> filteredNotifications) {
+        Map<String, String> normalizedNamespaceNameToOriginalNamespaceName = Maps.newHashMap();
+        Map<String, ApolloConfigNotification> keySubscriptions = Maps.newHashMap();
+        for (Map.Entry<String, ApolloConfigNotification> entry : filteredNotifications.entrySet()) {
+            if (!Objects.equals(entry.getValue().getNamespaceName(), entry.getKey())) {
+                normalizedNamespaceNameToOriginalNamespaceName.put(entry.getKey(), entry.getValue().getNamespaceName());
+            }
+            if (entry.getValue().hasKeySubscription()) {
+                keySubscriptions.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Multimap<String, String> watchedKeysMap =
+                watchKeysUtil.assembleAllWatchKeys(appId, cluster, filteredNotifications.keySet(), dataCenter);
+
+        WatchSession session = new WatchSession(UUID.randomUUID().toString().replace("-", ""), appId, cluster,
+                dataCenter, normalizedNamespaceNameToOriginalNamespaceName, watchedKeysMap,
+                filteredNotifications.keySet(), keySubscriptions);
+        sessions.put(session.getSessionId(), session);
+        return session;
+    }
+
+    /**
+     * @return the session, null if it doesn't exist or has expired
+     */
+    public WatchSession getSession(String sessionId) {
+        return sessions.getIfPresent(sessionId);
+    }
+
+    long size() {
+        sessions.cleanUp();
+        return sessions.size();
+    }
+}
@@ -0,0 +1,149 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 客户端通知的公共处理，长轮询和推送通道共用
+ */
+@Component
+public class WatchNotificationsUtil {
+    private static final Logger logger = LoggerFactory.getLogger(WatchNotificationsUtil.class);
+    private static final Splitter STRING_SPLITTER =
+            Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+
+    private final NamespaceUtil namespaceUtil;
+
+    public WatchNotificationsUtil(final NamespaceUtil namespaceUtil) {
+        this.namespaceUtil = namespaceUtil;
+    }
+
+    /**
+     * 过滤并创建 ApolloConfigNotification Map，KEY 为归一化的 Namespace 的名字
+     */
+    public Map<String, ApolloConfigNotification> filterNotifications(String appId,
+                                                                     List<ApolloConfigNotification> notifications) {
+        Map<String, ApolloConfigNotification> filteredNotifications = Maps.newHashMap();
+        for (ApolloConfigNotification notification : notifications) {
+            if (Strings.isNullOrEmpty(notification.getNamespaceName())) {
+                continue;
+            }
+            // 若 Namespace 名以 .properties 结尾，移除该结尾，并设置到 ApolloConfigNotification 中。例如 application.properties => application 。
+            //strip out .properties suffix
+            String originalNamespace = namespaceUtil.filterNamespaceName(notification.getNamespaceName());
+            notification.setNamespaceName(originalNamespace);
+            // 获得归一化的 Namespace 名字。因为，客户端 Namespace 会填写错大小写。
+            //fix the character case issue, such as FX.apollo <-> fx.apollo
+            String normalizedNamespace = namespaceUtil.normalizeNamespace(appId, originalNamespace);
+
+            // in case client side namespace name has character case issue and has difference notification ids
+            // such as FX.apollo = 1 but fx.apollo = 2, we should let FX.apollo have the chance to update its notification id
+            // which means we should record FX.apollo = 1 here and ignore fx.apollo = 2
+            if (filteredNotifications.containsKey(normalizedNamespace) &&
+                    filteredNotifications.get(normalizedNamespace).getNotificationId() < notification.getNotificationId()) {
+                continue;
+            }
+
+            filteredNotifications.put(normalizedNamespace, notification);
+        }
+        return filteredNotifications;
+    }
+
+    /**
+     * 获得客户端尚未知道的通知
+     *
+     * @param clientSideNotifications 客户端的通知 Map 。key 为 Namespace 名，value 为通知编号
+     * @param watchedKeysMap          Namespace 对应的 Watch Key 们
+     * @param latestReleaseMessages   Watch Key 们最新的 ReleaseMessage
+     */
+    public List<ApolloConfigNotification> getApolloConfigNotifications(Set<String> namespaces,
+                                                                       Map<String, Long> clientSideNotifications,
+                                                                       Multimap<String, String> watchedKeysMap,
+                                                                       List<ReleaseMessage> latestReleaseMessages) {
+        List<ApolloConfigNotification> newNotifications = Lists.newArrayList();
+        if (!CollectionUtils.isEmpty(latestReleaseMessages)) {
+            Map<String, Long> latestNotifications = Maps.newHashMap();
+            for (ReleaseMessage releaseMessage : latestReleaseMessages) {
+                latestNotifications.put(releaseMessage.getMessage(), releaseMessage.getId());
+            }
+
+            for (String namespace : namespaces) {
+                long clientSideId = clientSideNotifications.get(namespace);
+                long latestId = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
+                Collection<String> namespaceWatchedKeys = watchedKeysMap.get(namespace);
+                for (String namespaceWatchedKey : namespaceWatchedKeys) {
+                    long namespaceNotificationId =
+                            latestNotifications.getOrDefault(namespaceWatchedKey, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER);
+                    if (namespaceNotificationId > latestId) {
+                        latestId = namespaceNotificationId;
+                    }
+                }
+                if (latestId > clientSideId) {
+                    ApolloConfigNotification notification = new ApolloConfigNotification(namespace, latestId);
+                    namespaceWatchedKeys.stream().filter(latestNotifications::containsKey).forEach(namespaceWatchedKey ->
+                            notification.addMessage(namespaceWatchedKey, latestNotifications.get(namespaceWatchedKey)));
+                    newNotifications.add(notification);
+                }
+            }
+        }
+        return newNotifications;
+    }
+
+    /**
+     * 判断修改的 Key 中是否有客户端订阅的 Key
+     *
+     * @param changedKeys  修改的 Key ，null 表示未知
+     * @param subscription 客户端的通知，包含订阅的 Key 及 Key 前缀
+     */
+    public boolean isInterested(Set<String> changedKeys, ApolloConfigNotification subscription) {
+        if (changedKeys == null || subscription == null || !subscription.hasKeySubscription()) {
+            return true;
+        }
+        Set<String> interestedKeys = subscription.getInterestedKeys();
+        Set<String> interestedKeyPrefixes = subscription.getInterestedKeyPrefixes();
+        for (String changedKey : changedKeys) {
+            if (interestedKeys != null && interestedKeys.contains(changedKey)) {
+                return true;
+            }
+            if (interestedKeyPrefixes != null) {
+                for (String prefix : interestedKeyPrefixes) {
+                    if (changedKey.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 通过 ReleaseMessage 的消息内容，获得对应 Namespace 的名字
+     */
+    public String retrieveNamespaceFromReleaseMessage(String releaseMessage) {
+        if (Strings.isNullOrEmpty(releaseMessage)) {
+            return null;
+        }
+        List<String> keys = STRING_SPLITTER.splitToList(releaseMessage);
+        //message should be appId+cluster+namespace
+        if (keys.size() != 3) {
+            logger.error("message format invalid - {}", releaseMessage);
+            return null;
+        }
+        return keys.get(2);
+    }
+}
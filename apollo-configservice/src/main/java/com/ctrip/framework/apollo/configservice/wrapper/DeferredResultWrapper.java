@@ -4,6 +4,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +13,7 @@ import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -33,10 +35,21 @@ public class DeferredResultWrapper implements Comparable<DeferredResultWrapper>
      * 响应的 DeferredResult 对象
      */
     private DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result;
+    /**
+     * 按 Key 订阅的 Namespace 的客户端通知，KEY 为归一化的 Namespace 名字
+     */
+    private Map<String, ApolloConfigNotification> keySubscriptions;
+    /**
+     * 新的发布没有修改订阅的 Key 、因此未唤醒客户端的通知，KEY 为归一化的 Namespace 名字。
+     * 在超时或被其它通知唤醒时一并返回，客户端只更新通知编号
+     */
+    private Map<String, ApolloConfigNotification> unchangedNotifications;
+    private Runnable timeoutCallback;
 
 
     public DeferredResultWrapper(long timeoutInMilli) {
         result = new DeferredResult<>(timeoutInMilli, NOT_MODIFIED_RESPONSE_LIST);
+        result.onTimeout(this::handleTimeout);
     }
 
     public void recordNamespaceNameNormalizedResult(String originalNamespaceName, String normalizedNamespaceName) {
@@ -47,8 +60,59 @@ public class DeferredResultWrapper implements Comparable<DeferredResultWrapper>
     }
 
 
+    public void recordKeySubscription(String normalizedNamespaceName, ApolloConfigNotification subscription) {
+        if (keySubscriptions == null) {
+            keySubscriptions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        }
+        keySubscriptions.put(normalizedNamespaceName, subscription);
+    }
+
+    /**
+     * @return the client notification with the subscribed keys of the namespace, null if the whole namespace is watched
+     */
+    public ApolloConfigNotification getKeySubscription(String normalizedNamespaceName) {
+        return keySubscriptions == null ? null : keySubscriptions.get(normalizedNamespaceName);
+    }
+
+    /**
+     * 记录没有修改订阅的 Key 的通知，不唤醒客户端
+     */
+    public synchronized void addUnchangedNotification(ApolloConfigNotification notification) {
+        if (unchangedNotifications == null) {
+            unchangedNotifications = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        }
+        // 同一 Namespace 的多次通知合并为一个，保留最大的通知编号
+        ApolloConfigNotification existing = unchangedNotifications.get(notification.getNamespaceName());
+        long notificationId = existing == null ? notification.getNotificationId()
+                : Math.max(existing.getNotificationId(), notification.getNotificationId());
+        ApolloNotificationMessages messages = new ApolloNotificationMessages();
+        if (existing != null) {
+            messages.mergeFrom(existing.getMessages());
+        }
+        messages.mergeFrom(notification.getMessages());
+
+        ApolloConfigNotification unchanged = new ApolloConfigNotification(notification.getNamespaceName(), notificationId);
+        unchanged.setMessages(messages);
+        unchanged.setKeysUnchanged(true);
+        unchangedNotifications.put(unchanged.getNamespaceName(), unchanged);
+    }
+
     public void onTimeout(Runnable timeoutCallback) {
-        result.onTimeout(timeoutCallback);
+        this.timeoutCallback = timeoutCallback;
+    }
+
+    /**
+     * 超时时，若有未唤醒客户端的通知，返回这些通知代替 304 ，使客户端的通知编号前进
+     */
+    private void handleTimeout() {
+        if (timeoutCallback != null) {
+            timeoutCallback.run();
+        }
+        synchronized (this) {
+            if (unchangedNotifications != null && !unchangedNotifications.isEmpty()) {
+                setResult(Lists.newArrayList());
+            }
+        }
     }
 
     public void onCompletion(Runnable completionCallback) {
@@ -63,7 +127,15 @@ public class DeferredResultWrapper implements Comparable<DeferredResultWrapper>
     /**
      * The namespace name is used as a key in client side, so we have to return the original one instead of the correct one
      */
-    public void setResult(List<ApolloConfigNotification> notifications) {
+    public synchronized void setResult(List<ApolloConfigNotification> notifications) {
+        if (unchangedNotifications != null) {
+            Map<String, ApolloConfigNotification> pending = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            pending.putAll(unchangedNotifications);
+            for (ApolloConfigNotification notification : notifications) {
+                pending.remove(notification.getNamespaceName());
+            }
+            notifications.addAll(pending.values());
+        }
         if (normalizedNamespaceNameToOriginalNamespaceName != null) {
             notifications.stream().filter(notification -> normalizedNamespaceNameToOriginalNamespaceName.containsKey
                     (notification.getNamespaceName())).forEach(notification -> notification.setNamespaceName(
@@ -0,0 +1,275 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultimap;
+import com.google.gson.Gson;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个客户端的推送通道，Watch Key 只在建立连接时注册一次，之后的通知都通过同一个连接推送。
+ * <p>
+ * 每个 Namespace 记录已经推送的最大通知编号，客户端重连时带上自己的通知编号，即可从断开的位置继续。
+ * <p>
+ * 写入通过 {@link #execute(Runnable, Executor)} 依次进行，同一时刻最多占用一个推送线程，也最多在推送线程池中排队一个任务，
+ * 写入阻塞的慢客户端只影响自己，超时后由 {@link #abort()} 放弃。
+ *
+ * @see DeferredResultWrapper
+ */
+public class NotificationStreamWrapper {
+    public static final String NOTIFICATIONS_EVENT = "notifications";
+    private static final Gson GSON = new Gson();
+
+    private final SseEmitter emitter;
+    /**
+     * 归一化和原始的 Namespace 的名字的 Map
+     */
+    private final Map<String, String> normalizedNamespaceNameToOriginalNamespaceName = Maps.newHashMap();
+    /**
+     * 已经推送给客户端的通知编号，KEY 为归一化的 Namespace 名字
+     */
+    private final Map<String, Long> notifiedIds;
+    /**
+     * Watch Key 到归一化的 Namespace 名字的 Multimap，Watch Key 大小写不敏感
+     */
+    private final Multimap<String, String> watchedKeyToNamespaces =
+            TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural());
+    /**
+     * 等待写入的推送和心跳
+     */
+    private final Queue<Runnable> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Object writerLock = new Object();
+    /**
+     * 正在写入的线程及开始写入的时间，由 writerLock 保护
+     */
+    private Thread writer;
+    private long writeStartTime;
+    private volatile boolean closed;
+
+    public NotificationStreamWrapper(long timeoutInMilli, Map<String, Long> clientSideNotifications,
+                                     Multimap<String, String> watchedKeysMap) {
+        this.emitter = new SseEmitter(timeoutInMilli);
+        this.notifiedIds = Maps.newHashMap(clientSideNotifications);
+        for (Map.Entry<String, String> entry : watchedKeysMap.entries()) {
+            watchedKeyToNamespaces.put(entry.getValue(), entry.getKey());
+        }
+    }
+
+    public void recordNamespaceNameNormalizedResult(String originalNamespaceName, String normalizedNamespaceName) {
+        normalizedNamespaceNameToOriginalNamespaceName.put(normalizedNamespaceName, originalNamespaceName);
+    }
+
+    /**
+     * 推送 Watch Key 的新通知给所有 Watch 了该 Key 的 Namespace
+     *
+     * @return 连接是否仍然可用
+     */
+    public boolean send(String watchedKey, long notificationId) {
+        // 只在构造时写入，之后只读
+        Collection<String> namespaces = watchedKeyToNamespaces.get(watchedKey);
+        List<ApolloConfigNotification> notifications = Lists.newArrayListWithCapacity(namespaces.size());
+        for (String namespace : namespaces) {
+            ApolloConfigNotification notification = new ApolloConfigNotification(namespace, notificationId);
+            notification.addMessage(watchedKey, notificationId);
+            notifications.add(notification);
+        }
+        return send(notifications);
+    }
+
+    /**
+     * 推送客户端尚未收到的通知，通知中的 Namespace 为归一化的名字
+     *
+     * @return 连接是否仍然可用
+     */
+    public synchronized boolean send(List<ApolloConfigNotification> notifications) {
+        if (closed) {
+            return false;
+        }
+        List<ApolloConfigNotification> newNotifications = Lists.newArrayListWithCapacity(notifications.size());
+        long lastEventId = 0;
+        for (ApolloConfigNotification notification : notifications) {
+            String namespace = notification.getNamespaceName();
+            Long notifiedId = notifiedIds.get(namespace);
+            if (notifiedId != null && notifiedId >= notification.getNotificationId()) {
+                continue;
+            }
+            notifiedIds.put(namespace, notification.getNotificationId());
+            lastEventId = Math.max(lastEventId, notification.getNotificationId());
+            // The namespace name is used as a key in client side, so we have to return the original one
+            String originalNamespace = normalizedNamespaceNameToOriginalNamespaceName.get(namespace);
+            if (originalNamespace != null) {
+                notification.setNamespaceName(originalNamespace);
+            }
+            newNotifications.add(notification);
+        }
+        if (newNotifications.isEmpty()) {
+            return true;
+        }
+
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(lastEventId))
+                    .name(NOTIFICATIONS_EVENT)
+                    .data(GSON.toJson(newNotifications)));
+            return true;
+        } catch (Throwable ex) {
+            close(ex);
+            return false;
+        }
+    }
+
+    /**
+     * 发送心跳（SSE 注释行），让客户端及中间代理知道连接仍然存活
+     *
+     * @return 连接是否仍然可用
+     */
+    public synchronized boolean heartbeat() {
+        if (closed) {
+            return false;
+        }
+        try {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return true;
+        } catch (Throwable ex) {
+            close(ex);
+            return false;
+        }
+    }
+
+    /**
+     * 在 executor 中执行写入，同一个推送通道的写入按提交顺序依次执行
+     */
+    public void execute(Runnable write, Executor executor) {
+        if (closed) {
+            return;
+        }
+        pendingWrites.add(write);
+        scheduleWrites(executor);
+    }
+
+    /**
+     * @return 是否有等待或正在进行的写入
+     */
+    public boolean isWriting() {
+        return writeScheduled.get();
+    }
+
+    /**
+     * @return 是否有写入已持续 timeoutInMilli 以上
+     */
+    public boolean isWriteTimedOut(long now, long timeoutInMilli) {
+        synchronized (writerLock) {
+            return writer != null && now - writeStartTime >= timeoutInMilli;
+        }
+    }
+
+    /**
+     * 放弃推送通道：不再写入并关闭连接，客户端重连后从已知的通知编号续传。
+     * <p>
+     * 有写入正在进行时，emitter 被该写入持有，由写入线程在写入返回（成功、失败或容器的写超时）后关闭连接
+     */
+    public void abort() {
+        closed = true;
+        pendingWrites.clear();
+        synchronized (writerLock) {
+            if (writer != null) {
+                return;
+            }
+        }
+        complete();
+    }
+
+    public Set<String> getWatchedKeys() {
+        return watchedKeyToNamespaces.keySet();
+    }
+
+    private void scheduleWrites(Executor executor) {
+        if (pendingWrites.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> runWrites(executor));
+        } catch (RejectedExecutionException ex) {
+            // the executor is shut down
+            writeScheduled.set(false);
+        }
+    }
+
+    private void runWrites(Executor executor) {
+        try {
+            Runnable write;
+            while (!closed && (write = pendingWrites.poll()) != null) {
+                synchronized (writerLock) {
+                    writer = Thread.currentThread();
+                    writeStartTime = System.currentTimeMillis();
+                }
+                try {
+                    write.run();
+                } finally {
+                    // never leave an interrupt to the next stream written by this pooled thread
+                    Thread.interrupted();
+                    synchronized (writerLock) {
+                        writer = null;
+                    }
+                }
+            }
+        } finally {
+            writeScheduled.set(false);
+        }
+        if (closed) {
+            // aborted during the write
+            pendingWrites.clear();
+            complete();
+            return;
+        }
+        // writes added while the flag was set
+        scheduleWrites(executor);
+    }
+
+    public void onCompletion(Runnable completionCallback) {
+        emitter.onCompletion(completionCallback);
+    }
+
+    public void onTimeout(Runnable timeoutCallback) {
+        emitter.onTimeout(timeoutCallback);
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void complete() {
+        try {
+            emitter.complete();
+        } catch (Throwable ignore) {
+            // already completed
+        }
+    }
+
+    private void close(Throwable ex) {
+        closed = true;
+        try {
+            emitter.completeWithError(ex);
+        } catch (Throwable ignore) {
+            // already completed
+        }
+    }
+}
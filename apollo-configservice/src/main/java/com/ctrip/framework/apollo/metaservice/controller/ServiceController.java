@@ -1,32 +1,24 @@
 package com.ctrip.framework.apollo.metaservice.controller;
 
-import com.ctrip.framework.apollo.core.dto.ServiceDTO;
-import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
-import com.netflix.appinfo.InstanceInfo;
+import com.ctrip.framework.apollo.metaservice.service.ServiceListCache;
+import com.ctrip.framework.apollo.metaservice.service.ServiceListCache.CachedServiceList;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-
 @RestController
 @RequestMapping("/services")
 public class ServiceController {
 
-    private final DiscoveryService discoveryService;
-
-    private static Function<InstanceInfo, ServiceDTO> instanceInfoToServiceDTOFunc = instance -> {
-        ServiceDTO service = new ServiceDTO();
-        service.setAppName(instance.getAppName());
-        service.setInstanceId(instance.getInstanceId());
-        service.setHomepageUrl(instance.getHomePageUrl());
-        return service;
-    };
+    private final ServiceListCache serviceListCache;
 
-    public ServiceController(final DiscoveryService discoveryService) {
-        this.discoveryService = discoveryService;
+    public ServiceController(final ServiceListCache serviceListCache) {
+        this.serviceListCache = serviceListCache;
     }
 
     /**
@@ -35,10 +27,9 @@ public class ServiceController {
      * @return
      */
     @RequestMapping("/meta")
-    public List<ServiceDTO> getMetaService() {
-        List<InstanceInfo> instances = discoveryService.getMetaServiceInstances();
-        List<ServiceDTO> result = instances.stream().map(instanceInfoToServiceDTOFunc).collect(Collectors.toList());
-        return result;
+    public ResponseEntity<String> getMetaService(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(serviceListCache.getMetaServices(), ifNoneMatch);
     }
 
     /**
@@ -46,15 +37,15 @@ public class ServiceController {
      *
      * @param appId
      * @param clientIp
+     * @param ifNoneMatch 上一次返回的 ETag ，服务列表没有变化时返回 304
      * @return
      */
     @RequestMapping("/config")
-    public List<ServiceDTO> getConfigService(
+    public ResponseEntity<String> getConfigService(
             @RequestParam(value = "appId", defaultValue = "") String appId,
-            @RequestParam(value = "ip", required = false) String clientIp) {
-        List<InstanceInfo> instances = discoveryService.getConfigServiceInstances();
-        List<ServiceDTO> result = instances.stream().map(instanceInfoToServiceDTOFunc).collect(Collectors.toList());
-        return result;
+            @RequestParam(value = "ip", required = false) String clientIp,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(serviceListCache.getConfigServices(), ifNoneMatch);
     }
 
     /**
@@ -63,9 +54,18 @@ public class ServiceController {
      * @return
      */
     @RequestMapping("/admin")
-    public List<ServiceDTO> getAdminService() {
-        List<InstanceInfo> instances = discoveryService.getAdminServiceInstances();
-        List<ServiceDTO> result = instances.stream().map(instanceInfoToServiceDTOFunc).collect(Collectors.toList());
-        return result;
+    public ResponseEntity<String> getAdminService(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return toResponse(serviceListCache.getAdminServices(), ifNoneMatch);
+    }
+
+    private ResponseEntity<String> toResponse(CachedServiceList serviceList, String ifNoneMatch) {
+        if (serviceList.getETag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(serviceList.getETag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .eTag(serviceList.getETag())
+                .body(serviceList.getJson());
     }
 }
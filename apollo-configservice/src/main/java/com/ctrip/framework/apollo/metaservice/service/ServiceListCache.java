@@ -0,0 +1,154 @@
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import com.netflix.discovery.EurekaEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 预先构建并序列化的服务列表缓存
+ * <p>
+ * 每次 Eureka 客户端拉取注册表（{@link CacheRefreshedEvent}）后重新构建，内容不变时保持原有版本。
+ * 请求只读取缓存，不再遍历 Eureka 注册表，也不再重复转换 {@link ServiceDTO} 和序列化。
+ * <p>
+ * 版本即序列化内容的摘要，作为 ETag 返回，客户端带上 If-None-Match 时，服务列表不变只需返回 304 。
+ */
+@Service
+public class ServiceListCache {
+    private static final Logger logger = LoggerFactory.getLogger(ServiceListCache.class);
+    /**
+     * 实例所在的数据中心，通过 eureka.instance.metadata-map.dataCenter 配置，客户端优先访问同一数据中心的 Config Service
+     */
+    private static final String DATA_CENTER_METADATA_KEY = "dataCenter";
+    private static final Gson GSON = new Gson();
+
+    private final EurekaClient eurekaClient;
+    private final DiscoveryService discoveryService;
+    // service name -> cached service list
+    private final Map<String, CachedServiceList> cache = Maps.newConcurrentMap();
+    private final EurekaEventListener eventListener = this::onEurekaEvent;
+
+    public ServiceListCache(final EurekaClient eurekaClient, final DiscoveryService discoveryService) {
+        this.eurekaClient = eurekaClient;
+        this.discoveryService = discoveryService;
+    }
+
+    @PostConstruct
+    void registerEventListener() {
+        eurekaClient.registerEventListener(eventListener);
+    }
+
+    @PreDestroy
+    void unregisterEventListener() {
+        eurekaClient.unregisterEventListener(eventListener);
+    }
+
+    public CachedServiceList getConfigServices() {
+        return get(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+    }
+
+    public CachedServiceList getMetaServices() {
+        return get(ServiceNameConsts.APOLLO_METASERVICE);
+    }
+
+    public CachedServiceList getAdminServices() {
+        return get(ServiceNameConsts.APOLLO_ADMINSERVICE);
+    }
+
+    private CachedServiceList get(String serviceName) {
+        CachedServiceList serviceList = cache.get(serviceName);
+        if (serviceList == null) {
+            // 首次请求时注册表可能还没有刷新过
+            serviceList = rebuild(serviceName);
+        }
+        return serviceList;
+    }
+
+    private void onEurekaEvent(EurekaEvent event) {
+        if (!(event instanceof CacheRefreshedEvent)) {
+            return;
+        }
+        try {
+            for (String serviceName : cache.keySet()) {
+                rebuild(serviceName);
+            }
+        } catch (Throwable ex) {
+            logger.error("Rebuild service list cache failed", ex);
+        }
+    }
+
+    private synchronized CachedServiceList rebuild(String serviceName) {
+        List<ServiceDTO> services = getInstances(serviceName).stream()
+                .map(ServiceListCache::toServiceDTO)
+                .collect(Collectors.toList());
+        CachedServiceList serviceList = new CachedServiceList(GSON.toJson(services));
+
+        CachedServiceList previous = cache.get(serviceName);
+        if (previous != null && previous.getETag().equals(serviceList.getETag())) {
+            return previous;
+        }
+        cache.put(serviceName, serviceList);
+        if (previous != null) {
+            Tracer.logEvent("Apollo.MetaService.ServiceListChanged", serviceName);
+            logger.info("Service list of {} changed, ETag: {}", serviceName, serviceList.getETag());
+        }
+        return serviceList;
+    }
+
+    private List<InstanceInfo> getInstances(String serviceName) {
+        switch (serviceName) {
+            case ServiceNameConsts.APOLLO_CONFIGSERVICE:
+                return discoveryService.getConfigServiceInstances();
+            case ServiceNameConsts.APOLLO_METASERVICE:
+                return discoveryService.getMetaServiceInstances();
+            default:
+                return discoveryService.getAdminServiceInstances();
+        }
+    }
+
+    private static ServiceDTO toServiceDTO(InstanceInfo instance) {
+        ServiceDTO service = new ServiceDTO();
+        service.setAppName(instance.getAppName());
+        service.setInstanceId(instance.getInstanceId());
+        service.setHomepageUrl(instance.getHomePageUrl());
+        if (instance.getMetadata() != null) {
+            service.setDataCenter(instance.getMetadata().get(DATA_CENTER_METADATA_KEY));
+        }
+        return service;
+    }
+
+    public static class CachedServiceList {
+        private final String json;
+        private final String eTag;
+
+        CachedServiceList(String json) {
+            this.json = json;
+            this.eTag = "\"" + Hashing.md5().hashString(json, StandardCharsets.UTF_8).toString() + "\"";
+        }
+
+        public String getJson() {
+            return json;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ctrip.framework.apollo.configservice.admission;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveConcurrencyLimitTest {
+  private AdaptiveConcurrencyLimit concurrencyLimit;
+  @Mock
+  private BizConfig bizConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    when(bizConfig.admissionControlInitialLimit()).thenReturn(10);
+
+    concurrencyLimit = new AdaptiveConcurrencyLimit(bizConfig);
+  }
+
+  @Test
+  public void testShedByPriority() throws Exception {
+    when(bizConfig.admissionControlLongPollShare()).thenReturn(50);
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(concurrencyLimit.tryAcquire(RequestPriority.LONG_POLL));
+    }
+    assertFalse(concurrencyLimit.tryAcquire(RequestPriority.LONG_POLL));
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+    }
+    assertFalse(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+
+    assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CRITICAL));
+    assertEquals(11, concurrencyLimit.getInflight());
+  }
+
+  @Test
+  public void testDecreaseOnSlowRequests() throws Exception {
+    mockLimits();
+
+    assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+    assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+    concurrencyLimit.release(RequestPriority.CONFIG_FETCH, TimeUnit.SECONDS.toNanos(1));
+    //only one decrease within the latency threshold
+    concurrencyLimit.release(RequestPriority.CONFIG_FETCH, TimeUnit.SECONDS.toNanos(1));
+
+    assertEquals(9, concurrencyLimit.getLimit());
+    assertEquals(0, concurrencyLimit.getInflight());
+  }
+
+  @Test
+  public void testIncreaseWhenBusyAndFast() throws Exception {
+    mockLimits();
+
+    //not increased when the limit is far from reached
+    for (int i = 0; i < 20; i++) {
+      assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+      concurrencyLimit.release(RequestPriority.CONFIG_FETCH, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    assertEquals(10, concurrencyLimit.getLimit());
+
+    for (int i = 0; i < 6; i++) {
+      assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+    }
+    //every busy request raises the limit by 1 / limit
+    for (int i = 0; i < 15; i++) {
+      assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CONFIG_FETCH));
+      concurrencyLimit.release(RequestPriority.CONFIG_FETCH, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    assertEquals(11, concurrencyLimit.getLimit());
+  }
+
+  @Test
+  public void testCriticalRequestsNotSampled() throws Exception {
+    assertTrue(concurrencyLimit.tryAcquire(RequestPriority.CRITICAL));
+    concurrencyLimit.release(RequestPriority.CRITICAL, TimeUnit.SECONDS.toNanos(10));
+
+    assertEquals(10, concurrencyLimit.getLimit());
+  }
+
+  @Test
+  public void testRequestPriority() throws Exception {
+    assertEquals(RequestPriority.LONG_POLL, RequestPriority.of("/notifications/v2"));
+    assertEquals(RequestPriority.LONG_POLL, RequestPriority.of("/notifications/v2/sessions"));
+    assertEquals(RequestPriority.CONFIG_FETCH, RequestPriority.of("/configs/someApp/default/application"));
+    assertEquals(RequestPriority.CONFIG_FETCH, RequestPriority.of("/configfiles/json/someApp/default/application"));
+    assertEquals(RequestPriority.CRITICAL, RequestPriority.of("/health"));
+    assertEquals(RequestPriority.CRITICAL, RequestPriority.of("/services/config"));
+  }
+
+  private void mockLimits() {
+    when(bizConfig.admissionControlLatencyThresholdInMilli()).thenReturn(200);
+    when(bizConfig.admissionControlMinLimit()).thenReturn(1);
+    when(bizConfig.admissionControlMaxLimit()).thenReturn(100);
+  }
+}
@@ -4,13 +4,18 @@ import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.exception.NotFoundException;
+import com.ctrip.framework.apollo.configservice.service.ReleaseChangedKeysService;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.WatchSessionService;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ApolloWatchSession;
 import com.google.common.base.Joiner;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
@@ -59,6 +64,8 @@ public class NotificationControllerV2Test {
   private WatchKeysUtil watchKeysUtil;
   @Mock
   private BizConfig bizConfig;
+  @Mock
+  private ReleaseChangedKeysService releaseChangedKeysService;
 
   private Gson gson;
 
@@ -67,8 +74,11 @@ public class NotificationControllerV2Test {
   @Before
   public void setUp() throws Exception {
     gson = new Gson();
+    when(bizConfig.notificationSessionExpireInMilli()).thenReturn(600000L);
+    when(bizConfig.notificationSessionMaxSize()).thenReturn(100000);
     controller = new NotificationControllerV2(
-        watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig
+        watchKeysUtil, releaseMessageService, entityManagerUtil, new WatchNotificationsUtil(namespaceUtil),
+        new WatchSessionService(watchKeysUtil, bizConfig), releaseChangedKeysService, gson, bizConfig
     );
 
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
@@ -372,6 +382,183 @@ public class NotificationControllerV2Test {
     assertTrue(deferredResult.hasResult());
   }
 
+  @Test
+  public void testCreateSessionAndPollSessionNotification() throws Exception {
+    String someWatchKey = "someKey";
+    String anotherWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+    long someReleaseMessageId = 5;
+
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey, anotherWatchKey));
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someReleaseMessageId);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someWatchKey, anotherWatchKey)))
+        .thenReturn(Lists.newArrayList(someReleaseMessage));
+
+    ApolloWatchSession session = controller.createSession(someAppId, someCluster, someDataCenter, someClientIp,
+        Lists.newArrayList(assembleApolloConfigNotification(defaultNamespace, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER)));
+
+    assertNotNull(session.getSessionId());
+    assertEquals(someReleaseMessageId, session.getReleaseMessageId());
+    assertEquals(1, session.getNotifications().size());
+    assertEquals(defaultNamespace, session.getNotifications().get(0).getNamespaceName());
+    assertEquals(someReleaseMessageId, session.getNotifications().get(0).getNotificationId());
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
+        deferredResult = controller.pollSessionNotification(session.getSessionId(), someReleaseMessageId);
+
+    assertFalse(deferredResult.hasResult());
+    assertEquals(watchKeysMap.size(), deferredResults.size());
+    assertWatchKeys(watchKeysMap, deferredResult);
+
+    long anotherReleaseMessageId = 6;
+    ReleaseMessage anotherReleaseMessage = new ReleaseMessage(anotherWatchKey);
+    anotherReleaseMessage.setId(anotherReleaseMessageId);
+
+    controller.handleMessage(anotherReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    ResponseEntity<List<ApolloConfigNotification>> response =
+        (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(anotherReleaseMessageId, response.getBody().get(0).getNotificationId());
+    verify(watchKeysUtil, times(1)).assembleAllWatchKeys(someAppId, someCluster,
+        Sets.newHashSet(defaultNamespace), someDataCenter);
+  }
+
+  @Test
+  public void testPollSessionNotificationWithNewerReleaseMessage() throws Exception {
+    String someWatchKey = "someKey";
+
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+
+    ApolloWatchSession session = controller.createSession(someAppId, someCluster, someDataCenter, someClientIp,
+        Lists.newArrayList(assembleApolloConfigNotification(defaultNamespace, someNotificationId)));
+
+    long someReleaseMessageId = 10;
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someReleaseMessageId);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someWatchKey)))
+        .thenReturn(Lists.newArrayList(someReleaseMessage));
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
+        deferredResult = controller.pollSessionNotification(session.getSessionId(), someNotificationId);
+
+    ResponseEntity<List<ApolloConfigNotification>> response =
+        (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
+    assertEquals(1, response.getBody().size());
+    assertEquals(someReleaseMessageId, response.getBody().get(0).getNotificationId());
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void testPollSessionNotificationWithUnknownSession() throws Exception {
+    controller.pollSessionNotification("someUnknownSession", someNotificationId);
+  }
+
+  @Test
+  public void testPollNotificationWithKeySubscriptionAndUnchangedKeys() throws Exception {
+    String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+    Multimap<String, String> watchKeysMap = assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+    when(watchKeysUtil.assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+        someDataCenter)).thenReturn(watchKeysMap);
+
+    ApolloConfigNotification subscription = assembleApolloConfigNotification(defaultNamespace, someNotificationId);
+    subscription.setInterestedKeys(Sets.newHashSet("timeout"));
+    String notificationAsString = gson.toJson(Lists.newArrayList(subscription));
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> deferredResult = controller
+        .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter, someClientIp);
+
+    verify(releaseChangedKeysService, times(1)).track(someWatchKey, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER);
+
+    long someId = 2;
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someId);
+    when(releaseChangedKeysService.findChangedKeys(someWatchKey, someId - 1, someId))
+        .thenReturn(Sets.newHashSet("batch"));
+
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    verify(releaseChangedKeysService, times(1)).handleMessage(someReleaseMessage);
+    assertFalse(deferredResult.hasResult());
+
+    DeferredResultWrapper wrapper = deferredResults.get(someWatchKey).iterator().next();
+    ReflectionTestUtils.invokeMethod(wrapper, "handleTimeout");
+
+    ResponseEntity<List<ApolloConfigNotification>> response =
+        (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(1, response.getBody().size());
+    ApolloConfigNotification notification = response.getBody().get(0);
+    assertEquals(defaultNamespace, notification.getNamespaceName());
+    assertEquals(someId, notification.getNotificationId());
+    assertTrue(notification.isKeysUnchanged());
+    assertEquals(someId, notification.getMessages().get(someWatchKey).longValue());
+  }
+
+  @Test
+  public void testPollNotificationWithKeySubscriptionAndNewerUnchangedRelease() throws Exception {
+    String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+    String anotherWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, somePublicNamespace);
+    Multimap<String, String> watchKeysMap = assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+    watchKeysMap.putAll(assembleMultiMap(somePublicNamespace, Lists.newArrayList(anotherWatchKey)));
+    when(watchKeysUtil.assembleAllWatchKeys(someAppId, someCluster,
+        Sets.newHashSet(defaultNamespace, somePublicNamespace), someDataCenter)).thenReturn(watchKeysMap);
+
+    long newerId = 2;
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(newerId);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someWatchKey, anotherWatchKey)))
+        .thenReturn(Lists.newArrayList(someReleaseMessage));
+    when(releaseChangedKeysService.findChangedKeys(someWatchKey, someNotificationId, newerId))
+        .thenReturn(Sets.newHashSet("batch"));
+
+    ApolloConfigNotification subscription = assembleApolloConfigNotification(defaultNamespace, someNotificationId);
+    subscription.setInterestedKeyPrefixes(Sets.newHashSet("timeout."));
+    String notificationAsString = gson.toJson(Lists.newArrayList(subscription,
+        assembleApolloConfigNotification(somePublicNamespace, someNotificationId)));
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> deferredResult = controller
+        .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter, someClientIp);
+
+    verify(releaseChangedKeysService, times(1)).track(someWatchKey, newerId);
+    verify(releaseChangedKeysService, never()).track(eq(anotherWatchKey), anyLong());
+    assertFalse(deferredResult.hasResult());
+
+    long anotherId = 3;
+    ReleaseMessage anotherReleaseMessage = new ReleaseMessage(anotherWatchKey);
+    anotherReleaseMessage.setId(anotherId);
+
+    controller.handleMessage(anotherReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    ResponseEntity<List<ApolloConfigNotification>> response =
+        (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
+
+    assertEquals(2, response.getBody().size());
+    for (ApolloConfigNotification notification : response.getBody()) {
+      if (notification.getNamespaceName().equals(defaultNamespace)) {
+        assertEquals(newerId, notification.getNotificationId());
+        assertTrue(notification.isKeysUnchanged());
+      } else {
+        assertEquals(somePublicNamespace, notification.getNamespaceName());
+        assertEquals(anotherId, notification.getNotificationId());
+        assertFalse(notification.isKeysUnchanged());
+      }
+    }
+  }
+
   private String transformApolloConfigNotificationsToString(
       String namespace, long notificationId) {
     List<ApolloConfigNotification> notifications =
@@ -0,0 +1,258 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.NotificationStreamWrapper;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gson.Gson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationStreamControllerTest {
+  private NotificationStreamController controller;
+  private String someAppId;
+  private String someCluster;
+  private String defaultNamespace;
+  private String someDataCenter;
+  private String someClientIp;
+  @Mock
+  private ReleaseMessageServiceWithCache releaseMessageService;
+  @Mock
+  private EntityManagerUtil entityManagerUtil;
+  @Mock
+  private NamespaceUtil namespaceUtil;
+  @Mock
+  private WatchKeysUtil watchKeysUtil;
+  @Mock
+  private BizConfig bizConfig;
+
+  private Gson gson;
+
+  private Multimap<String, NotificationStreamWrapper> streams;
+
+  @Before
+  public void setUp() throws Exception {
+    gson = new Gson();
+    when(bizConfig.notificationStreamHeartbeatIntervalInMilli()).thenReturn(30000L);
+    when(bizConfig.notificationStreamPushThreads()).thenReturn(2);
+    when(bizConfig.notificationStreamWriteTimeoutInMilli()).thenReturn(10000L);
+    controller = new NotificationStreamController(watchKeysUtil, new WatchNotificationsUtil(namespaceUtil),
+        releaseMessageService, entityManagerUtil, gson, bizConfig);
+
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    defaultNamespace = ConfigConsts.NAMESPACE_APPLICATION;
+    someDataCenter = "someDC";
+    someClientIp = "someClientIp";
+
+    streams = (Multimap<String, NotificationStreamWrapper>) ReflectionTestUtils.getField(controller, "streams");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    controller.stop();
+  }
+
+  @Test
+  public void testStreamNotificationsRegistersWatchKeysAndSendsMissedNotifications() throws Exception {
+    String someWatchKey = "someKey";
+    String anotherWatchKey = "anotherKey";
+    long someNotificationId = 10;
+
+    when(bizConfig.notificationStreamTimeoutInMilli()).thenReturn(600000L);
+    when(namespaceUtil.filterNamespaceName(defaultNamespace)).thenReturn(defaultNamespace);
+    when(namespaceUtil.normalizeNamespace(someAppId, defaultNamespace)).thenReturn(defaultNamespace);
+    Multimap<String, String> watchKeysMap = HashMultimap.create();
+    watchKeysMap.putAll(defaultNamespace, Lists.newArrayList(someWatchKey, anotherWatchKey));
+    when(watchKeysUtil.assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+        someDataCenter)).thenReturn(watchKeysMap);
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someNotificationId);
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(
+        Sets.newHashSet(someWatchKey, anotherWatchKey))).thenReturn(Lists.newArrayList(someReleaseMessage));
+
+    String notificationsAsString = gson.toJson(Lists.newArrayList(
+        new ApolloConfigNotification(defaultNamespace, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER)));
+
+    controller.streamNotifications(someAppId, someCluster, notificationsAsString, someDataCenter, someClientIp);
+
+    assertEquals(2, streams.size());
+    assertTrue(streams.containsKey(someWatchKey));
+    assertTrue(streams.containsKey(anotherWatchKey));
+    verify(entityManagerUtil, times(1)).closeEntityManager();
+
+    NotificationStreamWrapper stream = streams.get(someWatchKey).iterator().next();
+    Map<String, Long> notifiedIds = (Map<String, Long>) ReflectionTestUtils.getField(stream, "notifiedIds");
+    assertEquals(someNotificationId, notifiedIds.get(defaultNamespace).longValue());
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testStreamNotificationsWithInvalidNotifications() throws Exception {
+    controller.streamNotifications(someAppId, someCluster, "[]", someDataCenter, someClientIp);
+  }
+
+  @Test
+  public void testHandleMessagePushesToWatchingStreams() throws Exception {
+    String someWatchKey = "someKey";
+    long someNotificationId = 1;
+    NotificationStreamWrapper someStream = spy(createStream(someWatchKey));
+    NotificationStreamWrapper anotherStream = spy(createStream("anotherKey"));
+    streams.put(someWatchKey, someStream);
+    streams.put("anotherKey", anotherStream);
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someNotificationId);
+
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    verify(someStream, timeout(1000)).send(someWatchKey, someNotificationId);
+    verify(anotherStream, never()).send(anyString(), anyLong());
+  }
+
+  @Test
+  public void testHandleMessageNotBlockedBySlowStream() throws Exception {
+    String someWatchKey = "someKey";
+    long someNotificationId = 1;
+    NotificationStreamWrapper slowStream = spy(createStream(someWatchKey));
+    NotificationStreamWrapper someStream = spy(createStream(someWatchKey));
+    CountDownLatch writeBlocked = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      writeBlocked.await();
+      return true;
+    }).when(slowStream).send(anyString(), anyLong());
+    streams.put(someWatchKey, slowStream);
+    streams.put(someWatchKey, someStream);
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someNotificationId);
+
+    //more messages than the push threads
+    for (int i = 0; i < 3; i++) {
+      controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+    }
+
+    verify(someStream, timeout(1000).times(3)).send(someWatchKey, someNotificationId);
+    //the slow stream holds only one thread
+    verify(slowStream, timeout(1000).times(1)).send(someWatchKey, someNotificationId);
+
+    writeBlocked.countDown();
+    verify(slowStream, timeout(1000).times(3)).send(someWatchKey, someNotificationId);
+  }
+
+  @Test
+  public void testAbortStreamWithWriteTimeout() throws Exception {
+    String someWatchKey = "someKey";
+    String anotherWatchKey = "anotherKey";
+    long someNotificationId = 1;
+    when(bizConfig.notificationStreamPushThreads()).thenReturn(1);
+    when(bizConfig.notificationStreamWriteTimeoutInMilli()).thenReturn(100L);
+    controller.stop();
+    controller = new NotificationStreamController(watchKeysUtil, new WatchNotificationsUtil(namespaceUtil),
+        releaseMessageService, entityManagerUtil, gson, bizConfig);
+    streams = (Multimap<String, NotificationStreamWrapper>) ReflectionTestUtils.getField(controller, "streams");
+    Set<NotificationStreamWrapper> openStreams =
+        (Set<NotificationStreamWrapper>) ReflectionTestUtils.getField(controller, "openStreams");
+
+    NotificationStreamWrapper slowStream = spy(createStream(someWatchKey));
+    CountDownLatch writeReleased = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      //a socket write is not interruptible
+      while (writeReleased.getCount() > 0) {
+        try {
+          writeReleased.await();
+        } catch (InterruptedException ignore) {
+        }
+      }
+      return true;
+    }).when(slowStream).send(anyString(), anyLong());
+    streams.put(someWatchKey, slowStream);
+    openStreams.add(slowStream);
+
+    NotificationStreamWrapper anotherStream = spy(createStream(anotherWatchKey));
+    SettableFuture<Boolean> anotherWriteInterrupted = SettableFuture.create();
+    doAnswer(invocation -> {
+      anotherWriteInterrupted.set(Thread.currentThread().isInterrupted());
+      return true;
+    }).when(anotherStream).send(anyString(), anyLong());
+    streams.put(anotherWatchKey, anotherStream);
+    openStreams.add(anotherStream);
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someNotificationId);
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    ReleaseMessage anotherReleaseMessage = new ReleaseMessage(anotherWatchKey);
+    anotherReleaseMessage.setId(someNotificationId);
+    controller.handleMessage(anotherReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    //the slow stream is dropped while its write is still blocked
+    verify(slowStream, timeout(5000)).abort();
+    assertTrue(slowStream.isClosed());
+    assertFalse(streams.containsKey(someWatchKey));
+    assertFalse(openStreams.contains(slowStream));
+
+    //the other stream written by the same thread afterwards is not affected
+    writeReleased.countDown();
+    assertFalse(anotherWriteInterrupted.get(5000, TimeUnit.MILLISECONDS));
+    assertFalse(anotherStream.isClosed());
+  }
+
+  @Test
+  public void testHeartbeatAndHandleMessageWithManyStreams() throws Exception {
+    String someWatchKey = "someKey";
+    long someNotificationId = 1;
+    Set<NotificationStreamWrapper> openStreams =
+        (Set<NotificationStreamWrapper>) ReflectionTestUtils.getField(controller, "openStreams");
+    for (int i = 0; i < 20000; i++) {
+      NotificationStreamWrapper stream = createStream(someWatchKey);
+      streams.put(someWatchKey, stream);
+      openStreams.add(stream);
+    }
+
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someNotificationId);
+    controller.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+    ReflectionTestUtils.invokeMethod(controller, "heartbeat");
+
+    //no stream is dropped for the number of the pushes
+    for (NotificationStreamWrapper stream : openStreams) {
+      assertFalse(stream.isClosed());
+    }
+    assertEquals(20000, streams.get(someWatchKey).size());
+  }
+
+  private NotificationStreamWrapper createStream(String watchKey) {
+    Multimap<String, String> watchKeysMap = HashMultimap.create();
+    watchKeysMap.put(defaultNamespace, watchKey);
+    return new NotificationStreamWrapper(600000L, Collections.emptyMap(), watchKeysMap);
+  }
+}
@@ -0,0 +1,207 @@
+package com.ctrip.framework.apollo.configservice.netty;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchNotificationsUtil;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NettyNotificationServerTest {
+  private NettyNotificationServer server;
+  private ExecutorService executorService;
+  private String someAppId;
+  private String someCluster;
+  private String defaultNamespace;
+  private String someWatchKey;
+  private Gson gson;
+  @Mock
+  private WatchKeysUtil watchKeysUtil;
+  @Mock
+  private NamespaceUtil namespaceUtil;
+  @Mock
+  private ReleaseMessageServiceWithCache releaseMessageService;
+  @Mock
+  private BizConfig bizConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    gson = new Gson();
+    executorService = Executors.newSingleThreadExecutor();
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    defaultNamespace = ConfigConsts.NAMESPACE_APPLICATION;
+    someWatchKey = "someAppId+someCluster+application";
+
+    server = new NettyNotificationServer(watchKeysUtil, new WatchNotificationsUtil(namespaceUtil),
+        releaseMessageService, gson, bizConfig, 0, 1);
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorService.shutdownNow();
+    server.stop();
+  }
+
+  @Test
+  public void testPollNotificationWithNewRelease() throws Exception {
+    long someNotificationId = 1;
+    long newNotificationId = 2;
+    mockWatchKeys();
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someWatchKey)))
+        .thenReturn(Lists.newArrayList(assembleReleaseMessage(newNotificationId, someWatchKey)));
+
+    List<ApolloConfigNotification> result = poll(someNotificationId);
+
+    assertEquals(1, result.size());
+    assertEquals(defaultNamespace, result.get(0).getNamespaceName());
+    assertEquals(newNotificationId, result.get(0).getNotificationId());
+    assertEquals(newNotificationId, result.get(0).getMessages().get(someWatchKey).longValue());
+  }
+
+  @Test
+  public void testPollNotificationWokenUpByReleaseMessage() throws Exception {
+    long someNotificationId = 1;
+    long newNotificationId = 2;
+    mockWatchKeys();
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(anySet()))
+        .thenReturn(Collections.emptyList());
+
+    Future<List<ApolloConfigNotification>> future = executorService.submit(() -> poll(someNotificationId));
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getPendingLongPolls() == 0 && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(1, server.getPendingLongPolls());
+
+    server.handleMessage(assembleReleaseMessage(newNotificationId, someWatchKey), Topics.APOLLO_RELEASE_TOPIC);
+
+    List<ApolloConfigNotification> result = future.get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, result.size());
+    assertEquals(defaultNamespace, result.get(0).getNamespaceName());
+    assertEquals(newNotificationId, result.get(0).getNotificationId());
+    assertEquals(0, server.getPendingLongPolls());
+  }
+
+  @Test
+  public void testPollNotificationWithInvalidNotifications() throws Exception {
+    HttpURLConnection connection = open("[]");
+
+    assertEquals(400, connection.getResponseCode());
+  }
+
+  @Test
+  public void testKeepAliveConnectionOnlyHoldsPendingPoll() throws Exception {
+    long someNotificationId = 1;
+    long newNotificationId = 2;
+    mockWatchKeys();
+    when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(anySet()))
+        .thenReturn(Lists.newArrayList(assembleReleaseMessage(newNotificationId, someWatchKey)));
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyNotificationHandler(server));
+
+    for (int i = 0; i < 3; i++) {
+      server.pollNotification(channel, true, pollParameters(someNotificationId));
+    }
+
+    //the completed polls are not referenced by the connection
+    assertNull(channel.attr(NettyNotificationServer.LONG_POLL).get());
+
+    server.pollNotification(channel, true, pollParameters(newNotificationId));
+
+    assertEquals(1, server.getPendingLongPolls());
+    assertNotNull(channel.attr(NettyNotificationServer.LONG_POLL).get());
+
+    channel.close();
+
+    assertEquals(0, server.getPendingLongPolls());
+    assertNull(channel.attr(NettyNotificationServer.LONG_POLL).get());
+  }
+
+  private Map<String, List<String>> pollParameters(long notificationId) {
+    Map<String, List<String>> parameters = Maps.newHashMap();
+    parameters.put("appId", Lists.newArrayList(someAppId));
+    parameters.put("cluster", Lists.newArrayList(someCluster));
+    parameters.put("notifications", Lists.newArrayList(gson.toJson(
+        Lists.newArrayList(new ApolloConfigNotification(defaultNamespace, notificationId)))));
+    return parameters;
+  }
+
+  private void mockWatchKeys() {
+    when(namespaceUtil.filterNamespaceName(defaultNamespace)).thenReturn(defaultNamespace);
+    when(namespaceUtil.normalizeNamespace(someAppId, defaultNamespace)).thenReturn(defaultNamespace);
+    Multimap<String, String> watchKeysMap = HashMultimap.create();
+    watchKeysMap.put(defaultNamespace, someWatchKey);
+    when(watchKeysUtil.assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace), null))
+        .thenReturn(watchKeysMap);
+    when(bizConfig.longPollingTimeoutInMilli()).thenReturn(60000L);
+  }
+
+  private List<ApolloConfigNotification> poll(long notificationId) throws Exception {
+    String notifications = gson.toJson(
+        Lists.newArrayList(new ApolloConfigNotification(defaultNamespace, notificationId)));
+    HttpURLConnection connection = open(notifications);
+
+    assertEquals(200, connection.getResponseCode());
+    try (InputStreamReader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+      return gson.fromJson(CharStreams.toString(reader),
+          new TypeToken<List<ApolloConfigNotification>>() {
+          }.getType());
+    }
+  }
+
+  private HttpURLConnection open(String notifications) throws Exception {
+    URL url = new URL(String.format("http://localhost:%d%s?appId=%s&cluster=%s&notifications=%s", server.getPort(),
+        NettyNotificationHandler.NOTIFICATIONS_PATH, someAppId, someCluster,
+        UrlEscapers.urlFormParameterEscaper().escape(notifications)));
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setReadTimeout(10000);
+    return connection;
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id, String message) {
+    ReleaseMessage releaseMessage = new ReleaseMessage(message);
+    releaseMessage.setId(id);
+    return releaseMessage;
+  }
+}
@@ -0,0 +1,128 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseChangedKeysServiceTest {
+  private ReleaseChangedKeysService releaseChangedKeysService;
+  @Mock
+  private ReleaseService releaseService;
+  @Mock
+  private ReleaseHistoryService releaseHistoryService;
+
+  private String someAppId;
+  private String someCluster;
+  private String someNamespace;
+  private String someWatchKey;
+  private Gson gson;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseChangedKeysService = new ReleaseChangedKeysService(releaseService, releaseHistoryService);
+    gson = new Gson();
+
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    someNamespace = "someNamespace";
+    someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).join(someAppId, someCluster, someNamespace);
+  }
+
+  @Test
+  public void testFindChangedKeysOfNormalRelease() throws Exception {
+    long someBaselineId = 10;
+    long someMessageId = 11;
+    Release previousRelease = assembleRelease(1, ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3"));
+    Release latestRelease = assembleRelease(2, ImmutableMap.of("k1", "v1", "k2", "v2-changed", "k4", "v4"));
+    when(releaseService.findLatestActiveRelease(someAppId, someCluster, someNamespace)).thenReturn(latestRelease);
+    when(releaseService.findOne(previousRelease.getId())).thenReturn(previousRelease);
+    mockLatestReleaseHistory(ReleaseOperation.NORMAL_RELEASE, latestRelease.getId(), previousRelease.getId());
+
+    releaseChangedKeysService.track(someWatchKey, someBaselineId);
+    releaseChangedKeysService.handleMessage(assembleReleaseMessage(someMessageId));
+
+    assertEquals(Sets.newHashSet("k2", "k3", "k4"),
+        releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId, someMessageId));
+    assertEquals(Sets.newHashSet("k2", "k3", "k4"),
+        releaseChangedKeysService.findChangedKeys(someWatchKey.toUpperCase(), someMessageId - 1, someMessageId));
+  }
+
+  @Test
+  public void testFindChangedKeysOutOfTrackedRange() throws Exception {
+    long someBaselineId = 10;
+
+    assertNull(releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId, someBaselineId + 1));
+
+    releaseChangedKeysService.track(someWatchKey, someBaselineId);
+
+    assertNull(releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId - 1, someBaselineId));
+    assertNull(releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId, someBaselineId + 1));
+    assertTrue(releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId, someBaselineId).isEmpty());
+  }
+
+  @Test
+  public void testFindChangedKeysOfGrayRelease() throws Exception {
+    long someBaselineId = 10;
+    long someMessageId = 11;
+    Release latestRelease = assembleRelease(2, ImmutableMap.of("k1", "v1"));
+    when(releaseService.findLatestActiveRelease(someAppId, someCluster, someNamespace)).thenReturn(latestRelease);
+    mockLatestReleaseHistory(ReleaseOperation.GRAY_RELEASE, 3, latestRelease.getId());
+
+    releaseChangedKeysService.track(someWatchKey, someBaselineId);
+    releaseChangedKeysService.handleMessage(assembleReleaseMessage(someMessageId));
+
+    assertNull(releaseChangedKeysService.findChangedKeys(someWatchKey, someBaselineId, someMessageId));
+    verify(releaseService, never()).findOne(anyLong());
+  }
+
+  @Test
+  public void testHandleMessageOfUntrackedWatchKey() throws Exception {
+    releaseChangedKeysService.handleMessage(assembleReleaseMessage(1));
+
+    verifyZeroInteractions(releaseService, releaseHistoryService);
+  }
+
+  private void mockLatestReleaseHistory(int operation, long releaseId, long previousReleaseId) {
+    ReleaseHistory releaseHistory = new ReleaseHistory();
+    releaseHistory.setOperation(operation);
+    releaseHistory.setReleaseId(releaseId);
+    releaseHistory.setPreviousReleaseId(previousReleaseId);
+    when(releaseHistoryService.findReleaseHistoriesByNamespace(eq(someAppId), eq(someCluster), eq(someNamespace),
+        any(Pageable.class))).thenReturn(new PageImpl<>(Lists.newArrayList(releaseHistory)));
+  }
+
+  private Release assembleRelease(long id, Map<String, String> configurations) {
+    Release release = new Release();
+    release.setId(id);
+    release.setConfigurations(gson.toJson(configurations));
+    return release;
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id) {
+    ReleaseMessage releaseMessage = new ReleaseMessage(someWatchKey);
+    releaseMessage.setId(id);
+    return releaseMessage;
+  }
+}
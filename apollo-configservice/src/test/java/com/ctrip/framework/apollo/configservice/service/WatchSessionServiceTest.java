@@ -0,0 +1,72 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WatchSessionServiceTest {
+  private WatchSessionService watchSessionService;
+  @Mock
+  private WatchKeysUtil watchKeysUtil;
+  @Mock
+  private BizConfig bizConfig;
+
+  private String someAppId;
+  private String someCluster;
+  private int someMaxSize;
+
+  @Before
+  public void setUp() throws Exception {
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    someMaxSize = 1000;
+
+    when(bizConfig.notificationSessionExpireInMilli()).thenReturn(600000L);
+    when(bizConfig.notificationSessionMaxSize()).thenReturn(someMaxSize);
+    when(watchKeysUtil.assembleAllWatchKeys(anyString(), anyString(), anySet(), any()))
+        .thenReturn(LinkedHashMultimap.create());
+
+    watchSessionService = new WatchSessionService(watchKeysUtil, bizConfig);
+  }
+
+  @Test
+  public void testCreateAndGetSession() throws Exception {
+    WatchSession session = createSession();
+
+    assertSame(session, watchSessionService.getSession(session.getSessionId()));
+    assertNull(watchSessionService.getSession("someNotExistedSessionId"));
+  }
+
+  @Test
+  public void testSessionsBeyondMaxSizeEvicted() throws Exception {
+    WatchSession someSession = createSession();
+
+    for (int i = 0; i < someMaxSize * 2; i++) {
+      createSession();
+    }
+
+    assertTrue(watchSessionService.size() <= someMaxSize);
+    assertNull(watchSessionService.getSession(someSession.getSessionId()));
+  }
+
+  private WatchSession createSession() {
+    Map<String, ApolloConfigNotification> notifications = ImmutableMap.of(ConfigConsts.NAMESPACE_APPLICATION,
+        new ApolloConfigNotification(ConfigConsts.NAMESPACE_APPLICATION, -1));
+    return watchSessionService.createSession(someAppId, someCluster, null, notifications);
+  }
+}
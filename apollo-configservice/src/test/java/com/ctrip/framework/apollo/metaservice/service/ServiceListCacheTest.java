@@ -0,0 +1,90 @@
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.metaservice.service.ServiceListCache.CachedServiceList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEventListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServiceListCacheTest {
+  private ServiceListCache serviceListCache;
+  @Mock
+  private EurekaClient eurekaClient;
+  @Mock
+  private DiscoveryService discoveryService;
+  private EurekaEventListener eventListener;
+  private InstanceInfo someInstance;
+  private InstanceInfo anotherInstance;
+
+  @Before
+  public void setUp() throws Exception {
+    serviceListCache = new ServiceListCache(eurekaClient, discoveryService);
+    serviceListCache.registerEventListener();
+
+    ArgumentCaptor<EurekaEventListener> listenerCaptor = ArgumentCaptor.forClass(EurekaEventListener.class);
+    verify(eurekaClient, times(1)).registerEventListener(listenerCaptor.capture());
+    eventListener = listenerCaptor.getValue();
+
+    someInstance = InstanceInfo.Builder.newBuilder().setAppName("someApp").setInstanceId("someInstance")
+        .setHostName("someHost").setHomePageUrl(null, "http://someHost:8080/")
+        .setMetadata(ImmutableMap.of("dataCenter", "someDC")).build();
+    anotherInstance = InstanceInfo.Builder.newBuilder().setAppName("someApp").setInstanceId("anotherInstance")
+        .setHostName("anotherHost").setHomePageUrl(null, "http://anotherHost:8080/").build();
+  }
+
+  @Test
+  public void testCachedUntilRegistryRefreshed() throws Exception {
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+
+    CachedServiceList serviceList = serviceListCache.getConfigServices();
+
+    assertTrue(serviceList.getJson().contains("http://someHost:8080/"));
+    assertTrue(serviceList.getJson().contains("someDC"));
+    assertSame(serviceList, serviceListCache.getConfigServices());
+    verify(discoveryService, times(1)).getConfigServiceInstances();
+  }
+
+  @Test
+  public void testRebuildOnRegistryRefreshed() throws Exception {
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance),
+        Lists.newArrayList(someInstance), Lists.newArrayList(someInstance, anotherInstance));
+
+    CachedServiceList serviceList = serviceListCache.getConfigServices();
+
+    //unchanged registry keeps the version
+    eventListener.onEvent(new CacheRefreshedEvent());
+    assertSame(serviceList, serviceListCache.getConfigServices());
+
+    eventListener.onEvent(new CacheRefreshedEvent());
+    CachedServiceList anotherServiceList = serviceListCache.getConfigServices();
+
+    assertNotEquals(serviceList.getETag(), anotherServiceList.getETag());
+    assertTrue(anotherServiceList.getJson().contains("http://anotherHost:8080/"));
+    verify(discoveryService, times(3)).getConfigServiceInstances();
+  }
+
+  @Test
+  public void testSameContentSameETag() throws Exception {
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+    when(discoveryService.getAdminServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+
+    assertEquals(serviceListCache.getConfigServices().getETag(), serviceListCache.getAdminServices().getETag());
+  }
+}
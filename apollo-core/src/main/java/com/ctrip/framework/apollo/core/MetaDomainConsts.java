@@ -7,6 +7,9 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,8 +51,14 @@ public class MetaDomainConsts {
 
     private static final long REFRESH_INTERVAL_IN_SECOND = 60;// 1 min
     private static final Logger logger = LoggerFactory.getLogger(MetaDomainConsts.class);
-    // comma separated meta server address -> selected single meta server address cache
-    private static final Map<String, String> selectedMetaServerAddressCache = Maps.newConcurrentMap();
+    // timeout of pinging a single meta server, for both connect and read
+    private static final int PROBE_TIMEOUT_IN_MILLI = 1000;
+    // the longest time to wait for the probes, so that startup is not blocked by unavailable meta servers
+    private static final long PROBE_DEADLINE_IN_MILLI = 2000;
+    // comma separated meta server address -> meta server addresses ranked by latency, the first one is selected
+    private static final ConcurrentMap<String, List<String>> rankedMetaServerAddressCache = Maps.newConcurrentMap();
+    private static final ExecutorService probeExecutorService =
+            Executors.newCachedThreadPool(ApolloThreadFactory.create("MetaServerProbe", true));
     private static final AtomicBoolean periodicRefreshStarted = new AtomicBoolean(false);
 
     private static final Object LOCK = new Object();
@@ -66,6 +75,18 @@ public class MetaDomainConsts {
         return metaServerAddress;
     }
 
+    /**
+     * Return all the meta server addresses, ranked by latency with the unavailable ones last. The first one is the same
+     * as {@link #getDomain(Env)}, the others could be used as fallbacks.
+     */
+    public static List<String> getDomains(Env env) {
+        String metaServerAddress = getMetaServerAddress(env);
+        if (metaServerAddress.contains(",")) {
+            return rankMetaServerAddresses(metaServerAddress);
+        }
+        return Collections.singletonList(metaServerAddress);
+    }
+
     /**
      * Return meta server address. If multiple meta server addresses are configured, will return the comma separated string.
      */
@@ -134,55 +155,88 @@ public class MetaDomainConsts {
      * load balancers like nginx) instead of multiple ip addresses
      */
     private static String selectMetaServerAddress(String metaServerAddresses) {
-        String metaAddressSelected = selectedMetaServerAddressCache.get(metaServerAddresses);
-        if (metaAddressSelected == null) {
+        return rankMetaServerAddresses(metaServerAddresses).get(0);
+    }
+
+    private static List<String> rankMetaServerAddresses(String metaServerAddresses) {
+        List<String> rankedAddresses = rankedMetaServerAddressCache.get(metaServerAddresses);
+        if (rankedAddresses == null) {
             // initialize
             if (periodicRefreshStarted.compareAndSet(false, true)) {
                 schedulePeriodicRefresh();
             }
-            updateMetaServerAddresses(metaServerAddresses);
-            metaAddressSelected = selectedMetaServerAddressCache.get(metaServerAddresses);
+            updateMetaServerAddresses(metaServerAddresses, true);
+            rankedAddresses = rankedMetaServerAddressCache.get(metaServerAddresses);
         }
 
-        return metaAddressSelected;
+        return rankedAddresses;
     }
 
-    private static void updateMetaServerAddresses(String metaServerAddresses) {
+    /**
+     * Ping all the meta servers concurrently and rank them by latency, the unavailable ones last.
+     *
+     * @param waitForFirstAvailable whether to return as soon as the first available meta server is found, the rest of
+     *                              the probes would complete in background and publish the full ranking
+     */
+    private static void updateMetaServerAddresses(final String metaServerAddresses, boolean waitForFirstAvailable) {
         logger.debug("Selecting meta server address for: {}", metaServerAddresses);
 
         Transaction transaction = Tracer.newTransaction("Apollo.MetaService", "refreshMetaServerAddress");
         transaction.addData("Url", metaServerAddresses);
 
         try {
-            List<String> metaServers = Lists.newArrayList(metaServerAddresses.split(","));
-            // random load balancing
+            final List<String> metaServers = Lists.newArrayList();
+            for (String address : metaServerAddresses.split(",")) {
+                metaServers.add(address.trim());
+            }
+            // random load balancing among the meta servers with the same latency or unavailable
             Collections.shuffle(metaServers);
 
-            boolean serverAvailable = false;
-
-            for (String address : metaServers) {
-                address = address.trim();
-                //check whether /services/config is accessible
-                if (NetUtil.pingUrl(address + "/services/config")) {
-                    // select the first available meta server
-                    selectedMetaServerAddressCache.put(metaServerAddresses, address);
-                    serverAvailable = true;
-                    logger.debug("Selected meta server address {} for {}", address, metaServerAddresses);
-                    break;
-                }
+            final Map<String, Long> latencies = Maps.newConcurrentMap();
+            final CountDownLatch firstAvailable = new CountDownLatch(1);
+            final CountDownLatch allCompleted = new CountDownLatch(metaServers.size());
+
+            for (final String address : metaServers) {
+                probeExecutorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            long start = System.nanoTime();
+                            //check whether /services/config is accessible
+                            if (NetUtil.pingUrl(address + "/services/config", PROBE_TIMEOUT_IN_MILLI)) {
+                                latencies.put(address, System.nanoTime() - start);
+                                if (firstAvailable.getCount() > 0) {
+                                    // the first available one is good enough to start with
+                                    rankedMetaServerAddressCache.putIfAbsent(metaServerAddresses,
+                                            rank(metaServers, latencies));
+                                    firstAvailable.countDown();
+                                }
+                            }
+                        } finally {
+                            allCompleted.countDown();
+                            if (allCompleted.getCount() == 0) {
+                                publishRanking(metaServerAddresses, metaServers, latencies);
+                            }
+                        }
+                    }
+                });
             }
 
+            CountDownLatch latch = waitForFirstAvailable ? firstAvailable : allCompleted;
+            boolean serverAvailable = latch.await(PROBE_DEADLINE_IN_MILLI, TimeUnit.MILLISECONDS) && !latencies.isEmpty();
+
             // we need to make sure the map is not empty, e.g. the first update might be failed
-            if (!selectedMetaServerAddressCache.containsKey(metaServerAddresses)) {
-                selectedMetaServerAddressCache.put(metaServerAddresses, metaServers.get(0).trim());
-            }
+            rankedMetaServerAddressCache.putIfAbsent(metaServerAddresses, rank(metaServers, latencies));
 
             if (!serverAvailable) {
                 logger.warn("Could not find available meta server for configured meta server addresses: {}, fallback to: {}",
-                        metaServerAddresses, selectedMetaServerAddressCache.get(metaServerAddresses));
+                        metaServerAddresses, rankedMetaServerAddressCache.get(metaServerAddresses).get(0));
             }
 
             transaction.setStatus(Transaction.SUCCESS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            transaction.setStatus(ex);
         } catch (Throwable ex) {
             transaction.setStatus(ex);
             throw ex;
@@ -191,6 +245,36 @@ public class MetaDomainConsts {
         }
     }
 
+    private static void publishRanking(String metaServerAddresses, List<String> metaServers, Map<String, Long> latencies) {
+        // keep the previous ranking if none is available this time, it is no worse than a random one
+        if (latencies.isEmpty() && rankedMetaServerAddressCache.containsKey(metaServerAddresses)) {
+            return;
+        }
+        List<String> rankedAddresses = rank(metaServers, latencies);
+        rankedMetaServerAddressCache.put(metaServerAddresses, rankedAddresses);
+        logger.debug("Ranked meta server addresses {} for {}", rankedAddresses, metaServerAddresses);
+    }
+
+    /**
+     * @return the available meta servers by ascending latency, followed by the unavailable or not yet responded ones
+     */
+    private static List<String> rank(List<String> metaServers, final Map<String, Long> latencies) {
+        List<String> rankedAddresses = Lists.newArrayList(metaServers);
+        final Map<String, Long> snapshot = Maps.newHashMap(latencies);
+        Collections.sort(rankedAddresses, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                Long latency1 = snapshot.get(o1);
+                Long latency2 = snapshot.get(o2);
+                if (latency1 == null || latency2 == null) {
+                    return latency1 == null ? (latency2 == null ? 0 : 1) : -1;
+                }
+                return Long.compare(latency1, latency2);
+            }
+        });
+        return Collections.unmodifiableList(rankedAddresses);
+    }
+
     private static void schedulePeriodicRefresh() {
         ScheduledExecutorService scheduledExecutorService =
                 Executors.newScheduledThreadPool(1, ApolloThreadFactory.create("MetaServiceLocator", true));
@@ -199,8 +283,8 @@ public class MetaDomainConsts {
             @Override
             public void run() {
                 try {
-                    for (String metaServerAddresses : selectedMetaServerAddressCache.keySet()) {
-                        updateMetaServerAddresses(metaServerAddresses);
+                    for (String metaServerAddresses : rankedMetaServerAddressCache.keySet()) {
+                        updateMetaServerAddresses(metaServerAddresses, false);
                     }
                 } catch (Throwable ex) {
                     logger.warn(String.format("Refreshing meta server address failed, will retry in %d seconds",
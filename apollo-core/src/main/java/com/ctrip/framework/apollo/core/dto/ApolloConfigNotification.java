@@ -1,5 +1,7 @@
 package com.ctrip.framework.apollo.core.dto;
 
+import java.util.Set;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  * Apollo 配置通知 DTO
@@ -15,6 +17,19 @@ public class ApolloConfigNotification {
      * 通知消息集合
      */
     private volatile ApolloNotificationMessages messages;
+    /**
+     * 客户端订阅的 Key ，与 {@link #interestedKeyPrefixes} 均为空时订阅整个 Namespace 。只在客户端请求中使用
+     */
+    private Set<String> interestedKeys;
+    /**
+     * 客户端订阅的 Key 前缀。只在客户端请求中使用
+     */
+    private Set<String> interestedKeyPrefixes;
+    /**
+     * 为 true 时，表示新的发布没有修改客户端订阅的 Key ，客户端只需更新通知编号，不需要拉取配置。只在服务端响应中使用。
+     * 为 false 时置为 null ，使客户端请求中的通知 JSON 与之前保持一致
+     */
+    private Boolean keysUnchanged;
 
     //for json converter
     public ApolloConfigNotification() {
@@ -45,6 +60,38 @@ public class ApolloConfigNotification {
         this.messages = messages;
     }
 
+    public Set<String> getInterestedKeys() {
+        return interestedKeys;
+    }
+
+    public void setInterestedKeys(Set<String> interestedKeys) {
+        this.interestedKeys = interestedKeys;
+    }
+
+    public Set<String> getInterestedKeyPrefixes() {
+        return interestedKeyPrefixes;
+    }
+
+    public void setInterestedKeyPrefixes(Set<String> interestedKeyPrefixes) {
+        this.interestedKeyPrefixes = interestedKeyPrefixes;
+    }
+
+    /**
+     * @return whether the client subscribes to some keys of the namespace only
+     */
+    public boolean hasKeySubscription() {
+        return (interestedKeys != null && !interestedKeys.isEmpty())
+                || (interestedKeyPrefixes != null && !interestedKeyPrefixes.isEmpty());
+    }
+
+    public boolean isKeysUnchanged() {
+        return Boolean.TRUE.equals(keysUnchanged);
+    }
+
+    public void setKeysUnchanged(boolean keysUnchanged) {
+        this.keysUnchanged = keysUnchanged ? Boolean.TRUE : null;
+    }
+
     //添加消息明细到 message 中。
     public void addMessage(String key, long notificationId) {
         // 创建 ApolloNotificationMessages 对象
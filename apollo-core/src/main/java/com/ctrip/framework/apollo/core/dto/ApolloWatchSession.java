@@ -0,0 +1,64 @@
+package com.ctrip.framework.apollo.core.dto;
+
+import java.util.List;
+
+/**
+ * 长轮询的 Watch 会话 DTO
+ * <p>
+ * 客户端只在创建会话时提交一次 Namespace 及通知编号，之后的长轮询只带上会话编号和已知的最大 ReleaseMessage 编号。
+ */
+public class ApolloWatchSession {
+    private String sessionId;
+    /**
+     * 会话 Watch 的所有 Key 中，最新的 `ReleaseMessage.id`
+     */
+    private long releaseMessageId;
+    /**
+     * 客户端尚未知道的通知
+     */
+    private List<ApolloConfigNotification> notifications;
+
+    //for json converter
+    public ApolloWatchSession() {
+    }
+
+    public ApolloWatchSession(String sessionId, long releaseMessageId,
+                              List<ApolloConfigNotification> notifications) {
+        this.sessionId = sessionId;
+        this.releaseMessageId = releaseMessageId;
+        this.notifications = notifications;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getReleaseMessageId() {
+        return releaseMessageId;
+    }
+
+    public void setReleaseMessageId(long releaseMessageId) {
+        this.releaseMessageId = releaseMessageId;
+    }
+
+    public List<ApolloConfigNotification> getNotifications() {
+        return notifications;
+    }
+
+    public void setNotifications(List<ApolloConfigNotification> notifications) {
+        this.notifications = notifications;
+    }
+
+    @Override
+    public String toString() {
+        return "ApolloWatchSession{" +
+                "sessionId='" + sessionId + '\'' +
+                ", releaseMessageId=" + releaseMessageId +
+                ", notifications=" + notifications +
+                '}';
+    }
+}
@@ -8,6 +8,11 @@ public class ServiceDTO {
 
   private String homepageUrl;
 
+  /**
+   * The data center of the instance, null if it is not configured
+   */
+  private String dataCenter;
+
   public String getAppName() {
     return appName;
   }
@@ -20,6 +25,10 @@ public class ServiceDTO {
     return instanceId;
   }
 
+  public String getDataCenter() {
+    return dataCenter;
+  }
+
   public void setAppName(String appName) {
     this.appName = appName;
   }
@@ -32,12 +41,17 @@ public class ServiceDTO {
     this.instanceId = instanceId;
   }
 
+  public void setDataCenter(String dataCenter) {
+    this.dataCenter = dataCenter;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ServiceDTO{");
     sb.append("appName='").append(appName).append('\'');
     sb.append(", instanceId='").append(instanceId).append('\'');
     sb.append(", homepageUrl='").append(homepageUrl).append('\'');
+    sb.append(", dataCenter='").append(dataCenter).append('\'');
     sb.append('}');
     return sb.toString();
   }
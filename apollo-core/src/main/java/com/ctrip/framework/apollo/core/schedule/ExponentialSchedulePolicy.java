@@ -49,6 +49,22 @@ public class ExponentialSchedulePolicy implements SchedulePolicy {
         return delayTime;
     }
 
+    /**
+     * 服务端过载时通过 Retry-After 给出的最短延迟，取其与指数级延迟的较大值，不超过上限。
+     * 之后的失败从该延迟继续指数级增长。
+     *
+     * @param minDelayTime 服务端要求的最短延迟，小于等于 0 时与 #fail() 相同
+     * @return 下次执行延迟
+     */
+    public long fail(long minDelayTime) {
+        long delayTime = fail();
+        if (minDelayTime > delayTime) {
+            delayTime = Math.min(minDelayTime, delayTimeUpperBound);
+            lastDelayTime = delayTime;
+        }
+        return delayTime;
+    }
+
     @Override
     public void success() {
         lastDelayTime = 0;
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.tracer;
 
 import com.ctrip.framework.apollo.tracer.internals.NullMessageProducerManager;
+import com.ctrip.framework.apollo.tracer.internals.async.AsyncMessageProducerManager;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
@@ -28,7 +29,8 @@ public abstract class Tracer {
       if (producerManager == null) {
         synchronized (lock) {
           if (producerManager == null) {
-            producerManager = ServiceBootstrap.loadFirst(MessageProducerManager.class);
+            producerManager = AsyncMessageProducerManager.decorate(
+                ServiceBootstrap.loadFirst(MessageProducerManager.class));
           }
         }
       }
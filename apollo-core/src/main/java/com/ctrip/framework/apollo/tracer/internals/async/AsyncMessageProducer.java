@@ -0,0 +1,263 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.internals.NullTransaction;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link MessageProducer} that samples, rate limits and aggregates the messages before handing
+ * them to the delegate producer on a background thread.
+ *
+ * <p>Events and errors are put into a bounded {@link MessageRingBuffer}, a full buffer drops the
+ * message instead of blocking the caller. Transactions measure the caller's own work so they are
+ * still created synchronously, only sampling and rate limit apply to them.
+ */
+public class AsyncMessageProducer implements MessageProducer {
+  private static final Logger logger = LoggerFactory.getLogger(AsyncMessageProducer.class);
+  private static final Transaction NULL_TRANSACTION = new NullTransaction();
+  private static final String TRACER_TYPE = "Apollo.Tracer";
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+  private static final int MAX_DRAIN_BATCH = 1024;
+
+  private final MessageProducer delegate;
+  private final AsyncTracerSettings settings;
+  private final MessageRingBuffer<Message> buffer;
+  private final EventCounters counters;
+  private final ConcurrentMap<String, EventPolicy> policies = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean stopped = new AtomicBoolean(false);
+  private volatile Thread worker;
+
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong sampledOutCount = new AtomicLong();
+  private final AtomicLong rateLimitedCount = new AtomicLong();
+  // only accessed by the background thread
+  private long reportedDropped;
+  private long reportedSampledOut;
+  private long reportedRateLimited;
+
+  public AsyncMessageProducer(MessageProducer delegate, AsyncTracerSettings settings) {
+    this.delegate = delegate;
+    this.settings = settings;
+    this.buffer = new MessageRingBuffer<>(settings.getBufferSize());
+    this.counters = new EventCounters(settings.getMaxNamesPerType());
+  }
+
+  /**
+   * Start the background thread which delivers the messages to the delegate producer.
+   */
+  public void start() {
+    worker = ApolloThreadFactory.create("Tracer", true).newThread(new Runnable() {
+      @Override
+      public void run() {
+        long nextFlush = System.currentTimeMillis() + settings.getFlushIntervalInMilli();
+        while (!stopped.get() && !Thread.currentThread().isInterrupted()) {
+          int drained = drain(MAX_DRAIN_BATCH);
+          if (System.currentTimeMillis() >= nextFlush) {
+            flushCounters();
+            nextFlush = System.currentTimeMillis() + settings.getFlushIntervalInMilli();
+          }
+          if (drained == 0) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+          }
+        }
+        //deliver what is left before exiting
+        drain(Integer.MAX_VALUE);
+        flushCounters();
+      }
+    });
+    worker.start();
+  }
+
+  /**
+   * Stop the background thread, the buffered messages and the counters are delivered before it exits.
+   *
+   * @param timeoutInMilli how long to wait for the background thread to exit
+   */
+  public void close(long timeoutInMilli) {
+    if (!stopped.compareAndSet(false, true) || worker == null) {
+      return;
+    }
+    LockSupport.unpark(worker);
+    try {
+      worker.join(timeoutInMilli);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void logError(Throwable cause) {
+    enqueue(Message.error(null, cause));
+  }
+
+  @Override
+  public void logError(String message, Throwable cause) {
+    enqueue(Message.error(message, cause));
+  }
+
+  @Override
+  public void logEvent(String type, String name) {
+    if (admit(type, name)) {
+      enqueue(Message.event(type, name, null, null));
+    }
+  }
+
+  @Override
+  public void logEvent(String type, String name, String status, String nameValuePairs) {
+    if (admit(type, name)) {
+      enqueue(Message.event(type, name, status, nameValuePairs));
+    }
+  }
+
+  @Override
+  public Transaction newTransaction(String type, String name) {
+    EventPolicy policy = policyOf(type);
+    if (!policy.sample()) {
+      sampledOutCount.incrementAndGet();
+      return NULL_TRANSACTION;
+    }
+    if (!policy.acquire()) {
+      rateLimitedCount.incrementAndGet();
+      return NULL_TRANSACTION;
+    }
+    return delegate.newTransaction(type, name);
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  public long getSampledOutCount() {
+    return sampledOutCount.get();
+  }
+
+  public long getRateLimitedCount() {
+    return rateLimitedCount.get();
+  }
+
+  /**
+   * Deliver up to {@code maxMessages} buffered messages to the delegate producer.
+   *
+   * @return the number of messages delivered
+   */
+  int drain(int maxMessages) {
+    int drained = 0;
+    Message message;
+    while (drained < maxMessages && (message = buffer.poll()) != null) {
+      drained++;
+      try {
+        message.deliverTo(delegate);
+      } catch (Throwable ex) {
+        logger.warn("Failed to deliver tracer message of type: {}, name: {}", message.type, message.name, ex);
+      }
+    }
+    return drained;
+  }
+
+  void flushCounters() {
+    try {
+      counters.flush(delegate);
+      reportedDropped = reportCount("Dropped", droppedCount, reportedDropped);
+      reportedSampledOut = reportCount("SampledOut", sampledOutCount, reportedSampledOut);
+      reportedRateLimited = reportCount("RateLimited", rateLimitedCount, reportedRateLimited);
+    } catch (Throwable ex) {
+      logger.warn("Failed to flush tracer counters", ex);
+    }
+  }
+
+  private boolean admit(String type, String name) {
+    EventPolicy policy = policyOf(type);
+    if (policy.isAggregated()) {
+      counters.increment(type, name);
+      return false;
+    }
+    if (!policy.sample()) {
+      sampledOutCount.incrementAndGet();
+      return false;
+    }
+    if (!policy.acquire()) {
+      rateLimitedCount.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  private void enqueue(Message message) {
+    if (!buffer.offer(message)) {
+      droppedCount.incrementAndGet();
+    }
+  }
+
+  private EventPolicy policyOf(String type) {
+    EventPolicy policy = policies.get(type);
+    if (policy == null) {
+      EventPolicy created = settings.policyOf(type);
+      policy = policies.putIfAbsent(type, created);
+      if (policy == null) {
+        policy = created;
+      }
+    }
+    return policy;
+  }
+
+  /**
+   * @return the total count which has been reported
+   */
+  private long reportCount(String name, AtomicLong total, long reported) {
+    long current = total.get();
+    if (current > reported) {
+      delegate.logEvent(TRACER_TYPE, name, Transaction.SUCCESS, "count=" + (current - reported));
+    }
+    return current;
+  }
+
+  private static class Message {
+    private final String type;
+    private final String name;
+    private final String status;
+    private final String nameValuePairs;
+    private final Throwable cause;
+
+    private Message(String type, String name, String status, String nameValuePairs, Throwable cause) {
+      this.type = type;
+      this.name = name;
+      this.status = status;
+      this.nameValuePairs = nameValuePairs;
+      this.cause = cause;
+    }
+
+    static Message event(String type, String name, String status, String nameValuePairs) {
+      return new Message(type, name, status, nameValuePairs, null);
+    }
+
+    static Message error(String message, Throwable cause) {
+      return new Message(null, message, null, null, cause);
+    }
+
+    void deliverTo(MessageProducer producer) {
+      // only errors are created without a type
+      if (type == null) {
+        if (name == null) {
+          producer.logError(cause);
+        } else {
+          producer.logError(name, cause);
+        }
+      } else if (status == null && nameValuePairs == null) {
+        producer.logEvent(type, name);
+      } else {
+        producer.logEvent(type, name, status, nameValuePairs);
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.tracer.internals.NullMessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
+
+/**
+ * Decorates the producer of another {@link MessageProducerManager} with an
+ * {@link AsyncMessageProducer}.
+ */
+public class AsyncMessageProducerManager implements MessageProducerManager {
+  private static final long CLOSE_TIMEOUT_IN_MILLI = 1000;
+  private final AsyncMessageProducer producer;
+
+  AsyncMessageProducerManager(MessageProducer delegate, AsyncTracerSettings settings) {
+    producer = new AsyncMessageProducer(delegate, settings);
+    producer.start();
+    //stop the background thread and deliver the pending messages when the jvm exits
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        producer.close(CLOSE_TIMEOUT_IN_MILLI);
+      }
+    }, "Apollo-Tracer-Shutdown"));
+  }
+
+  /**
+   * @return the decorated manager when the async pipeline is enabled and the given manager actually
+   * produces messages, otherwise the given manager itself
+   */
+  public static MessageProducerManager decorate(MessageProducerManager manager) {
+    AsyncTracerSettings settings = new AsyncTracerSettings();
+    if (!settings.isEnabled()) {
+      return manager;
+    }
+    MessageProducer delegate = manager.getProducer();
+    if (delegate == null || delegate instanceof NullMessageProducer) {
+      return manager;
+    }
+    return new AsyncMessageProducerManager(delegate, settings);
+  }
+
+  @Override
+  public MessageProducer getProducer() {
+    return producer;
+  }
+}
@@ -0,0 +1,100 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+import java.util.Set;
+
+/**
+ * Settings of the async tracer pipeline, read from system properties.
+ *
+ * <ul>
+ * <li>apollo.tracer.async.enabled - whether to enable the pipeline, default false</li>
+ * <li>apollo.tracer.async.bufferSize - capacity of the message buffer, default 8192</li>
+ * <li>apollo.tracer.async.flushIntervalInMilli - how often aggregated counters are reported, default 10000</li>
+ * <li>apollo.tracer.sample.{type} / apollo.tracer.sample.default - sample rate between 0 and 1, default 1</li>
+ * <li>apollo.tracer.rateLimit.{type} / apollo.tracer.rateLimit.default - max events per second, 0 means no limit</li>
+ * <li>apollo.tracer.aggregate.types - comma separated event types to report as counters instead of one
+ * message per event, defaults to the long poll watched key events</li>
+ * <li>apollo.tracer.aggregate.maxNamesPerType - max distinct names counted per type, default 10000</li>
+ * </ul>
+ */
+public class AsyncTracerSettings {
+  static final String PREFIX = "apollo.tracer.";
+  private static final String DEFAULT_TYPE = "default";
+  private static final Splitter COMMA_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+  private static final String DEFAULT_AGGREGATED_TYPES =
+      "Apollo.LongPoll.RegisteredKeys,Apollo.LongPoll.CompletedKeys,Apollo.LongPoll.TimeOutKeys";
+
+  private final boolean enabled;
+  private final int bufferSize;
+  private final long flushIntervalInMilli;
+  private final double defaultSampleRate;
+  private final int defaultRateLimit;
+  private final Set<String> aggregatedTypes;
+  private final int maxNamesPerType;
+
+  public AsyncTracerSettings() {
+    enabled = Boolean.parseBoolean(property("async.enabled", "false"));
+    bufferSize = intProperty("async.bufferSize", 8192);
+    flushIntervalInMilli = longProperty("async.flushIntervalInMilli", 10000);
+    defaultSampleRate = sampleRate(DEFAULT_TYPE, 1);
+    defaultRateLimit = rateLimit(DEFAULT_TYPE, 0);
+    aggregatedTypes = ImmutableSet.copyOf(
+        COMMA_SPLITTER.split(property("aggregate.types", DEFAULT_AGGREGATED_TYPES)));
+    maxNamesPerType = intProperty("aggregate.maxNamesPerType", 10000);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  long getFlushIntervalInMilli() {
+    return flushIntervalInMilli;
+  }
+
+  int getMaxNamesPerType() {
+    return maxNamesPerType;
+  }
+
+  EventPolicy policyOf(String type) {
+    return new EventPolicy(sampleRate(type, defaultSampleRate), rateLimit(type, defaultRateLimit),
+        aggregatedTypes.contains(type));
+  }
+
+  private double sampleRate(String type, double defaultValue) {
+    Double rate = Doubles.tryParse(property("sample." + type, ""));
+    if (rate == null) {
+      return defaultValue;
+    }
+    return Math.max(0, Math.min(1, rate));
+  }
+
+  private int rateLimit(String type, int defaultValue) {
+    Integer limit = Ints.tryParse(property("rateLimit." + type, ""));
+    return limit == null ? defaultValue : limit;
+  }
+
+  private int intProperty(String name, int defaultValue) {
+    Integer value = Ints.tryParse(property(name, ""));
+    return value == null || value <= 0 ? defaultValue : value;
+  }
+
+  private long longProperty(String name, long defaultValue) {
+    Long value = Longs.tryParse(property(name, ""));
+    return value == null || value <= 0 ? defaultValue : value;
+  }
+
+  private String property(String name, String defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    return StringUtils.isBlank(value) ? defaultValue : value.trim();
+  }
+}
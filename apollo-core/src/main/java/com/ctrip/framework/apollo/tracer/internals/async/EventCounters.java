@@ -0,0 +1,91 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts high cardinality events by type and name, they are reported periodically as one event per
+ * name with the count in the name value pairs instead of one message per occurrence.
+ *
+ * <p>Names beyond {@code maxNamesPerType} of a type are counted under {@link #OVERFLOW_NAME}.
+ */
+class EventCounters {
+  static final String OVERFLOW_NAME = "Others";
+  private static final long REMOVED = -1;
+
+  private final int maxNamesPerType;
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> counters =
+      new ConcurrentHashMap<>();
+
+  EventCounters(int maxNamesPerType) {
+    this.maxNamesPerType = maxNamesPerType;
+  }
+
+  void increment(String type, String name) {
+    ConcurrentMap<String, AtomicLong> names = counters.get(type);
+    if (names == null) {
+      ConcurrentMap<String, AtomicLong> created = new ConcurrentHashMap<>();
+      names = counters.putIfAbsent(type, created);
+      if (names == null) {
+        names = created;
+      }
+    }
+
+    while (true) {
+      String key = name;
+      AtomicLong counter = names.get(key);
+      if (counter == null) {
+        if (names.size() >= maxNamesPerType) {
+          key = OVERFLOW_NAME;
+        }
+        AtomicLong created = new AtomicLong();
+        counter = names.putIfAbsent(key, created);
+        if (counter == null) {
+          counter = created;
+        }
+      }
+      if (tryIncrement(counter)) {
+        return;
+      }
+      //the counter is being removed by a flush, count on a new one
+      names.remove(key, counter);
+    }
+  }
+
+  /**
+   * Report and reset the counters, names without any occurrence since the last flush are removed.
+   */
+  void flush(MessageProducer producer) {
+    for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> type : counters.entrySet()) {
+      for (Map.Entry<String, AtomicLong> name : type.getValue().entrySet()) {
+        AtomicLong counter = name.getValue();
+        long count = counter.getAndSet(0);
+        if (count == 0) {
+          //only remove the counter if no increment sneaks in, the increments after the tombstone retry on a new one
+          if (counter.compareAndSet(0, REMOVED)) {
+            type.getValue().remove(name.getKey(), counter);
+          }
+          continue;
+        }
+        producer.logEvent(type.getKey(), name.getKey(), Transaction.SUCCESS, "count=" + count);
+      }
+    }
+  }
+
+  private static boolean tryIncrement(AtomicLong counter) {
+    while (true) {
+      long count = counter.get();
+      if (count == REMOVED) {
+        return false;
+      }
+      if (counter.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+}
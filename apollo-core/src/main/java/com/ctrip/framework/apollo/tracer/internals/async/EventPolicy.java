@@ -0,0 +1,65 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampling and rate cap of one event type.
+ *
+ * <p>The rate cap uses a one second fixed window, the window start and the count within the window
+ * are packed into a single long so that admitting an event is one CAS.
+ */
+class EventPolicy {
+  private static final long WINDOW_IN_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int COUNT_BITS = 24;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  private final double sampleRate;
+  private final int rateLimit;
+  private final boolean aggregated;
+  private final AtomicLong window = new AtomicLong();
+
+  EventPolicy(double sampleRate, int rateLimit, boolean aggregated) {
+    this.sampleRate = sampleRate;
+    this.rateLimit = (int) Math.min(rateLimit, COUNT_MASK);
+    this.aggregated = aggregated;
+  }
+
+  boolean isAggregated() {
+    return aggregated;
+  }
+
+  boolean sample() {
+    if (sampleRate >= 1) {
+      return true;
+    }
+    return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * @return true if the event is within the rate cap of the current second
+   */
+  boolean acquire() {
+    if (rateLimit <= 0) {
+      return true;
+    }
+    long currentWindow = System.nanoTime() / WINDOW_IN_NANOS;
+    while (true) {
+      long state = window.get();
+      long stateWindow = state >>> COUNT_BITS;
+      long count = state & COUNT_MASK;
+      long next;
+      if (stateWindow != (currentWindow & (-1L >>> COUNT_BITS))) {
+        next = ((currentWindow << COUNT_BITS) & ~COUNT_MASK) | 1;
+      } else if (count < rateLimit) {
+        next = state + 1;
+      } else {
+        return false;
+      }
+      if (window.compareAndSet(state, next)) {
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock free, multi producer single consumer ring buffer.
+ *
+ * <p>Producers claim a slot with a CAS on the tail sequence and never wait: when the buffer is full
+ * {@link #offer(Object)} returns false immediately. Only one thread may call {@link #poll()}.
+ */
+class MessageRingBuffer<E> {
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  MessageRingBuffer(int capacity) {
+    int size = 1;
+    while (size < capacity) {
+      size <<= 1;
+    }
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  boolean offer(E element) {
+    while (true) {
+      long current = tail.get();
+      if (current - head.get() >= slots.length()) {
+        return false;
+      }
+      if (tail.compareAndSet(current, current + 1)) {
+        slots.lazySet((int) (current & mask), element);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @return the next element, or null if the buffer is empty or the next slot is claimed but not
+   * yet published
+   */
+  E poll() {
+    long current = head.get();
+    int index = (int) (current & mask);
+    E element = slots.get(index);
+    if (element == null) {
+      return null;
+    }
+    slots.lazySet(index, null);
+    head.lazySet(current + 1);
+    return element;
+  }
+
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+
+  int capacity() {
+    return slots.length();
+  }
+}
@@ -8,6 +8,8 @@ import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.internals.LegacyMetaServerProvider;
 import com.ctrip.framework.apollo.core.spi.MetaServerProvider;
 import com.google.common.collect.Maps;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletResponse;
 import org.junit.After;
@@ -56,6 +58,23 @@ public class MetaDomainTest extends BaseIntegrationTest {
     assertTrue(metaServer.equals(invalidServer.trim()) || metaServer.equals(anotherInvalidServer.trim()));
   }
 
+  @Test
+  public void testGetRankedAddresses() throws Exception {
+    startServerWithHandlers(mockServerHandler(HttpServletResponse.SC_OK, "some response"));
+
+    String validServer = "http://localhost:" + PORT;
+    String invalidServer = "http://localhost:" + findFreePort();
+
+    MockMetaServerProvider.mock(Env.TOOLS, invalidServer + "," + validServer);
+
+    List<String> metaServers = MetaDomainConsts.getDomains(Env.TOOLS);
+
+    assertEquals(2, metaServers.size());
+    assertEquals(validServer, metaServers.get(0));
+    assertEquals(invalidServer, metaServers.get(1));
+    assertEquals(Collections.singletonList("http://localhost:8080"), MetaDomainConsts.getDomains(Env.LOCAL));
+  }
+
   public static class MockMetaServerProvider implements MetaServerProvider {
 
     private static Map<Env, String> mockMetaServerAddress = Maps.newHashMap();
@@ -0,0 +1,135 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.tracer.internals.NullTransaction;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncMessageProducerTest {
+  private static final String SAMPLED_TYPE = "someSampledType";
+  private static final String LIMITED_TYPE = "someLimitedType";
+  private static final String AGGREGATED_TYPE = "someAggregatedType";
+
+  private MessageProducer delegate;
+  private AsyncMessageProducer producer;
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty(AsyncTracerSettings.PREFIX + "async.bufferSize", "2");
+    System.setProperty(AsyncTracerSettings.PREFIX + "sample." + SAMPLED_TYPE, "0");
+    System.setProperty(AsyncTracerSettings.PREFIX + "rateLimit." + LIMITED_TYPE, "1");
+    System.setProperty(AsyncTracerSettings.PREFIX + "aggregate.types", AGGREGATED_TYPE);
+
+    delegate = mock(MessageProducer.class);
+    producer = new AsyncMessageProducer(delegate, new AsyncTracerSettings());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(AsyncTracerSettings.PREFIX + "async.bufferSize");
+    System.clearProperty(AsyncTracerSettings.PREFIX + "sample." + SAMPLED_TYPE);
+    System.clearProperty(AsyncTracerSettings.PREFIX + "rateLimit." + LIMITED_TYPE);
+    System.clearProperty(AsyncTracerSettings.PREFIX + "aggregate.types");
+  }
+
+  @Test
+  public void testEventsAreDeliveredOnDrain() throws Exception {
+    String someType = "someType";
+    String someName = "someName";
+    Throwable someCause = new RuntimeException();
+
+    producer.logEvent(someType, someName);
+    producer.logError("someMessage", someCause);
+
+    verify(delegate, never()).logEvent(someType, someName);
+
+    assertEquals(2, producer.drain(10));
+
+    verify(delegate, times(1)).logEvent(someType, someName);
+    verify(delegate, times(1)).logError("someMessage", someCause);
+  }
+
+  @Test
+  public void testFullBufferDropsMessages() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      producer.logEvent("someType", "someName" + i);
+    }
+
+    assertEquals(3, producer.getDroppedCount());
+    assertEquals(2, producer.drain(10));
+  }
+
+  @Test
+  public void testSampledOutEvents() throws Exception {
+    producer.logEvent(SAMPLED_TYPE, "someName");
+    Transaction transaction = producer.newTransaction(SAMPLED_TYPE, "someName");
+
+    assertTrue(transaction instanceof NullTransaction);
+    assertEquals(2, producer.getSampledOutCount());
+    assertEquals(0, producer.drain(10));
+    verify(delegate, never()).newTransaction(SAMPLED_TYPE, "someName");
+  }
+
+  @Test
+  public void testRateLimitedEvents() throws Exception {
+    Transaction someTransaction = mock(Transaction.class);
+    when(delegate.newTransaction(LIMITED_TYPE, "someName")).thenReturn(someTransaction);
+
+    assertSame(someTransaction, producer.newTransaction(LIMITED_TYPE, "someName"));
+    for (int i = 0; i < 100; i++) {
+      producer.logEvent(LIMITED_TYPE, "someName");
+    }
+
+    //at most one more event is admitted if the one second window rolls over
+    assertTrue(producer.getRateLimitedCount() >= 99);
+  }
+
+  @Test
+  public void testAggregatedEvents() throws Exception {
+    producer.logEvent(AGGREGATED_TYPE, "someName");
+    producer.logEvent(AGGREGATED_TYPE, "someName");
+    producer.logEvent(AGGREGATED_TYPE, "anotherName");
+
+    assertEquals(0, producer.drain(10));
+
+    producer.flushCounters();
+
+    verify(delegate, times(1)).logEvent(AGGREGATED_TYPE, "someName", Transaction.SUCCESS, "count=2");
+    verify(delegate, times(1)).logEvent(AGGREGATED_TYPE, "anotherName", Transaction.SUCCESS, "count=1");
+  }
+
+  @Test
+  public void testDeliveryFailureDoesNotStopDrain() throws Exception {
+    doThrow(RuntimeException.class).when(delegate).logEvent("someType", "someName");
+
+    producer.logEvent("someType", "someName");
+    producer.logEvent("someType", "anotherName");
+
+    assertEquals(2, producer.drain(10));
+    verify(delegate, times(1)).logEvent("someType", "anotherName");
+  }
+
+  @Test
+  public void testCloseDeliversPendingMessages() throws Exception {
+    producer.logEvent("someType", "someName");
+    producer.logEvent(AGGREGATED_TYPE, "someName");
+
+    producer.start();
+    producer.close(5000);
+
+    verify(delegate, times(1)).logEvent("someType", "someName");
+    verify(delegate, times(1)).logEvent(AGGREGATED_TYPE, "someName", Transaction.SUCCESS, "count=1");
+  }
+}
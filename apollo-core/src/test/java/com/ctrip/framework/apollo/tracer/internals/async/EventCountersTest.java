@@ -0,0 +1,76 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class EventCountersTest {
+
+  @Test
+  public void testFlushRemovesIdleNames() throws Exception {
+    EventCounters counters = new EventCounters(1);
+    MessageProducer producer = mock(MessageProducer.class);
+
+    counters.increment("someType", "someName");
+    counters.flush(producer);
+    //someName has no occurrence since the last flush, so it is removed
+    counters.flush(producer);
+    counters.increment("someType", "anotherName");
+    counters.flush(producer);
+
+    verify(producer, times(1)).logEvent("someType", "someName", Transaction.SUCCESS, "count=1");
+    verify(producer, times(1)).logEvent("someType", "anotherName", Transaction.SUCCESS, "count=1");
+    verify(producer, never()).logEvent(eq("someType"), eq(EventCounters.OVERFLOW_NAME), anyString(), anyString());
+  }
+
+  @Test
+  public void testNoIncrementIsLostWhileFlushing() throws Exception {
+    final EventCounters counters = new EventCounters(100);
+    final int threads = 4;
+    final int increments = 100000;
+    final CountDownLatch done = new CountDownLatch(threads);
+    MessageProducer producer = mock(MessageProducer.class);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < increments; j++) {
+            //names fall idle between the flushes often, so that they are removed while being incremented
+            counters.increment("someType", "someName" + (j % 50));
+          }
+          done.countDown();
+        }
+      });
+    }
+    while (done.getCount() > 0) {
+      counters.flush(producer);
+    }
+    counters.flush(producer);
+    executorService.shutdown();
+
+    ArgumentCaptor<String> nameValuePairs = ArgumentCaptor.forClass(String.class);
+    verify(producer, atLeastOnce()).logEvent(eq("someType"), anyString(), eq(Transaction.SUCCESS),
+        nameValuePairs.capture());
+    long total = 0;
+    for (String nameValuePair : nameValuePairs.getAllValues()) {
+      total += Long.parseLong(nameValuePair.substring("count=".length()));
+    }
+    assertEquals((long) threads * increments, total);
+  }
+}
@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.tracer.internals.async;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessageRingBufferTest {
+
+  @Test
+  public void testCapacityIsRoundedToPowerOfTwo() throws Exception {
+    assertEquals(8, new MessageRingBuffer<String>(5).capacity());
+    assertEquals(8, new MessageRingBuffer<String>(8).capacity());
+  }
+
+  @Test
+  public void testOfferAndPollInOrder() throws Exception {
+    MessageRingBuffer<String> buffer = new MessageRingBuffer<>(4);
+
+    assertNull(buffer.poll());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(String.valueOf(i)));
+    }
+    assertFalse(buffer.offer("overflow"));
+    assertEquals(4, buffer.size());
+
+    assertEquals("0", buffer.poll());
+    assertTrue(buffer.offer("4"));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals(String.valueOf(i), buffer.poll());
+    }
+    assertNull(buffer.poll());
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    final MessageRingBuffer<Integer> buffer = new MessageRingBuffer<>(1024);
+    final int producers = 4;
+    final int perProducer = 10000;
+    final AtomicInteger dropped = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(producers);
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+
+    for (int p = 0; p < producers; p++) {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perProducer; i++) {
+            if (!buffer.offer(i)) {
+              dropped.incrementAndGet();
+            }
+          }
+          done.countDown();
+        }
+      });
+    }
+
+    int received = 0;
+    while (done.getCount() > 0 || buffer.size() > 0) {
+      if (buffer.poll() != null) {
+        received++;
+      }
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+
+    assertEquals(producers * perProducer, received + dropped.get());
+  }
+}
@@ -1,11 +1,11 @@
 package com.ctrip.framework.apollo.openapi.service;
 
+import com.ctrip.framework.apollo.common.audit.MultiRowInsert;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.openapi.entity.Consumer;
 import com.ctrip.framework.apollo.openapi.entity.ConsumerAudit;
 import com.ctrip.framework.apollo.openapi.entity.ConsumerRole;
 import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
-import com.ctrip.framework.apollo.openapi.repository.ConsumerAuditRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRoleRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
@@ -20,8 +20,10 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.hash.Hashing;
 import org.apache.commons.lang.time.FastDateFormat;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,11 +39,15 @@ public class ConsumerService {
 
   private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyyMMddHHmmss");
   private static final Joiner KEY_JOINER = Joiner.on("|");
+  private static final MultiRowInsert<ConsumerAudit> CONSUMER_AUDIT_INSERT = new MultiRowInsert<>("ConsumerAudit",
+      ImmutableList.of("ConsumerId", "Uri", "Method", "DataChange_CreatedTime", "DataChange_LastTime"),
+      audit -> new Object[]{audit.getConsumerId(), audit.getUri(), audit.getMethod(),
+          audit.getDataChangeCreatedTime(), audit.getDataChangeLastModifiedTime()});
 
   private final UserInfoHolder userInfoHolder;
   private final ConsumerTokenRepository consumerTokenRepository;
   private final ConsumerRepository consumerRepository;
-  private final ConsumerAuditRepository consumerAuditRepository;
+  private final JdbcTemplate jdbcTemplate;
   private final ConsumerRoleRepository consumerRoleRepository;
   private final PortalConfig portalConfig;
   private final RolePermissionService rolePermissionService;
@@ -51,7 +57,7 @@ public class ConsumerService {
       final UserInfoHolder userInfoHolder,
       final ConsumerTokenRepository consumerTokenRepository,
       final ConsumerRepository consumerRepository,
-      final ConsumerAuditRepository consumerAuditRepository,
+      final JdbcTemplate jdbcTemplate,
       final ConsumerRoleRepository consumerRoleRepository,
       final PortalConfig portalConfig,
       final RolePermissionService rolePermissionService,
@@ -59,7 +65,7 @@ public class ConsumerService {
     this.userInfoHolder = userInfoHolder;
     this.consumerTokenRepository = consumerTokenRepository;
     this.consumerRepository = consumerRepository;
-    this.consumerAuditRepository = consumerAuditRepository;
+    this.jdbcTemplate = jdbcTemplate;
     this.consumerRoleRepository = consumerRoleRepository;
     this.portalConfig = portalConfig;
     this.rolePermissionService = rolePermissionService;
@@ -183,9 +189,8 @@ public class ConsumerService {
     return consumerRoleRepository.save(consumerRole);
   }
 
-  @Transactional
-  public void createConsumerAudits(Iterable<ConsumerAudit> consumerAudits) {
-    consumerAuditRepository.saveAll(consumerAudits);
+  public void createConsumerAudits(List<ConsumerAudit> consumerAudits) {
+    CONSUMER_AUDIT_INSERT.insert(jdbcTemplate, consumerAudits);
   }
 
   @Transactional
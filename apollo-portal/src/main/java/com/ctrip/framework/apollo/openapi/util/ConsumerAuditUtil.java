@@ -1,44 +1,37 @@
 package com.ctrip.framework.apollo.openapi.util;
 
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.common.audit.AuditWriter;
 import com.ctrip.framework.apollo.openapi.entity.ConsumerAudit;
 import com.ctrip.framework.apollo.openapi.service.ConsumerService;
-import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Date;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
-public class ConsumerAuditUtil implements InitializingBean {
+public class ConsumerAuditUtil implements InitializingBean, DisposableBean {
   private static final int CONSUMER_AUDIT_MAX_SIZE = 10000;
-  private BlockingQueue<ConsumerAudit> audits = Queues.newLinkedBlockingQueue(CONSUMER_AUDIT_MAX_SIZE);
-  private final ExecutorService auditExecutorService;
-  private final AtomicBoolean auditStopped;
   private int BATCH_SIZE = 100;
   private long BATCH_TIMEOUT = 5;
   private TimeUnit BATCH_TIMEUNIT = TimeUnit.SECONDS;
 
   private final ConsumerService consumerService;
+  private final String dataSourceUrl;
+  private AuditWriter<ConsumerAudit> auditWriter;
 
-  public ConsumerAuditUtil(final ConsumerService consumerService) {
+  public ConsumerAuditUtil(final ConsumerService consumerService,
+      @Value("${spring.datasource.url:}") final String dataSourceUrl) {
     this.consumerService = consumerService;
-    auditExecutorService = Executors.newSingleThreadExecutor(
-        ApolloThreadFactory.create("ConsumerAuditUtil", true));
-    auditStopped = new AtomicBoolean(false);
+    this.dataSourceUrl = dataSourceUrl;
   }
 
   public boolean audit(HttpServletRequest request, long consumerId) {
@@ -59,28 +52,25 @@ public class ConsumerAuditUtil implements InitializingBean {
     consumerAudit.setDataChangeCreatedTime(now);
     consumerAudit.setDataChangeLastModifiedTime(now);
 
-    //throw away audits if exceeds the max size
-    return this.audits.offer(consumerAudit);
+    //spilled to disk if exceeds the max size
+    auditWriter.audit(consumerAudit);
+    return true;
   }
 
   @Override
   public void afterPropertiesSet() throws Exception {
-    auditExecutorService.submit(() -> {
-      while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-        List<ConsumerAudit> toAudit = Lists.newArrayList();
-        try {
-          Queues.drain(audits, toAudit, BATCH_SIZE, BATCH_TIMEOUT, BATCH_TIMEUNIT);
-          if (!toAudit.isEmpty()) {
-            consumerService.createConsumerAudits(toAudit);
-          }
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
-        }
-      }
-    });
+    auditWriter = new AuditWriter<>("ConsumerAudit", dataSourceUrl, ConsumerAudit.class,
+        consumerService::createConsumerAudits, CONSUMER_AUDIT_MAX_SIZE, BATCH_SIZE,
+        BATCH_TIMEUNIT.toMillis(BATCH_TIMEOUT), null, Metrics.globalRegistry);
+    auditWriter.start();
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    stopAudit();
   }
 
   public void stopAudit() {
-    auditStopped.set(true);
+    auditWriter.stop();
   }
 }
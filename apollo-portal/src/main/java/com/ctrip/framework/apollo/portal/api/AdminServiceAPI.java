@@ -472,6 +472,13 @@ public class AdminServiceAPI {
           type, appId, clusterName, namespaceName, page, size).getBody();
     }
 
+    public PageDTO<ReleaseHistoryDTO> findReleaseHistorySummariesByNamespace(String appId, Env env,
+        String clusterName, String namespaceName, int page, int size) {
+      return restTemplate.get(env,
+          "/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases/histories/summary?page={page}&size={size}",
+          type, appId, clusterName, namespaceName, page, size).getBody();
+    }
+
     public PageDTO<ReleaseHistoryDTO> findByReleaseIdAndOperation(Env env, long releaseId, int operation, int page,
         int size) {
       return restTemplate.get(env,
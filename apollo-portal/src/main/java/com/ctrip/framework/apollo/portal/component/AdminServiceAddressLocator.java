@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
  * 初始时，创建延迟 1 秒的任务，从 Meta Service 获取 Config Service 集群地址进行缓存。
  * 获取成功时，创建延迟 5 分钟的任务，从 Meta Service 获取 Config Service 集群地址刷新缓存。
  * 获取失败时，创建延迟 10 秒的任务，从 Meta Service 获取 Config Service 集群地址刷新缓存。
+ * 请求 Admin Service 失败时，也会立即刷新，每个环境每 10 秒最多一次。
  */
 @Component
 public class AdminServiceAddressLocator {
@@ -43,6 +44,7 @@ public class AdminServiceAddressLocator {
     private RestTemplate restTemplate;
     private List<Env> allEnvs;
     private Map<Env, List<ServiceDTO>> cache = new ConcurrentHashMap<>();
+    private Map<Env, Long> lastRefreshOnFailureTime = new ConcurrentHashMap<>();
 
     private final PortalSettings portalSettings;
     private final RestTemplateFactory restTemplateFactory;
@@ -78,6 +80,23 @@ public class AdminServiceAddressLocator {
         return randomConfigServices;
     }
 
+    /**
+     * Refresh the admin services of the env in background, e.g. when an admin service is unreachable, so that the
+     * instances gone are replaced before the next scheduled refresh
+     */
+    public void refreshOnFailure(Env env) {
+        long now = System.currentTimeMillis();
+        Long lastRefreshTime = lastRefreshOnFailureTime.get(env);
+        if (lastRefreshTime != null && now - lastRefreshTime < OFFLINE_REFRESH_INTERVAL) {
+            return;
+        }
+        boolean acquired = lastRefreshTime == null ? lastRefreshOnFailureTime.putIfAbsent(env, now) == null
+                : lastRefreshOnFailureTime.replace(env, lastRefreshTime, now);
+        if (acquired) {
+            refreshServiceAddressService.submit(() -> refreshServerAddressCache(env));
+        }
+    }
+
     //maintain admin server address
     private class RefreshAdminServerAddressTask implements Runnable {
 
@@ -0,0 +1,147 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin Service 实例的健康状况
+ * <p>
+ * 1. 被动摘除：实例连续 {@link #EJECTION_CONSECUTIVE_FAILURES} 次连接失败或超时后被摘除，摘除时间从
+ * {@link #BASE_EJECTION_TIME_IN_MILLI} 开始每次连续摘除翻倍，最长 {@link #MAX_EJECTION_TIME_IN_MILLI} 。
+ * 被摘除的实例排在最后，仍然会在其它实例都失败时尝试。
+ * 2. 对冲延迟：每个环境最近 {@link #LATENCY_WINDOW_SIZE} 次成功 GET 请求耗时的 p95 。
+ */
+class AdminServiceHealthTracker {
+    private static final Logger logger = LoggerFactory.getLogger(AdminServiceHealthTracker.class);
+    static final int EJECTION_CONSECUTIVE_FAILURES = 3;
+    static final long BASE_EJECTION_TIME_IN_MILLI = 10 * 1000;
+    static final long MAX_EJECTION_TIME_IN_MILLI = 2 * 60 * 1000;
+    static final int LATENCY_WINDOW_SIZE = 100;
+    static final int MIN_LATENCY_SAMPLES = 20;
+    static final long MIN_HEDGE_DELAY_IN_MILLI = 20;
+
+    // homepage url -> health
+    private final Map<String, InstanceHealth> instances = new ConcurrentHashMap<>();
+    private final Map<Env, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * @return the services in the given order, except that the ejected ones are moved to the end
+     */
+    List<ServiceDTO> order(List<ServiceDTO> services) {
+        long now = System.nanoTime();
+        List<ServiceDTO> healthy = Lists.newArrayListWithCapacity(services.size());
+        List<ServiceDTO> ejected = Lists.newArrayList();
+        for (ServiceDTO service : services) {
+            if (getHealth(service).isEjected(now)) {
+                ejected.add(service);
+            } else {
+                healthy.add(service);
+            }
+        }
+        healthy.addAll(ejected);
+        return healthy;
+    }
+
+    void onSuccess(Env env, ServiceDTO service, long latencyInNanos, boolean recordLatency) {
+        getHealth(service).onSuccess();
+        if (recordLatency) {
+            latencies.computeIfAbsent(env, key -> new LatencyWindow()).add(latencyInNanos);
+        }
+    }
+
+    /**
+     * Only the connection failures and timeouts count, the business errors are answers of a healthy instance.
+     *
+     * @return true if the service is ejected by this failure
+     */
+    boolean onFailure(ServiceDTO service) {
+        long ejectionTime = getHealth(service).onFailure(System.nanoTime());
+        if (ejectionTime > 0) {
+            logger.warn("Admin service {} failed {} times in a row, ejected for {} ms", service.getHomepageUrl(),
+                    EJECTION_CONSECUTIVE_FAILURES, ejectionTime);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the delay in milliseconds before hedging a GET request, or -1 if there are not enough samples yet
+     */
+    long getHedgeDelayInMilli(Env env) {
+        LatencyWindow window = latencies.get(env);
+        if (window == null) {
+            return -1;
+        }
+        long p95 = window.percentile(95);
+        return p95 < 0 ? -1 : Math.max(MIN_HEDGE_DELAY_IN_MILLI, TimeUnit.NANOSECONDS.toMillis(p95));
+    }
+
+    private InstanceHealth getHealth(ServiceDTO service) {
+        String key = service.getHomepageUrl() == null ? "" : service.getHomepageUrl();
+        return instances.computeIfAbsent(key, k -> new InstanceHealth());
+    }
+
+    private static class InstanceHealth {
+        private int consecutiveFailures;
+        private int consecutiveEjections;
+        private long ejectedUntil;
+        private boolean ejected;
+
+        synchronized boolean isEjected(long now) {
+            if (ejected && now - ejectedUntil >= 0) {
+                // 重新接入，再失败一次即被摘除，且摘除时间翻倍
+                ejected = false;
+                consecutiveFailures = EJECTION_CONSECUTIVE_FAILURES - 1;
+            }
+            return ejected;
+        }
+
+        synchronized void onSuccess() {
+            ejected = false;
+            consecutiveFailures = 0;
+            consecutiveEjections = 0;
+        }
+
+        synchronized long onFailure(long now) {
+            if (ejected || ++consecutiveFailures < EJECTION_CONSECUTIVE_FAILURES) {
+                return 0;
+            }
+            long ejectionTime = Math.min(MAX_EJECTION_TIME_IN_MILLI,
+                    BASE_EJECTION_TIME_IN_MILLI << Math.min(consecutiveEjections, 16));
+            consecutiveEjections++;
+            ejected = true;
+            ejectedUntil = now + TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+            return ejectionTime;
+        }
+    }
+
+    private static class LatencyWindow {
+        private final long[] samples = new long[LATENCY_WINDOW_SIZE];
+        private int count;
+        private int next;
+
+        synchronized void add(long latencyInNanos) {
+            samples[next] = latencyInNanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized long percentile(int percentile) {
+            if (count < MIN_LATENCY_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, count * percentile / 100)];
+        }
+    }
+}
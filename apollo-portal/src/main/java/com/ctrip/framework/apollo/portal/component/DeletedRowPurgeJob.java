@@ -0,0 +1,104 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.purge.DeletedRowPurger;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges the soft deleted rows of the portal db in the background every {@code deleted-row-purge.interval} hours,
+ * when {@code deleted-row-purge.enabled} is on, see {@link DeletedRowPurger}
+ */
+@Component
+public class DeletedRowPurgeJob {
+  private static final Logger logger = LoggerFactory.getLogger(DeletedRowPurgeJob.class);
+  private static final int CHECK_INTERVAL_IN_MINUTES = 10;
+
+  // the tables referring to others come first
+  private static final List<DeletedRowPurger.Table> TABLES = Lists.newArrayList(
+      DeletedRowPurger.Table.of("RolePermission"),
+      DeletedRowPurger.Table.of("UserRole"),
+      DeletedRowPurger.Table.of("ConsumerRole"),
+      DeletedRowPurger.Table.of("Permission"),
+      DeletedRowPurger.Table.of("Role"),
+      DeletedRowPurger.Table.of("Favorite"),
+      DeletedRowPurger.Table.of("ConsumerToken"),
+      DeletedRowPurger.Table.of("Consumer"),
+      DeletedRowPurger.Table.of("AppNamespace"),
+      DeletedRowPurger.Table.of("App"));
+
+  private final DeletedRowPurger purger;
+  private final PortalConfig portalConfig;
+  private final ScheduledExecutorService executorService;
+
+  private long lastPurgeTime;
+
+  public DeletedRowPurgeJob(
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final PortalConfig portalConfig) {
+    this.purger = new DeletedRowPurger(jdbcTemplate, transactionManager);
+    this.portalConfig = portalConfig;
+    this.executorService = Executors.newSingleThreadScheduledExecutor(ApolloThreadFactory
+        .create("DeletedRowPurgeJob", true));
+  }
+
+  @PostConstruct
+  private void initialize() {
+    executorService.scheduleWithFixedDelay(this::purgeIfDue, CHECK_INTERVAL_IN_MINUTES, CHECK_INTERVAL_IN_MINUTES,
+        TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executorService.shutdownNow();
+  }
+
+  private void purgeIfDue() {
+    if (!portalConfig.isDeletedRowPurgeEnabled()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (now - lastPurgeTime < TimeUnit.HOURS.toMillis(portalConfig.deletedRowPurgeIntervalInHours())) {
+      return;
+    }
+    lastPurgeTime = now;
+
+    Date deletedBefore = DateUtils.addDays(new Date(), -portalConfig.deletedRowPurgeRetentionInDays());
+    for (DeletedRowPurger.Table table : TABLES) {
+      Transaction transaction = Tracer.newTransaction("Apollo.DeletedRowPurge", table.getName());
+      try {
+        int purged = purger.purge(table, deletedBefore, portalConfig.deletedRowPurgeChunkSize(),
+            portalConfig.deletedRowPurgeChunkIntervalInMilli(), portalConfig.isDeletedRowPurgeArchiveEnabled());
+        logger.info("Purged {} rows of {} deleted before {}", purged, table.getName(), deletedBefore);
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (InterruptedException ex) {
+        transaction.setStatus(ex);
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable ex) {
+        //go on with the other tables
+        logger.warn("Purge deleted rows of {} failed", table.getName(), ex);
+        transaction.setStatus(ex);
+      } finally {
+        transaction.complete();
+      }
+    }
+  }
+}
@@ -4,9 +4,11 @@ import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.MetaDomainConsts;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.slf4j.Logger;
@@ -25,20 +27,42 @@ import org.springframework.web.util.UriTemplateHandler;
 import javax.annotation.PostConstruct;
 import java.net.SocketTimeoutException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 封装RestTemplate. admin server集群在某些机器宕机或者超时的情况下轮询重试
  * 通用封装
+ * <p>
+ * 连续失败的实例会被暂时摘除，见 {@link AdminServiceHealthTracker} ，GET 请求在较慢时会向另一个实例发送对冲请求
  */
 @Component
 public class RetryableRestTemplate {
 
+    /**
+     * 对冲请求的最大并发线程数，线程池满时不再对冲，在调用线程中依次请求
+     */
+    private static final int HEDGE_MAX_THREADS = 64;
+
     private Logger logger = LoggerFactory.getLogger(RetryableRestTemplate.class);
 
     private UriTemplateHandler uriTemplateHandler = new DefaultUriBuilderFactory();
 
     private RestTemplate restTemplate;
 
+    private final AdminServiceHealthTracker healthTracker = new AdminServiceHealthTracker();
+    private final ExecutorService hedgeExecutorService = new ThreadPoolExecutor(0, HEDGE_MAX_THREADS, 60L,
+            TimeUnit.SECONDS, new SynchronousQueue<>(), ApolloThreadFactory.create("AdminServiceHedging", true));
+
     private final RestTemplateFactory restTemplateFactory;
     private final AdminServiceAddressLocator adminServiceAddressLocator;
 
@@ -88,15 +112,45 @@ public class RetryableRestTemplate {
         }
 
         String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
+        String relativePath = path;
+
+        return executeWithRetry(method, env, uri,
+                service -> doExecute(method, service, relativePath, request, responseType, uriVariables));
+    }
+
+    private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
+                                              Object... uriVariables) {
+        if (path.startsWith("/")) {
+            path = path.substring(1, path.length());
+        }
+
+        String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
+        String relativePath = path;
+
+        return executeWithRetry(HttpMethod.GET, env, uri, service -> restTemplate
+                .exchange(parseHost(service) + relativePath, HttpMethod.GET, null, reference, uriVariables));
+    }
+
+    /**
+     * 按健康状况依次尝试各个 Admin Service ，GET 请求在超过最近 p95 耗时仍未返回时，向下一个实例发送对冲请求，取先返回的结果
+     */
+    private <T> T executeWithRetry(HttpMethod method, Env env, String uri, Function<ServiceDTO, T> call) {
         Transaction ct = Tracer.newTransaction("AdminAPI", uri);
         ct.addData("Env", env);
 
-        List<ServiceDTO> services = getAdminServices(env, ct);
+        List<ServiceDTO> services = healthTracker.order(getAdminServices(env, ct));
+        long hedgeDelay = method == HttpMethod.GET ? healthTracker.getHedgeDelayInMilli(env) : -1;
 
-        for (ServiceDTO serviceDTO : services) {
+        int index = 0;
+        while (index < services.size()) {
             try {
-
-                T result = doExecute(method, serviceDTO, path, request, responseType, uriVariables);
+                T result;
+                ServiceDTO service = services.get(index++);
+                if (hedgeDelay > 0 && index < services.size()) {
+                    result = doHedgedExecute(env, uri, service, services.get(index++), hedgeDelay, call);
+                } else {
+                    result = doTrackedExecute(method, env, service, call);
+                }
 
                 ct.setStatus(Transaction.SUCCESS);
                 ct.complete();
@@ -123,49 +177,94 @@ public class RetryableRestTemplate {
         throw e;
     }
 
-    private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
-                                              Object... uriVariables) {
-        if (path.startsWith("/")) {
-            path = path.substring(1, path.length());
-        }
-
-        String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
-        Transaction ct = Tracer.newTransaction("AdminAPI", uri);
-        ct.addData("Env", env);
-
-        List<ServiceDTO> services = getAdminServices(env, ct);
-
-        for (ServiceDTO serviceDTO : services) {
+    /**
+     * Send the request to the primary service, and to the hedge service as well if the primary one does not answer
+     * within the hedge delay. The first answer is taken, a connection failure or timeout is not an answer.
+     * When the hedge threads are exhausted, the hedge request is skipped, and the services are called one by one in
+     * the calling thread if the primary request can't be submitted either.
+     */
+    private <T> T doHedgedExecute(Env env, String uri, ServiceDTO primary, ServiceDTO hedge, long hedgeDelay,
+                                  Function<ServiceDTO, T> call) {
+        CompletionService<T> completionService = new ExecutorCompletionService<>(hedgeExecutorService);
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(2);
+        Callable<T> primaryTask = () -> doTrackedExecute(HttpMethod.GET, env, primary, call);
+        Callable<T> hedgeTask = () -> doTrackedExecute(HttpMethod.GET, env, hedge, call);
+        if (!trySubmit(completionService, futures, primaryTask)) {
             try {
-
-                ResponseEntity<T> result =
-                        restTemplate.exchange(parseHost(serviceDTO) + path, HttpMethod.GET, null, reference, uriVariables);
-
-                ct.setStatus(Transaction.SUCCESS);
-                ct.complete();
-                return result;
-            } catch (Throwable t) {
-                logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
-                Tracer.logError(t);
-                if (canRetry(t, HttpMethod.GET)) {
-                    Tracer.logEvent(TracerEventType.API_RETRY, uri);
-                } else {// biz exception rethrow
-                    ct.setStatus(t);
-                    ct.complete();
-                    throw t;
+                return doTrackedExecute(HttpMethod.GET, env, primary, call);
+            } catch (RuntimeException ex) {
+                if (!canRetry(ex, HttpMethod.GET)) {
+                    throw ex;
                 }
+                return doTrackedExecute(HttpMethod.GET, env, hedge, call);
+            }
+        }
+        try {
+            Future<T> completed = completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (completed == null && trySubmit(completionService, futures, hedgeTask)) {
+                Tracer.logEvent(TracerEventType.API_HEDGE, uri);
+            }
 
+            RuntimeException lastFailure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                if (completed == null) {
+                    completed = completionService.take();
+                }
+                try {
+                    return completed.get();
+                } catch (ExecutionException ex) {
+                    // the call only throws unchecked exceptions
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    lastFailure = (RuntimeException) ex.getCause();
+                    if (!canRetry(lastFailure, HttpMethod.GET)) {
+                        throw lastFailure;
+                    }
+                }
+                completed = null;
+                if (futures.size() == 1 && !trySubmit(completionService, futures, hedgeTask)) {
+                    // the primary one failed fast or the hedge was skipped, try the hedge one at once, in the
+                    // calling thread as the hedge threads are exhausted
+                    return doTrackedExecute(HttpMethod.GET, env, hedge, call);
+                }
+            }
+            throw lastFailure;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while waiting for the admin service response", ex);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
             }
         }
+    }
 
-        //all admin server down
-        ServiceException e =
-                new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
-                        MetaDomainConsts.getDomain(env), services));
-        ct.setStatus(e);
-        ct.complete();
-        throw e;
+    private <T> boolean trySubmit(CompletionService<T> completionService, List<Future<T>> futures, Callable<T> task) {
+        try {
+            futures.add(completionService.submit(task));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
 
+    private <T> T doTrackedExecute(HttpMethod method, Env env, ServiceDTO service, Function<ServiceDTO, T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(service);
+            healthTracker.onSuccess(env, service, System.nanoTime() - start, method == HttpMethod.GET);
+            return result;
+        } catch (RuntimeException ex) {
+            if (canRetry(ex, HttpMethod.GET)) {
+                // 连接失败或超时，实例可能已下线
+                healthTracker.onFailure(service);
+                adminServiceAddressLocator.refreshOnFailure(env);
+            } else {
+                healthTracker.onSuccess(env, service, System.nanoTime() - start, false);
+            }
+            throw ex;
+        }
     }
 
     private List<ServiceDTO> getAdminServices(Env env, Transaction ct) {
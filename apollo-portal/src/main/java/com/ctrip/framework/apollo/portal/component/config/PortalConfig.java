@@ -42,14 +42,16 @@ public class PortalConfig extends RefreshableConfig {
    * Level: important
    **/
   public List<Env> portalSupportedEnvs() {
-    String[] configurations = getArrayProperty("apollo.portal.envs", new String[]{"FAT", "UAT", "PRO"});
-    List<Env> envs = Lists.newLinkedList();
+    return getDerivedProperty("portalSupportedEnvs", () -> {
+      String[] configurations = getArrayProperty("apollo.portal.envs", new String[]{"FAT", "UAT", "PRO"});
+      List<Env> envs = Lists.newLinkedList();
 
-    for (String env : configurations) {
-      envs.add(Env.fromString(env));
-    }
+      for (String env : configurations) {
+        envs.add(Env.fromString(env));
+      }
 
-    return envs;
+      return Collections.unmodifiableList(envs);
+    });
   }
 
   public List<String> superAdmins() {
@@ -61,18 +63,20 @@ public class PortalConfig extends RefreshableConfig {
   }
 
   public Set<Env> emailSupportedEnvs() {
-    String[] configurations = getArrayProperty("email.supported.envs", null);
+    return getDerivedProperty("emailSupportedEnvs", () -> {
+      String[] configurations = getArrayProperty("email.supported.envs", null);
 
-    Set<Env> result = Sets.newHashSet();
-    if (configurations == null || configurations.length == 0) {
-      return result;
-    }
+      Set<Env> result = Sets.newHashSet();
+      if (configurations == null || configurations.length == 0) {
+        return Collections.unmodifiableSet(result);
+      }
 
-    for (String env : configurations) {
-      result.add(Env.fromString(env));
-    }
+      for (String env : configurations) {
+        result.add(Env.fromString(env));
+      }
 
-    return result;
+      return Collections.unmodifiableSet(result);
+    });
   }
 
   public boolean isConfigViewMemberOnly(String env) {
@@ -99,9 +103,11 @@ public class PortalConfig extends RefreshableConfig {
   }
 
   public List<Organization> organizations() {
-
-    String organizations = getValue("organizations");
-    return organizations == null ? Collections.emptyList() : gson.fromJson(organizations, ORGANIZATION);
+    return getDerivedProperty("organizations", () -> {
+      String organizations = getValue("organizations");
+      return organizations == null ? Collections.<Organization>emptyList()
+          : Collections.unmodifiableList(gson.<List<Organization>>fromJson(organizations, ORGANIZATION));
+    });
   }
 
   public String portalAddress() {
@@ -126,18 +132,20 @@ public class PortalConfig extends RefreshableConfig {
    * Level: low
    **/
   public Set<Env> publishTipsSupportedEnvs() {
-    String[] configurations = getArrayProperty("namespace.publish.tips.supported.envs", null);
+    return getDerivedProperty("publishTipsSupportedEnvs", () -> {
+      String[] configurations = getArrayProperty("namespace.publish.tips.supported.envs", null);
 
-    Set<Env> result = Sets.newHashSet();
-    if (configurations == null || configurations.length == 0) {
-      return result;
-    }
+      Set<Env> result = Sets.newHashSet();
+      if (configurations == null || configurations.length == 0) {
+        return Collections.unmodifiableSet(result);
+      }
 
-    for (String env : configurations) {
-      result.add(Env.fromString(env));
-    }
+      for (String env : configurations) {
+        result.add(Env.fromString(env));
+      }
 
-    return result;
+      return Collections.unmodifiableSet(result);
+    });
   }
 
   public String consumerTokenSalt() {
@@ -180,6 +188,32 @@ public class PortalConfig extends RefreshableConfig {
     return getBooleanProperty(SystemRoleManagerService.MANAGE_APP_MASTER_LIMIT_SWITCH_KEY, false);
   }
 
+  public boolean isDeletedRowPurgeEnabled() {
+    return getBooleanProperty("deleted-row-purge.enabled", false);
+  }
+
+  //the deleted rows are kept for this many days before purged
+  public int deletedRowPurgeRetentionInDays() {
+    return Math.max(1, getIntProperty("deleted-row-purge.retention", 30));
+  }
+
+  public int deletedRowPurgeIntervalInHours() {
+    return Math.max(1, getIntProperty("deleted-row-purge.interval", 24));
+  }
+
+  //whether to copy the purged rows to DeletedRowArchive, otherwise they are deleted only
+  public boolean isDeletedRowPurgeArchiveEnabled() {
+    return getBooleanProperty("deleted-row-purge.archive", true);
+  }
+
+  public int deletedRowPurgeChunkSize() {
+    return Math.min(5000, Math.max(1, getIntProperty("deleted-row-purge.chunk-size", 500)));
+  }
+
+  public int deletedRowPurgeChunkIntervalInMilli() {
+    return Math.max(0, getIntProperty("deleted-row-purge.chunk-interval", 100));
+  }
+
   /***
    * The following configurations are used in ctrip profile
    **/
@@ -196,6 +196,11 @@ public abstract class ConfigPublishEmailBuilder {
   }
 
   private ReleaseCompareResult getReleaseCompareResult(Env env, ReleaseHistoryBO releaseHistory) {
+    //the changed keys are summarized when the release history is created, nothing to compare if none changed
+    if (Integer.valueOf(0).equals(releaseHistory.getChangedKeyCount())) {
+      return new ReleaseCompareResult();
+    }
+
     if (releaseHistory.getOperation() == ReleaseOperation.GRAY_RELEASE
             && releaseHistory.getPreviousReleaseId() == 0) {
       ReleaseDTO masterLatestActiveRelease = releaseService.loadLatestRelease(
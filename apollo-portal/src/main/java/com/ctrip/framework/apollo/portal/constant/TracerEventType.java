@@ -18,6 +18,8 @@ public interface TracerEventType {
 
   String API_RETRY = "API.Retry";
 
+  String API_HEDGE = "API.Hedge";
+
   String USER_ACCESS = "User.Access";
 
   String CREATE_GRAY_RELEASE = "GrayRelease.Create";
@@ -27,4 +29,6 @@ public interface TracerEventType {
   String MERGE_GRAY_RELEASE = "GrayRelease.Merge";
 
   String UPDATE_GRAY_RELEASE_RULE = "GrayReleaseRule.Update";
+
+  String PUBLISH_NOTIFICATION_DROPPED = "PublishNotification.Dropped";
 }
@@ -142,6 +142,22 @@ public class ReleaseController {
     return releaseService.findActiveReleases(appId, Env.valueOf(env), clusterName, namespaceName, page, size);
   }
 
+  @GetMapping(value = "/envs/{env}/releases/{releaseId}")
+  public ReleaseDTO get(@PathVariable String env,
+                        @PathVariable long releaseId) {
+    ReleaseDTO release = releaseService.findReleaseById(Env.valueOf(env), releaseId);
+
+    if (release == null) {
+      throw new NotFoundException("release not found");
+    }
+
+    if (permissionValidator.shouldHideConfigToCurrentUser(release.getAppId(), env, release.getNamespaceName())) {
+      throw new AccessDeniedException("Access is denied");
+    }
+
+    return release;
+  }
+
   @GetMapping(value = "/envs/{env}/releases/compare")
   public ReleaseCompareResult compareRelease(@PathVariable String env,
                                              @RequestParam long baseReleaseId,
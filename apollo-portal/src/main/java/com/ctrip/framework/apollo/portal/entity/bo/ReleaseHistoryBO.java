@@ -32,6 +32,10 @@ public class ReleaseHistoryBO {
 
   private List<EntityPair<String>> configuration;
 
+  private Integer changedKeyCount;
+
+  private List<String> changedKeys;
+
   private long previousReleaseId;
 
   private int operation;
@@ -159,4 +163,20 @@ public class ReleaseHistoryBO {
       List<EntityPair<String>> configuration) {
     this.configuration = configuration;
   }
+
+  public Integer getChangedKeyCount() {
+    return changedKeyCount;
+  }
+
+  public void setChangedKeyCount(Integer changedKeyCount) {
+    this.changedKeyCount = changedKeyCount;
+  }
+
+  public List<String> getChangedKeys() {
+    return changedKeys;
+  }
+
+  public void setChangedKeys(List<String> changedKeys) {
+    this.changedKeys = changedKeys;
+  }
 }
@@ -2,27 +2,35 @@ package com.ctrip.framework.apollo.portal.listener;
 
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
 import com.ctrip.framework.apollo.core.enums.Env;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.component.emailbuilder.GrayPublishEmailBuilder;
 import com.ctrip.framework.apollo.portal.component.emailbuilder.MergeEmailBuilder;
 import com.ctrip.framework.apollo.portal.component.emailbuilder.NormalPublishEmailBuilder;
 import com.ctrip.framework.apollo.portal.component.emailbuilder.RollbackEmailBuilder;
+import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.bo.Email;
 import com.ctrip.framework.apollo.portal.entity.bo.ReleaseHistoryBO;
 import com.ctrip.framework.apollo.portal.service.ReleaseHistoryService;
 import com.ctrip.framework.apollo.portal.spi.EmailService;
 import com.ctrip.framework.apollo.portal.spi.MQService;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class ConfigPublishListener {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigPublishListener.class);
+  private static final int WORKERS = 4;
+  private static final int MAX_WAITING_NAMESPACES = 1000;
+  private static final long OFFER_TIMEOUT_IN_MILLIS = 1000;
 
   private final ReleaseHistoryService releaseHistoryService;
   private final EmailService emailService;
@@ -33,7 +41,7 @@ public class ConfigPublishListener {
   private final PortalConfig portalConfig;
   private final MQService mqService;
 
-  private ExecutorService executorService;
+  private ConfigPublishNotificationQueue notificationQueue;
 
   public ConfigPublishListener(
       final ReleaseHistoryService releaseHistoryService,
@@ -56,99 +64,126 @@ public class ConfigPublishListener {
 
   @PostConstruct
   public void init() {
-    executorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("ConfigPublishNotify", true));
+    notificationQueue = new ConfigPublishNotificationQueue(MAX_WAITING_NAMESPACES, OFFER_TIMEOUT_IN_MILLIS,
+        Metrics.globalRegistry);
+    notificationQueue.start(WORKERS, this::sendNotifications);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    notificationQueue.stop();
   }
 
   @EventListener
   public void onConfigPublish(ConfigPublishEvent event) {
-    executorService.submit(new ConfigPublishNotifyTask(event.getConfigPublishInfo()));
+    ConfigPublishEvent.ConfigPublishInfo publishInfo = event.getConfigPublishInfo();
+    if (!notificationQueue.offer(publishInfo)) {
+      String namespace = String.format("%s+%s+%s+%s", publishInfo.getAppId(), publishInfo.getEnv(),
+          publishInfo.getClusterName(), publishInfo.getNamespaceName());
+      Tracer.logEvent(TracerEventType.PUBLISH_NOTIFICATION_DROPPED, namespace);
+      logger.warn("Too many publish notifications waiting, drop the notification of {}", namespace);
+    }
   }
 
+  /**
+   * Send the notifications of the publishes of one namespace, in publish order.
+   * Every publish is sent to the MQ, while back-to-back normal publishes are merged into one email.
+   */
+  private void sendNotifications(List<ConfigPublishEvent.ConfigPublishInfo> publishInfos) {
+    Env env = publishInfos.get(0).getEnv();
 
-  private class ConfigPublishNotifyTask implements Runnable {
-
-    private ConfigPublishEvent.ConfigPublishInfo publishInfo;
-
-    ConfigPublishNotifyTask(ConfigPublishEvent.ConfigPublishInfo publishInfo) {
-      this.publishInfo = publishInfo;
-    }
-
-    @Override
-    public void run() {
-      ReleaseHistoryBO releaseHistory = getReleaseHistory();
+    List<ReleaseHistoryBO> releaseHistories = new ArrayList<>(publishInfos.size());
+    for (ConfigPublishEvent.ConfigPublishInfo publishInfo : publishInfos) {
+      ReleaseHistoryBO releaseHistory = getReleaseHistory(publishInfo);
       if (releaseHistory == null) {
         Tracer.logError("Load release history failed", null);
-        return;
+        continue;
       }
 
-      sendPublishEmail(releaseHistory);
-
-      sendPublishMsg(releaseHistory);
+      sendPublishMsg(env, releaseHistory);
+      releaseHistories.add(releaseHistory);
     }
 
-    private ReleaseHistoryBO getReleaseHistory() {
-      Env env = publishInfo.getEnv();
-
-      int operation = publishInfo.isMergeEvent() ? ReleaseOperation.GRAY_RELEASE_MERGE_TO_MASTER :
-                      publishInfo.isRollbackEvent() ? ReleaseOperation.ROLLBACK :
-                      publishInfo.isNormalPublishEvent() ? ReleaseOperation.NORMAL_RELEASE :
-                      publishInfo.isGrayPublishEvent() ? ReleaseOperation.GRAY_RELEASE : -1;
+    if (!portalConfig.emailSupportedEnvs().contains(env)) {
+      return;
+    }
 
-      if (operation == -1) {
-        return null;
+    ReleaseHistoryBO toSend = null;
+    for (ReleaseHistoryBO releaseHistory : releaseHistories) {
+      if (toSend != null && toSend.getOperation() == ReleaseOperation.NORMAL_RELEASE
+          && releaseHistory.getOperation() == ReleaseOperation.NORMAL_RELEASE) {
+        // compare the latest release with the one before the first release
+        releaseHistory.setPreviousReleaseId(toSend.getPreviousReleaseId());
+        releaseHistory.setChangedKeyCount(null);
+        toSend = releaseHistory;
+        continue;
       }
-
-      if (publishInfo.isRollbackEvent()) {
-        return releaseHistoryService
-            .findLatestByPreviousReleaseIdAndOperation(env, publishInfo.getPreviousReleaseId(), operation);
-      } else {
-        return releaseHistoryService.findLatestByReleaseIdAndOperation(env, publishInfo.getReleaseId(), operation);
+      if (toSend != null) {
+        sendPublishEmail(env, toSend);
       }
-
+      toSend = releaseHistory;
+    }
+    if (toSend != null) {
+      sendPublishEmail(env, toSend);
     }
+  }
 
-    private void sendPublishEmail(ReleaseHistoryBO releaseHistory) {
-      Env env = publishInfo.getEnv();
+  private ReleaseHistoryBO getReleaseHistory(ConfigPublishEvent.ConfigPublishInfo publishInfo) {
+    Env env = publishInfo.getEnv();
 
-      if (!portalConfig.emailSupportedEnvs().contains(env)) {
-        return;
-      }
+    int operation = publishInfo.isMergeEvent() ? ReleaseOperation.GRAY_RELEASE_MERGE_TO_MASTER :
+                    publishInfo.isRollbackEvent() ? ReleaseOperation.ROLLBACK :
+                    publishInfo.isNormalPublishEvent() ? ReleaseOperation.NORMAL_RELEASE :
+                    publishInfo.isGrayPublishEvent() ? ReleaseOperation.GRAY_RELEASE : -1;
 
-      int realOperation = releaseHistory.getOperation();
+    if (operation == -1) {
+      return null;
+    }
 
-      Email email = null;
-      try {
-        email = buildEmail(env, releaseHistory, realOperation);
-      } catch (Throwable e) {
-        Tracer.logError("build email failed.", e);
-      }
+    if (publishInfo.isRollbackEvent()) {
+      return releaseHistoryService
+          .findLatestByPreviousReleaseIdAndOperation(env, publishInfo.getPreviousReleaseId(), operation);
+    } else {
+      return releaseHistoryService.findLatestByReleaseIdAndOperation(env, publishInfo.getReleaseId(), operation);
+    }
 
-      if (email != null) {
-        emailService.send(email);
-      }
+  }
+
+  private void sendPublishEmail(Env env, ReleaseHistoryBO releaseHistory) {
+    int realOperation = releaseHistory.getOperation();
+
+    Email email = null;
+    try {
+      email = buildEmail(env, releaseHistory, realOperation);
+    } catch (Throwable e) {
+      Tracer.logError("build email failed.", e);
     }
 
-    private void sendPublishMsg(ReleaseHistoryBO releaseHistory) {
-      mqService.sendPublishMsg(publishInfo.getEnv(), releaseHistory);
+    if (email != null) {
+      emailService.send(email);
     }
+  }
+
+  private void sendPublishMsg(Env env, ReleaseHistoryBO releaseHistory) {
+    mqService.sendPublishMsg(env, releaseHistory);
+  }
 
-    private Email buildEmail(Env env, ReleaseHistoryBO releaseHistory, int operation) {
-      switch (operation) {
-        case ReleaseOperation.GRAY_RELEASE: {
-          return grayPublishEmailBuilder.build(env, releaseHistory);
-        }
-        case ReleaseOperation.NORMAL_RELEASE: {
-          return normalPublishEmailBuilder.build(env, releaseHistory);
-        }
-        case ReleaseOperation.ROLLBACK: {
-          return rollbackEmailBuilder.build(env, releaseHistory);
-        }
-        case ReleaseOperation.GRAY_RELEASE_MERGE_TO_MASTER: {
-          return mergeEmailBuilder.build(env, releaseHistory);
-        }
-        default:
-          return null;
+  private Email buildEmail(Env env, ReleaseHistoryBO releaseHistory, int operation) {
+    switch (operation) {
+      case ReleaseOperation.GRAY_RELEASE: {
+        return grayPublishEmailBuilder.build(env, releaseHistory);
+      }
+      case ReleaseOperation.NORMAL_RELEASE: {
+        return normalPublishEmailBuilder.build(env, releaseHistory);
       }
+      case ReleaseOperation.ROLLBACK: {
+        return rollbackEmailBuilder.build(env, releaseHistory);
+      }
+      case ReleaseOperation.GRAY_RELEASE_MERGE_TO_MASTER: {
+        return mergeEmailBuilder.build(env, releaseHistory);
+      }
+      default:
+        return null;
     }
   }
 
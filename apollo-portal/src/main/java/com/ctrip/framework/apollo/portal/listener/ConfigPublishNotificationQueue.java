@@ -0,0 +1,250 @@
+package com.ctrip.framework.apollo.portal.listener;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The publish notifications waiting to be sent, processed by a few workers.
+ * <ul>
+ * <li>the notifications of a namespace are processed by one worker at a time, in publish order. The ones published
+ * while waiting or being processed are processed together in the next batch</li>
+ * <li>rollbacks are processed first, gray releases last, the others in publish order</li>
+ * <li>at most {@code capacity} namespaces are waiting, offering a notification of another namespace waits for a while
+ * and then gives up</li>
+ * </ul>
+ */
+class ConfigPublishNotificationQueue {
+
+  private static final int PRIORITY_GRAY_RELEASE = 0;
+  private static final int PRIORITY_RELEASE = 1;
+  private static final int PRIORITY_ROLLBACK = 2;
+
+  private static final Comparator<NamespaceNotifications> ORDER = Comparator
+      .comparingInt((NamespaceNotifications notifications) -> -notifications.priority)
+      .thenComparingLong(notifications -> notifications.sequence);
+
+  interface Processor {
+
+    void process(List<ConfigPublishEvent.ConfigPublishInfo> publishInfos);
+  }
+
+  private final int capacity;
+  private final long offerTimeoutInMillis;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  // namespace -> the notifications waiting to be processed
+  private final Map<String, NamespaceNotifications> waiting = new HashMap<>();
+  // the namespaces being processed
+  private final Set<String> processing = new HashSet<>();
+  // the waiting namespaces which are not being processed, i.e. ready to be taken by workers
+  private final BlockingQueue<NamespaceNotifications> readyQueue = new PriorityBlockingQueue<>(16, ORDER);
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final AtomicInteger depth = new AtomicInteger();
+  private final Timer latencyTimer;
+  private final Counter droppedCounter;
+
+  private ExecutorService executorService;
+
+  ConfigPublishNotificationQueue(int capacity, long offerTimeoutInMillis, MeterRegistry meterRegistry) {
+    this.capacity = capacity;
+    this.offerTimeoutInMillis = offerTimeoutInMillis;
+
+    Gauge.builder("apollo.portal.publish.notification.depth", depth, AtomicInteger::get)
+        .description("The publish notifications waiting to be sent")
+        .register(meterRegistry);
+    latencyTimer = Timer.builder("apollo.portal.publish.notification.latency")
+        .description("The time from publishing to the publish notification sent")
+        .register(meterRegistry);
+    droppedCounter = Counter.builder("apollo.portal.publish.notification.dropped")
+        .description("The publish notifications dropped since the queue is full")
+        .register(meterRegistry);
+  }
+
+  void start(int workers, Processor processor) {
+    executorService = Executors.newFixedThreadPool(workers, ApolloThreadFactory.create("ConfigPublishNotify", true));
+    for (int i = 0; i < workers; i++) {
+      executorService.submit(() -> work(processor));
+    }
+  }
+
+  void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * @return false if the queue is still full after waiting, the notification is dropped
+   */
+  boolean offer(ConfigPublishEvent.ConfigPublishInfo publishInfo) {
+    String namespace = namespaceKey(publishInfo);
+    long remainingNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutInMillis);
+
+    lock.lock();
+    try {
+      NamespaceNotifications notifications = waiting.get(namespace);
+      while (notifications == null && waiting.size() >= capacity) {
+        if (remainingNanos <= 0) {
+          droppedCounter.increment();
+          return false;
+        }
+        remainingNanos = notFull.awaitNanos(remainingNanos);
+        notifications = waiting.get(namespace);
+      }
+
+      if (notifications == null) {
+        notifications = new NamespaceNotifications(namespace, sequence.incrementAndGet());
+        waiting.put(namespace, notifications);
+      }
+
+      int priority = priorityOf(publishInfo);
+      if (priority > notifications.priority) {
+        // the order in the queue is fixed once added, so take it out before raising the priority.
+        // not found means a worker has just taken it
+        boolean requeue = notifications.ready && readyQueue.remove(notifications);
+        notifications.priority = priority;
+        if (requeue) {
+          readyQueue.add(notifications);
+        }
+      }
+      notifications.publishInfos.add(new PendingPublishInfo(publishInfo, System.nanoTime()));
+      depth.incrementAndGet();
+
+      if (!notifications.ready && !processing.contains(namespace)) {
+        notifications.ready = true;
+        readyQueue.add(notifications);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      droppedCounter.increment();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int depth() {
+    return depth.get();
+  }
+
+  private void work(Processor processor) {
+    while (!Thread.currentThread().isInterrupted()) {
+      NamespaceNotifications notifications;
+      try {
+        notifications = readyQueue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      List<PendingPublishInfo> batch;
+      lock.lock();
+      try {
+        waiting.remove(notifications.namespace);
+        processing.add(notifications.namespace);
+        batch = notifications.publishInfos;
+        depth.addAndGet(-batch.size());
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        process(processor, batch);
+      } finally {
+        lock.lock();
+        try {
+          processing.remove(notifications.namespace);
+          NamespaceNotifications next = waiting.get(notifications.namespace);
+          if (next != null && !next.ready) {
+            next.ready = true;
+            readyQueue.add(next);
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  private void process(Processor processor, List<PendingPublishInfo> batch) {
+    List<ConfigPublishEvent.ConfigPublishInfo> publishInfos = new ArrayList<>(batch.size());
+    for (PendingPublishInfo pendingPublishInfo : batch) {
+      publishInfos.add(pendingPublishInfo.publishInfo);
+    }
+
+    try {
+      processor.process(publishInfos);
+    } catch (Throwable ex) {
+      Tracer.logError("Send publish notifications failed.", ex);
+    }
+
+    long now = System.nanoTime();
+    for (PendingPublishInfo pendingPublishInfo : batch) {
+      latencyTimer.record(now - pendingPublishInfo.offeredAtNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static int priorityOf(ConfigPublishEvent.ConfigPublishInfo publishInfo) {
+    if (publishInfo.isRollbackEvent()) {
+      return PRIORITY_ROLLBACK;
+    }
+    if (publishInfo.isGrayPublishEvent()) {
+      return PRIORITY_GRAY_RELEASE;
+    }
+    return PRIORITY_RELEASE;
+  }
+
+  private static String namespaceKey(ConfigPublishEvent.ConfigPublishInfo publishInfo) {
+    return String.format("%s+%s+%s+%s", publishInfo.getEnv(), publishInfo.getAppId(), publishInfo.getClusterName(),
+        publishInfo.getNamespaceName());
+  }
+
+  private static class NamespaceNotifications {
+
+    private final String namespace;
+    private final long sequence;
+    private final List<PendingPublishInfo> publishInfos = new ArrayList<>();
+    private int priority = Integer.MIN_VALUE;
+    private boolean ready;
+
+    NamespaceNotifications(String namespace, long sequence) {
+      this.namespace = namespace;
+      this.sequence = sequence;
+    }
+  }
+
+  private static class PendingPublishInfo {
+
+    private final ConfigPublishEvent.ConfigPublishInfo publishInfo;
+    private final long offeredAtNanos;
+
+    PendingPublishInfo(ConfigPublishEvent.ConfigPublishInfo publishInfo, long offeredAtNanos) {
+      this.publishInfo = publishInfo;
+      this.offeredAtNanos = offeredAtNanos;
+    }
+  }
+}
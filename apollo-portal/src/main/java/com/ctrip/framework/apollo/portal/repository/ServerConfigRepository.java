@@ -3,8 +3,14 @@ package com.ctrip.framework.apollo.portal.repository;
 
 import com.ctrip.framework.apollo.portal.entity.po.ServerConfig;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.List;
+
 public interface ServerConfigRepository extends PagingAndSortingRepository<ServerConfig, Long> {
   ServerConfig findByKey(String key);
+
+  @Query("SELECT COUNT(s), MAX(s.dataChangeLastModifiedTime) FROM ServerConfig s")
+  List<Object[]> findCountAndLastModifiedTime();
 }
@@ -11,7 +11,9 @@ import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
 import com.ctrip.framework.apollo.portal.entity.bo.ReleaseHistoryBO;
 import com.ctrip.framework.apollo.portal.util.RelativeDateFormat;
 import com.google.gson.Gson;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -58,8 +60,41 @@ public class ReleaseHistoryService {
     return null;
   }
 
+  /**
+   * The release configurations are not included, the portal loads them by release id when viewing all the items
+   */
   public List<ReleaseHistoryBO> findNamespaceReleaseHistory(String appId, Env env, String clusterName,
                                                             String namespaceName, int page, int size) {
+    PageDTO<ReleaseHistoryDTO> result;
+    try {
+      result = releaseHistoryAPI.findReleaseHistorySummariesByNamespace(appId, env, clusterName, namespaceName, page,
+          size);
+    } catch (HttpClientErrorException ex) {
+      //admin service not upgraded yet
+      if (ex.getStatusCode() != HttpStatus.NOT_FOUND) {
+        throw ex;
+      }
+      return findNamespaceReleaseHistoryWithConfiguration(appId, env, clusterName, namespaceName, page, size);
+    }
+    if (result == null || !result.hasContent()) {
+      return Collections.emptyList();
+    }
+
+    List<ReleaseHistoryBO> bos = new ArrayList<>(result.getContent().size());
+    for (ReleaseHistoryDTO dto : result.getContent()) {
+      ReleaseHistoryBO bo = transformReleaseHistoryDTO2BO(dto, null);
+      if (dto.getReleaseName() != null) {
+        bo.setReleaseTitle(dto.getReleaseName());
+        bo.setReleaseComment(dto.getReleaseComment());
+      }
+      bos.add(bo);
+    }
+    return bos;
+  }
+
+  private List<ReleaseHistoryBO> findNamespaceReleaseHistoryWithConfiguration(String appId, Env env,
+                                                                              String clusterName, String namespaceName,
+                                                                              int page, int size) {
     PageDTO<ReleaseHistoryDTO> result = releaseHistoryAPI.findReleaseHistoriesByNamespace(appId, env, clusterName,
                                                                                           namespaceName, page, size);
     if (result == null || !result.hasContent()) {
@@ -109,6 +144,8 @@ public class ReleaseHistoryService {
     bo.setReleaseTime(releaseTime);
     bo.setReleaseTimeFormatted(RelativeDateFormat.format(releaseTime));
     bo.setOperationContext(dto.getOperationContext());
+    bo.setChangedKeyCount(dto.getChangedKeyCount());
+    bo.setChangedKeys(dto.getChangedKeys());
     //set release info
     setReleaseInfoToReleaseHistoryBO(bo, release);
 
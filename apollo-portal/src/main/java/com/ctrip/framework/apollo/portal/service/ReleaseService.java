@@ -16,6 +16,8 @@ import com.ctrip.framework.apollo.portal.enums.ChangeType;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
@@ -33,9 +35,17 @@ import java.util.Set;
 public class ReleaseService {
 
   private static final Gson gson = new Gson();
+  // the total length of the cached release configurations
+  private static final long MAX_CACHED_CONFIGURATIONS_LENGTH = 64 * 1024 * 1024;
 
   private final UserInfoHolder userInfoHolder;
   private final AdminServiceAPI.ReleaseAPI releaseAPI;
+  // env + release id -> release, the configurations of a release never change
+  private final Cache<String, ReleaseDTO> releaseCache = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_CACHED_CONFIGURATIONS_LENGTH)
+      .weigher((String key, ReleaseDTO release) ->
+          release.getConfigurations() == null ? 1 : release.getConfigurations().length() + 1)
+      .build();
 
   public ReleaseService(final UserInfoHolder userInfoHolder, final AdminServiceAPI.ReleaseAPI releaseAPI) {
     this.userInfoHolder = userInfoHolder;
@@ -54,6 +64,7 @@ public class ReleaseService {
     ReleaseDTO releaseDTO = releaseAPI.createRelease(appId, env, clusterName, namespaceName,
                                                      model.getReleaseTitle(), model.getReleaseComment(),
                                                      releaseBy, isEmergencyPublish);
+    cacheRelease(env, releaseDTO);
 
     Tracer.logEvent(TracerEventType.RELEASE_NAMESPACE,
                     String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
@@ -72,6 +83,7 @@ public class ReleaseService {
     ReleaseDTO releaseDTO = releaseAPI.createGrayDeletionRelease(appId, env, clusterName, namespaceName,
             model.getReleaseTitle(), model.getReleaseComment(),
             releaseBy, isEmergencyPublish, model.getGrayDelKeys());
+    cacheRelease(env, releaseDTO);
 
     Tracer.logEvent(TracerEventType.RELEASE_NAMESPACE,
             String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
@@ -83,8 +95,12 @@ public class ReleaseService {
                                      String releaseTitle, String releaseComment, String branchName,
                                      boolean isEmergencyPublish, boolean deleteBranch, ItemChangeSets changeSets) {
 
-    return releaseAPI.updateAndPublish(appId, env, clusterName, namespaceName, releaseTitle, releaseComment, branchName,
-                                       isEmergencyPublish, deleteBranch, changeSets);
+    ReleaseDTO releaseDTO = releaseAPI.updateAndPublish(appId, env, clusterName, namespaceName, releaseTitle,
+                                                        releaseComment, branchName, isEmergencyPublish, deleteBranch,
+                                                        changeSets);
+    cacheRelease(env, releaseDTO);
+
+    return releaseDTO;
   }
 
   public List<ReleaseBO> findAllReleases(String appId, Env env, String clusterName, String namespaceName, int page,
@@ -149,16 +165,39 @@ public class ReleaseService {
     ReleaseDTO baseRelease = null;
     ReleaseDTO toCompareRelease = null;
     if (baseReleaseId != 0) {
-      baseRelease = releaseAPI.loadRelease(env, baseReleaseId);
+      baseRelease = loadRelease(env, baseReleaseId);
     }
 
     if (toCompareReleaseId != 0) {
-      toCompareRelease = releaseAPI.loadRelease(env, toCompareReleaseId);
+      toCompareRelease = loadRelease(env, toCompareReleaseId);
     }
 
     return compare(baseRelease, toCompareRelease);
   }
 
+  /**
+   * Load the release for comparing, the releases published by this portal are cached, so comparing a publish with the
+   * previous one (e.g. the publish email) usually does not call the admin service.
+   */
+  private ReleaseDTO loadRelease(Env env, long releaseId) {
+    ReleaseDTO release = releaseCache.getIfPresent(releaseCacheKey(env, releaseId));
+    if (release == null) {
+      release = releaseAPI.loadRelease(env, releaseId);
+      cacheRelease(env, release);
+    }
+    return release;
+  }
+
+  private void cacheRelease(Env env, ReleaseDTO release) {
+    if (release != null) {
+      releaseCache.put(releaseCacheKey(env, release.getId()), release);
+    }
+  }
+
+  private String releaseCacheKey(Env env, long releaseId) {
+    return env + "+" + releaseId;
+  }
+
   public ReleaseCompareResult compare(ReleaseDTO baseRelease, ReleaseDTO toCompareRelease) {
     Map<String, String> baseReleaseConfiguration = baseRelease == null ? new HashMap<>() :
                                                    gson.fromJson(baseRelease.getConfigurations(), GsonType.CONFIG);
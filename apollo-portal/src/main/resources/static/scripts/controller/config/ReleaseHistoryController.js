@@ -112,6 +112,8 @@ function releaseHistoryController($scope, $location, $translate, AppUtil,
         if (!history.viewType) {//default view type
             history.viewType = CONFIG_VIEW_TYPE.DIFF;
             getReleaseDiffConfiguration(history);
+        } else if (history.viewType == CONFIG_VIEW_TYPE.ALL) {
+            getReleaseConfiguration(history);
         }
 
     }
@@ -130,6 +132,8 @@ function releaseHistoryController($scope, $location, $translate, AppUtil,
 
         if (viewType == CONFIG_VIEW_TYPE.DIFF) {
             getReleaseDiffConfiguration(history);
+        } else if (viewType == CONFIG_VIEW_TYPE.ALL) {
+            getReleaseConfiguration(history);
         }
 
     }
@@ -152,6 +156,21 @@ function releaseHistoryController($scope, $location, $translate, AppUtil,
         }
     }
 
+    // the history list doesn't contain the release configurations, load them when viewing all the items
+    function getReleaseConfiguration(history) {
+
+        if (!history.configuration && history.releaseId) {
+
+            ReleaseService.findReleaseById($scope.pageContext.env, history.releaseId)
+                .then(function (result) {
+                    var configurations = JSON.parse(result.configurations || '{}');
+                    history.configuration = Object.keys(configurations).map(function (key) {
+                        return {firstEntity: key, secondEntity: configurations[key]};
+                    });
+                })
+        }
+    }
+
     function showText(text) {
         $scope.text = text;
         AppUtil.showModal("#showTextModal");
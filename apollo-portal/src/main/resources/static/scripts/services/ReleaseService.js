@@ -14,6 +14,10 @@ appService.service('ReleaseService', ['$resource', '$q', function ($resource, $q
             method: 'GET',
             url: '/envs/:env/releases/compare'
         },
+        find_release_by_id: {
+            method: 'GET',
+            url: '/envs/:env/releases/:releaseId'
+        },
         release: {
             method: 'POST',
             url: '/apps/:appId/envs/:env/clusters/:clusterName/namespaces/:namespaceName/releases'
@@ -138,6 +142,19 @@ appService.service('ReleaseService', ['$resource', '$q', function ($resource, $q
         return d.promise;
     }
 
+    function findReleaseById(env, releaseId) {
+        var d = $q.defer();
+        resource.find_release_by_id({
+                                        env: env,
+                                        releaseId: releaseId
+                                    }, function (result) {
+            d.resolve(result);
+        }, function (result) {
+            d.reject(result);
+        });
+        return d.promise;
+    }
+
     function rollback(env, releaseId) {
         var d = $q.defer();
         resource.rollback({
@@ -160,6 +177,7 @@ appService.service('ReleaseService', ['$resource', '$q', function ($resource, $q
         findActiveReleases: findActiveReleases,
         findLatestActiveRelease: findLatestActiveRelease,
         compare: compare,
+        findReleaseById: findReleaseById,
         rollback: rollback
     }
 }]);
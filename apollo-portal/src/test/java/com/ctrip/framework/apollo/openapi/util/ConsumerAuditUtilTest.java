@@ -18,7 +18,7 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
@@ -37,7 +37,7 @@ public class ConsumerAuditUtilTest {
 
   @Before
   public void setUp() throws Exception {
-    consumerAuditUtil = new ConsumerAuditUtil(consumerService);
+    consumerAuditUtil = new ConsumerAuditUtil(consumerService, "someDataSourceUrl");
     ReflectionTestUtils.setField(consumerAuditUtil, "BATCH_TIMEOUT", batchTimeout);
     ReflectionTestUtils.setField(consumerAuditUtil, "BATCH_TIMEUNIT", batchTimeUnit);
     consumerAuditUtil.afterPropertiesSet();
@@ -66,7 +66,7 @@ public class ConsumerAuditUtilTest {
       result.set((List<ConsumerAudit>) args[0]);
 
       return null;
-    }).when(consumerService).createConsumerAudits(anyCollection());
+    }).when(consumerService).createConsumerAudits(anyList());
 
     consumerAuditUtil.audit(request, someConsumerId);
 
@@ -16,12 +16,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
@@ -137,6 +141,77 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
     verify(restTemplate).put(serviceOne + "/" + path, request);
   }
 
+  @Test
+  public void testEjectedServiceTriedLast() {
+    Object result = new Object();
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenThrow(connectTimeoutException);
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(result, retryableRestTemplate.get(Env.DEV, path, Object.class));
+    }
+
+    //ejected after 3 failures in a row
+    verify(restTemplate, times(3)).getForObject(serviceOne + "/" + path, Object.class);
+    verify(restTemplate, times(5)).getForObject(serviceTwo + "/" + path, Object.class);
+    verify(serviceAddressLocator, times(3)).refreshOnFailure(Env.DEV);
+  }
+
+  @Test
+  public void testHedgedGet() {
+    Object result = new Object();
+    Object slowResult = new Object();
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenAnswer(invocation -> {
+      TimeUnit.SECONDS.sleep(2);
+      return slowResult;
+    });
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    //not hedged before there are enough latency samples
+    when(serviceAddressLocator.getServiceList(any())).thenReturn(Collections.singletonList(mockService(serviceTwo)));
+    for (int i = 0; i < 20; i++) {
+      retryableRestTemplate.get(Env.DEV, path, Object.class);
+    }
+
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+
+    long start = System.currentTimeMillis();
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertEquals(result, o);
+    Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    verify(restTemplate, times(21)).getForObject(serviceTwo + "/" + path, Object.class);
+  }
+
+  @Test
+  public void testHedgeSkippedWhenHedgeThreadsExhausted() {
+    Object result = new Object();
+    Object slowResult = new Object();
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenAnswer(invocation -> {
+      TimeUnit.MILLISECONDS.sleep(500);
+      return slowResult;
+    });
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+    ReflectionTestUtils.setField(retryableRestTemplate, "hedgeExecutorService",
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>()));
+
+    when(serviceAddressLocator.getServiceList(any())).thenReturn(Collections.singletonList(mockService(serviceTwo)));
+    for (int i = 0; i < 20; i++) {
+      retryableRestTemplate.get(Env.DEV, path, Object.class);
+    }
+
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertEquals(slowResult, o);
+    verify(restTemplate, times(20)).getForObject(serviceTwo + "/" + path, Object.class);
+  }
+
   private ServiceDTO mockService(String homeUrl) {
     ServiceDTO serviceDTO = new ServiceDTO();
     serviceDTO.setHomepageUrl(homeUrl);
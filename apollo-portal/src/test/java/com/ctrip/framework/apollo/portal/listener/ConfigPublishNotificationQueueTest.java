@@ -0,0 +1,107 @@
+package com.ctrip.framework.apollo.portal.listener;
+
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigPublishNotificationQueueTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ConfigPublishNotificationQueue notificationQueue;
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    notificationQueue = new ConfigPublishNotificationQueue(2, 10, meterRegistry);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    notificationQueue.stop();
+  }
+
+  @Test
+  public void testCoalescePublishesOfNamespace() throws Exception {
+    assertTrue(notificationQueue.offer(normalPublish("someNamespace", 1)));
+    assertTrue(notificationQueue.offer(normalPublish("someNamespace", 2)));
+    assertTrue(notificationQueue.offer(normalPublish("someNamespace", 3)));
+    assertEquals(3, notificationQueue.depth());
+
+    List<List<ConfigPublishEvent.ConfigPublishInfo>> batches = process(1);
+
+    assertEquals(1, batches.size());
+    assertEquals(3, batches.get(0).size());
+    assertEquals(1, batches.get(0).get(0).getReleaseId());
+    assertEquals(3, batches.get(0).get(2).getReleaseId());
+    assertEquals(0, notificationQueue.depth());
+    assertEquals(3, meterRegistry.get("apollo.portal.publish.notification.latency").timer().count());
+  }
+
+  @Test
+  public void testRollbackFirstAndGrayReleaseLast() throws Exception {
+    notificationQueue = new ConfigPublishNotificationQueue(10, 10, meterRegistry);
+    ConfigPublishEvent.ConfigPublishInfo grayPublish = normalPublish("grayNamespace", 1);
+    grayPublish.setNormalPublishEvent(false);
+    grayPublish.setGrayPublishEvent(true);
+    ConfigPublishEvent.ConfigPublishInfo rollback = normalPublish("rollbackNamespace", 2);
+    rollback.setNormalPublishEvent(false);
+    rollback.setRollbackEvent(true);
+
+    notificationQueue.offer(grayPublish);
+    notificationQueue.offer(normalPublish("normalNamespace", 3));
+    notificationQueue.offer(rollback);
+
+    List<List<ConfigPublishEvent.ConfigPublishInfo>> batches = process(3);
+
+    assertEquals("rollbackNamespace", batches.get(0).get(0).getNamespaceName());
+    assertEquals("normalNamespace", batches.get(1).get(0).getNamespaceName());
+    assertEquals("grayNamespace", batches.get(2).get(0).getNamespaceName());
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    assertTrue(notificationQueue.offer(normalPublish("someNamespace", 1)));
+    assertTrue(notificationQueue.offer(normalPublish("anotherNamespace", 2)));
+
+    assertFalse(notificationQueue.offer(normalPublish("yetAnotherNamespace", 3)));
+    //the waiting namespaces still accept publishes
+    assertTrue(notificationQueue.offer(normalPublish("someNamespace", 4)));
+
+    assertEquals(3, notificationQueue.depth());
+    assertEquals(1, meterRegistry.get("apollo.portal.publish.notification.dropped").counter().count(), 0);
+  }
+
+  private List<List<ConfigPublishEvent.ConfigPublishInfo>> process(int expectedBatches) throws Exception {
+    List<List<ConfigPublishEvent.ConfigPublishInfo>> batches = Collections.synchronizedList(Lists.newArrayList());
+    CountDownLatch latch = new CountDownLatch(expectedBatches);
+    notificationQueue.start(1, publishInfos -> {
+      batches.add(publishInfos);
+      latch.countDown();
+    });
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    return batches;
+  }
+
+  private ConfigPublishEvent.ConfigPublishInfo normalPublish(String namespaceName, long releaseId) {
+    ConfigPublishEvent.ConfigPublishInfo publishInfo = new ConfigPublishEvent.ConfigPublishInfo();
+    publishInfo.setEnv(Env.DEV);
+    publishInfo.setAppId("someApp");
+    publishInfo.setClusterName("default");
+    publishInfo.setNamespaceName(namespaceName);
+    publishInfo.setReleaseId(releaseId);
+    publishInfo.setNormalPublishEvent(true);
+    return publishInfo;
+  }
+}
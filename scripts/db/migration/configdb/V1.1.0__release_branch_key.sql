@@ -0,0 +1,28 @@
+# Branch release keys of the release histories, previously only in ReleaseHistory.OperationContext
+
+Use ApolloConfigDB;
+
+CREATE TABLE `ReleaseBranchKey` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `ReleaseHistoryId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '分支发布的ReleaseHistory Id',
+  `ReleaseId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '分支发布的Release Id',
+  `Key` varchar(128) NOT NULL DEFAULT 'default' COMMENT '分支修改的配置项Key',
+  `Value` longtext COMMENT '分支发布的配置项值，分支的配置中没有该Key时为空',
+  `IsDeleted` bit(1) NOT NULL DEFAULT b'0' COMMENT '1: deleted, 0: normal',
+  `DataChange_CreatedBy` varchar(32) NOT NULL DEFAULT 'default' COMMENT '创建人邮箱前缀',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `DataChange_LastModifiedBy` varchar(32) DEFAULT '' COMMENT '最后修改人邮箱前缀',
+  `DataChange_LastTime` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
+  PRIMARY KEY (`Id`),
+  UNIQUE KEY `UK_ReleaseHistoryId_Key` (`ReleaseHistoryId`,`Key`),
+  KEY `IX_ReleaseId` (`ReleaseId`),
+  KEY `IX_DataChange_LastTime` (`DataChange_LastTime`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分支发布修改的配置项';
+
+# findByReleaseIdAndOperation / findByPreviousReleaseIdAndOperation
+ALTER TABLE `ReleaseHistory` DROP INDEX `IX_ReleaseId`;
+CREATE INDEX `IX_ReleaseId_Operation` ON ReleaseHistory (`ReleaseId`, `Operation`);
+CREATE INDEX `IX_PreviousReleaseId_Operation` ON ReleaseHistory (`PreviousReleaseId`, `Operation`);
+
+# The existing branch release keys are backfilled by the admin service in the background after upgrade
+# (ReleaseBranchKeyBackfiller), since the operation context can not be parsed in SQL on MySQL 5.6.
@@ -0,0 +1,7 @@
+# Changed keys of the release histories, computed at publish time for the history list
+
+Use ApolloConfigDB;
+
+ALTER TABLE `ReleaseHistory`
+  ADD COLUMN `ChangedKeyCount` int(11) unsigned DEFAULT NULL COMMENT '变更的配置项数量' AFTER `OperationContext`,
+  ADD COLUMN `ChangedKeys` text COMMENT '变更的配置项Key，最多100个' AFTER `ChangedKeyCount`;
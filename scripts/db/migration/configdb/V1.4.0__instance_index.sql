@@ -0,0 +1,37 @@
+# Instance counts of the namespaces, maintained along with InstanceConfig and backfilled from the active instance configs
+
+Use ApolloConfigDB;
+
+CREATE TABLE `InstanceIndex` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `IndexKey` char(32) NOT NULL DEFAULT '' COMMENT 'ConfigAppId+ConfigClusterName+ConfigNamespaceName+ReleaseKey+InstanceClusterName+DataCenter的md5',
+  `ConfigAppId` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config App Id',
+  `ConfigClusterName` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config Cluster Name',
+  `ConfigNamespaceName` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config Namespace Name',
+  `ReleaseKey` varchar(64) NOT NULL DEFAULT '' COMMENT '发布的Key',
+  `InstanceClusterName` varchar(32) NOT NULL DEFAULT '' COMMENT '实例的ClusterName',
+  `DataCenter` varchar(64) NOT NULL DEFAULT '' COMMENT '实例的Data Center Name',
+  `TimeBucket` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '实例配置最后修改时间所在的小时',
+  `InstanceCount` int(11) NOT NULL DEFAULT '0' COMMENT '实例数量',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `DataChange_LastTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
+  PRIMARY KEY (`Id`),
+  UNIQUE KEY `IX_UNIQUE_KEY` (`IndexKey`,`TimeBucket`),
+  KEY `IX_Namespace` (`ConfigAppId`,`ConfigClusterName`,`ConfigNamespaceName`,`TimeBucket`),
+  KEY `IX_ReleaseKey` (`ReleaseKey`,`TimeBucket`),
+  KEY `IX_TimeBucket` (`TimeBucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='应用实例数量的索引';
+
+INSERT INTO `InstanceIndex` (`IndexKey`, `ConfigAppId`, `ConfigClusterName`, `ConfigNamespaceName`, `ReleaseKey`,
+  `InstanceClusterName`, `DataCenter`, `TimeBucket`, `InstanceCount`)
+SELECT
+  MD5(CONCAT_WS('+', a.`ConfigAppId`, a.`ConfigClusterName`, a.`ConfigNamespaceName`, a.`ReleaseKey`,
+    IFNULL(b.`ClusterName`, ''), IFNULL(b.`DataCenter`, ''))),
+  a.`ConfigAppId`, a.`ConfigClusterName`, a.`ConfigNamespaceName`, a.`ReleaseKey`,
+  IFNULL(b.`ClusterName`, ''), IFNULL(b.`DataCenter`, ''),
+  DATE_FORMAT(a.`DataChange_LastTime`, '%Y-%m-%d %H:00:00'), COUNT(1)
+FROM `InstanceConfig` a
+LEFT JOIN `Instance` b ON b.`Id` = a.`InstanceId`
+WHERE a.`DataChange_LastTime` > DATE_SUB(NOW(), INTERVAL 2 DAY)
+GROUP BY a.`ConfigAppId`, a.`ConfigClusterName`, a.`ConfigNamespaceName`, a.`ReleaseKey`,
+  IFNULL(b.`ClusterName`, ''), IFNULL(b.`DataCenter`, ''), DATE_FORMAT(a.`DataChange_LastTime`, '%Y-%m-%d %H:00:00');
@@ -132,6 +132,23 @@ CREATE TABLE `Commit` (
   KEY `NamespaceName` (`NamespaceName`(191))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='commit 历史表';
 
+# Dump of table deletedrowarchive
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `DeletedRowArchive`;
+
+CREATE TABLE `DeletedRowArchive` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `TableName` varchar(64) NOT NULL DEFAULT '' COMMENT '数据所在的表',
+  `RowId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '数据在原表中的Id',
+  `Content` longtext NOT NULL COMMENT '数据所有列的值，json格式',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+  PRIMARY KEY (`Id`),
+  KEY `IX_TableName_RowId` (`TableName`,`RowId`),
+  KEY `IX_DataChange_CreatedTime` (`DataChange_CreatedTime`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='清理的已删除数据';
+
+
 # Dump of table grayreleaserule
 # ------------------------------------------------------------
 
@@ -202,6 +219,32 @@ CREATE TABLE `InstanceConfig` (
 
 
 
+# Dump of table instanceindex
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `InstanceIndex`;
+
+CREATE TABLE `InstanceIndex` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `IndexKey` char(32) NOT NULL DEFAULT '' COMMENT 'ConfigAppId+ConfigClusterName+ConfigNamespaceName+ReleaseKey+InstanceClusterName+DataCenter的md5',
+  `ConfigAppId` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config App Id',
+  `ConfigClusterName` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config Cluster Name',
+  `ConfigNamespaceName` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Config Namespace Name',
+  `ReleaseKey` varchar(64) NOT NULL DEFAULT '' COMMENT '发布的Key',
+  `InstanceClusterName` varchar(32) NOT NULL DEFAULT '' COMMENT '实例的ClusterName',
+  `DataCenter` varchar(64) NOT NULL DEFAULT '' COMMENT '实例的Data Center Name',
+  `TimeBucket` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '实例配置最后修改时间所在的小时',
+  `InstanceCount` int(11) NOT NULL DEFAULT '0' COMMENT '实例数量',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `DataChange_LastTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
+  PRIMARY KEY (`Id`),
+  UNIQUE KEY `IX_UNIQUE_KEY` (`IndexKey`,`TimeBucket`),
+  KEY `IX_Namespace` (`ConfigAppId`,`ConfigClusterName`,`ConfigNamespaceName`,`TimeBucket`),
+  KEY `IX_ReleaseKey` (`ReleaseKey`,`TimeBucket`),
+  KEY `IX_TimeBucket` (`TimeBucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='应用实例数量的索引';
+
+
 # Dump of table item
 # ------------------------------------------------------------
 
@@ -296,6 +339,29 @@ CREATE TABLE `Release` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发布';
 
 
+# Dump of table releasebranchkey
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `ReleaseBranchKey`;
+
+CREATE TABLE `ReleaseBranchKey` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `ReleaseHistoryId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '分支发布的ReleaseHistory Id',
+  `ReleaseId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '分支发布的Release Id',
+  `Key` varchar(128) NOT NULL DEFAULT 'default' COMMENT '分支修改的配置项Key',
+  `Value` longtext COMMENT '分支发布的配置项值，分支的配置中没有该Key时为空',
+  `IsDeleted` bit(1) NOT NULL DEFAULT b'0' COMMENT '1: deleted, 0: normal',
+  `DataChange_CreatedBy` varchar(32) NOT NULL DEFAULT 'default' COMMENT '创建人邮箱前缀',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `DataChange_LastModifiedBy` varchar(32) DEFAULT '' COMMENT '最后修改人邮箱前缀',
+  `DataChange_LastTime` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
+  PRIMARY KEY (`Id`),
+  UNIQUE KEY `UK_ReleaseHistoryId_Key` (`ReleaseHistoryId`,`Key`),
+  KEY `IX_ReleaseId` (`ReleaseId`),
+  KEY `IX_DataChange_LastTime` (`DataChange_LastTime`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分支发布修改的配置项';
+
+
 # Dump of table releasehistory
 # ------------------------------------------------------------
 
@@ -311,6 +377,8 @@ CREATE TABLE `ReleaseHistory` (
   `PreviousReleaseId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '前一次发布的ReleaseId',
   `Operation` tinyint(3) unsigned NOT NULL DEFAULT '0' COMMENT '发布类型，0: 普通发布，1: 回滚，2: 灰度发布，3: 灰度规则更新，4: 灰度合并回主分支发布，5: 主分支发布灰度自动发布，6: 主分支回滚灰度自动发布，7: 放弃灰度',
   `OperationContext` longtext NOT NULL COMMENT '发布上下文信息',
+  `ChangedKeyCount` int(11) unsigned DEFAULT NULL COMMENT '变更的配置项数量',
+  `ChangedKeys` text COMMENT '变更的配置项Key，最多100个',
   `IsDeleted` bit(1) NOT NULL DEFAULT b'0' COMMENT '1: deleted, 0: normal',
   `DataChange_CreatedBy` varchar(32) NOT NULL DEFAULT 'default' COMMENT '创建人邮箱前缀',
   `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -318,7 +386,8 @@ CREATE TABLE `ReleaseHistory` (
   `DataChange_LastTime` timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后修改时间',
   PRIMARY KEY (`Id`),
   KEY `IX_Namespace` (`AppId`,`ClusterName`,`NamespaceName`,`BranchName`),
-  KEY `IX_ReleaseId` (`ReleaseId`),
+  KEY `IX_ReleaseId_Operation` (`ReleaseId`,`Operation`),
+  KEY `IX_PreviousReleaseId_Operation` (`PreviousReleaseId`,`Operation`),
   KEY `IX_DataChange_LastTime` (`DataChange_LastTime`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发布历史';
 
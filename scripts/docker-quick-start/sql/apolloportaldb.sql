@@ -149,6 +149,23 @@ CREATE TABLE `ConsumerToken` (
   KEY `DataChange_LastTime` (`DataChange_LastTime`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='consumer token表';
 
+# Dump of table deletedrowarchive
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `DeletedRowArchive`;
+
+CREATE TABLE `DeletedRowArchive` (
+  `Id` int(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增Id',
+  `TableName` varchar(64) NOT NULL DEFAULT '' COMMENT '数据所在的表',
+  `RowId` int(11) unsigned NOT NULL DEFAULT '0' COMMENT '数据在原表中的Id',
+  `Content` longtext NOT NULL COMMENT '数据所有列的值，json格式',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+  PRIMARY KEY (`Id`),
+  KEY `IX_TableName_RowId` (`TableName`,`RowId`),
+  KEY `IX_DataChange_CreatedTime` (`DataChange_CreatedTime`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='清理的已删除数据';
+
+
 # Dump of table favorite
 # ------------------------------------------------------------
 